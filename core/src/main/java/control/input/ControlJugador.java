@@ -8,6 +8,15 @@ import com.badlogic.gdx.physics.box2d.Body;
 import entidades.personajes.Jugador;
 
 public class ControlJugador {
+    // Bits de la máscara de entrada (lockstep: lo único que viaja por tick)
+    public static final int ARRIBA = 1;
+
+    public static final int ABAJO = 2;
+
+    public static final int IZQUIERDA = 4;
+
+    public static final int DERECHA = 8;
+
     private static boolean enPausa = false;  // Flag para la pausa
 
     // Evita allocaciones por frame
@@ -23,6 +32,9 @@ public class ControlJugador {
 
     private final int keyRight;
 
+    // -1 = teclado. Si no, la máscara del tick actual (lockstep)
+    private int entrada = -1;
+
     public ControlJugador(Jugador jugador, int keyUp, int keyDown, int keyLeft, int keyRight) {
         this.jugador = jugador;
         this.keyUp = keyUp;
@@ -35,6 +47,25 @@ public class ControlJugador {
         enPausa = pausa;
     }
 
+    /** Máscara ARRIBA/ABAJO/IZQUIERDA/DERECHA con las teclas apretadas ahora. */
+    public static int leerTeclado(int keyUp, int keyDown, int keyLeft, int keyRight) {
+        int m = 0;
+        if (Gdx.input.isKeyPressed(keyUp)) m |= ARRIBA;
+        if (Gdx.input.isKeyPressed(keyDown)) m |= ABAJO;
+        if (Gdx.input.isKeyPressed(keyLeft)) m |= IZQUIERDA;
+        if (Gdx.input.isKeyPressed(keyRight)) m |= DERECHA;
+        return m;
+    }
+
+    /** Lockstep: el próximo actualizar usa esta máscara en vez del teclado. */
+    public void setEntrada(int mascara) {
+        entrada = mascara;
+    }
+
+    public void usarTeclado() {
+        entrada = -1;
+    }
+
     public void actualizar(float delta) {
         Body cuerpo = jugador.getCuerpoFisico();
         if (cuerpo == null) return;
@@ -45,11 +76,13 @@ public class ControlJugador {
             return;
         }
 
+        int m = (entrada >= 0) ? entrada : leerTeclado(keyUp, keyDown, keyLeft, keyRight);
+
         float dx = 0, dy = 0;
-        if (Gdx.input.isKeyPressed(keyUp)) dy += 1;
-        if (Gdx.input.isKeyPressed(keyDown)) dy -= 1;
-        if (Gdx.input.isKeyPressed(keyLeft)) dx -= 1;
-        if (Gdx.input.isKeyPressed(keyRight)) dx += 1;
+        if ((m & ARRIBA) != 0) dy += 1;
+        if ((m & ABAJO) != 0) dy -= 1;
+        if ((m & IZQUIERDA) != 0) dx -= 1;
+        if ((m & DERECHA) != 0) dx += 1;
 
         dir.set(dx, dy);
 
@@ -27,6 +27,8 @@ public abstract class Entidad {
     protected final Vector2 tmpDir = new Vector2();
     protected final Vector2 tmpPos = new Vector2();
     private final Vector2 ultimaPos = new Vector2();
+    // NaN = se dibuja donde está el body
+    private final Vector2 posicionDibujo = new Vector2(Float.NaN, Float.NaN);
 
 
     protected Entidad(String nombre, float velocidad, Body cuerpoFisico) {
@@ -90,6 +92,20 @@ public abstract class Entidad {
         return cuerpoFisico != null ? cuerpoFisico.getPosition().y : 0f;
     }
 
+    /** Dónde dibujarla: la posición predicha en rollback (ver PrediccionRollback), si no la del body. */
+    public Vector2 getPosicionDibujo() {
+        if (Float.isNaN(posicionDibujo.x) && cuerpoFisico != null) return cuerpoFisico.getPosition();
+        return posicionDibujo;
+    }
+
+    public void setPosicionDibujo(float x, float y) {
+        posicionDibujo.set(x, y);
+    }
+
+    public void limpiarPosicionDibujo() {
+        posicionDibujo.set(Float.NaN, Float.NaN);
+    }
+
 
 
     public void detener() {
@@ -5,6 +5,7 @@ import java.util.*;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.IntMap;
 
 import entidades.enemigos.Enemigo;
 import entidades.items.Item;
@@ -123,6 +124,18 @@ public class GestorDeEntidades {
         removerItemDelMundo(item);
     }
 
+    /** Resync tras reconexión: se van todos los enemigos de red (el server manda los vivos de nuevo). */
+    public void despawnEnemigosOnline() {
+        for (Enemigo e : enemigoPorIdOnline.values()) eliminarEnemigo(e);
+        enemigoPorIdOnline.clear();
+    }
+
+    /** Igual que despawnEnemigosOnline, para los ítems tirados en el mundo. */
+    public void despawnItemsOnline() {
+        for (Item item : itemPorIdOnline.values()) removerItemDelMundo(item);
+        itemPorIdOnline.clear();
+    }
+
     public void eliminarEnemigo(Enemigo enemigo) {
         if (enemigo == null) return;
 
@@ -442,10 +455,10 @@ public class GestorDeEntidades {
     private final List<Item> itemsMundo = new ArrayList<>();
 
     // ✅ ONLINE: ids estables para enemigos sincronizados por red (SpawnEnemy/UpdateEnemy/DespawnEnemy)
-    private final Map<Integer, Enemigo> enemigoPorIdOnline = new HashMap<>();
+    private final IntMap<Enemigo> enemigoPorIdOnline = new IntMap<>();
 
     // ✅ ONLINE: ids estables para items sincronizados por red (SpawnItem/DespawnItem)
-    private final Map<Integer, Item> itemPorIdOnline = new HashMap<>();
+    private final IntMap<Item> itemPorIdOnline = new IntMap<>();
 
     // ✅ ahora soporta N jugadores
     private final Map<Integer, Jugador> jugadores = new HashMap<>();
@@ -75,6 +75,11 @@ public enum ItemTipo {
 
     private static final Random rng = new Random();
 
+    /** Lockstep: los dos clientes tienen que sortear los mismos ítems en el mismo orden. */
+    public static void sembrar(long semilla) {
+        rng.setSeed(semilla);
+    }
+
     // ============================================================
     // GENERADOR ALEATORIO POR RAREZA
     // ============================================================
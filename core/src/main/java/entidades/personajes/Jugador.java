@@ -110,6 +110,7 @@ public class Jugador extends Entidad {
     public void agregarObjeto(Item item) {
         if (item == null) return;
         objetos.add(item);
+        versionInventario++;
         reaplicarEfectosDeItems();
     }
 
@@ -124,6 +125,7 @@ public class Jugador extends Entidad {
 
     public void removerObjeto(Item item) {
         if (objetos.remove(item)) {
+            versionInventario++;
             reaplicarEfectosDeItems();
         }
     }
@@ -236,27 +238,53 @@ public class Jugador extends Entidad {
 
     /**
     * Setea inventario desde servidor SIN aplicar efectos locales.
-    * Formato: "TIPO1,TIPO2,..." (puede venir vacío).
+    * Lleva el inventario a las cantidades del server (índice = ordinal de ItemTipo) tocando
+    * solo la diferencia: se quitan los últimos que sobran y se agregan al final los que faltan.
+    * Devuelve true (y sube la versión) solo si algo cambió.
     */
-    public void setInventarioRemoto(String tiposCsv) {
-        objetos.clear();
-
-        if (tiposCsv == null) return;
-        String s = tiposCsv.trim();
-        if (s.isEmpty()) return;
-
-        String[] parts = s.split(",");
-        for (String p : parts) {
-            if (p == null) continue;
-            String t = p.trim();
-            if (t.isEmpty()) continue;
-            try {
-                ItemTipo tipo = ItemTipo.valueOf(t);
-                // Crear un Item "dummy" sin efecto (solo para HUD)
-                Item inst = tipo.crearInstancia();
-                objetos.add(new Item(inst.getNombre(), tipo, null));
-            } catch (Exception ignored) {
+    public boolean setInventarioRemoto(int[] conteos) {
+        if (conteos == null) return false;
+
+        java.util.Arrays.fill(conteoActual, 0);
+        for (Item item : objetos) {
+            if (item.getTipo() != null) conteoActual[item.getTipo().ordinal()]++;
+        }
+
+        boolean cambio = false;
+        for (int i = objetos.size() - 1; i >= 0; i--) {
+            ItemTipo tipo = objetos.get(i).getTipo();
+            if (tipo == null) continue;
+            int t = tipo.ordinal();
+            int objetivo = (t < conteos.length) ? conteos[t] : 0;
+            if (conteoActual[t] > objetivo) {
+                objetos.remove(i);
+                conteoActual[t]--;
+                cambio = true;
+            }
+        }
+
+        for (int t = 0; t < TIPOS_ITEM.length && t < conteos.length; t++) {
+            while (conteoActual[t] < conteos[t]) {
+                // Item "dummy" sin efecto (solo para HUD)
+                Item inst = TIPOS_ITEM[t].crearInstancia();
+                objetos.add(new Item(inst.getNombre(), TIPOS_ITEM[t], null));
+                conteoActual[t]++;
+                cambio = true;
             }
         }
+
+        if (cambio) versionInventario++;
+        return cambio;
+    }
+
+    /** Sube cada vez que cambia el inventario: el HUD redibuja y el server reenvía solo entonces. */
+    public int getVersionInventario() {
+        return versionInventario;
     }
-}
\ No newline at end of file
+
+    private static final ItemTipo[] TIPOS_ITEM = ItemTipo.values();
+
+    private final int[] conteoActual = new int[TIPOS_ITEM.length];
+
+    private int versionInventario = 0;
+}
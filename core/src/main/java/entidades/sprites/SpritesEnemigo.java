@@ -14,17 +14,10 @@ import entidades.enemigos.Enemigo;
 public class SpritesEnemigo extends SpritesEntidad {
     private static final float MOVING_HOLD_S = 0.18f; // ~4 frames a 60fps / 1 tick de red
 
-    // smoothing factor (mayor = más pegado, menor = más suave)
-    private static final float SMOOTHING = 14f;
-
     private boolean inicializadoDelta = false;
 
     private float lastX, lastY;
 
-    private float renderX, renderY;
-
-    private float targetX, targetY;
-
     @Override
     public void render(SpriteBatch batch) {
         if (batch == null) return;
@@ -33,17 +26,11 @@ public class SpritesEnemigo extends SpritesEntidad {
         TextureRegion frame = elegirFrame();
         if (frame == null) return;
 
-        // Render con posición suavizada (evita teleport visual).
-        float px;
-        float py;
-        if (inicializadoSuavizado) {
-            px = renderX;
-            py = renderY;
-        } else {
-            var pos = entidad.getCuerpoFisico().getPosition();
-            px = pos.x;
-            py = pos.y;
-        }
+        // En online el body ya viene interpolado por RedPartidaCliente (buffer por tiempo);
+        // en rollback es la posición predicha
+        var pos = entidad.getPosicionDibujo();
+        float px = pos.x;
+        float py = pos.y;
 
         float w = frame.getRegionWidth();
         float h = frame.getRegionHeight();
@@ -65,36 +52,18 @@ public class SpritesEnemigo extends SpritesEntidad {
         super.update(delta);
 
         if (entidad == null || entidad.getCuerpoFisico() == null) return;
-        var pos = entidad.getCuerpoFisico().getPosition();
-
-        // init
-        if (!inicializadoSuavizado) {
-            inicializadoSuavizado = true;
-            renderX = targetX = pos.x;
-            renderY = targetY = pos.y;
-        } else {
-            targetX = pos.x;
-            targetY = pos.y;
-
-            // Lerp exponencial aprox: alpha = 1 - exp(-k*dt)
-            float alpha = 1f - (float) Math.exp(-SMOOTHING * delta);
-            if (alpha < 0f) alpha = 0f;
-            if (alpha > 1f) alpha = 1f;
-
-            renderX += (targetX - renderX) * alpha;
-            renderY += (targetY - renderY) * alpha;
-        }
+        var pos = entidad.getPosicionDibujo();
 
         // Anti-parpadeo: si hubo movimiento real desde el último update, mantenemos "moving" un rato.
         if (!inicializadoDelta) {
             inicializadoDelta = true;
-            lastX = targetX;
-            lastY = targetY;
+            lastX = pos.x;
+            lastY = pos.y;
         } else {
-            float dx = targetX - lastX;
-            float dy = targetY - lastY;
-            lastX = targetX;
-            lastY = targetY;
+            float dx = pos.x - lastX;
+            float dy = pos.y - lastY;
+            lastX = pos.x;
+            lastY = pos.y;
 
             // flip por movimiento horizontal real
             if (Math.abs(dx) > 0.0001f) {
@@ -136,14 +105,10 @@ public class SpritesEnemigo extends SpritesEntidad {
         return "Enemigos/" + e.getNombre() + "_quieto.png";
     }
 
-    // Suavizado + anti-parpadeo (online)
-    // En online los enemigos suelen actualizarse a ~20Hz y se aplican con setTransform(),
-    // lo que se ve como "teleport" y además hace que el estado idle/move parpadee.
-    // Solución:
-    // 1) Render con posición suavizada (lerp) hacia la posición real del body.
-    // 2) Linger de "movimiento" por un corto tiempo después de detectar un update.
-
-    private boolean inicializadoSuavizado = false;
+    // Anti-parpadeo (online)
+    // En online los enemigos se actualizan a ~20Hz; el suavizado de posición lo hace el
+    // buffer de interpolación de RedPartidaCliente (por tiempo, con extrapolación acotada).
+    // Acá solo queda el linger de "movimiento" para que idle/move no parpadee entre updates.
 
     // Umbral anti-jitter (ajustable)
     private static final float EPS2 = 0.000001f;
@@ -65,6 +65,11 @@ public abstract class SpritesEntidad {
         return muerteFinalizada;
     }
 
+    /** Lo que dura la animación de muerte (0 si no tiene). */
+    public float getDuracionMuerte() {
+        return (animMuerte != null) ? animMuerte.getAnimationDuration() : 0f;
+    }
+
     public void detenerMuerte() {
         enMuerte = false;
         muerteFinalizada = false;
@@ -90,8 +95,8 @@ public abstract class SpritesEntidad {
     public void render(SpriteBatch batch) {
         if (batch == null || entidad == null || entidad.getCuerpoFisico() == null) return;
 
-        // ✅ ÚNICA fuente de verdad
-        Vector2 pos = entidad.getCuerpoFisico().getPosition();
+        // ✅ el body (en rollback, su posición predicha)
+        Vector2 pos = entidad.getPosicionDibujo();
         float vx = entidad.getCuerpoFisico().getLinearVelocity().x;
 
         if (Math.abs(vx) > 0.001f) {
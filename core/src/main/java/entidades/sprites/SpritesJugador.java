@@ -33,7 +33,7 @@ public class SpritesJugador extends SpritesEntidad {
         TextureRegion frame = elegirFrame();
         if (frame == null) return;
 
-        var pos = entidad.getCuerpoFisico().getPosition();
+        var pos = entidad.getPosicionDibujo();
 
         float w = frame.getRegionWidth();
         float h = frame.getRegionHeight();
@@ -108,7 +108,7 @@ public class SpritesJugador extends SpritesEntidad {
     }
 
     private boolean calcularSeMuevePorDelta() {
-        var pos = entidad.getCuerpoFisico().getPosition();
+        var pos = entidad.getPosicionDibujo();
         if (!inicializadoDelta) {
             inicializadoDelta = true;
             lastX = pos.x;
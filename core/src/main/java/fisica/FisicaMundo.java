@@ -20,7 +20,8 @@ public class FisicaMundo {
 
     private static final int VELOCITY_ITERS = 6;
 
-    private final Box2DDebugRenderer debugRenderer;
+    // Se crea recién al dibujar: así el server headless (sin GL) puede usar FisicaMundo
+    private Box2DDebugRenderer debugRenderer;
 
     private float accumulator = 0f;
 
@@ -35,7 +36,7 @@ public class FisicaMundo {
 
     public void dispose() {
         world.dispose();
-        debugRenderer.dispose();
+        if (debugRenderer != null) debugRenderer.dispose();
     }
 
     public void setContactListener(ContactListener listener) {
@@ -83,6 +84,7 @@ public class FisicaMundo {
     * La cámara ya está en píxeles y los cuerpos también.
     */
     public void debugDraw(OrthographicCamera camara) {
+        //if (debugRenderer == null) debugRenderer = new Box2DDebugRenderer();
         //debugRenderer.render(world, camara.combined);
     }
 
@@ -142,7 +144,6 @@ public class FisicaMundo {
     */
     public FisicaMundo(World world) {
         this.world = world;
-        this.debugRenderer = new Box2DDebugRenderer();
     }
 
     // Podés dejarlo por compatibilidad, pero no lo usamos más para escalar.
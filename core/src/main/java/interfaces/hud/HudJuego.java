@@ -1,6 +1,8 @@
 package interfaces.hud;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -99,6 +101,8 @@ public class HudJuego implements Disposable, ListenerCambioSala {
 
         shapes.setProjectionMatrix(cam.combined);
         dibujarMinimapaExplorado();
+
+        if (overlayRedVisible) dibujarOverlayRed();
     }
 
     public void resize(int width, int height) {
@@ -218,6 +222,20 @@ public class HudJuego implements Disposable, ListenerCambioSala {
         this.sincronizando = sincronizando;
     }
 
+    /** Debug (F3): muestra/oculta el overlay de estadísticas de red. */
+    public void alternarOverlayRed() {
+        overlayRedVisible = !overlayRedVisible;
+    }
+
+    public boolean isOverlayRedVisible() {
+        return overlayRedVisible;
+    }
+
+    /** Texto ya armado por RedPartidaCliente.getResumenRed() (multilínea). */
+    public void setTextoRed(String textoRed) {
+        this.textoRed = textoRed;
+    }
+
     /** Permite que en ONLINE el HUD apunte al jugador local (P1 o P2). */
     public void setJugador(Jugador jugador) {
         if (jugador != null) this.jugador = jugador;
@@ -265,6 +283,8 @@ public class HudJuego implements Disposable, ListenerCambioSala {
         }
         texturasPorTipo.clear();
         iconosPorTipo.clear();
+        iconosSlots.clear();
+        versionSlots = -1;
     }
 
     // ITEMS (slots + iconos por ItemTipo, carga lazy desde assets/Items)
@@ -283,8 +303,9 @@ public class HudJuego implements Disposable, ListenerCambioSala {
             font.draw(batch, "Items:", x, y);
             y -= 18f;
 
-            for (Item item : jugador.getObjetos()) {
-                font.draw(batch, "- " + item.getNombre(), x, y);
+            actualizarSlotsSiCambio();
+            for (int i = 0; i < lineasSlots.size(); i++) {
+                font.draw(batch, lineasSlots.get(i), x, y);
                 y -= 16f;
             }
             return;
@@ -308,7 +329,8 @@ public class HudJuego implements Disposable, ListenerCambioSala {
         // Fila de slots debajo del título
         float slotsY = titleY - 10f - iconSize;
 
-        int total = jugador.getObjetos().size();
+        actualizarSlotsSiCambio();
+        int total = iconosSlots.size();
         int slots = Math.max(maxSlots, total);
         slots = Math.min(slots, maxSlots); // fijo; si querés que crezca, quitá esta línea
 
@@ -321,20 +343,49 @@ public class HudJuego implements Disposable, ListenerCambioSala {
 
             // Icono encima si hay item
             if (i < total) {
-                Item item = jugador.getObjetos().get(i);
-                TextureRegion icon = getIconoItem(item);
+                TextureRegion icon = iconosSlots.get(i);
 
                 if (icon != null) {
                     batch.draw(icon, x, y, iconSize, iconSize);
                 } else {
-                    String n = item.getNombre();
-                    String letter = (n != null && !n.isBlank()) ? n.substring(0, 1).toUpperCase() : "?";
-                    font.draw(batch, letter, x + 5f, y + 12f);
+                    font.draw(batch, letrasSlots.get(i), x + 5f, y + 12f);
                 }
             }
         }
     }
 
+    /**
+    * Resuelve iconos / letras / líneas de los ítems solo cuando cambia el inventario
+    * (versión del Jugador) o el jugador; el resto de los frames se dibuja lo ya resuelto.
+    */
+    private void actualizarSlotsSiCambio() {
+        int version = jugador.getVersionInventario();
+        if (jugador == jugadorSlots && version == versionSlots) return;
+        jugadorSlots = jugador;
+        versionSlots = version;
+
+        iconosSlots.clear();
+        letrasSlots.clear();
+        lineasSlots.clear();
+        for (Item item : jugador.getObjetos()) {
+            String n = item.getNombre();
+            iconosSlots.add(getIconoItem(item));
+            letrasSlots.add((n != null && !n.isBlank()) ? n.substring(0, 1).toUpperCase() : "?");
+            lineasSlots.add("- " + n);
+        }
+    }
+
+    // Slots resueltos para (jugadorSlots, versionSlots)
+    private final List<TextureRegion> iconosSlots = new ArrayList<>();
+
+    private final List<String> letrasSlots = new ArrayList<>();
+
+    private final List<String> lineasSlots = new ArrayList<>();
+
+    private Jugador jugadorSlots;
+
+    private int versionSlots = -1;
+
     // Layout items
     private int maxSlots = 6;            // ajustable
     private float iconSize = 40f;        // tus sprites son 16x16
@@ -495,4 +546,37 @@ public class HudJuego implements Disposable, ListenerCambioSala {
 
     // ✅ ONLINE: el HUD es autoritativo del server. Hasta recibir snapshot mostramos placeholder.
     private boolean sincronizando = false;
+
+    // OVERLAY DE RED (F3, abajo-izquierda)
+
+    private boolean overlayRedVisible = false;
+
+    private String textoRed;
+
+    private void dibujarOverlayRed() {
+        if (textoRed == null || textoRed.isEmpty()) return;
+
+        int lineas = 1;
+        for (int i = 0; i < textoRed.length(); i++) {
+            if (textoRed.charAt(i) == '\n') lineas++;
+        }
+
+        final float ANCHO = 470f;
+        final float LINEA = 15f;
+        float alto = lineas * LINEA + 10f;
+        float x = padding;
+        float y = padding;
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        shapes.begin(ShapeRenderer.ShapeType.Filled);
+        shapes.setColor(0f, 0f, 0f, 0.6f);
+        shapes.rect(x - 6f, y - 6f, ANCHO, alto);
+        shapes.end();
+
+        batch.begin();
+        font.draw(batch, textoRed, x, y + alto - 12f);
+        batch.end();
+    }
 }
\ No newline at end of file
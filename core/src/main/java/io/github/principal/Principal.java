@@ -18,6 +18,13 @@ public class Principal extends Game {
 
     private boolean modoOnline = false;
 
+    // Debug de red (args del launcher): grabar la sesión online / reproducir una grabada
+    private String archivoCaptura;
+
+    private String archivoReproduccion;
+
+    private float velocidadReproduccion = 1f;
+
     public AudioManager audio;
 
     @Override
@@ -51,6 +58,16 @@ public class Principal extends Game {
         return modoOnline;
     }
 
+    public String getArchivoCaptura() { return archivoCaptura; }
+    public void setArchivoCaptura(String archivoCaptura) { this.archivoCaptura = archivoCaptura; }
+
+    public String getArchivoReproduccion() { return archivoReproduccion; }
+    public float getVelocidadReproduccion() { return velocidadReproduccion; }
+    public void setReproduccion(String archivo, float velocidad) {
+        this.archivoReproduccion = archivo;
+        if (velocidad > 0f) this.velocidadReproduccion = velocidad;
+    }
+
     public void aplicarSettings() {
         // Volumen
         audio.setMasterVolume(settings.getVolumen());
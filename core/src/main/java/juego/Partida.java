@@ -41,6 +41,7 @@ import interfaces.listeners.ListenerCambioSala;
 
 import io.github.principal.Principal;
 
+import juego.contactos.DestinoContactos;
 import juego.contactos.EnrutadorContactosPartida;
 import juego.eventos.EventoPuerta;
 import juego.inicializacion.ContextoPartida;
@@ -50,6 +51,7 @@ import juego.inicializacion.InicializadorSpritesPartida;
 
 import juego.sistemas.CanalRenderizadoPartida;
 import juego.sistemas.ProcesadorColasEventos;
+import juego.sistemas.PrediccionRollback;
 import juego.sistemas.SistemaActualizacionPartida;
 import juego.sistemas.ContextoActualizacionPartida;
 import juego.sistemas.SistemaFinNivel;
@@ -68,8 +70,9 @@ import mapa.puertas.PuertaVisual;
 // ✅ RED (modelo profe)
 import red.ClientThread;
 import red.RedPartidaCliente;
+import red.SincronizadorLockstep;
 
-public class Partida {
+public class Partida implements DestinoContactos {
     private static final int NIVEL_FINAL = 3;
 
     private SistemaSpritesEntidades sistemaSprites;
@@ -201,6 +204,7 @@ public class Partida {
         world = null;
     }
 
+    @Override
     public void encolarDanioJugador(int jugadorId, float ex, float ey) {
         if (jugadorId <= 0) return;
         eventos.publicar(new EventoDanio(jugadorId, ex, ey));
@@ -217,6 +221,10 @@ public class Partida {
         // ✅ ONLINE/LOCAL: siempre entra por crearContextoNivel con seedActual
 
         redPartida.setMundoListo(false);
+
+        // ✅ LOCKSTEP: los drops se sortean en los dos clientes, tienen que salir iguales
+        if (redPartida.isLockstep()) ItemTipo.sembrar(seedActual);
+
         ContextoPartida ctx = InicializadorPartida.crearContextoNivel(
         nivelActual,
         seedActual,
@@ -236,7 +244,8 @@ public class Partida {
 
         // ✅ ONLINE: el cliente NO spawnea ni simula enemigos.
         // Los enemigos vienen por red (SpawnEnemy/UpdateEnemy) desde el server.
-        if (redPartida.isModoOnline() && gestorEntidades != null) {
+        // (en lockstep sí: cada cliente simula el nivel entero)
+        if (redPartida.isModoOnline() && !redPartida.isLockstep() && gestorEntidades != null) {
             gestorEntidades.eliminarTodosLosEnemigos();
             if (controlPuzzle != null && salaActual != null) {
                 controlPuzzle.setEnemigosVivos(salaActual, 0);
@@ -318,6 +327,15 @@ public class Partida {
     }
 
     public void render(float delta) {
+        try {
+            renderFrame(delta);
+        } finally {
+            // ✅ ONLINE: lo que se mandó en el frame (Move, Interest, pedidos) sale en un solo datagrama
+            redPartida.flushSalida();
+        }
+    }
+
+    private void renderFrame(float delta) {
 
         // ✅ ONLINE: si todavía no llegó Start, no inicializamos ni renderizamos mundo
         if (redPartida.isModoOnline()) {
@@ -340,12 +358,15 @@ public class Partida {
                 redPartida.resetHudSincronizado();
                 redPartida.enviarReadyOnline();
 
-                // ✅ ONLINE: cada cliente muestra el HUD de SU jugador.
-                int myId = redPartida.getMiPlayerId();
-                if (hud != null && myId > 0) {
-                    hud.setJugador(myId == 2 ? jugador2 : jugador1);
+                // ✅ LOCKSTEP: el Start es el tick 0 para los dos clientes
+                if (redPartida.isLockstep()) {
+                    redPartida.iniciarLockstep();
+                    acumuladorLockstep = 0f;
+                    prediccionRollback.invalidar();
                 }
 
+                mostrarHudJugadorLocal();
+
                 syncSalaOnline.reset();
                 resize(w, h);
                 return;
@@ -371,6 +392,14 @@ public class Partida {
             else abrirOpciones();
         }
 
+        // Debug: overlay de estadísticas de red con F3
+        if (hud != null && Gdx.input.isKeyJustPressed(Input.Keys.F3)) {
+            hud.alternarOverlayRed();
+        }
+        if (hud != null && hud.isOverlayRedVisible()) {
+            hud.setTextoRed(redPartida.getResumenRed());
+        }
+
         // ✅ ONLINE: mandar input + aplicar updates
         redPartida.enviarInputOnline(opcionesAbiertas, gameOverSolicitado);
         redPartida.aplicarUpdatesPendientes(jugador1, jugador2);
@@ -397,7 +426,7 @@ public class Partida {
 
         // ✅ ONLINE: aplicar cambio de sala enviado por el server
         if (redPartida.isModoOnline()) {
-            String cambio = redPartida.consumirCambioSala(); // formato: DESTINO:DIR:PLAYER
+            String cambio = redPartida.consumirCambioSala(); // formato: DESTINO[:DIR:PLAYER]
             if (cambio != null && disposicion != null && salaActual != null) {
                 try {
                     String[] p = cambio.split(":");
@@ -427,11 +456,55 @@ public class Partida {
                 }
             }
         }
-        eventos.limpiar(EventoPuerta.class);
+
+        // ✅ ONLINE: salas de interés (actual + vecinas) -> server y filtro del hilo de red
+        redPartida.declararInteres(salaActual, disposicion);
+        canalRenderizado.setSalasVisibles(redPartida.getMascaraInteres());
 
         canalRenderizado.setPuertasVisuales(puertasVisuales);
         sincronizarEstadoPuertasVisuales();
 
+        if (redPartida.isRollback()) {
+            if (!avanzarRollback(delta)) return;
+        } else if (redPartida.isLockstep()) {
+            if (!avanzarLockstep(delta)) return;
+        } else if (!simularPaso(delta)) {
+            return;
+        }
+
+        if (canalRenderizado != null) {
+            canalRenderizado.render(
+            delta,
+            salaActual,
+            debugFisica,
+            jugador1,
+            jugador2,
+            botonesVisuales,
+            (sistemaFinNivel != null) ? sistemaFinNivel.getTrampillaVisual() : null
+            );
+        }
+
+        registrarSpritesItemsNuevos();
+
+        if (opcionesAbiertas && pauseStage != null) {
+            pauseStage.act(delta);
+            pauseStage.draw();
+        }
+
+        Body b1 = jugador1.getCuerpoFisico();
+        Body b2 = jugador2.getCuerpoFisico();
+        if (jugador1 != null) jugador1.resetAnimPos();
+        if (jugador2 != null) jugador2.resetAnimPos();
+        canalRenderizado.dibujarDebugBodies(camaraSala.getCamara(), debugRenderer, b1, b2);
+    }
+
+    /**
+    * Un paso de gameplay: update, game over, puzzle y fin de nivel.
+    * false = el frame termina acá (game over o cambio de nivel).
+    */
+    private boolean simularPaso(float delta) {
+        eventos.limpiar(EventoPuerta.class);
+
         if (sistemaActualizacion != null) {
             prepararContextoActualizacion(delta);
             salaActual = sistemaActualizacion.actualizar(ctxUpdate);
@@ -439,7 +512,7 @@ public class Partida {
         }
 
         actualizarGameOver(delta);
-        if (gameOverSolicitado) return;
+        if (gameOverSolicitado) return false;
 
         if (controlPuzzle != null && gestorEntidades != null && salaActual != null) {
             int vivos = gestorEntidades.getEnemigosDeSala(salaActual).size();
@@ -457,38 +530,108 @@ public class Partida {
         if (avanzar[0]) {
             // ✅ ONLINE: el server es autoritativo. El cliente NO avanza el nivel por su cuenta,
             // porque eso desincroniza seed/nivel/posiciones.
-            if (redPartida.isModoOnline()) {
+            // (en lockstep los dos clientes llegan a la trampilla en el mismo tick: avanzan solos)
+            if (redPartida.isModoOnline() && !redPartida.isLockstep()) {
                 redPartida.enviarNextLevelRequest(); // fallback (el server igual puede detectarlo por colisión)
             } else {
                 avanzarAlSiguienteNivel();
             }
-            return;
+            return false;
         }
+        return true;
+    }
 
-        if (canalRenderizado != null) {
-            canalRenderizado.render(
-            delta,
-            salaActual,
-            debugFisica,
+    /**
+    * LOCKSTEP: simula a TICK fijo los ticks que ya tienen la entrada de los dos jugadores.
+    * Si falta la del otro, el mundo espera (se dibuja el último tick) y se reintenta el
+    * próximo frame. false = el frame termina acá, igual que simularPaso().
+    */
+    private boolean avanzarLockstep(float delta) {
+        acumuladorLockstep = Math.min(acumuladorLockstep + delta, MAX_ATRASO_LOCKSTEP);
+
+        boolean seguir = true;
+        while (seguir && acumuladorLockstep >= SincronizadorLockstep.TICK) {
+            if (!redPartida.prepararTickLockstep(opcionesAbiertas, gameOverSolicitado)) {
+                // No acumular atraso mientras se espera: al llegar, un tick por frame
+                acumuladorLockstep = SincronizadorLockstep.TICK;
+                break;
+            }
+
+            controlJugador1.setEntrada(redPartida.getEntradaLockstep(1));
+            controlJugador2.setEntrada(redPartida.getEntradaLockstep(2));
+            redPartida.avanzarTickLockstep();
+            acumuladorLockstep -= SincronizadorLockstep.TICK;
+
+            seguir = simularPaso(SincronizadorLockstep.TICK);
+        }
+
+        redPartida.enviarInputsLockstep();
+        return seguir;
+    }
+
+    /**
+    * Rollback: la entrada local entra en la cabeza el mismo frame (sin retardo), el World avanza
+    * solo con los ticks que ya tienen las dos entradas y lo que falta hasta la cabeza se predice
+    * (PrediccionRollback). Cada vez que confirman ticks se tira lo predicho y se vuelve a jugar.
+    */
+    private boolean avanzarRollback(float delta) {
+        acumuladorLockstep = Math.min(acumuladorLockstep + delta, MAX_ATRASO_LOCKSTEP);
+
+        while (acumuladorLockstep >= SincronizadorLockstep.TICK) {
+            if (!redPartida.programarEntradaRollback(opcionesAbiertas, gameOverSolicitado)) {
+                // Demasiado adelante del otro: se espera igual que en lockstep
+                acumuladorLockstep = SincronizadorLockstep.TICK;
+                break;
+            }
+            acumuladorLockstep -= SincronizadorLockstep.TICK;
+        }
+
+        boolean confirmados = false;
+        while (redPartida.tickLockstepConfirmado()) {
+            controlJugador1.setEntrada(redPartida.getEntradaLockstep(1));
+            controlJugador2.setEntrada(redPartida.getEntradaLockstep(2));
+            redPartida.avanzarTickLockstep();
+            confirmados = true;
+
+            if (!simularPaso(SincronizadorLockstep.TICK)) {
+                // Nivel nuevo / game over: los cuerpos de la instantánea ya no existen
+                prediccionRollback.invalidar();
+                redPartida.enviarInputsLockstep();
+                return false;
+            }
+        }
+
+        if (confirmados || !prediccionRollback.esValida()) {
+            int descartados = prediccionRollback.rebobinar(
+            redPartida.getTickLockstep(),
             jugador1,
             jugador2,
-            botonesVisuales,
-            (sistemaFinNivel != null) ? sistemaFinNivel.getTrampillaVisual() : null
+            gestorEntidades != null ? gestorEntidades.getEnemigosMundo() : null
             );
+            if (descartados > 0) redPartida.contarRebobinado(descartados);
         }
 
-        registrarSpritesItemsNuevos();
-
-        if (opcionesAbiertas && pauseStage != null) {
-            pauseStage.act(delta);
-            pauseStage.draw();
+        int cabeza = redPartida.getCabezaRollback();
+        for (int t = prediccionRollback.getPrediccionHasta(); t <= cabeza; t++) {
+            prediccionRollback.predecirTick(
+            redPartida.getEntradaPredicha(1, t),
+            redPartida.getEntradaPredicha(2, t),
+            SincronizadorLockstep.TICK,
+            world
+            );
         }
+        prediccionRollback.aplicarDibujo();
 
-        Body b1 = jugador1.getCuerpoFisico();
-        Body b2 = jugador2.getCuerpoFisico();
-        if (jugador1 != null) jugador1.resetAnimPos();
-        if (jugador2 != null) jugador2.resetAnimPos();
-        canalRenderizado.dibujarDebugBodies(camaraSala.getCamara(), debugRenderer, b1, b2);
+        redPartida.enviarInputsLockstep();
+        return true;
+    }
+
+    /** ✅ ONLINE: cada cliente muestra el HUD de SU jugador. */
+    private void mostrarHudJugadorLocal() {
+        int myId = redPartida.getMiPlayerId();
+        if (hud != null && myId > 0) {
+            hud.setJugador(myId == 2 ? jugador2 : jugador1);
+        }
     }
 
     public void setClient(ClientThread client) {
@@ -536,7 +679,8 @@ public class Partida {
 
         inputAnterior = Gdx.input.getInputProcessor();
 
-        ControlJugador.setPausa(true);
+        // En lockstep el mundo no se puede frenar de un solo lado: el jugador queda quieto (ver RedPartidaCliente)
+        if (!redPartida.isLockstep()) ControlJugador.setPausa(true);
         Gdx.input.setInputProcessor(pauseStage);
     }
 
@@ -601,10 +745,14 @@ public class Partida {
         // ✅ LOCAL: nueva seed por nivel
         if (!redPartida.isModoOnline()) {
             seedActual = System.currentTimeMillis();
+        } else if (redPartida.isLockstep()) {
+            // ✅ LOCKSTEP: sin Start del server, la seed sale de la anterior (igual en los dos)
+            seedActual = SincronizadorLockstep.semillaSiguienteNivel(seedActual, nivelActual);
         }
 
         disposeNivel();
         initNivel();
+        if (redPartida.isLockstep()) mostrarHudJugadorLocal();
         resize(w, h);
     }
 
@@ -864,10 +1012,23 @@ public class Partida {
 
     // GETTERS mínimos
 
+    @Override
     public Habitacion getSalaActual() { return salaActual; }
     public SistemaTransicionSala getSistemaTransicionSala() { return sistemaTransicionSala; }
+    @Override
     public ColaEventos getEventos() { return eventos; }
 
+    // ✅ ONLINE: las puertas las decide el SERVER
+    @Override
+    public boolean puertasRemotas() {
+        return redPartida != null && redPartida.isModoOnline();
+    }
+
+    @Override
+    public boolean puertasEnCooldown() {
+        return sistemaTransicionSala != null && sistemaTransicionSala.bloqueoActivo();
+    }
+
     public void aplicarDanioPorEnemigo(Jugador jugador, Enemigo enemigo) {
         if (jugador == null) return;
         if (jugador.estaEnMuerte() || jugador.esInmune() || !jugador.estaViva()) return;
@@ -907,6 +1068,8 @@ public class Partida {
 
     private void prepararContextoActualizacion(float delta) {
         ctxUpdate.delta = delta;
+        // LOCKSTEP: la simulación completa corre acá (IA, ítems, daño), como en local
+        ctxUpdate.esOnline = !redPartida.isLockstep();
         ctxUpdate.salaActual = salaActual;
 
         ctxUpdate.jugador1 = jugador1;
@@ -941,6 +1104,15 @@ public class Partida {
     // ✅ ONLINE SYNC (seed/nivel)
     private long seedActual = 0L;
 
+    // ✅ LOCKSTEP: tiempo real todavía no simulado (ticks fijos de SincronizadorLockstep.TICK)
+    private float acumuladorLockstep = 0f;
+
+    // Tope de atraso a recuperar de golpe (después de un tirón no se simulan segundos en un frame)
+    private static final float MAX_ATRASO_LOCKSTEP = 0.25f;
+
+    // ✅ ROLLBACK: dónde se dibuja cada uno mientras faltan entradas del otro
+    private final PrediccionRollback prediccionRollback = new PrediccionRollback();
+
     private final control.puzzle.SincronizadorSalaOnline syncSalaOnline =
     new control.puzzle.SincronizadorSalaOnline();
 }
\ No newline at end of file
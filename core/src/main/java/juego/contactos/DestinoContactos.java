@@ -0,0 +1,22 @@
+package juego.contactos;
+
+import juego.eventos.ColaEventos;
+import mapa.model.Habitacion;
+
+/**
+* Lo que EnrutadorContactosPartida necesita de quien corre la simulación:
+* Partida en el cliente, MundoServidor en el server headless.
+*/
+public interface DestinoContactos {
+    ColaEventos getEventos();
+
+    Habitacion getSalaActual();
+
+    /** true si las puertas las decide otro (cliente online: el server). */
+    boolean puertasRemotas();
+
+    /** true mientras corre el cooldown anti "ping-pong" de puertas. */
+    boolean puertasEnCooldown();
+
+    void encolarDanioJugador(int jugadorId, float ex, float ey);
+}
@@ -6,7 +6,6 @@ import com.badlogic.gdx.physics.box2d.*;
 
 import entidades.enemigos.Enemigo;
 import entidades.personajes.Jugador;
-import juego.Partida;
 import juego.eventos.EventoBoton;
 import juego.eventos.EventoFinNivel;
 import juego.eventos.EventoPickup;
@@ -20,17 +19,17 @@ import mapa.trampilla.DatosTrampilla;
 * ContactListener dedicado al gameplay.
 *
 * Importante: NO modificamos Box2D dentro del callback.
-* Solo encolamos eventos y el update de Partida los procesa.
+* Solo encolamos eventos y el update de Partida (o del server) los procesa.
 */
 public final class EnrutadorContactosPartida implements ContactListener {
-    private final Partida partida;
+    private final DestinoContactos partida;
 
     @Override
     public void beginContact(Contact contact) {
         Fixture a = contact.getFixtureA();
         Fixture b = contact.getFixtureB();
         // ✅ ONLINE: las puertas las decide el SERVER (no encolamos EventoPuerta en cliente)
-        if (partida.getRedController() != null && partida.getRedController().isModoOnline()) {
+        if (partida.puertasRemotas()) {
             // igual dejamos pickups/botones/daño para migrarlos después
         } else {
             // Puertas (robusto: puerta puede venir en A o B)
@@ -64,7 +63,7 @@ public final class EnrutadorContactosPartida implements ContactListener {
         encolarBoton(b, a, false);
     }
 
-    public EnrutadorContactosPartida(Partida partida) {
+    public EnrutadorContactosPartida(DestinoContactos partida) {
         this.partida = partida;
     }
 
@@ -144,8 +143,7 @@ public final class EnrutadorContactosPartida implements ContactListener {
         if (posiblePuertaFx == null || otroFx == null) return;
 
         // si hay transición en cooldown, no generamos más eventos
-        if (partida.getSistemaTransicionSala() != null
-        && partida.getSistemaTransicionSala().bloqueoActivo()) {
+        if (partida.puertasEnCooldown()) {
             return;
         }
 
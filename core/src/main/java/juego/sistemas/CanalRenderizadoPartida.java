@@ -23,6 +23,7 @@ import interfaces.hud.HudJuego;
 import mapa.model.Habitacion;
 import mapa.puertas.PuertaVisual;
 import mapa.trampilla.TrampillaVisual;
+import red.FiltroInteres;
 
 /**
 * Se encarga SOLO del render (mapa, puertas, sprites, debug y HUD).
@@ -65,8 +66,17 @@ public final class CanalRenderizadoPartida {
         if (puertasVisuales != null) this.puertasVisuales.addAll(puertasVisuales);
     }
 
+    /** Online: salas de interés (ver RedPartidaCliente.declararInteres). Offline queda en TODAS. */
+    public void setSalasVisibles(long mascara) {
+        this.salasVisibles = mascara;
+    }
+
     private final List<PuertaVisual> puertasVisuales = new ArrayList<>();
 
+    private static final Habitacion[] HABITACIONES = Habitacion.values();
+
+    private long salasVisibles = FiltroInteres.TODAS;
+
     private ShapeRenderer debugRenderer = new ShapeRenderer();
 
     public CanalRenderizadoPartida(
@@ -153,13 +163,14 @@ public final class CanalRenderizadoPartida {
                 }
             }
 
-            // Enemigos primero (atrás)
+            // Enemigos primero (atrás). En online solo los de las salas de interés.
             if (gestorEntidades != null && sprites != null) {
-                for (Enemigo e : gestorEntidades.getEnemigosMundo()) {
-                    SpritesEntidad s = sprites.get(e);
-                    if (s != null) {
-                        s.update(delta);
-                        s.render(batch);
+                if (salasVisibles == FiltroInteres.TODAS) {
+                    renderEnemigos(gestorEntidades.getEnemigosMundo(), delta);
+                } else {
+                    for (Habitacion h : HABITACIONES) {
+                        if (!FiltroInteres.contiene(salasVisibles, h)) continue;
+                        renderEnemigos(gestorEntidades.getEnemigosDeSala(h), delta);
                     }
                 }
             }
@@ -203,4 +214,14 @@ public final class CanalRenderizadoPartida {
             hud.render();
         }
     }
+
+    private void renderEnemigos(List<Enemigo> enemigos, float delta) {
+        for (Enemigo e : enemigos) {
+            SpritesEntidad s = sprites.get(e);
+            if (s != null) {
+                s.update(delta);
+                s.render(batch);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package juego.sistemas;
+
+import java.util.List;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.RayCastCallback;
+import com.badlogic.gdx.physics.box2d.World;
+
+import control.input.ControlJugador;
+import entidades.enemigos.Enemigo;
+import entidades.personajes.Jugador;
+
+/**
+* Predicción del modo rollback (ver SincronizadorLockstep).
+*
+* El World de Box2D avanza SOLO con ticks confirmados, igual que en lockstep: los dos clientes le
+* hacen las mismas operaciones en el mismo orden y no divergen. Un World no se puede restaurar
+* bit a bit (árbol del broadphase, orden de los contactos, warm starting), así que lo que se
+* rebobina es esto: una instantánea chica (posiciones de jugadores y enemigos en el último tick
+* confirmado) sobre la que se vuelven a jugar los ticks predichos con un modelo sin Box2D:
+* la misma velocidad que ControlJugador / Enemigo y paredes por rayCast (solo lectura).
+*
+* El resultado es visual (Entidad.setPosicionDibujo): el jugador local se mueve en el mismo frame
+* en que se toca la tecla; botones, daño, ítems y puertas pasan cuando el tick se confirma.
+*/
+public final class PrediccionRollback {
+    // Radio de los cuerpos de jugadores y enemigos (GestorDeEntidades / EnemigosDesdeTiled)
+    private static final float RADIO = 12f;
+
+    // x,y por entidad: jugador 1, jugador 2 y después los enemigos (el tick confirmado al
+    // rebobinar, después va avanzando con la predicción)
+    private float[] actual = new float[2 * 18];
+
+    private Enemigo[] enemigos = new Enemigo[16];
+
+    private int cantEnemigos = 0;
+
+    private Jugador jugador1;
+
+    private Jugador jugador2;
+
+    // Próximo tick a predecir (-1 = no hay instantánea, hay que rebobinar)
+    private int prediccionHasta = -1;
+
+    private float fraccionPared;
+
+    private final Vector2 tmpDir = new Vector2();
+
+    private final RayCastCallback rayoPared = (fixture, punto, normal, fraccion) -> {
+        // Solo paredes: sensores (puertas, botones, trampilla) y cuerpos que se mueven no frenan
+        if (fixture.isSensor() || fixture.getBody().getType() != BodyDef.BodyType.StaticBody) return -1f;
+        if (fraccion < fraccionPared) fraccionPared = fraccion;
+        return fraccion;
+    };
+
+    /** El nivel cambió (o recién arranca): la próxima predicción parte de una instantánea nueva. */
+    public void invalidar() {
+        prediccionHasta = -1;
+    }
+
+    public boolean esValida() {
+        return prediccionHasta >= 0;
+    }
+
+    /** Próximo tick a predecir. */
+    public int getPrediccionHasta() {
+        return prediccionHasta;
+    }
+
+    /**
+    * Instantánea del World en el tick confirmado `tick` (antes de simularlo). Devuelve cuántos
+    * ticks predichos se tiraron (hay que volver a jugarlos desde acá).
+    */
+    public int rebobinar(int tick, Jugador j1, Jugador j2, List<Enemigo> enemigosMundo) {
+        int descartados = (prediccionHasta >= 0) ? Math.max(0, prediccionHasta - tick) : 0;
+
+        jugador1 = j1;
+        jugador2 = j2;
+
+        int n = (enemigosMundo != null) ? enemigosMundo.size() : 0;
+        if (n > enemigos.length) enemigos = new Enemigo[Math.max(n, enemigos.length * 2)];
+        if (2 * (2 + n) > actual.length) actual = new float[2 * (2 + enemigos.length)];
+
+        cantEnemigos = 0;
+        for (int i = 0; i < n; i++) {
+            Enemigo e = enemigosMundo.get(i);
+            if (e == null || e.getCuerpoFisico() == null) continue;
+            enemigos[cantEnemigos++] = e;
+        }
+        for (int i = cantEnemigos; i < enemigos.length; i++) enemigos[i] = null;
+
+        capturar(0, j1 != null ? j1.getCuerpoFisico() : null);
+        capturar(1, j2 != null ? j2.getCuerpoFisico() : null);
+        for (int i = 0; i < cantEnemigos; i++) capturar(2 + i, enemigos[i].getCuerpoFisico());
+        prediccionHasta = tick;
+        return descartados;
+    }
+
+    /** Juega un tick predicho con las máscaras de los dos jugadores (ControlJugador.ARRIBA...). */
+    public void predecirTick(int mascara1, int mascara2, float dt, World world) {
+        if (prediccionHasta < 0) return;
+
+        moverJugador(0, jugador1, mascara1, dt, world);
+        moverJugador(1, jugador2, mascara2, dt, world);
+
+        for (int i = 0; i < cantEnemigos; i++) moverEnemigo(2 + i, enemigos[i], dt, world);
+
+        prediccionHasta++;
+    }
+
+    /** Deja a cada entidad dibujándose donde la predicción dice que está ahora. */
+    public void aplicarDibujo() {
+        if (prediccionHasta < 0) return;
+        dibujar(0, jugador1);
+        dibujar(1, jugador2);
+        for (int i = 0; i < cantEnemigos; i++) dibujar(2 + i, enemigos[i]);
+    }
+
+    private void capturar(int i, Body b) {
+        if (b == null) {
+            actual[2 * i] = Float.NaN;
+            actual[2 * i + 1] = Float.NaN;
+            return;
+        }
+        Vector2 p = b.getPosition();
+        actual[2 * i] = p.x;
+        actual[2 * i + 1] = p.y;
+    }
+
+    private void dibujar(int i, entidades.Entidad e) {
+        if (e == null) return;
+        if (Float.isNaN(actual[2 * i])) {
+            e.limpiarPosicionDibujo();
+            return;
+        }
+        e.setPosicionDibujo(actual[2 * i], actual[2 * i + 1]);
+    }
+
+    private void moverJugador(int i, Jugador j, int mascara, float dt, World world) {
+        if (j == null || Float.isNaN(actual[2 * i])) return;
+        if (!j.puedeMoverse()) return;
+
+        float dx = 0, dy = 0;
+        if ((mascara & ControlJugador.ARRIBA) != 0) dy += 1;
+        if ((mascara & ControlJugador.ABAJO) != 0) dy -= 1;
+        if ((mascara & ControlJugador.IZQUIERDA) != 0) dx -= 1;
+        if ((mascara & ControlJugador.DERECHA) != 0) dx += 1;
+        if (dx == 0 && dy == 0) return;
+
+        tmpDir.set(dx, dy).nor().scl(j.getVelocidad() * dt);
+        mover(i, tmpDir.x, tmpDir.y, world);
+    }
+
+    /** Misma regla que Enemigo.actualizar, sobre las posiciones predichas. */
+    private void moverEnemigo(int i, Enemigo e, float dt, World world) {
+        int objetivo = elegirObjetivo(i, e.getJugadorObjetivo());
+        if (objetivo < 0) return;
+
+        float dx = actual[2 * objetivo] - actual[2 * i];
+        float dy = actual[2 * objetivo + 1] - actual[2 * i + 1];
+        float min = e.getDistanciaMinima();
+        if (dx * dx + dy * dy <= min * min) return;
+
+        tmpDir.set(dx, dy).nor().scl(e.getVelocidad() * dt);
+        mover(i, tmpDir.x, tmpDir.y, world);
+    }
+
+    private int elegirObjetivo(int i, int jugadorObjetivo) {
+        boolean hay1 = jugador1 != null && !Float.isNaN(actual[0]);
+        boolean hay2 = jugador2 != null && !Float.isNaN(actual[2]);
+
+        if (jugadorObjetivo == 1) return hay1 ? 0 : -1;
+        if (jugadorObjetivo == 2) return hay2 ? 1 : -1;
+        if (!hay1) return hay2 ? 1 : -1;
+        if (!hay2) return 0;
+
+        float x = actual[2 * i], y = actual[2 * i + 1];
+        float d1 = (actual[0] - x) * (actual[0] - x) + (actual[1] - y) * (actual[1] - y);
+        float d2 = (actual[2] - x) * (actual[2] - x) + (actual[3] - y) * (actual[3] - y);
+        return (d1 <= d2) ? 0 : 1;
+    }
+
+    /** Un eje a la vez: contra una pared se frena ese eje y se sigue deslizando por el otro. */
+    private void mover(int i, float dx, float dy, World world) {
+        if (dx != 0) actual[2 * i] += recortar(world, actual[2 * i], actual[2 * i + 1], dx, true);
+        if (dy != 0) actual[2 * i + 1] += recortar(world, actual[2 * i], actual[2 * i + 1], dy, false);
+    }
+
+    private float recortar(World world, float x, float y, float d, boolean ejeX) {
+        if (world == null) return d;
+
+        float largo = Math.abs(d) + RADIO;
+        float signo = Math.signum(d);
+        float x2 = ejeX ? x + signo * largo : x;
+        float y2 = ejeX ? y : y + signo * largo;
+
+        fraccionPared = 1f;
+        world.rayCast(rayoPared, x, y, x2, y2);
+        if (fraccionPared >= 1f) return d;
+
+        float libre = fraccionPared * largo - RADIO;
+        if (libre <= 0f) return 0f;
+        return signo * Math.min(Math.abs(d), libre);
+    }
+}
@@ -174,7 +174,7 @@ public final class SistemaActualizacionPartida {
             sprites.actualizarAnimJugadores(delta);
 
             sprites.registrarSpritesDeEnemigosVivos();
-            sprites.procesarEnemigosEnMuerte();
+            sprites.procesarEnemigosEnMuerte(delta);
             sprites.limpiarSpritesDeEntidadesMuertas();
         }
 
@@ -1,10 +1,9 @@
 package juego.sistemas;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
@@ -128,7 +127,10 @@ public final class SistemaSpritesEntidades {
 
     private final Map<Entidad, SpritesEntidad> spritesPorEntidad = new HashMap<>();
 
-    private final Set<Enemigo> enemigosEnMuerte = new HashSet<>();
+    // En orden de muerte: el orden en que se destruyen los bodies tiene que ser el mismo en
+    // todos los clientes (lockstep), y el hash de identidad cambia entre procesos.
+    // Valor = tiempo de simulación desde que empezó a morir
+    private final Map<Enemigo, Float> enemigosEnMuerte = new LinkedHashMap<>();
 
     /**
     * Limpia visuals de items que ya no están en el mundo.
@@ -198,21 +200,26 @@ public final class SistemaSpritesEntidades {
             SpritesEntidad sp = spritesPorEntidad.get(e);
             if (sp != null) {
                 sp.iniciarMuerte();
-                enemigosEnMuerte.add(e);
+                enemigosEnMuerte.putIfAbsent(e, 0f);
             } else {
                 gestorEntidades.eliminarEnemigo(e);
             }
         }
     }
 
-    /** Elimina realmente enemigos cuya animación ya terminó. */
-    public void procesarEnemigosEnMuerte() {
+    /**
+    * Elimina realmente enemigos cuya animación ya terminó.
+    * Cuenta tiempo de simulación (delta del update), no el de la animación: esa avanza en el
+    * render, a otro ritmo en cada cliente, y en lockstep el body tiene que irse en el mismo tick.
+    */
+    public void procesarEnemigosEnMuerte(float delta) {
         if (gestorEntidades == null) return;
         if (enemigosEnMuerte.isEmpty()) return;
 
-        Iterator<Enemigo> it = enemigosEnMuerte.iterator();
+        Iterator<Map.Entry<Enemigo, Float>> it = enemigosEnMuerte.entrySet().iterator();
         while (it.hasNext()) {
-            Enemigo e = it.next();
+            Map.Entry<Enemigo, Float> entry = it.next();
+            Enemigo e = entry.getKey();
             SpritesEntidad sp = spritesPorEntidad.get(e);
 
             if (sp == null) {
@@ -220,11 +227,14 @@ public final class SistemaSpritesEntidades {
                 continue;
             }
 
-            if (sp.muerteTerminada()) {
+            float tiempo = entry.getValue() + delta;
+            if (tiempo >= sp.getDuracionMuerte()) {
                 gestorEntidades.eliminarEnemigo(e);
                 sp.dispose();
                 spritesPorEntidad.remove(e);
                 it.remove();
+            } else {
+                entry.setValue(tiempo);
             }
         }
     }
@@ -5,11 +5,17 @@ import com.badlogic.gdx.Screen;
 import io.github.principal.Principal;
 import juego.Partida;
 import red.ClientThread;
+import red.GrabadorPaquetes;
+import red.ProtocoloBinario;
 import red.RedPartidaCliente;
+import red.ReproductorCaptura;
 
 public class JuegoPrincipal implements Screen {
     private ClientThread client;
 
+    // Solo al reproducir una captura (--reproducir): reemplaza al server
+    private ReproductorCaptura reproductor;
+
     private final Principal game;
 
     private Partida partida;
@@ -75,12 +81,25 @@ public class JuegoPrincipal implements Screen {
             RedPartidaCliente redController = partida.getRedController();
             System.out.println("[JP] redController = " + redController);
 
+            if (game.getArchivoReproduccion() != null) {
+                // Sin socket: la captura hace de server (lo que mandamos se descarta)
+                reproductor = new ReproductorCaptura(game.getArchivoReproduccion(), redController, game.getVelocidadReproduccion());
+                this.client = reproductor.getCliente();
+                partida.setClient(client);
+                reproductor.start();
+                System.out.println("[JP] reproduciendo " + game.getArchivoReproduccion() + " x" + game.getVelocidadReproduccion());
+                partida.startGame();
+                return;
+            }
+
             this.client = new ClientThread(redController);
             System.out.println("[JP] ClientThread INSTANCIADO = " + client);
 
             partida.setClient(client);
             System.out.println("[JP] setClient OK");
 
+            client.setGrabador(GrabadorPaquetes.abrir(game.getArchivoCaptura()));
+
             System.out.println("[JP] Thread state BEFORE start = " + client.getState());
             client.start();
             System.out.println("[JP] Thread state AFTER start = " + client.getState());
@@ -88,8 +107,9 @@ public class JuegoPrincipal implements Screen {
             String genero = (game.getGeneroSeleccionado() != null) ? game.getGeneroSeleccionado().name() : "MASCULINO";
             String estilo = (game.getEstiloSeleccionado() != null) ? game.getEstiloSeleccionado().name() : "CLASICO";
             redController.setMiAparienciaDeseada(genero, estilo);
-            client.sendMessage("Connect:" + genero + ":" + estilo);
-            System.out.println("[JP] Connect enviado (apariencia)");
+            // Connect:genero:estilo:binN => ofrece el protocolo binario (el server puede ignorarlo y seguir en texto)
+            client.sendMessage("Connect:" + genero + ":" + estilo + ":" + ProtocoloBinario.TOKEN_VERSION);
+            System.out.println("[JP] Connect enviado (apariencia + protocolo)");
         } else {
             System.out.println("[JP] ONLINE DESACTIVADO: no se crea ClientThread");
         }
@@ -102,6 +122,10 @@ public class JuegoPrincipal implements Screen {
     }
 
     private void cerrarRed() {
+        if (reproductor != null) {
+            reproductor.detener();
+            reproductor = null;
+        }
         if (client != null) {
             ClientThread c = client;
             client = null;
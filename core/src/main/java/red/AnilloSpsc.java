@@ -0,0 +1,100 @@
+package red;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+* Anillo lock-free de un productor / un consumidor con slots preallocados.
+*
+* Productor (hilo de red):  T ev = reservar(); if (ev != null) { ...completar...; publicar(); }
+* Consumidor (hilo render): T ev; while ((ev = leer()) != null) { ...usar...; liberar(); }
+*
+* El slot leído es válido hasta liberar(): el productor no lo pisa porque el anillo
+* lleno descarta lo nuevo (y lo cuenta en desbordes) en vez de reciclar el más viejo.
+*/
+public final class AnilloSpsc<T> {
+    private final Object[] slots;
+
+    private final int mascara;
+
+    // Solo escribe el consumidor
+    private final AtomicLong cabeza = new AtomicLong();
+
+    // Solo escribe el productor
+    private final AtomicLong cola = new AtomicLong();
+
+    private final AtomicLong desbordes = new AtomicLong();
+
+    // Copias locales para no leer el atómico del otro hilo en cada operación
+    private long cabezaCache;
+
+    private long colaCache;
+
+    /** capacidad se redondea a potencia de 2. */
+    public AnilloSpsc(int capacidad, Supplier<T> fabrica) {
+        int n = 2;
+        while (n < capacidad) n <<= 1;
+        slots = new Object[n];
+        mascara = n - 1;
+        for (int i = 0; i < n; i++) slots[i] = fabrica.get();
+    }
+
+    // ===== Productor =====
+
+    /** Slot libre para completar, o null si está lleno (se cuenta como desborde). */
+    @SuppressWarnings("unchecked")
+    public T reservar() {
+        long c = cola.get();
+        if (c - cabezaCache >= slots.length) {
+            cabezaCache = cabeza.get();
+            if (c - cabezaCache >= slots.length) {
+                desbordes.incrementAndGet();
+                return null;
+            }
+        }
+        return (T) slots[(int) (c & mascara)];
+    }
+
+    /** Hace visible para el consumidor el slot devuelto por reservar(). */
+    public void publicar() {
+        cola.lazySet(cola.get() + 1);
+    }
+
+    // ===== Consumidor =====
+
+    /** Próximo slot publicado, o null si no hay. No avanza: llamar liberar() al terminar. */
+    @SuppressWarnings("unchecked")
+    public T leer() {
+        long h = cabeza.get();
+        if (h >= colaCache) {
+            colaCache = cola.get();
+            if (h >= colaCache) return null;
+        }
+        return (T) slots[(int) (h & mascara)];
+    }
+
+    public void liberar() {
+        cabeza.lazySet(cabeza.get() + 1);
+    }
+
+    /** Descarta todo lo publicado hasta ahora (solo desde el consumidor). */
+    public void vaciar() {
+        colaCache = cola.get();
+        cabeza.lazySet(colaCache);
+    }
+
+    // ===== Métricas =====
+
+    public int size() {
+        return (int) Math.max(0L, cola.get() - cabeza.get());
+    }
+
+    public int capacidad() {
+        return slots.length;
+    }
+
+    /** Eventos descartados por anillo lleno desde que se creó. */
+    public long getDesbordes() {
+        return desbordes.get();
+    }
+}
@@ -0,0 +1,150 @@
+package red;
+
+import java.util.Arrays;
+
+/**
+* Estima el reloj del server y el delay de interpolación a partir de los timestamps
+* que vienen en las posiciones (UpdatePosition con tiempo de server).
+*
+* Para cada muestra: d = llegadaLocal - tiempoServer = (diferencia de relojes) + (demora de red).
+* - El mínimo de d en una ventana es la mejor estimación de la diferencia de relojes
+*   (la muestra que menos tardó).
+* - d - dMin es el jitter de cada muestra: el delay de render se arma con el intervalo
+*   entre ticks del server + el percentil 95 del jitter, así casi siempre hay una
+*   muestra "futura" para interpolar sin esperar de más.
+*
+* Se usa solo desde el hilo render.
+*/
+public final class BufferJitter {
+    private static final int VENTANA = 64;
+
+    // Percentil de jitter que queremos cubrir
+    private static final float PERCENTIL = 0.95f;
+
+    private static final long DELAY_MIN_MS = 20;
+
+    private static final long DELAY_MAX_MS = 250;
+
+    // Suavizado del delay para que no "salte" la interpolación (por muestra nueva)
+    private static final float SUAVIZADO = 0.1f;
+
+    private final long[] diferencias = new long[VENTANA];
+
+    private final long[] intervalos = new long[VENTANA];
+
+    private final long[] auxiliar = new long[VENTANA];
+
+    private int cantDiferencias;
+
+    private int proxDiferencia;
+
+    private int cantIntervalos;
+
+    private int proxIntervalo;
+
+    private long ultimoServerMs = Long.MIN_VALUE;
+
+    private long dMin;
+
+    private long jitterP95;
+
+    private long intervaloMediana;
+
+    private float delaySuavizado = -1f;
+
+    private boolean recalcular = false;
+
+    public void registrar(long serverMs, long llegadaMs) {
+        diferencias[proxDiferencia] = llegadaMs - serverMs;
+        proxDiferencia = (proxDiferencia + 1) % VENTANA;
+        if (cantDiferencias < VENTANA) cantDiferencias++;
+
+        // Varios jugadores comparten tick: solo cuentan los avances del reloj del server
+        if (ultimoServerMs != Long.MIN_VALUE && serverMs > ultimoServerMs) {
+            intervalos[proxIntervalo] = serverMs - ultimoServerMs;
+            proxIntervalo = (proxIntervalo + 1) % VENTANA;
+            if (cantIntervalos < VENTANA) cantIntervalos++;
+        }
+        if (serverMs > ultimoServerMs) ultimoServerMs = serverMs;
+
+        recalcular = true;
+    }
+
+    /** True cuando ya hay timestamps del server (si no, se usa el delay fijo de siempre). */
+    public boolean activo() {
+        return cantDiferencias > 0;
+    }
+
+    /** Tiempo de server estimado para "ahora" en el reloj local. */
+    public long serverAhora(long ahoraMs) {
+        actualizar();
+        return ahoraMs - dMin;
+    }
+
+    /** Tiempo de server a renderizar: un delay adaptativo por detrás del "ahora" estimado. */
+    public long tiempoRender(long ahoraMs) {
+        actualizar();
+        return ahoraMs - dMin - getDelayMs();
+    }
+
+    public long getDelayMs() {
+        actualizar();
+        return (delaySuavizado < 0f) ? DELAY_MAX_MS : Math.round(delaySuavizado);
+    }
+
+    public long getJitterP95Ms() {
+        actualizar();
+        return jitterP95;
+    }
+
+    public long getIntervaloMs() {
+        actualizar();
+        return intervaloMediana;
+    }
+
+    public void reset() {
+        cantDiferencias = 0;
+        proxDiferencia = 0;
+        cantIntervalos = 0;
+        proxIntervalo = 0;
+        ultimoServerMs = Long.MIN_VALUE;
+        dMin = 0;
+        jitterP95 = 0;
+        intervaloMediana = 0;
+        delaySuavizado = -1f;
+        recalcular = false;
+    }
+
+    private void actualizar() {
+        if (!recalcular) return;
+        recalcular = false;
+
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < cantDiferencias; i++) min = Math.min(min, diferencias[i]);
+        dMin = min;
+
+        for (int i = 0; i < cantDiferencias; i++) auxiliar[i] = diferencias[i] - dMin;
+        jitterP95 = percentil(auxiliar, cantDiferencias, PERCENTIL);
+
+        if (cantIntervalos > 0) {
+            System.arraycopy(intervalos, 0, auxiliar, 0, cantIntervalos);
+            intervaloMediana = percentil(auxiliar, cantIntervalos, 0.5f);
+        }
+
+        long objetivo = intervaloMediana + jitterP95;
+        if (objetivo < DELAY_MIN_MS) objetivo = DELAY_MIN_MS;
+        if (objetivo > DELAY_MAX_MS) objetivo = DELAY_MAX_MS;
+
+        if (delaySuavizado < 0f) delaySuavizado = objetivo;
+        else delaySuavizado += (objetivo - delaySuavizado) * SUAVIZADO;
+    }
+
+    private static long percentil(long[] valores, int n, float p) {
+        if (n == 0) return 0;
+        Arrays.sort(valores, 0, n);
+        int i = (int) Math.ceil(p * n) - 1;
+        if (i < 0) i = 0;
+        if (i >= n) i = n - 1;
+        return valores[i];
+    }
+}
@@ -0,0 +1,150 @@
+package red;
+
+/**
+* Buffer circular de muestras de posición (x, y, tiempo) en arrays primitivos paralelos.
+* Reemplaza Deque<Sample>: capacidad fija, sin objetos por muestra ni iteradores.
+*
+* Índice 0 = muestra más vieja. Los tiempos quedan ordenados (no-decrecientes).
+* Se usa desde un solo hilo (render).
+*/
+public final class BufferMuestras {
+    private final float[] xs;
+
+    private final float[] ys;
+
+    private final long[] ts;
+
+    private int inicio;
+
+    private int cantidad;
+
+    public BufferMuestras(int capacidad) {
+        xs = new float[capacidad];
+        ys = new float[capacidad];
+        ts = new long[capacidad];
+    }
+
+    /** Agrega al final; si está lleno pisa la más vieja. */
+    public void agregar(float x, float y, long tMs) {
+        // Asegura orden no-decreciente por si el reloj cambiara levemente
+        if (cantidad > 0 && tMs < t(cantidad - 1)) tMs = t(cantidad - 1);
+
+        int i;
+        if (cantidad == xs.length) {
+            i = inicio;
+            inicio = (inicio + 1) % xs.length;
+        } else {
+            i = (inicio + cantidad) % xs.length;
+            cantidad++;
+        }
+        xs[i] = x;
+        ys[i] = y;
+        ts[i] = tMs;
+    }
+
+    public int size() {
+        return cantidad;
+    }
+
+    public boolean isEmpty() {
+        return cantidad == 0;
+    }
+
+    public float x(int i) {
+        return xs[(inicio + i) % xs.length];
+    }
+
+    public float y(int i) {
+        return ys[(inicio + i) % xs.length];
+    }
+
+    public long t(int i) {
+        return ts[(inicio + i) % xs.length];
+    }
+
+    public void limpiar() {
+        inicio = 0;
+        cantidad = 0;
+    }
+
+    /** Se queda solo con la última muestra (cambio de sala / teleport). */
+    public void dejarSoloUltima() {
+        if (cantidad <= 1) return;
+        inicio = (inicio + cantidad - 1) % xs.length;
+        cantidad = 1;
+    }
+
+    /** Descarta muestras anteriores a tMs, dejando siempre al menos "minimo". */
+    public void descartarAnterioresA(long tMs, int minimo) {
+        while (cantidad > minimo && t(0) < tMs) {
+            inicio = (inicio + 1) % xs.length;
+            cantidad--;
+        }
+    }
+
+    /**
+    * Posición interpolada en renderTimeMs entre las dos muestras que lo enmarcan.
+    * Sin muestra futura se queda en la última (extrapolación cero).
+    * Devuelve false si no hay muestras.
+    */
+    public boolean interpolar(long renderTimeMs, float[] out) {
+        return interpolar(renderTimeMs, out, 0L);
+    }
+
+    /**
+    * Igual que interpolar(), pero si no hay muestra futura (paquete atrasado) extrapola
+    * con la velocidad de las dos últimas muestras durante hasta maxExtrapolacionMs.
+    * Pasado ese tiempo vuelve de a poco a la última muestra (en otros maxExtrapolacionMs),
+    * así una entidad que se frenó no queda "pasada" para siempre.
+    */
+    public boolean interpolar(long renderTimeMs, float[] out, long maxExtrapolacionMs) {
+        if (cantidad == 0) return false;
+
+        int a = -1;
+        int c = -1;
+        for (int i = 0; i < cantidad; i++) {
+            long t = t(i);
+            if (t <= renderTimeMs) a = i;
+            if (t >= renderTimeMs) {
+                c = i;
+                break;
+            }
+        }
+
+        if (c < 0 && maxExtrapolacionMs > 0 && cantidad >= 2) {
+            int ultima = cantidad - 1;
+            long t1 = t(ultima - 1);
+            long t2 = t(ultima);
+            if (t2 > t1) {
+                long atraso = renderTimeMs - t2;
+                long efectivo = (atraso <= maxExtrapolacionMs)
+                    ? atraso
+                    : Math.max(0L, 2 * maxExtrapolacionMs - atraso);
+                float escala = (float) efectivo / (float) (t2 - t1);
+                out[0] = x(ultima) + (x(ultima) - x(ultima - 1)) * escala;
+                out[1] = y(ultima) + (y(ultima) - y(ultima - 1)) * escala;
+                return true;
+            }
+        }
+
+        // Todavía no tenemos una muestra <= renderTime, usamos la primera disponible
+        if (a < 0) a = 0;
+        // No hay muestra futura, usamos la última
+        if (c < 0) c = cantidad - 1;
+
+        long ta = t(a);
+        long tc = t(c);
+        if (a == c || ta == tc) {
+            out[0] = x(c);
+            out[1] = y(c);
+            return true;
+        }
+
+        float alpha = (float) (renderTimeMs - ta) / (float) (tc - ta);
+        if (alpha < 0f) alpha = 0f;
+        if (alpha > 1f) alpha = 1f;
+        out[0] = x(a) + (x(c) - x(a)) * alpha;
+        out[1] = y(a) + (y(c) - y(a)) * alpha;
+        return true;
+    }
+}
@@ -0,0 +1,369 @@
+package red;
+
+import java.util.ArrayDeque;
+
+/**
+* Canal confiable y ordenado arriba de UDP para los mensajes críticos
+* (Start, UpdateRoom, RoomClear, Spawn/Despawn/PickupItem, GameOver, Door, Ready...).
+* Las posiciones siguen por el camino rápido, sin esto.
+*
+* Formato (protocolo binario, mismo en los dos sentidos):
+* - OP_CONFIABLE: [seq u16][ack u16][ackBits u32][opcode][campos...]
+* - OP_ACK:       [ack u16][ackBits u32]   (cuando no hay nada confiable para "colgarle" el ack)
+*
+* ack = último seq recibido del otro lado, bit i de ackBits = recibido (ack - 1 - i).
+* Así un ack perdido se recupera con cualquiera de los siguientes.
+*
+* Recepción: se entrega en orden; lo que llega adelantado se guarda (hasta VENTANA)
+* y los duplicados solo se vuelven a confirmar.
+* Envío: cada mensaje queda guardado hasta que el otro lado lo confirma y se reenvía
+* con backoff desde tick(). Con la ventana llena espera en una cola detrás (todavía sin seq)
+* y toma el suyo cuando se libera el lugar: ningún mensaje se cae por estar llena.
+*
+* El cliente despacha lo recibido con ProtocoloBinario; el server (una instancia por sesión)
+* pasa un Receptor propio.
+*
+* recibir()/tick() corren en el hilo de red; enviar() desde el hilo render. recibir() despacha
+* fuera del lock: el decode y los callbacks no frenan a un enviar() del render.
+*/
+public final class CanalConfiable {
+    // Mensajes sin confirmar / adelantados que se guardan (también el alcance de ackBits)
+    private static final int VENTANA = 32;
+
+    // MAGIC + opcode + seq + ack + ackBits
+    public static final int CABECERA = 10;
+
+    private static final long RETRANSMISION_MS = 150;
+
+    private static final long RETRANSMISION_MAX_MS = 1000;
+
+    /** Recibe cada mensaje en orden ([opcode][campos...], el lector limitado a ese mensaje). */
+    public interface Receptor {
+        void recibir(LectorBinario in);
+    }
+
+    /** Recibe cada datagrama armado por tick() (el buffer se reusa: copiarlo o mandarlo ya). */
+    public interface Salida {
+        void enviar(byte[] datos, int largo);
+    }
+
+    // ===== Recepción =====
+    private final byte[][] recibidos = new byte[VENTANA][];
+
+    private final int[] largosRecibidos = new int[VENTANA];
+
+    private final int[] seqsRecibidos = new int[VENTANA];
+
+    private final boolean[] ocupadosRecibidos = new boolean[VENTANA];
+
+    private final LectorBinario lectorGuardado = new LectorBinario();
+
+    // Lo que estaba guardado y quedó en orden: se copia acá bajo el lock y se despacha afuera
+    private final byte[][] aEntregar = new byte[VENTANA][];
+
+    private final int[] largosAEntregar = new int[VENTANA];
+
+    // próximo seq a entregar
+    private int esperado = 0;
+
+    private boolean hayRecibido = false;
+
+    private int ultimoRecibido = 0;
+
+    private int bitsRecibidos = 0;
+
+    private boolean ackPendiente = false;
+
+    // ===== Envío =====
+    private final byte[][] enviados;
+
+    private final int[] largosEnviados = new int[VENTANA];
+
+    private final int[] seqsEnviados = new int[VENTANA];
+
+    private final boolean[] ocupadosEnviados = new boolean[VENTANA];
+
+    private final long[] proximoEnvioMs = new long[VENTANA];
+
+    private final long[] esperaMs = new long[VENTANA];
+
+    private int proxSeq = 0;
+
+    private int sinConfirmar = 0;
+
+    // Detrás de la ventana: esperan su seq en orden (los buffers se reciclan en libres)
+    private final ArrayDeque<EnEspera> enEspera = new ArrayDeque<>();
+
+    private final ArrayDeque<EnEspera> libres = new ArrayDeque<>();
+
+    private final int maxPayload;
+
+    private long reenvios = 0;
+
+    /** maxPayload = tamaño máximo de un mensaje (opcode + campos). */
+    public CanalConfiable(int maxPayload) {
+        this.maxPayload = maxPayload;
+        enviados = new byte[VENTANA][maxPayload];
+        for (int i = 0; i < VENTANA; i++) {
+            recibidos[i] = new byte[maxPayload];
+            aEntregar[i] = new byte[maxPayload];
+        }
+    }
+
+    // ===== Recepción (hilo de red) =====
+
+    /**
+    * Procesa un OP_CONFIABLE (el lector queda parado después del opcode).
+    * Los mensajes que quedan en orden se despachan con ProtocoloBinario.
+    */
+    public void recibir(LectorBinario in, GameController controller, ReplicadorSnapshots snapshots,
+                        FiltroSecuencias secuencias, FiltroInteres interes, int[] conteosHud) {
+        recibir(in, null, controller, snapshots, secuencias, interes, conteosHud);
+    }
+
+    /** Igual, pero los mensajes en orden van a receptor (el server no tiene GameController). */
+    public void recibir(LectorBinario in, Receptor receptor) {
+        recibir(in, receptor, null, null, null, null, null);
+    }
+
+    private void recibir(LectorBinario in, Receptor receptor, GameController controller, ReplicadorSnapshots snapshots,
+                         FiltroSecuencias secuencias, FiltroInteres interes, int[] conteosHud) {
+        int n;
+        synchronized (this) {
+            n = ordenar(in);
+        }
+        if (n == 0) return;
+
+        // ✅ el que llegó en orden se despacha directo del datagrama, sin copiar
+        entregar(in, receptor, controller, snapshots, secuencias, interes, conteosHud);
+
+        // y lo que estaba esperando detrás
+        for (int k = 1; k < n; k++) {
+            lectorGuardado.reset(aEntregar[k], 0, largosAEntregar[k]);
+            entregar(lectorGuardado, receptor, controller, snapshots, secuencias, interes, conteosHud);
+        }
+    }
+
+    /**
+    * Acks, registro y ventana de recepción (con el lock tomado). Devuelve cuántos mensajes
+    * quedaron en orden: el de "in" (si llegó en orden) y los guardados detrás, copiados a
+    * aEntregar[1..n-1].
+    */
+    private int ordenar(LectorBinario in) {
+        int seq = in.u16();
+        int ack = in.u16();
+        int bits = in.i32();
+        if (!in.ok()) return 0;
+
+        procesarAck(ack, bits);
+        registrarRecibido(seq);
+        ackPendiente = true; // también los duplicados: el ack anterior se pudo perder
+
+        int adelanto = (short) (seq - esperado);
+        if (adelanto < 0) return 0; // ya entregado
+
+        if (adelanto >= VENTANA) return 0; // demasiado adelantado: el server lo reenvía
+
+        if (adelanto > 0) {
+            int i = seq % VENTANA;
+            int largo = in.restantes();
+            if (ocupadosRecibidos[i] || largo > recibidos[i].length) return 0;
+            in.copiar(recibidos[i], largo);
+            largosRecibidos[i] = largo;
+            seqsRecibidos[i] = seq;
+            ocupadosRecibidos[i] = true;
+            return 0;
+        }
+
+        esperado = (esperado + 1) & 0xFFFF;
+        int n = 1;
+        while (true) {
+            int i = esperado % VENTANA;
+            if (!ocupadosRecibidos[i] || seqsRecibidos[i] != esperado) break;
+            ocupadosRecibidos[i] = false;
+            System.arraycopy(recibidos[i], 0, aEntregar[n], 0, largosRecibidos[i]);
+            largosAEntregar[n] = largosRecibidos[i];
+            n++;
+            esperado = (esperado + 1) & 0xFFFF;
+        }
+        return n;
+    }
+
+    private static void entregar(LectorBinario in, Receptor receptor, GameController controller,
+                                 ReplicadorSnapshots snapshots, FiltroSecuencias secuencias, FiltroInteres interes,
+                                 int[] conteosHud) {
+        if (receptor != null) receptor.recibir(in);
+        else ProtocoloBinario.decodificarMensaje(in, controller, snapshots, secuencias, interes, conteosHud);
+    }
+
+    /** Procesa un OP_ACK suelto (el lector queda parado después del opcode). */
+    public synchronized void recibirAck(LectorBinario in) {
+        int ack = in.u16();
+        int bits = in.i32();
+        if (in.ok()) procesarAck(ack, bits);
+    }
+
+    // ===== Envío =====
+
+    /**
+    * Guarda un mensaje (opcode + campos, sin MAGIC) para mandarlo confiable.
+    * Sale en el próximo tick(), o cuando la ventana le haga lugar. Devuelve false solo si
+    * es más grande que maxPayload.
+    */
+    public synchronized boolean enviar(byte[] datos, int offset, int largo) {
+        if (largo > maxPayload) return false;
+
+        if (!enEspera.isEmpty() || ocupadosEnviados[proxSeq % VENTANA]) {
+            EnEspera e = libres.isEmpty() ? new EnEspera(maxPayload) : libres.poll();
+            System.arraycopy(datos, offset, e.datos, 0, largo);
+            e.largo = largo;
+            enEspera.add(e);
+            return true;
+        }
+        meterEnVentana(datos, offset, largo);
+        return true;
+    }
+
+    /** Le da el próximo seq al mensaje (el slot tiene que estar libre). */
+    private void meterEnVentana(byte[] datos, int offset, int largo) {
+        int i = proxSeq % VENTANA;
+        System.arraycopy(datos, offset, enviados[i], 0, largo);
+        largosEnviados[i] = largo;
+        seqsEnviados[i] = proxSeq;
+        ocupadosEnviados[i] = true;
+        proximoEnvioMs[i] = 0L; // ya
+        esperaMs[i] = RETRANSMISION_MS;
+        sinConfirmar++;
+
+        proxSeq = (proxSeq + 1) & 0xFFFF;
+    }
+
+    /** Lo que esperaba detrás pasa a la ventana mientras el slot del próximo seq esté libre. */
+    private void avanzarEnEspera() {
+        while (!enEspera.isEmpty() && !ocupadosEnviados[proxSeq % VENTANA]) {
+            EnEspera e = enEspera.poll();
+            meterEnVentana(e.datos, 0, e.largo);
+            libres.add(e);
+        }
+    }
+
+    /**
+    * Pasa a "salida" lo que toca mandar (un datagrama por llamada): mensajes nuevos, reenvíos
+    * vencidos y, si no salió ninguno para llevarlo, un OP_ACK suelto. Desde el hilo de red.
+    */
+    public synchronized void tick(long ahoraMs, EscritorBinario out, Salida salida) {
+        // en orden de seq, para que el server no tenga que reordenar de más
+        for (int k = 0; k < VENTANA; k++) {
+            int seq = (proxSeq - VENTANA + k) & 0xFFFF;
+            int i = seq % VENTANA;
+            if (!ocupadosEnviados[i] || seqsEnviados[i] != seq) continue;
+            if (ahoraMs < proximoEnvioMs[i]) continue;
+
+            if (proximoEnvioMs[i] != 0L) {
+                reenvios++;
+                esperaMs[i] = Math.min(esperaMs[i] * 2, RETRANSMISION_MAX_MS);
+            }
+            proximoEnvioMs[i] = ahoraMs + esperaMs[i];
+
+            out.reset().u8(ProtocoloBinario.MAGIC).u8(ProtocoloBinario.OP_CONFIABLE).u16(seq);
+            escribirAck(out);
+            out.bytes(enviados[i], 0, largosEnviados[i]);
+            salida.enviar(out.datos(), out.largo());
+            ackPendiente = false;
+        }
+
+        if (ackPendiente) {
+            out.reset().u8(ProtocoloBinario.MAGIC).u8(ProtocoloBinario.OP_ACK);
+            escribirAck(out);
+            salida.enviar(out.datos(), out.largo());
+            ackPendiente = false;
+        }
+    }
+
+    /** True si hay algo que reenviar o confirmar (el selector tiene que despertarse solo). */
+    public synchronized boolean tienePendientes() {
+        return sinConfirmar > 0 || ackPendiente;
+    }
+
+    /** Mandados sin confirmar, más los que esperan lugar en la ventana. */
+    public synchronized int getSinConfirmar() {
+        return sinConfirmar + enEspera.size();
+    }
+
+    /** Mensajes esperando lugar en la ventana (todavía sin seq). */
+    public synchronized int getEnEspera() {
+        return enEspera.size();
+    }
+
+    public synchronized long getReenvios() {
+        return reenvios;
+    }
+
+    /** Sesión nueva (Connected): los dos lados arrancan de seq 0. */
+    public synchronized void reset() {
+        esperado = 0;
+        hayRecibido = false;
+        ultimoRecibido = 0;
+        bitsRecibidos = 0;
+        ackPendiente = false;
+        proxSeq = 0;
+        sinConfirmar = 0;
+        while (!enEspera.isEmpty()) libres.add(enEspera.poll());
+        for (int i = 0; i < VENTANA; i++) {
+            ocupadosRecibidos[i] = false;
+            ocupadosEnviados[i] = false;
+        }
+    }
+
+    // ===== Internos =====
+
+    private void procesarAck(int ack, int bits) {
+        confirmar(ack);
+        for (int b = 0; b < VENTANA; b++) {
+            if ((bits & (1 << b)) != 0) confirmar((ack - 1 - b) & 0xFFFF);
+        }
+        avanzarEnEspera();
+    }
+
+    private void confirmar(int seq) {
+        int i = seq % VENTANA;
+        if (!ocupadosEnviados[i] || seqsEnviados[i] != seq) return;
+        ocupadosEnviados[i] = false;
+        sinConfirmar--;
+    }
+
+    private void registrarRecibido(int seq) {
+        if (!hayRecibido) {
+            hayRecibido = true;
+            ultimoRecibido = seq;
+            bitsRecibidos = 0;
+            return;
+        }
+
+        int d = (short) (seq - ultimoRecibido);
+        if (d > 0) {
+            // corre la ventana: el último anterior pasa a ser el bit d-1
+            bitsRecibidos = (d >= 32) ? 0 : (bitsRecibidos << d);
+            if (d <= 32) bitsRecibidos |= 1 << (d - 1);
+            ultimoRecibido = seq;
+        } else if (d < 0 && d >= -32) {
+            bitsRecibidos |= 1 << (-d - 1);
+        }
+    }
+
+    private void escribirAck(EscritorBinario out) {
+        // Sin nada recibido: ack = 0xFFFF (el "anterior" al primer seq) y sin bits
+        if (!hayRecibido) out.u16(0xFFFF).i32(0);
+        else out.u16(ultimoRecibido).i32(bitsRecibidos);
+    }
+
+    /** Un mensaje detrás de la ventana (buffer de maxPayload, se recicla). */
+    private static final class EnEspera {
+        final byte[] datos;
+        int largo;
+
+        EnEspera(int maxPayload) {
+            datos = new byte[maxPayload];
+        }
+    }
+}
@@ -2,297 +2,917 @@ package red;
 
 import java.io.IOException;
 import java.net.*;
-
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.charset.StandardCharsets;
+
+import entidades.datos.Estilo;
+import entidades.datos.Genero;
+import entidades.items.ItemTipo;
+import mapa.model.Direccion;
+import mapa.model.Habitacion;
+
+/**
+* Hilo de red del cliente (UDP).
+*
+* Trabaja sobre un TransporteRed (por defecto TransporteUdp: DatagramChannel + Selector;
+* en pruebas TransporteLoopback, sin server externo):
+* - recepción: drena todo lo que haya en el transporte y lo decodifica (texto o binario).
+* - envío: sendMessage/sendBytes solo encolan (ColaSalida) y despiertan al transporte,
+*   así el hilo de render nunca espera al stack de red. Lo del gameplay va con
+*   send*EnFrame + flushFrame(): se junta todo el frame en un datagrama (LoteSalida).
+* - mensajes críticos (binario): van por CanalConfiable (seq + acks + reenvío en orden).
+* - lo que no entra en el MTU viaja en OP_FRAGMENTO (Fragmentador / Reensamblador) y se
+*   procesa como un datagrama más al completarse: nada se trunca en BUFFER_SIZE.
+* - reconexión: con el token del Session, si en partida el server deja de mandar (o el
+*   socket falla) se reabre el transporte y se manda Resume hasta que el server responda
+*   con un Resync (estado completo sin rearmar el nivel).
+*/
 public class ClientThread extends Thread {
     private static final String DEFAULT_SERVER_IP = "127.0.0.1";
 
     private static final String SEP = ":";
 
-    private static final int BUFFER_SIZE = 1024;
+    // Un bundle llena hasta el MTU: 1500 (Ethernet) - 20 (IP) - 8 (UDP)
+    private static final int BUFFER_SIZE = 1472;
+
+    // Capacidad de la cola saliente (datagramas). Con input por frame alcanza de sobra.
+    private static final int COLA_SALIDA = 64;
+
+    // Cada cuánto se despierta el selector solo si hay mensajes confiables sin confirmar
+    private static final long TICK_CONFIABLE_MS = 50;
+
+    // En partida el server manda estado en cada tick: este silencio ya es una caída
+    private static final long SILENCIO_RECONEXION_MS = 2000;
+
+    private static final long REINTENTO_RESUME_MS = 250;
+
+    // Pasado esto se abandona (el server guarda la sesión un poco más, ver ServidorJuego)
+    private static final long VENTANA_RECONEXION_MS = 15_000;
 
-    private DatagramSocket socket;
+    private volatile TransporteRed transporte;
+
+    // Para reabrir el socket al reconectar (null = el transporte es ajeno, no se reabre)
+    private final java.util.function.Supplier<TransporteRed> fabricaTransporte;
 
     private final GameController controller;
 
     private volatile boolean running = true;
 
-    private InetAddress serverIP;
+    private volatile InetSocketAddress destino;
 
     private int serverPort = DEFAULT_SERVER_PORT;
 
+    // ✅ true cuando el server confirmó el protocolo binario en el Connected
+    private volatile boolean binario = false;
+
+    // true cuando el server anunció que separa varias líneas de texto por datagrama (lote)
+    private volatile boolean textoEnLote = false;
+
+    // true cuando el server anunció que contesta Ping:id:ms de texto (para RTT / pérdida sin binario)
+    private volatile boolean pingTexto = false;
+
+    private final LectorBinario lector = new LectorBinario();
+
+    private final LectorTexto lectorTexto = new LectorTexto();
+
+    private final ReplicadorSnapshots snapshots = new ReplicadorSnapshots();
+
+    // Posiciones viejas/duplicadas se descartan acá, antes de llegar al controller
+    private final FiltroSecuencias secuencias = new FiltroSecuencias();
+
+    // Updates de enemigos de salas que no nos interesan se cortan acá (ver FiltroInteres)
+    private final FiltroInteres interes = new FiltroInteres();
+
+    // Conteos del último Hud, de texto o binario (se reusa: el controller copia lo que necesita)
+    private final int[] conteosHud = new int[InventarioCompacto.TIPOS];
+
+    // Campo hex del último In (un dígito por tick)
+    private final byte[] hexIn = new byte[SincronizadorLockstep.MAX_POR_MENSAJE];
+
+    // Frames que arma el propio hilo de red (acks)
+    private final EscritorBinario escritorRed = new EscritorBinario(16);
+
+    // Mensajes críticos (binario): seq + ack + reenvío, ver CanalConfiable
+    private final CanalConfiable confiable = new CanalConfiable(BUFFER_SIZE - CanalConfiable.CABECERA);
+
+    private final EscritorBinario escritorConfiable = new EscritorBinario(BUFFER_SIZE);
+
+    // RTT / pérdida / tráfico por tipo (overlay F3)
+    private final EstadisticasRed estadisticas = new EstadisticasRed(NOMBRES_COMANDO);
+
+    // Buffers directos: el canal copia sin pasar por un heap buffer intermedio
+    private final ByteBuffer entrada = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final ByteBuffer salida = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // Copia del datagrama recibido para los lectores (trabajan sobre byte[])
+    private final byte[] recibido = new byte[BUFFER_SIZE];
+
+    private final ColaSalida colaSalida = new ColaSalida(COLA_SALIDA, BUFFER_SIZE);
+
+    // Datagramas más grandes que el MTU (los dos sentidos)
+    private final Fragmentador fragmentador = new Fragmentador(BUFFER_SIZE);
+
+    private final Reensamblador reensamblador = new Reensamblador(BUFFER_SIZE);
+
+    // Lo que el hilo render manda durante un frame (ver flushFrame)
+    private final LoteSalida loteFrame = new LoteSalida(BUFFER_SIZE, colaSalida);
+
+    // Lo que arma el canal confiable va directo a la cola (referencia única, sin lambda por tick)
+    private final CanalConfiable.Salida haciaCola = colaSalida::encolar;
+
+    // true si "salida" tiene un datagrama que el canal todavía no aceptó
+    private boolean salidaPendiente = false;
+
+    // Captura opcional de todo lo que entra y sale (ver GrabadorPaquetes / ReproductorCaptura)
+    private volatile GrabadorPaquetes grabador;
+
+    // ===== Reconexión (solo hilo de red, salvo lo volatile) =====
+
+    // Token del Session: 0 = el server no dio sesión reanudable
+    private volatile long tokenSesion = 0;
+
+    // El último Connect que mandó el juego: el Resume repite género / estilo / binN
+    private volatile String connectEnviado;
+
+    // true desde que el juego mandó Ready (o llegó un Resync) hasta GameOver / Disconnect
+    private volatile boolean enPartida = false;
+
+    private long ultimoRecibidoMs = System.currentTimeMillis();
+
+    // -1 = conectado
+    private long reconectandoDesdeMs = -1;
+
+    private long proximoResumeMs = 0;
+
+    private int reconexiones = 0;
+
+    // El último Start fue Start:seed:nivel:Lockstep o :Rollback (solo hilo de red)
+    private boolean lockstep = false;
+
     @Override
     public void run() {
         System.out.println("[CLIENT] run() arrancó");
 
-        try {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        if (transporte == null) {
+            controller.disconnect("No se pudo abrir el canal");
+            return;
+        }
 
+        try {
             while (running) {
-                socket.receive(packet);
-
-                String msg = new String(packet.getData(), 0, packet.getLength()).trim();
-                if (!msg.isEmpty()) parseMessage(msg, packet);
+                // Con confiables pendientes hay que despertarse para reenviar aunque no llegue nada;
+                // con ping (binario o texto) además para el de las estadísticas
+                long espera = confiable.tienePendientes() ? TICK_CONFIABLE_MS
+                    : ((binario || pingTexto) ? EstadisticasRed.PING_INTERVALO_MS : 0L);
+                // En partida también, para notar que el server dejó de mandar
+                if (enPartida && (espera == 0L || espera > REINTENTO_RESUME_MS)) espera = REINTENTO_RESUME_MS;
+                transporte.esperar(espera, salidaPendiente);
+                if (!running) break;
+
+                pasoRed();
             }
 
-        } catch (SocketException se) {
-            // normal si cerraste el socket
+        } catch (ClosedChannelException | ClosedSelectorException se) {
+            // normal si cerraste el canal
         } catch (IOException e) {
             controller.disconnect("IO error: " + e.getMessage());
         } catch (Exception e) {
             // ✅ evita que el thread muera por parseos inesperados
             controller.disconnect("Unexpected error: " + e.getMessage());
+        } finally {
+            cerrarCanal();
         }
+    }
 
+    /**
+    * Una vuelta del loop sin esperar: recibe y decodifica todo lo pendiente, reenvía
+    * confiables / ping y manda la cola saliente.
+    * La usa run(); también sirve para manejar muchos clientes desde un solo hilo
+    * (ver bots.EnjambreBots en el módulo server) sin llamar a start().
+    */
+    public void pasoRed() throws IOException {
+        if (!running || transporte == null) return;
 
-}
+        try {
+            recibirPendientes();
+        } catch (IOException e) {
+            // close() también termina acá (canal cerrado): eso no se reintenta
+            if (!running || !reabrirTransporte(e)) throw e;
+        }
+        revisarReconexion(System.currentTimeMillis());
+
+        long ahora = System.currentTimeMillis();
+        if (binario) confiable.tick(ahora, escritorConfiable, haciaCola);
+        if ((binario || pingTexto) && estadisticas.tocaPing(ahora)) {
+            int pingId = estadisticas.nuevoPing(ahora);
+            if (binario) {
+                ProtocoloBinario.ping(escritorRed, pingId, ahora);
+                colaSalida.encolar(escritorRed.datos(), escritorRed.largo());
+            } else {
+                // Ping:id:ms (uno por segundo: el String no pesa)
+                colaSalida.encolar("Ping" + SEP + pingId + SEP + ahora);
+            }
+        }
+        enviarPendientes();
+    }
+
+    /** true si quedó un datagrama que el transporte no aceptó (hay que esperar OP_WRITE). */
+    public boolean tieneSalidaPendiente() {
+        return salidaPendiente;
+    }
 
     public ClientThread(GameController controller) {
+        this(controller, abrirUdp(), null, ClientThread::abrirUdp);
+    }
+
+    /** destino null = server por defecto (DEFAULT_SERVER_IP:DEFAULT_SERVER_PORT). */
+    public ClientThread(GameController controller, TransporteRed transporte, InetSocketAddress destino) {
+        this(controller, transporte, destino, null);
+    }
+
+    private ClientThread(GameController controller, TransporteRed transporte, InetSocketAddress destino,
+                         java.util.function.Supplier<TransporteRed> fabricaTransporte) {
         super("ClientThread");
         setDaemon(true); // ✅
         this.controller = controller;
+        this.transporte = transporte;
+        this.fabricaTransporte = fabricaTransporte;
 
+        if (destino != null) {
+            this.destino = destino;
+            return;
+        }
         try {
-            socket = new DatagramSocket();
-            socket.setBroadcast(true);
-            serverIP = InetAddress.getByName(DEFAULT_SERVER_IP); // o tu IP real
+            this.destino = new InetSocketAddress(InetAddress.getByName(DEFAULT_SERVER_IP), serverPort); // o tu IP real
         } catch (Exception e) {
-            System.out.println("[CLIENT] error creando socket: " + e.getMessage());
+            System.out.println("[CLIENT] error resolviendo server: " + e.getMessage());
+        }
+    }
+
+    private static TransporteRed abrirUdp() {
+        try {
+            return new TransporteUdp();
+        } catch (Exception e) {
+            System.out.println("[CLIENT] error creando canal: " + e.getMessage());
+            return null;
         }
     }
 
     public void close() {
         running = false;
-        DatagramSocket s = socket; // snapshot
-        if (s != null && !s.isClosed()) {
-            s.close(); // hará que receive() salga con SocketException (normal)
-        }
+        if (transporte != null) transporte.despertar(); // el run() sale de esperar() y cierra el canal
+        if (!isAlive()) cerrarCanal();
     }
 
     public void sendMessage(String message) {
-        System.out.println("[CLIENT] -> " + message + " a " + serverIP + ":" + serverPort);
+        // (el log por mensaje se reemplazó por EstadisticasRed: ver overlay F3)
+        if (!running || transporte == null) return;
+        if (message.startsWith("Connect" + SEP)) connectEnviado = message;
+        boolean encolado = colaSalida.encolar(message);
+        if (!encolado) {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            encolado = encolarFragmentado(bytes, bytes.length);
+        }
+        if (encolado) transporte.despertar();
+    }
 
-        try {
-            if (socket == null || socket.isClosed()) return;
+    /** Encola un frame binario ya armado (ver ProtocoloBinario). Se copia, el buffer se puede reusar. */
+    public void sendBytes(byte[] data, int length) {
+        if (!running || transporte == null) return;
+        if (colaSalida.encolar(data, length) || encolarFragmentado(data, length)) transporte.despertar();
+    }
+
+    /** Más grande que un datagrama: sale en OP_FRAGMENTO (puede llamarse desde render o red). */
+    private boolean encolarFragmentado(byte[] data, int length) {
+        if (length <= BUFFER_SIZE) return false;
+        synchronized (fragmentador) {
+            if (fragmentador.fragmentar(data, length, colaSalida::encolar)) return true;
+        }
+        System.out.println("[CLIENT] mensaje de " + length + " bytes: no entra ni fragmentado, se descarta");
+        return false;
+    }
+
+    /**
+    * Igual que sendBytes pero por el canal confiable: se reenvía hasta que el server lo confirma.
+    * Con la ventana llena espera en el canal hasta que haya lugar.
+    */
+    public void sendConfiable(byte[] data, int length) {
+        if (!running || transporte == null) return;
+        if (length < 2 || data[0] != ProtocoloBinario.MAGIC) {
+            System.out.println("[CLIENT] sendConfiable sin frame binario, se manda sin confirmación");
+            sendBytes(data, length);
+            return;
+        }
+        if (!confiable.enviar(data, 1, length - 1)) {
+            System.out.println("[CLIENT] mensaje de " + length + " bytes: no entra en el canal confiable, se manda sin confirmación");
+            sendBytes(data, length);
+            return;
+        }
+        transporte.despertar();
+    }
 
-            byte[] data = message.getBytes();
-            DatagramPacket packet = new DatagramPacket(data, data.length, serverIP, serverPort);
-            socket.send(packet);
-        } catch (IOException ignored) {}
+    /**
+    * Como sendMessage, pero se junta con lo demás del frame hasta flushFrame(): una línea idéntica
+    * a otra del mismo frame se manda una vez y, si el server anunció lote, todo sale en un solo
+    * datagrama. Solo hilo render.
+    */
+    public void sendMessageEnFrame(CharSequence message) {
+        if (!running || transporte == null) return;
+        loteFrame.setJuntarTexto(textoEnLote);
+        loteFrame.agregarTexto(message);
     }
 
-    private static Float parseFloat(String s) {
-        try { return Float.parseFloat(s); } catch (Exception e) { return null; }
+    /** Como sendBytes, juntado en un OP_BUNDLE hasta flushFrame(). Solo hilo render. */
+    public void sendBytesEnFrame(byte[] data, int length) {
+        if (!running || transporte == null) return;
+        if (!loteFrame.agregarBinario(data, length)) sendBytes(data, length);
     }
 
-    private static Integer parseInt(String s) {
-        try { return Integer.parseInt(s); } catch (Exception e) { return null; }
+    /** Fin del frame: lo juntado pasa a la cola y el hilo de red se despierta una sola vez. */
+    public void flushFrame() {
+        if (!running || transporte == null) return;
+        if (loteFrame.vaciar()) transporte.despertar();
     }
 
-    private static int parseIntOr(String s, int def) {
-        try { return Integer.parseInt(s); } catch (Exception e) { return def; }
+    /** Mensajes del mismo frame que no salieron por estar repetidos. */
+    public int getRepetidosEnFrame() {
+        return loteFrame.getRepetidos();
     }
 
-    private static long parseLongOr(String s, long def) {
-        try { return Long.parseLong(s); } catch (Exception e) { return def; }
+    /** Mensajes confiables mandados que el server todavía no confirmó. */
+    public int getConfiablesSinConfirmar() {
+        return confiable.getSinConfirmar();
     }
 
-    private void parseMessage(String msg, DatagramPacket packet) {
-        String[] parts = split(msg);
-        if (parts.length == 0) return;
+    public long getReenviosConfiables() {
+        return confiable.getReenvios();
+    }
+
+    /** Graba todos los datagramas desde ahora (null = dejar de grabar). Llamar antes de start(). */
+    public void setGrabador(GrabadorPaquetes grabador) {
+        this.grabador = grabador;
+    }
 
-        switch (parts[0]) {
+    public EstadisticasRed getEstadisticas() {
+        return estadisticas;
+    }
+
+    /** Datagramas esperando salir / descartados por cola llena. */
+    public int getColaSalidaSize() {
+        return colaSalida.size();
+    }
 
-        case "Connected": {
-                if (parts.length >= 2) {
-                    // ✅ conservar lógica: aprende IP real del server
-                    serverIP = packet.getAddress();
+    public int getColaSalidaCapacidad() {
+        return COLA_SALIDA;
+    }
+
+    public int getSalidaDescartados() {
+        return colaSalida.getDescartados();
+    }
+
+    public int getSnapshotsDescartados() {
+        return snapshots.getDescartados();
+    }
+
+    public long getUpdatesViejosDescartados() {
+        return secuencias.getDescartados();
+    }
+
+    /** Salas de las que se aceptan updates de entidades (FiltroInteres.TODAS = sin filtro). */
+    public void setInteres(long mascara) {
+        interes.setMascara(mascara);
+    }
+
+    public long getUpdatesFueraDeInteres() {
+        return interes.getDescartados();
+    }
 
-                    Integer playerId = parseInt(parts[1]);
-                    if (playerId != null) controller.connect(playerId);
+    /** Mensajes recibidos en fragmentos que se completaron / se perdieron por timeout. */
+    public long getReensamblados() {
+        return reensamblador.getCompletos();
+    }
+
+    public long getFragmentadosVencidos() {
+        return reensamblador.getVencidos();
+    }
+
+    /**
+    * El juego ya mandó Ready: desde acá el server manda estado seguido y un silencio
+    * largo cuenta como caída (antes no: armar el nivel puede tardar).
+    */
+    public void marcarEnPartida() {
+        enPartida = true;
+        // si el hilo está en una espera sin límite, que pase a vigilar el silencio
+        TransporteRed t = transporte;
+        if (t != null) t.despertar();
+    }
+
+    public boolean isReconectando() {
+        return enPartida && tokenSesion != 0 && reconectandoDesdeMs >= 0;
+    }
+
+    /** Sesiones reanudadas con Resume desde que arrancó el cliente. */
+    public int getReconexiones() {
+        return reconexiones;
+    }
+
+    // ===== Reconexión =====
+
+    private void revisarReconexion(long ahora) {
+        if (!enPartida || tokenSesion == 0) {
+            reconectandoDesdeMs = -1;
+            return;
+        }
+
+        if (reconectandoDesdeMs < 0) {
+            if (ahora - ultimoRecibidoMs < SILENCIO_RECONEXION_MS) return;
+            iniciarReconexion(ahora, "sin datos del server hace " + (ahora - ultimoRecibidoMs) + " ms");
+        }
+
+        if (ahora - reconectandoDesdeMs > VENTANA_RECONEXION_MS) {
+            System.out.println("[CLIENT] no se pudo reconectar");
+            reconectandoDesdeMs = -1;
+            enPartida = false;
+            tokenSesion = 0;
+            controller.reconexion(false);
+            controller.disconnect("No se pudo reconectar");
+            return;
+        }
+
+        if (ahora < proximoResumeMs) return;
+        proximoResumeMs = ahora + REINTENTO_RESUME_MS;
+
+        // Resume:token[:GENERO:ESTILO[:binN]] (lo mismo que el Connect original)
+        String connect = connectEnviado;
+        String extra = (connect != null) ? connect.substring("Connect".length()) : "";
+        colaSalida.encolar("Resume" + SEP + tokenSesion + extra);
+    }
+
+    private void iniciarReconexion(long ahora, String motivo) {
+        if (reconectandoDesdeMs >= 0) return;
+        System.out.println("[CLIENT] reconectando: " + motivo);
+        reconectandoDesdeMs = ahora;
+        proximoResumeMs = ahora;
+        controller.reconexion(true);
+    }
+
+    /**
+    * El socket falló en partida: se tira y se abre uno nuevo (otro puerto local: el server
+    * reconoce la sesión por el token, no por la dirección). false = no se puede reabrir.
+    */
+    private boolean reabrirTransporte(IOException causa) {
+        if (fabricaTransporte == null || !enPartida || tokenSesion == 0) return false;
+
+        TransporteRed nuevo = fabricaTransporte.get();
+        if (nuevo == null) return false;
+
+        TransporteRed viejo = transporte;
+        transporte = nuevo;
+        if (viejo != null) viejo.cerrar();
+        salidaPendiente = false;
+
+        iniciarReconexion(System.currentTimeMillis(), "error de socket: " + causa.getMessage());
+        return true;
+    }
+
+    private void recibirPendientes() throws IOException {
+        while (running) {
+            entrada.clear();
+            SocketAddress origen = transporte.recibir(entrada);
+            if (origen == null) return; // no hay más datagramas
+            ultimoRecibidoMs = System.currentTimeMillis();
+
+            entrada.flip();
+            int largo = entrada.remaining();
+            entrada.get(recibido, 0, largo);
+
+            GrabadorPaquetes g = grabador;
+            if (g != null) g.registrar(GrabadorPaquetes.ENTRADA, recibido, 0, largo);
+
+            if (ProtocoloBinario.esBinario(recibido, 0, largo)
+                && (recibido[1] & 0xFF) == ProtocoloBinario.OP_FRAGMENTO) {
+                estadisticas.registrarRecibido(ProtocoloBinario.OP_FRAGMENTO, largo);
+                int completo = reensamblador.agregar(origen, recibido, 0, largo, ultimoRecibidoMs);
+                if (completo > 0) procesarDatagrama(reensamblador.getCompleto(), completo, origen);
+                continue;
+            }
+            procesarDatagrama(recibido, largo, origen);
+        }
+    }
+
+    /** Un datagrama entero (o un mensaje reensamblado): texto o binario. */
+    private void procesarDatagrama(byte[] datos, int largo, SocketAddress origen) {
+        if (ProtocoloBinario.esBinario(datos, 0, largo)) {
+            int op = datos[1] & 0xFF;
+            if (op == ProtocoloBinario.OP_BUNDLE) estadisticas.registrarBundle(datos, 0, largo);
+            else estadisticas.registrarRecibido(op, largo);
+
+            lector.reset(datos, 0, largo);
+
+            if (op == ProtocoloBinario.OP_PONG) {
+                lector.u8();
+                lector.u8();
+                int pingId = lector.varInt();
+                long clienteMs = lector.i32() & 0xFFFFFFFFL;
+                if (lector.ok()) estadisticas.registrarPong(pingId, clienteMs, System.currentTimeMillis());
+                return;
+            }
+
+            ProtocoloBinario.decodificar(lector, controller, snapshots, confiable, secuencias, interes, conteosHud);
+
+            if (snapshots.consumirAckPendiente()) {
+                // se encola directo: enviarPendientes() corre justo después en este mismo hilo
+                ProtocoloBinario.snapshotAck(escritorRed, snapshots.getUltimoAplicado());
+                colaSalida.encolar(escritorRed.datos(), escritorRed.largo());
+            }
+            return;
+        }
+
+        // Texto: puede venir más de un mensaje por datagrama, separados por '\n'
+        int ini = 0;
+        for (int i = 0; i <= largo; i++) {
+            if (i < largo && datos[i] != '\n') continue;
+            if (i > ini) {
+                lectorTexto.reset(datos, ini, i - ini);
+                parseMessage(lectorTexto, origen, i - ini + 1);
+            }
+            ini = i + 1;
+        }
+    }
+
+    private void enviarPendientes() {
+        while (running) {
+            if (!salidaPendiente) {
+                if (!colaSalida.sacar(salida)) break;
+                salidaPendiente = true;
+            }
+
+            int ini = salida.position();
+            int bytes = salida.remaining();
+            int tipo = (bytes >= 2 && salida.get(0) == ProtocoloBinario.MAGIC)
+                ? (salida.get(1) & 0xFF)
+                : EstadisticasRed.TIPO_TEXTO_SALIDA;
+
+            try {
+                if (!transporte.enviar(salida, destino)) {
+                    // buffer del SO lleno: esperar() también despierta cuando se pueda escribir
+                    return;
+                }
+                estadisticas.registrarEnviado(tipo, bytes);
+
+                GrabadorPaquetes g = grabador;
+                if (g != null) g.registrar(GrabadorPaquetes.SALIDA, salida, ini, bytes);
+            } catch (IOException ignored) {
+                // igual que antes: un envío fallido se descarta
+            }
+            salidaPendiente = false;
+        }
+    }
+
+    private void cerrarCanal() {
+        if (transporte != null) transporte.cerrar();
+
+        GrabadorPaquetes g = grabador;
+        grabador = null;
+        if (g != null) g.cerrar();
+    }
+
+    public boolean isBinario() {
+        return binario;
+    }
+
+    private void parseMessage(LectorTexto in, SocketAddress origen, int bytes) {
+        if (in.vacio()) return;
+
+        final int campos = in.campos();
+        final int cmd = in.comando(COMANDOS);
+        if (cmd >= 0) estadisticas.registrarRecibido(EstadisticasRed.TIPO_TEXTO + cmd, bytes);
+
+        switch (cmd) {
+
+        case CMD_CONNECTED: {
+                if (campos >= 2) {
+                    // ✅ conservar lógica: aprende IP real del server (y su puerto: puede no ser el default)
+                    if (origen instanceof InetSocketAddress) {
+                        destino = (InetSocketAddress) origen;
+                    }
+
+                    int playerId = in.entero();
+
+                    // Connected:playerId[:token...] => binN: acepta el protocolo binario,
+                    // lote: entiende varias líneas de texto en un datagrama, ping: contesta Ping de texto
+                    boolean bin = false;
+                    boolean lote = false;
+                    boolean ping = false;
+                    for (int k = 2; k < campos; k++) {
+                        String token = in.texto(TOKENS_CONNECTED);
+                        if (token == ProtocoloBinario.TOKEN_VERSION) bin = true;
+                        else if (token == TOKEN_LOTE) lote = true;
+                        else if (token == TOKEN_PING) ping = true;
+                    }
+                    binario = bin;
+                    textoEnLote = lote;
+                    pingTexto = ping;
+
+                    // Sesión nueva: el canal confiable y los snapshots arrancan de cero en los dos lados
+                    if (binario) confiable.reset();
+                    snapshots.reset();
+                    secuencias.reset();
+                    estadisticas.reset();
+
+                    if (in.ok()) controller.connect(playerId);
+                }
+                break;
+            }
+
+        case CMD_SESSION: {
+                // Session:token (para Resume si se cae la conexión)
+                if (campos >= 2) {
+                    long token = in.largo();
+                    if (in.ok()) tokenSesion = token;
+                }
+                // Lockstep: no hay Resync (el mundo lo tiene cada cliente), con la sesión de vuelta alcanza
+                if (lockstep && reconectandoDesdeMs >= 0) {
+                    System.out.println("[CLIENT] sesión lockstep recuperada");
+                    reconectandoDesdeMs = -1;
+                    reconexiones++;
+                    controller.reconexion(false);
+                }
+                break;
+            }
+
+        case CMD_RESYNC: {
+                // Resync:seed:nivel:sala:salasResueltas (respuesta al Resume)
+                if (campos >= 5) {
+                    long seed = in.largo();
+                    int nivel = in.entero();
+                    String sala = in.texto(NOMBRES_HABITACION);
+                    long resueltas = in.largo();
+                    if (!in.ok()) break;
+
+                    long caida = (reconectandoDesdeMs >= 0) ? System.currentTimeMillis() - reconectandoDesdeMs : 0;
+                    System.out.println("[CLIENT] <- Resync seed=" + seed + " nivel=" + nivel + " sala=" + sala
+                        + " (" + caida + " ms sin conexión)");
+
+                    // Lo que sigue en el lote (SpawnEnemy / SpawnItem...) vuelve a registrar todo
+                    secuencias.reset();
+                    interes.reset();
+                    reconectandoDesdeMs = -1;
+                    enPartida = true;
+                    reconexiones++;
+                    controller.resync(seed, nivel, sala, resueltas);
+                    controller.reconexion(false);
                 }
                 break;
             }
 
-        case "Appearance": {
+        case CMD_APPEARANCE: {
                 // Appearance:playerId:GENERO:ESTILO
-                if (parts.length >= 4) {
-                    Integer id = parseInt(parts[1]);
-                    String genero = parts[2];
-                    String estilo = parts[3];
-                    if (id != null) controller.appearance(id, genero, estilo);
+                if (campos >= 4) {
+                    int id = in.entero();
+                    String genero = in.texto(NOMBRES_GENERO);
+                    String estilo = in.texto(NOMBRES_ESTILO);
+                    if (in.ok()) controller.appearance(id, genero, estilo);
                 }
                 break;
             }
 
-        case "Start": {
-                long seed = (parts.length >= 2) ? parseLongOr(parts[1], 0L) : 0L;
-                int nivel = (parts.length >= 3) ? parseIntOr(parts[2], 1) : 1;
+        case CMD_START: {
+                // Start:seed:nivel[:Lockstep|Rollback]
+                long seed = (campos >= 2) ? in.largoOr(0L) : 0L;
+                int nivel = (campos >= 3) ? in.enteroOr(1) : 1;
+                String modo = (campos >= 4) ? in.texto(MODOS) : null;
+                boolean rollback = MODO_ROLLBACK.equals(modo);
+                // rollback es lockstep para la red (In, sesión sin Resync)
+                lockstep = rollback || MODO_LOCKSTEP.equals(modo);
+
+                System.out.println("[CLIENT] <- Start seed=" + seed + " nivel=" + nivel + (lockstep ? " (" + modo + ")" : ""));
+                // Hasta el Ready el server no manda estado (ver marcarEnPartida)
+                enPartida = false;
+                secuencias.reset();
+                interes.reset();
+                if (rollback) controller.startRollback(seed, nivel);
+                else if (lockstep) controller.startLockstep(seed, nivel);
+                else controller.start(seed, nivel);
+                break;
+            }
 
-                System.out.println("[CLIENT] <- Start seed=" + seed + " nivel=" + nivel);
-                controller.start(seed, nivel);
+        case CMD_IN: {
+                // In:playerId:desde:ack[:hex] (el server reenvía lo del otro jugador)
+                if (campos >= 4) {
+                    int id = in.entero();
+                    int desde = in.entero();
+                    int ack = in.entero();
+                    // el hex se copia a un byte[] reusado: sin String por In (llega a 60 Hz)
+                    int largoHex = (campos >= 5) ? in.copiar(hexIn) : -1;
+                    if (in.ok()) controller.inputs(id, desde, ack, (largoHex >= 0) ? hexIn : null, largoHex);
+                }
                 break;
             }
 
-        case "UpdatePosition": {
-                if (parts.length >= 4) {
-                    Integer id = parseInt(parts[1]);
-                    Float x = parseFloat(parts[2]);
-                    Float y = parseFloat(parts[3]);
-                    if (id != null && x != null && y != null) {
-                        controller.updatePlayerPosition(id, x, y);
+        case CMD_UPDATE_POSITION: {
+                // UpdatePosition:id:x:y[:serverMs[:inputAck[:seq]]]
+                if (campos >= 5) {
+                    int id = in.entero();
+                    float x = in.flotante();
+                    float y = in.flotante();
+                    long serverMs = in.largo();
+                    int inputAck = (campos >= 6) ? in.entero() : -1;
+                    int seq = (campos >= 7) ? in.entero() : -1;
+                    if (in.ok() && secuencias.aceptarJugador(id, seq)) {
+                        controller.updatePlayerPosition(id, x, y, serverMs, inputAck);
                     }
+                } else if (campos >= 4) {
+                    int id = in.entero();
+                    float x = in.flotante();
+                    float y = in.flotante();
+                    if (in.ok()) controller.updatePlayerPosition(id, x, y);
                 }
                 break;
             }
 
-        case "UpdateRoom": {
+        case CMD_UPDATE_ROOM: {
                 // ✅ LOG para confirmar recepción
-                System.out.println("[CLIENT] <- " + msg);
+                System.out.println("[CLIENT] <- " + in.mensaje());
 
                 // misma lógica que tenías:
-                if (parts.length >= 4) {
-                    controller.updateRoom(parts[1] + SEP + parts[2] + SEP + parts[3]);
-                } else if (parts.length >= 2) {
-                    controller.updateRoom(parts[1]);
+                if (campos >= 4) {
+                    String destino = in.texto(NOMBRES_HABITACION);
+                    String dir = in.texto(NOMBRES_DIRECCION);
+                    int player = in.entero();
+                    if (in.ok()) controller.updateRoom(destino, dir, player);
+                } else if (campos >= 2) {
+                    controller.updateRoom(in.texto(NOMBRES_HABITACION));
                 }
                 break;
             }
 
-        case "SpawnItem": {
+        case CMD_SPAWN_ITEM: {
                 // SpawnItem:id:tipo:x:y
-                if (parts.length >= 5) {
-                    Integer itemId = parseInt(parts[1]);
-                    String tipo = parts[2];
-                    Float x = parseFloat(parts[3]);
-                    Float y = parseFloat(parts[4]);
-                    if (itemId != null && x != null && y != null) {
-                        controller.spawnItem(itemId, tipo, x, y);
-                    }
+                if (campos >= 5) {
+                    int itemId = in.entero();
+                    String tipo = in.texto(NOMBRES_ITEM);
+                    float x = in.flotante();
+                    float y = in.flotante();
+                    if (in.ok()) controller.spawnItem(itemId, tipo, x, y);
                 }
                 break;
             }
 
-        case "DespawnItem": {
-                if (parts.length >= 2) {
-                    Integer itemId = parseInt(parts[1]);
-                    if (itemId != null) controller.despawnItem(itemId);
+        case CMD_DESPAWN_ITEM: {
+                if (campos >= 2) {
+                    int itemId = in.entero();
+                    if (in.ok()) controller.despawnItem(itemId);
                 }
                 break;
             }
 
-        case "PickupItem": {
+        case CMD_PICKUP_ITEM: {
                 // PickupItem:jugadorId:itemId:tipo
-                if (parts.length >= 4) {
-                    Integer jugadorId = parseInt(parts[1]);
-                    Integer itemId = parseInt(parts[2]);
-                    String tipo = parts[3];
-                    if (jugadorId != null && itemId != null) {
-                        controller.pickupItem(jugadorId, itemId, tipo);
-                    }
+                if (campos >= 4) {
+                    int jugadorId = in.entero();
+                    int itemId = in.entero();
+                    String tipo = in.texto(NOMBRES_ITEM);
+                    if (in.ok()) controller.pickupItem(jugadorId, itemId, tipo);
                 }
                 break;
             }
 
-        case "Hud": {
-                // Hud:playerId:vida:vidaMax:tiposCsv
-                if (parts.length >= 4) {
-                    Integer playerId = parseInt(parts[1]);
-                    Integer vida = parseInt(parts[2]);
-                    Integer vidaMax = parseInt(parts[3]);
-                    String tiposCsv = (parts.length >= 5) ? parts[4] : "";
-                    if (playerId != null && vida != null && vidaMax != null) {
-                        controller.hud(playerId, vida, vidaMax, tiposCsv);
-                    }
+        case CMD_HUD: {
+                // Hud:playerId:vida:vidaMax:version:c0:c1:... (conteos por ItemTipo)
+                if (campos >= 6) {
+                    int playerId = in.entero();
+                    int vida = in.entero();
+                    int vidaMax = in.entero();
+                    int version = in.entero();
+                    int n = Math.min(campos - 5, InventarioCompacto.TIPOS);
+                    java.util.Arrays.fill(conteosHud, 0);
+                    for (int t = 0; t < n; t++) conteosHud[t] = in.entero();
+                    if (in.ok()) controller.hud(playerId, vida, vidaMax, version, conteosHud);
+                    break;
+                }
+                // Hud viejo: Hud:playerId:vida:vidaMax[:tiposCsv]
+                if (campos >= 4) {
+                    int playerId = in.entero();
+                    int vida = in.entero();
+                    int vidaMax = in.entero();
+                    String tiposCsv = (campos >= 5) ? in.texto(NOMBRES_ITEM) : "";
+                    if (in.ok()) controller.hud(playerId, vida, vidaMax, tiposCsv);
                 }
                 break;
             }
 
-        case "Other": {
+        case CMD_OTHER: {
                 // Other:otherPlayerId:vida:vidaMax
-                if (parts.length >= 4) {
-                    Integer otherId = parseInt(parts[1]);
-                    Integer vida = parseInt(parts[2]);
-                    Integer vidaMax = parseInt(parts[3]);
-                    if (otherId != null && vida != null && vidaMax != null) {
-                        controller.other(otherId, vida, vidaMax);
-                    }
+                if (campos >= 4) {
+                    int otherId = in.entero();
+                    int vida = in.entero();
+                    int vidaMax = in.entero();
+                    if (in.ok()) controller.other(otherId, vida, vidaMax);
                 }
                 break;
             }
 
-        case "SpawnEnemy": {
+        case CMD_SPAWN_ENEMY: {
                 // SpawnEnemy:id:nombre:x:y:sala
-                if (parts.length >= 6) {
-                    Integer enemyId = parseInt(parts[1]);
-                    String nombre = parts[2];
-                    Float x = parseFloat(parts[3]);
-                    Float y = parseFloat(parts[4]);
-                    String sala = parts[5];
-                    if (enemyId != null && x != null && y != null) {
-                        controller.spawnEnemy(enemyId, nombre, x, y, sala);
-                    }
+                if (campos >= 6) {
+                    int enemyId = in.entero();
+                    String nombre = in.texto();
+                    float x = in.flotante();
+                    float y = in.flotante();
+                    String sala = in.texto(NOMBRES_HABITACION);
+                    if (!in.ok()) break;
+                    interes.registrarEnemigo(enemyId, habitacion(sala));
+                    controller.spawnEnemy(enemyId, nombre, x, y, sala);
                 }
                 break;
             }
 
-        case "UpdateEnemy": {
-                if (parts.length >= 4) {
-                    Integer enemyId = parseInt(parts[1]);
-                    Float x = parseFloat(parts[2]);
-                    Float y = parseFloat(parts[3]);
-                    if (enemyId != null && x != null && y != null) {
-                        controller.updateEnemy(enemyId, x, y);
+        case CMD_UPDATE_ENEMY: {
+                // UpdateEnemy:id:x:y[:serverMs[:seq]]
+                if (campos < 4) break;
+                int enemyId = in.entero();
+                // fuera del interés: no se parsean los floats ni llega al controller
+                if (!in.ok() || !interes.aceptarEnemigo(enemyId)) break;
+
+                if (campos >= 5) {
+                    float x = in.flotante();
+                    float y = in.flotante();
+                    long serverMs = in.largo();
+                    int seq = (campos >= 6) ? in.entero() : -1;
+                    if (in.ok() && secuencias.aceptarEnemigo(enemyId, seq)) {
+                        controller.updateEnemy(enemyId, x, y, serverMs);
                     }
+                } else {
+                    float x = in.flotante();
+                    float y = in.flotante();
+                    if (in.ok()) controller.updateEnemy(enemyId, x, y);
                 }
                 break;
             }
 
-        case "DespawnEnemy": {
-                if (parts.length >= 2) {
-                    Integer enemyId = parseInt(parts[1]);
-                    if (enemyId != null) controller.despawnEnemy(enemyId);
+        case CMD_DESPAWN_ENEMY: {
+                if (campos >= 2) {
+                    int enemyId = in.entero();
+                    if (!in.ok()) break;
+                    secuencias.olvidarEnemigo(enemyId);
+                    interes.olvidarEnemigo(enemyId);
+                    controller.despawnEnemy(enemyId);
                 }
                 break;
             }
 
-        case "RoomClear": {
-                if (parts.length >= 2) {
-                    controller.roomClear(parts[1]);
+        case CMD_ROOM_CLEAR: {
+                if (campos >= 2) {
+                    controller.roomClear(in.texto(NOMBRES_HABITACION));
                 }
                 break;
             }
 
-        case "Damage": {
+        case CMD_DAMAGE: {
                 // Damage:playerId:vida:vidaMax
-                if (parts.length >= 4) {
-                    Integer playerId = parseInt(parts[1]);
-                    Integer vida = parseInt(parts[2]);
-                    Integer vidaMax = parseInt(parts[3]);
-                    if (playerId != null && vida != null && vidaMax != null) {
-                        controller.damage(playerId, vida, vidaMax);
-                    }
+                if (campos >= 4) {
+                    int playerId = in.entero();
+                    int vida = in.entero();
+                    int vidaMax = in.entero();
+                    if (in.ok()) controller.damage(playerId, vida, vidaMax);
+                }
+                break;
+            }
+
+        case CMD_DEAD: {
+                if (campos >= 2) {
+                    int playerId = in.entero();
+                    if (in.ok()) controller.dead(playerId);
                 }
                 break;
             }
 
-        case "Dead": {
-                if (parts.length >= 2) {
-                    Integer playerId = parseInt(parts[1]);
-                    if (playerId != null) controller.dead(playerId);
+        case CMD_GAME_OVER: {
+                if (campos >= 2) {
+                    int loserId = in.entero();
+                    enPartida = false;
+                    if (in.ok()) controller.gameOver(loserId);
                 }
                 break;
             }
 
-        case "GameOver": {
-                if (parts.length >= 2) {
-                    Integer loserId = parseInt(parts[1]);
-                    if (loserId != null) controller.gameOver(loserId);
+        case CMD_PONG: {
+                // Pong:id:ms (el Ping de texto tal cual volvió)
+                if (campos >= 3) {
+                    int pingId = in.entero();
+                    long clienteMs = in.largo();
+                    if (in.ok()) estadisticas.registrarPong(pingId, clienteMs, System.currentTimeMillis());
                 }
                 break;
             }
 
-        case "Disconnect": {
+        case CMD_DISCONNECT: {
+                enPartida = false;
+                tokenSesion = 0;
                 controller.disconnect("Server closed");
                 break;
             }
@@ -306,9 +926,84 @@ public class ClientThread extends Thread {
     // ===== Constantes =====
     private static final int DEFAULT_SERVER_PORT = 5555;
 
+    // Connected:playerId:...:lote => el server separa por '\n' (sin esto, una línea por datagrama)
+    public static final String TOKEN_LOTE = "lote";
+
+    // Connected:playerId:...:ping => el server contesta Ping:id:ms con Pong:id:ms
+    public static final String TOKEN_PING = "ping";
+
+    private static final String[] TOKENS_CONNECTED = { ProtocoloBinario.TOKEN_VERSION, TOKEN_LOTE, TOKEN_PING };
+
+    // ===== Comandos texto (se comparan como bytes, sin armar Strings) =====
+    private static final int CMD_CONNECTED = 0;
+    private static final int CMD_APPEARANCE = 1;
+    private static final int CMD_START = 2;
+    private static final int CMD_UPDATE_POSITION = 3;
+    private static final int CMD_UPDATE_ROOM = 4;
+    private static final int CMD_SPAWN_ITEM = 5;
+    private static final int CMD_DESPAWN_ITEM = 6;
+    private static final int CMD_PICKUP_ITEM = 7;
+    private static final int CMD_HUD = 8;
+    private static final int CMD_OTHER = 9;
+    private static final int CMD_SPAWN_ENEMY = 10;
+    private static final int CMD_UPDATE_ENEMY = 11;
+    private static final int CMD_DESPAWN_ENEMY = 12;
+    private static final int CMD_ROOM_CLEAR = 13;
+    private static final int CMD_DAMAGE = 14;
+    private static final int CMD_DEAD = 15;
+    private static final int CMD_GAME_OVER = 16;
+    private static final int CMD_DISCONNECT = 17;
+    private static final int CMD_SESSION = 18;
+    private static final int CMD_RESYNC = 19;
+    private static final int CMD_IN = 20;
+    private static final int CMD_PONG = 21;
+
+    // Orden = índices CMD_*
+    private static final String[] NOMBRES_COMANDO = {
+        "Connected", "Appearance", "Start", "UpdatePosition", "UpdateRoom",
+        "SpawnItem", "DespawnItem", "PickupItem", "Hud", "Other",
+        "SpawnEnemy", "UpdateEnemy", "DespawnEnemy", "RoomClear", "Damage",
+        "Dead", "GameOver", "Disconnect", "Session", "Resync",
+        "In", "Pong"
+    };
+
+    private static final String MODO_LOCKSTEP = "Lockstep";
+
+    private static final String MODO_ROLLBACK = "Rollback";
+
+    private static final String[] MODOS = { MODO_LOCKSTEP, MODO_ROLLBACK };
+
+    private static final byte[][] COMANDOS = ascii(NOMBRES_COMANDO);
+
+    // Strings conocidos: el lector devuelve estas instancias en vez de crear nuevas
+    private static final String[] NOMBRES_HABITACION = nombres(Habitacion.values());
+
+    private static final Habitacion[] HABITACIONES = Habitacion.values();
+    private static final String[] NOMBRES_DIRECCION = nombres(Direccion.values());
+    private static final String[] NOMBRES_ITEM = nombres(ItemTipo.values());
+    private static final String[] NOMBRES_GENERO = nombres(Genero.values());
+    private static final String[] NOMBRES_ESTILO = nombres(Estilo.values());
+
     // ===== Helpers =====
 
-    private static String[] split(String msg) {
-        return msg.split(SEP);
+    private static byte[][] ascii(String... s) {
+        byte[][] out = new byte[s.length][];
+        for (int i = 0; i < s.length; i++) out[i] = s[i].getBytes(StandardCharsets.US_ASCII);
+        return out;
+    }
+
+    private static String[] nombres(Enum<?>[] valores) {
+        String[] out = new String[valores.length];
+        for (int i = 0; i < valores.length; i++) out[i] = valores[i].name();
+        return out;
+    }
+
+    /** texto(NOMBRES_HABITACION) devuelve la misma instancia del array: se compara por referencia. */
+    private static Habitacion habitacion(String nombre) {
+        if (nombre == null) return null;
+        for (int i = 0; i < NOMBRES_HABITACION.length; i++) {
+            if (NOMBRES_HABITACION[i] == nombre) return HABITACIONES[i];
+        }
+        return null;
     }
 }
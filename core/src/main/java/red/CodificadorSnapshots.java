@@ -0,0 +1,151 @@
+package red;
+
+/**
+* Lado server de ReplicadorSnapshots: arma cada OP_SNAPSHOT como delta contra el último
+* snapshot que el cliente confirmó (OP_SNAPSHOT_ACK). Sin baseline confirmado va completo.
+*
+* Uso por tick: empezar(), agregarEnemigo() por cada enemigo vivo, codificar(out, ahoraMs).
+*
+* Solo viajan enemigos, con el reloj del server en la cabecera: los jugadores van aparte en
+* sus UpdatePosition (con lo que la reconciliación del cliente necesite) y la vida con
+* Damage / Hud.
+*
+* Una instancia por cliente; se usa solo desde el hilo del server.
+*/
+public final class CodificadorSnapshots {
+    // Igual que ReplicadorSnapshots: el cliente guarda id % HISTORIAL
+    private static final int HISTORIAL = 32;
+
+    private static final int MAX_ENEMIGOS = 256;
+
+    private final Estado[] historial = new Estado[HISTORIAL];
+
+    private final int[] mascaras = new int[MAX_ENEMIGOS];
+
+    private final int[] bajas = new int[MAX_ENEMIGOS];
+
+    private Estado actual;
+
+    // Los ids nunca se reinician: el cliente descarta todo lo que no sea más nuevo
+    private int proximoId = 1;
+
+    private int confirmado = 0;
+
+    private long completos = 0;
+
+    public CodificadorSnapshots() {
+        for (int i = 0; i < HISTORIAL; i++) historial[i] = new Estado();
+    }
+
+    /** Arranca el snapshot de este tick (vacío). */
+    public void empezar() {
+        actual = historial[proximoId % HISTORIAL];
+        actual.id = 0; // inválido hasta codificarlo
+        actual.nEne = 0;
+    }
+
+    /** false si ya hay MAX_ENEMIGOS en el snapshot (el resto no viaja). */
+    public boolean agregarEnemigo(int id, float x, float y) {
+        if (actual == null || actual.nEne == MAX_ENEMIGOS) return false;
+        int i = actual.nEne++;
+        actual.eneId[i] = id;
+        actual.eneX[i] = x;
+        actual.eneY[i] = y;
+        return true;
+    }
+
+    /**
+    * Escribe el frame entero ([MAGIC][OP_SNAPSHOT]...) con serverMs en la cabecera y lo guarda
+    * como baseline posible. Devuelve el id del snapshot.
+    */
+    public int codificar(EscritorBinario out, long serverMs) {
+        if (actual == null) empezar();
+
+        int id = proximoId++;
+        Estado base = baseline(id);
+        if (base == null) completos++;
+
+        // Qué cambió contra el baseline (y qué enemigos ya no están)
+        int cambiados = 0;
+        for (int i = 0; i < actual.nEne; i++) {
+            int mascara = ReplicadorSnapshots.CAMPO_X | ReplicadorSnapshots.CAMPO_Y;
+            int j = (base != null) ? base.buscarEnemigo(actual.eneId[i]) : -1;
+            if (j >= 0) {
+                mascara = 0;
+                if (Float.floatToIntBits(base.eneX[j]) != Float.floatToIntBits(actual.eneX[i])) mascara |= ReplicadorSnapshots.CAMPO_X;
+                if (Float.floatToIntBits(base.eneY[j]) != Float.floatToIntBits(actual.eneY[i])) mascara |= ReplicadorSnapshots.CAMPO_Y;
+            }
+            mascaras[i] = mascara;
+            if (mascara != 0) cambiados++;
+        }
+
+        int cantBajas = 0;
+        if (base != null) {
+            for (int j = 0; j < base.nEne; j++) {
+                if (actual.buscarEnemigo(base.eneId[j]) < 0) bajas[cantBajas++] = base.eneId[j];
+            }
+        }
+
+        out.reset().u8(ProtocoloBinario.MAGIC).u8(ProtocoloBinario.OP_SNAPSHOT)
+        .varInt(id).varInt(base != null ? base.id : 0).i32((int) serverMs);
+
+        out.varInt(cambiados);
+        for (int i = 0; i < actual.nEne; i++) {
+            int mascara = mascaras[i];
+            if (mascara == 0) continue;
+            out.varInt(actual.eneId[i]).u8(mascara);
+            if ((mascara & ReplicadorSnapshots.CAMPO_X) != 0) out.f32(actual.eneX[i]);
+            if ((mascara & ReplicadorSnapshots.CAMPO_Y) != 0) out.f32(actual.eneY[i]);
+        }
+
+        out.varInt(cantBajas);
+        for (int k = 0; k < cantBajas; k++) out.varInt(bajas[k]);
+
+        actual.id = id;
+        actual = null;
+        return id;
+    }
+
+    /** OP_SNAPSHOT_ACK del cliente: ese snapshot ya se puede usar de baseline. */
+    public void confirmar(int snapshotId) {
+        if (snapshotId > confirmado && snapshotId < proximoId) confirmado = snapshotId;
+    }
+
+    /**
+    * Nivel nuevo o sesión nueva: el próximo snapshot va completo.
+    * Los ids siguen de largo (el cliente también resetea su historial en el Connected).
+    */
+    public void reset() {
+        for (Estado e : historial) e.id = 0;
+        confirmado = 0;
+        actual = null;
+    }
+
+    /** Snapshots que salieron sin baseline (al empezar o porque el cliente no confirmó a tiempo). */
+    public long getCompletos() {
+        return completos;
+    }
+
+    private Estado baseline(int idNuevo) {
+        if (confirmado == 0 || idNuevo - confirmado >= HISTORIAL) return null;
+        Estado e = historial[confirmado % HISTORIAL];
+        return (e.id == confirmado) ? e : null;
+    }
+
+    /** Enemigos de un snapshot mandado (arrays preallocados). */
+    private static final class Estado {
+        int id;
+
+        int nEne;
+        final int[] eneId = new int[MAX_ENEMIGOS];
+        final float[] eneX = new float[MAX_ENEMIGOS];
+        final float[] eneY = new float[MAX_ENEMIGOS];
+
+        int buscarEnemigo(int id) {
+            for (int i = 0; i < nEne; i++) {
+                if (eneId[i] == id) return i;
+            }
+            return -1;
+        }
+    }
+}
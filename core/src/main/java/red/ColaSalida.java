@@ -0,0 +1,95 @@
+package red;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+* Cola de datagramas salientes con buffers preallocados.
+*
+* El hilo de render solo copia bytes acá (nunca toca el socket) y el hilo de red
+* los va mandando cuando el canal está listo. Si se llena, se pisa el más viejo:
+* para input/estado preferimos mandar lo último.
+*/
+final class ColaSalida {
+    private final byte[][] slots;
+
+    private final int[] largos;
+
+    private int cabeza;
+
+    private int cantidad;
+
+    private int descartados;
+
+    ColaSalida(int capacidad, int maxBytes) {
+        slots = new byte[capacidad][maxBytes];
+        largos = new int[capacidad];
+    }
+
+    synchronized boolean encolar(byte[] datos, int largo) {
+        return encolar(datos, 0, largo);
+    }
+
+    synchronized boolean encolar(byte[] datos, int offset, int largo) {
+        if (largo <= 0 || largo > slots[0].length) return false;
+        int i = reservar();
+        System.arraycopy(datos, offset, slots[i], 0, largo);
+        largos[i] = largo;
+        return true;
+    }
+
+    /** Copia el texto como ASCII directo al slot (sin getBytes). */
+    synchronized boolean encolar(String texto) {
+        int n = texto.length();
+        if (n == 0 || n > slots[0].length) return false;
+
+        for (int k = 0; k < n; k++) {
+            if (texto.charAt(k) > 0x7F) {
+                // raro: caracteres no ASCII, convertimos normal
+                byte[] b = texto.getBytes(StandardCharsets.UTF_8);
+                return encolar(b, b.length);
+            }
+        }
+
+        int i = reservar();
+        byte[] slot = slots[i];
+        for (int k = 0; k < n; k++) slot[k] = (byte) texto.charAt(k);
+        largos[i] = n;
+        return true;
+    }
+
+    /** Saca el más viejo y lo deja listo para enviar en destino (clear + put + flip). */
+    synchronized boolean sacar(ByteBuffer destino) {
+        if (cantidad == 0) return false;
+        destino.clear();
+        destino.put(slots[cabeza], 0, largos[cabeza]);
+        destino.flip();
+        cabeza = (cabeza + 1) % slots.length;
+        cantidad--;
+        return true;
+    }
+
+    synchronized int size() {
+        return cantidad;
+    }
+
+    synchronized int getDescartados() {
+        return descartados;
+    }
+
+    synchronized void clear() {
+        cabeza = 0;
+        cantidad = 0;
+    }
+
+    private int reservar() {
+        if (cantidad == slots.length) {
+            cabeza = (cabeza + 1) % slots.length;
+            cantidad--;
+            descartados++;
+        }
+        int i = (cabeza + cantidad) % slots.length;
+        cantidad++;
+        return i;
+    }
+}
@@ -0,0 +1,83 @@
+package red;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+* Buffer de escritura reutilizable para armar frames del protocolo binario.
+* Se usa siempre desde un mismo hilo (el que arma el mensaje).
+*/
+public final class EscritorBinario {
+    private final byte[] datos;
+
+    private int pos;
+
+    public EscritorBinario(int capacidad) {
+        this.datos = new byte[capacidad];
+    }
+
+    public byte[] datos() {
+        return datos;
+    }
+
+    public int largo() {
+        return pos;
+    }
+
+    public EscritorBinario reset() {
+        pos = 0;
+        return this;
+    }
+
+    public EscritorBinario u8(int v) {
+        datos[pos++] = (byte) v;
+        return this;
+    }
+
+    public EscritorBinario u16(int v) {
+        datos[pos++] = (byte) (v >>> 8);
+        datos[pos++] = (byte) v;
+        return this;
+    }
+
+    /** Entero sin signo en formato LEB128 (7 bits por byte). */
+    public EscritorBinario varInt(int v) {
+        while ((v & ~0x7F) != 0) {
+            datos[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        datos[pos++] = (byte) v;
+        return this;
+    }
+
+    public EscritorBinario i32(int v) {
+        datos[pos++] = (byte) (v >>> 24);
+        datos[pos++] = (byte) (v >>> 16);
+        datos[pos++] = (byte) (v >>> 8);
+        datos[pos++] = (byte) v;
+        return this;
+    }
+
+    public EscritorBinario i64(long v) {
+        i32((int) (v >>> 32));
+        i32((int) v);
+        return this;
+    }
+
+    public EscritorBinario f32(float v) {
+        return i32(Float.floatToRawIntBits(v));
+    }
+
+    public EscritorBinario bytes(byte[] b, int offset, int largo) {
+        System.arraycopy(b, offset, datos, pos, largo);
+        pos += largo;
+        return this;
+    }
+
+    public EscritorBinario texto(String s) {
+        byte[] b = (s != null) ? s.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        varInt(b.length);
+        System.arraycopy(b, 0, datos, pos, b.length);
+        pos += b.length;
+        return this;
+    }
+}
@@ -0,0 +1,275 @@
+package red;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+* Estadísticas de red del cliente, para el overlay de HudJuego (F3).
+*
+* - RTT: ping/pong propio cada PING_INTERVALO_MS (el pong devuelve el tiempo del cliente).
+*   Se suaviza como TCP (srtt 1/8) y el jitter es la variación entre RTTs seguidos (1/16).
+* - Pérdida: pings sin pong después de PONG_TIMEOUT_MS, sobre los últimos PINGS.
+* - Tráfico: bytes y mensajes por tipo (opcode binario, o 0x100 + comando de texto),
+*   recibidos y enviados. Las tasas por segundo se calculan desde el hilo render.
+*
+* Los contadores los escribe el hilo de red; el hilo render solo lee.
+*/
+public final class EstadisticasRed {
+    // 0x00-0xFF: opcodes binarios. TIPO_TEXTO + i: comando de texto i. TIPO_TEXTO_SALIDA: texto enviado.
+    public static final int TIPO_TEXTO = 0x100;
+
+    public static final int TIPO_TEXTO_SALIDA = 0x1FF;
+
+    private static final int TIPOS = 0x200;
+
+    public static final long PING_INTERVALO_MS = 1000;
+
+    private static final long PONG_TIMEOUT_MS = 2000;
+
+    private static final int PINGS = 16;
+
+    private static final long VENTANA_TASAS_MS = 1000;
+
+    private final AtomicLongArray bytesRx = new AtomicLongArray(TIPOS);
+
+    private final AtomicLongArray msgsRx = new AtomicLongArray(TIPOS);
+
+    private final AtomicLongArray bytesTx = new AtomicLongArray(TIPOS);
+
+    private final AtomicLongArray msgsTx = new AtomicLongArray(TIPOS);
+
+    private final String[] nombresTexto;
+
+    // ===== Ping (solo hilo de red) =====
+    private final long[] pingEnviadoMs = new long[PINGS];
+
+    private final boolean[] pingRespondido = new boolean[PINGS];
+
+    private int proxPing = 1;
+
+    private long ultimoPingMs = 0L;
+
+    private long ultimoRttMs = -1L;
+
+    // Publicados para el hilo render
+    private volatile float rttMs = -1f;
+
+    private volatile float rttMinMs = -1f;
+
+    private volatile float jitterMs = 0f;
+
+    private volatile float perdida = 0f;
+
+    // ===== Tasas (solo hilo render) =====
+    private final long[] antBytesRx = new long[TIPOS];
+
+    private final long[] antMsgsRx = new long[TIPOS];
+
+    private final long[] antBytesTx = new long[TIPOS];
+
+    private final long[] antMsgsTx = new long[TIPOS];
+
+    private final float[] tasaBytesRx = new float[TIPOS];
+
+    private final float[] tasaMsgsRx = new float[TIPOS];
+
+    private final float[] tasaBytesTx = new float[TIPOS];
+
+    private final float[] tasaMsgsTx = new float[TIPOS];
+
+    private long ultimaTasaMs = 0L;
+
+    /** nombresTexto[i] = nombre del comando de texto i (para mostrar). */
+    public EstadisticasRed(String[] nombresTexto) {
+        this.nombresTexto = nombresTexto;
+    }
+
+    // ===== Hilo de red =====
+
+    public void registrarRecibido(int tipo, int bytes) {
+        if (tipo < 0 || tipo >= TIPOS) return;
+        bytesRx.addAndGet(tipo, bytes);
+        msgsRx.incrementAndGet(tipo);
+    }
+
+    public void registrarEnviado(int tipo, int bytes) {
+        if (tipo < 0 || tipo >= TIPOS) return;
+        bytesTx.addAndGet(tipo, bytes);
+        msgsTx.incrementAndGet(tipo);
+    }
+
+    /**
+    * Reparte un OP_BUNDLE entre los opcodes que trae adentro (solo recorre los largos).
+    * Los 2 bytes de cabecera del datagrama se cuentan como OP_BUNDLE.
+    */
+    public void registrarBundle(byte[] datos, int offset, int largo) {
+        registrarRecibido(ProtocoloBinario.OP_BUNDLE, 2);
+
+        int pos = offset + 2;
+        int fin = offset + largo;
+        while (pos < fin) {
+            int n = 0;
+            int shift = 0;
+            int inicio = pos;
+            while (pos < fin) {
+                int b = datos[pos++] & 0xFF;
+                n |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+                shift += 7;
+                if (shift > 28) return;
+            }
+            if (n <= 0 || fin - pos < n) return;
+
+            int op = datos[pos] & 0xFF;
+            registrarRecibido(op, (pos - inicio) + n);
+            pos += n;
+        }
+    }
+
+    /** True si toca mandar un ping. */
+    public boolean tocaPing(long ahoraMs) {
+        return ahoraMs - ultimoPingMs >= PING_INTERVALO_MS;
+    }
+
+    /** Registra un ping que se va a mandar y devuelve su id. */
+    public int nuevoPing(long ahoraMs) {
+        int id = proxPing++;
+        int i = id % PINGS;
+        pingEnviadoMs[i] = ahoraMs;
+        pingRespondido[i] = false;
+        ultimoPingMs = ahoraMs;
+        actualizarPerdida(ahoraMs);
+        return id;
+    }
+
+    /** Pong recibido: clienteMs es el tiempo que mandamos en el ping (32 bits bajos). */
+    public void registrarPong(int id, long clienteMs, long ahoraMs) {
+        int i = id % PINGS;
+        if (id <= 0 || id >= proxPing || proxPing - id > PINGS || pingRespondido[i]) return;
+        pingRespondido[i] = true;
+
+        long rtt = (ahoraMs - clienteMs) & 0xFFFFFFFFL;
+        if (rtt > PONG_TIMEOUT_MS * 10) return; // reloj raro: no ensuciamos el promedio
+
+        if (ultimoRttMs >= 0) {
+            float d = Math.abs(rtt - ultimoRttMs);
+            jitterMs = jitterMs + (d - jitterMs) / 16f;
+        }
+        ultimoRttMs = rtt;
+
+        float srtt = rttMs;
+        rttMs = (srtt < 0f) ? rtt : srtt + (rtt - srtt) / 8f;
+        if (rttMinMs < 0f || rtt < rttMinMs) rttMinMs = rtt;
+    }
+
+    public void reset() {
+        for (int i = 0; i < PINGS; i++) {
+            pingEnviadoMs[i] = 0L;
+            pingRespondido[i] = false;
+        }
+        ultimoRttMs = -1L;
+        rttMs = -1f;
+        rttMinMs = -1f;
+        jitterMs = 0f;
+        perdida = 0f;
+    }
+
+    private void actualizarPerdida(long ahoraMs) {
+        int contados = 0;
+        int perdidos = 0;
+        for (int i = 0; i < PINGS; i++) {
+            long t = pingEnviadoMs[i];
+            if (t == 0L || ahoraMs - t < PONG_TIMEOUT_MS) continue;
+            contados++;
+            if (!pingRespondido[i]) perdidos++;
+        }
+        perdida = (contados == 0) ? 0f : (float) perdidos / contados;
+    }
+
+    // ===== Hilo render =====
+
+    public float getRttMs() {
+        return rttMs;
+    }
+
+    public float getRttMinMs() {
+        return rttMinMs;
+    }
+
+    public float getJitterMs() {
+        return jitterMs;
+    }
+
+    /** 0..1 */
+    public float getPerdida() {
+        return perdida;
+    }
+
+    /** Recalcula las tasas por segundo si pasó la ventana. */
+    public void actualizarTasas(long ahoraMs) {
+        if (ultimaTasaMs == 0L) {
+            ultimaTasaMs = ahoraMs;
+            return;
+        }
+        long dt = ahoraMs - ultimaTasaMs;
+        if (dt < VENTANA_TASAS_MS) return;
+        ultimaTasaMs = ahoraMs;
+
+        float seg = dt / 1000f;
+        for (int i = 0; i < TIPOS; i++) {
+            tasaBytesRx[i] = tasa(bytesRx.get(i), antBytesRx, i, seg);
+            tasaMsgsRx[i] = tasa(msgsRx.get(i), antMsgsRx, i, seg);
+            tasaBytesTx[i] = tasa(bytesTx.get(i), antBytesTx, i, seg);
+            tasaMsgsTx[i] = tasa(msgsTx.get(i), antMsgsTx, i, seg);
+        }
+    }
+
+    /** Resumen legible (una línea por dato) para el overlay. */
+    public void escribirResumen(StringBuilder sb) {
+        sb.append("RTT ");
+        if (rttMs < 0f) sb.append("--");
+        else sb.append(Math.round(rttMs)).append(" ms (min ").append(Math.round(rttMinMs)).append(')');
+        sb.append("  jitter ").append(Math.round(jitterMs)).append(" ms");
+        sb.append("  perdida ").append(Math.round(perdida * 100f)).append("%\n");
+
+        float totalRx = 0f;
+        float totalTx = 0f;
+        for (int i = 0; i < TIPOS; i++) {
+            totalRx += tasaBytesRx[i];
+            totalTx += tasaBytesTx[i];
+        }
+        sb.append("RX ").append(kb(totalRx)).append(" KB/s  TX ").append(kb(totalTx)).append(" KB/s\n");
+
+        for (int i = 0; i < TIPOS; i++) {
+            if (tasaMsgsRx[i] <= 0f && tasaMsgsTx[i] <= 0f) continue;
+            sb.append("  ").append(nombreTipo(i)).append(": ");
+            if (tasaMsgsRx[i] > 0f) {
+                sb.append("rx ").append(Math.round(tasaMsgsRx[i])).append("/s ").append(kb(tasaBytesRx[i])).append("KB/s ");
+            }
+            if (tasaMsgsTx[i] > 0f) {
+                sb.append("tx ").append(Math.round(tasaMsgsTx[i])).append("/s ").append(kb(tasaBytesTx[i])).append("KB/s");
+            }
+            sb.append('\n');
+        }
+    }
+
+    private String nombreTipo(int tipo) {
+        if (tipo == TIPO_TEXTO_SALIDA) return "Texto(tx)";
+        if (tipo >= TIPO_TEXTO) {
+            int i = tipo - TIPO_TEXTO;
+            return (i < nombresTexto.length) ? nombresTexto[i] : "Texto?";
+        }
+        return ProtocoloBinario.nombreOp(tipo);
+    }
+
+    private static float tasa(long total, long[] anterior, int i, float seg) {
+        long d = total - anterior[i];
+        anterior[i] = total;
+        return d / seg;
+    }
+
+    private static String kb(float bytesPorSeg) {
+        // un decimal sin String.format (se llama seguido)
+        int d = Math.round(bytesPorSeg / 102.4f);
+        return (d / 10) + "." + (d % 10);
+    }
+}
@@ -0,0 +1,82 @@
+package red;
+
+import com.badlogic.gdx.utils.IntIntMap;
+
+import mapa.model.Habitacion;
+
+/**
+* Conjunto de interés del cliente: las salas de las que quiere recibir updates de entidades
+* (la actual y, opcionalmente, sus vecinas). Lo que cae afuera se descarta en el hilo de red
+* apenas se lee el id, sin decodificar el resto, sin pasar por las tablas y sin tocar Box2D.
+*
+* La máscara es un bit por Habitacion (ordinal), así que entra en un long. TODAS = sin filtro
+* (hasta que el render declare la primera sala).
+*
+* La sala de cada enemigo se aprende del SpawnEnemy. Updates de un id sin sala conocida pasan
+* (mejor de más que perder un enemigo). Spawns y despawns pasan siempre: son pocos y hacen
+* falta para que la entidad exista cuando el jugador entre a esa sala.
+*
+* setMascara() lo llama el hilo render; el resto, solo el hilo de red.
+*/
+public final class FiltroInteres {
+    public static final long TODAS = -1L;
+
+    private static final int SALA_DESCONOCIDA = 0;
+
+    private volatile long mascara = TODAS;
+
+    // enemyId -> ordinal + 1 de su sala
+    private final IntIntMap salaPorEnemigo = new IntIntMap();
+
+    private volatile long descartados = 0;
+
+    /** Salas de interés (ver bit()). TODAS para recibir todo. */
+    public void setMascara(long mascara) {
+        this.mascara = mascara;
+    }
+
+    public long getMascara() {
+        return mascara;
+    }
+
+    public void registrarEnemigo(int enemyId, Habitacion sala) {
+        if (sala == null) salaPorEnemigo.remove(enemyId, SALA_DESCONOCIDA);
+        else salaPorEnemigo.put(enemyId, sala.ordinal() + 1);
+    }
+
+    public void olvidarEnemigo(int enemyId) {
+        salaPorEnemigo.remove(enemyId, SALA_DESCONOCIDA);
+    }
+
+    /** Nivel / sesión nueva: los ids de enemigos se reusan. La máscara la vuelve a mandar el render. */
+    public void reset() {
+        salaPorEnemigo.clear();
+    }
+
+    /** True si hay que procesar el update de este enemigo. Los descartados se cuentan. */
+    public boolean aceptarEnemigo(int enemyId) {
+        long m = mascara;
+        if (m == TODAS) return true;
+
+        int sala = salaPorEnemigo.get(enemyId, SALA_DESCONOCIDA);
+        if (sala == SALA_DESCONOCIDA || (m & (1L << (sala - 1))) != 0) return true;
+
+        descartados++;
+        return false;
+    }
+
+    /** Updates de entidades fuera del interés descartados desde que arrancó el cliente. */
+    public long getDescartados() {
+        return descartados;
+    }
+
+    // ===== Helpers de máscara (también los usa el server) =====
+
+    public static long bit(Habitacion sala) {
+        return (sala != null) ? (1L << sala.ordinal()) : 0L;
+    }
+
+    public static boolean contiene(long mascara, Habitacion sala) {
+        return mascara == TODAS || (mascara & bit(sala)) != 0;
+    }
+}
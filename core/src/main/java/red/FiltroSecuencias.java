@@ -0,0 +1,61 @@
+package red;
+
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+* Descarta updates de estado no confiables (posiciones de jugadores / enemigos) que llegan
+* viejos o duplicados, antes de que entren a los anillos del hilo render.
+*
+* Cada entidad lleva su propio número de secuencia u16 (lo pone el server, FLAG_SECUENCIA).
+* La comparación es circular: "a es más nuevo que b" si (short)(a - b) > 0, así que el
+* contador puede dar la vuelta sin problema mientras no haya 32768 updates en vuelo.
+*
+* Updates sin secuencia (server viejo, texto sin el campo) pasan siempre.
+* Se usa solo desde el hilo de red.
+*/
+public final class FiltroSecuencias {
+    private static final int SIN_SECUENCIA = -1;
+
+    private final IntIntMap ultimoJugador = new IntIntMap();
+
+    private final IntIntMap ultimoEnemigo = new IntIntMap();
+
+    private volatile long descartados = 0;
+
+    /** True si el update del jugador es más nuevo que el último aceptado (y lo registra). */
+    public boolean aceptarJugador(int playerId, int seq) {
+        return aceptar(ultimoJugador, playerId, seq);
+    }
+
+    public boolean aceptarEnemigo(int enemyId, int seq) {
+        return aceptar(ultimoEnemigo, enemyId, seq);
+    }
+
+    /** El id de un enemigo muerto se puede reusar con la secuencia desde cero. */
+    public void olvidarEnemigo(int enemyId) {
+        ultimoEnemigo.remove(enemyId, SIN_SECUENCIA);
+    }
+
+    /** Nivel / sesión nueva: el server reinicia los contadores. */
+    public void reset() {
+        ultimoJugador.clear();
+        ultimoEnemigo.clear();
+    }
+
+    /** Updates descartados por viejos o duplicados desde que arrancó el cliente. */
+    public long getDescartados() {
+        return descartados;
+    }
+
+    private boolean aceptar(IntIntMap ultimos, int id, int seq) {
+        if (seq < 0) return true;
+
+        int anterior = ultimos.get(id, SIN_SECUENCIA);
+        if (anterior != SIN_SECUENCIA && (short) (seq - anterior) <= 0) {
+            descartados++;
+            return false;
+        }
+        ultimos.put(id, seq & 0xFFFF);
+        return true;
+    }
+}
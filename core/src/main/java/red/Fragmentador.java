@@ -0,0 +1,80 @@
+package red;
+
+/**
+* Parte un datagrama que no entra en el MTU en fragmentos OP_FRAGMENTO:
+* [MAGIC][OP_FRAGMENTO][msgId u16][indice u8][total u8][datos...]
+*
+* Todos los fragmentos van llenos salvo el último, así el Reensamblador ubica cada uno
+* por su índice sin mandar offsets. Lo que se parte puede ser texto o binario: del otro
+* lado se procesa igual que si hubiera llegado entero.
+*
+* Un solo hilo por instancia (el que manda).
+*/
+public final class Fragmentador {
+    public static final int CABECERA = 6;
+
+    // Tope del mensaje completo: MAX_FRAGMENTOS datagramas llenos
+    public static final int MAX_FRAGMENTOS = 32;
+
+    /** Recibe cada fragmento armado (el buffer se reusa: copiarlo). */
+    public interface Salida {
+        void enviar(byte[] fragmento, int largo);
+    }
+
+    private final int maxDatagrama;
+
+    private final byte[] fragmento;
+
+    private int proximoId = 0;
+
+    private long fragmentados = 0;
+
+    public Fragmentador(int maxDatagrama) {
+        this.maxDatagrama = maxDatagrama;
+        this.fragmento = new byte[maxDatagrama];
+    }
+
+    /** Bytes de datos por fragmento (todos menos el último van así de llenos). */
+    public static int datosPorFragmento(int maxDatagrama) {
+        return maxDatagrama - CABECERA;
+    }
+
+    /** Más grande que esto no se puede mandar ni fragmentado. */
+    public int maxMensaje() {
+        return datosPorFragmento(maxDatagrama) * MAX_FRAGMENTOS;
+    }
+
+    /**
+    * Manda datos[0, largo) en fragmentos por salida. false (sin mandar nada) si es más grande
+    * que maxMensaje(). Si entra en un datagrama no hace falta llamar esto.
+    */
+    public boolean fragmentar(byte[] datos, int largo, Salida salida) {
+        int porFragmento = datosPorFragmento(maxDatagrama);
+        int total = (largo + porFragmento - 1) / porFragmento;
+        if (largo <= 0 || total > MAX_FRAGMENTOS) return false;
+
+        int id = proximoId;
+        proximoId = (proximoId + 1) & 0xFFFF;
+
+        fragmento[0] = ProtocoloBinario.MAGIC;
+        fragmento[1] = (byte) ProtocoloBinario.OP_FRAGMENTO;
+        fragmento[2] = (byte) (id >>> 8);
+        fragmento[3] = (byte) id;
+        fragmento[5] = (byte) total;
+
+        for (int i = 0; i < total; i++) {
+            int ini = i * porFragmento;
+            int n = Math.min(porFragmento, largo - ini);
+            fragmento[4] = (byte) i;
+            System.arraycopy(datos, ini, fragmento, CABECERA, n);
+            salida.enviar(fragmento, CABECERA + n);
+        }
+        fragmentados++;
+        return true;
+    }
+
+    /** Mensajes que hubo que fragmentar. */
+    public long getFragmentados() {
+        return fragmentados;
+    }
+}
@@ -5,8 +5,18 @@ public interface GameController {
 
     void updatePlayerPosition(int playerId, float x, float y);
 
+    // UpdatePosition:id:x:y:serverMs[:inputAck] (-1 = no vino ese campo)
+    default void updatePlayerPosition(int playerId, float x, float y, long serverTimeMs, int inputAck) {
+        updatePlayerPosition(playerId, x, y);
+    }
+
     void updateRoom(String habitacionId);
 
+    // UpdateRoom:destino:dir:playerId (los nombres son los de Habitacion / Direccion, sin armar nada)
+    default void updateRoom(String destino, String direccion, int playerId) {
+        updateRoom(destino + ":" + direccion + ":" + playerId);
+    }
+
     void connect(int playerId);
 
     void dead(int playerId);
@@ -19,6 +29,11 @@ public interface GameController {
 
     void updateEnemy(int enemyId, float x, float y);
 
+    // UpdateEnemy:id:x:y:serverMs (-1 = sin tiempo de server)
+    default void updateEnemy(int enemyId, float x, float y, long serverTimeMs) {
+        updateEnemy(enemyId, x, y);
+    }
+
     // ===== Daño server-driven =====
     // Damage:playerId:vida:vidaMax
     void damage(int playerId, int vida, int vidaMax);
@@ -28,9 +43,22 @@ public interface GameController {
     void spawnEnemy(int enemyId, String nombre, float x, float y, String sala);
 
     // ===== HUD / Inventario server-driven =====
-    // Hud:playerId:vida:vidaMax:tiposCsv
+    // Hud:playerId:vida:vidaMax:tiposCsv (formato viejo)
     void hud(int playerId, int vida, int vidaMax, String tiposCsv);
 
+    // Hud:playerId:vida:vidaMax:version:c0:c1:... (cantidad por ItemTipo, ver InventarioCompacto).
+    // conteos lo reusa el hilo de red: copiarlo si hay que guardarlo.
+    default void hud(int playerId, int vida, int vidaMax, int versionInventario, int[] conteos) {
+        StringBuilder csv = new StringBuilder();
+        for (int t = 0; t < conteos.length; t++) {
+            for (int k = 0; k < conteos[t]; k++) {
+                if (csv.length() > 0) csv.append(',');
+                csv.append(InventarioCompacto.tipo(t).name());
+            }
+        }
+        hud(playerId, vida, vidaMax, csv.toString());
+    }
+
     // ===== Items server-driven =====
     void spawnItem(int itemId, String tipo, float x, float y);
 
@@ -50,4 +78,27 @@ public interface GameController {
 
     // ✅ ahora Start lleva seed + nivel
     void start(long seed, int nivel);
+
+    // Start:seed:nivel:Lockstep => cada cliente simula todo y solo se intercambian entradas (In)
+    default void startLockstep(long seed, int nivel) {
+        start(seed, nivel);
+    }
+
+    // Start:seed:nivel:Rollback => como lockstep, pero el cliente predice la entrada del otro
+    default void startRollback(long seed, int nivel) {
+        startLockstep(seed, nivel);
+    }
+
+    // In:playerId:desde:ack[:hex] (lockstep: un dígito hex por tick desde "desde"; hex null = solo ack).
+    // hex[0, largoHex) son los bytes ASCII del campo; el hilo de red reusa el array.
+    default void inputs(int playerId, int desde, int ack, byte[] hex, int largoHex) {}
+
+    // Resync:seed:nivel:sala:salasResueltas (respuesta al Resume: el estado sigue en el mismo lote).
+    // salasResueltas = un bit por Habitacion (ver FiltroInteres.bit). Sin soporte, es un Start.
+    default void resync(long seed, int nivel, String sala, long salasResueltas) {
+        start(seed, nivel);
+    }
+
+    // ClientThread perdió al server y está mandando Resume (true) / ya volvió o se rindió (false)
+    default void reconexion(boolean enCurso) {}
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package red;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+* Captura de una sesión online: cada datagrama que entra o sale del ClientThread,
+* con su instante en nanosegundos, a un archivo binario que solo crece (append).
+* Después ReproductorCaptura la vuelve a pasar por el decode sin socket.
+*
+* Formato (.rgcap):
+* - cabecera: "RGCP" + versión u8 + inicio en ms de pared (i64)
+* - registro: [sentido u8][delta ns varlong][largo varint][bytes]
+*   (delta = ns desde el registro anterior, así casi siempre entra en 2-3 bytes)
+*
+* Se usa solo desde el hilo de red. Un error de escritura apaga la captura, no la red.
+*/
+public final class GrabadorPaquetes {
+    public static final int ENTRADA = 0;
+
+    public static final int SALIDA = 1;
+
+    static final byte[] MAGIA = {'R', 'G', 'C', 'P'};
+
+    static final int VERSION = 1;
+
+    // Buffer grande: el hilo de red casi nunca llega a hacer la syscall
+    private static final int BUFFER = 64 * 1024;
+
+    private final OutputStream salida;
+
+    private final String ruta;
+
+    // Cabecera de registro: sentido + varlong (10) + varint (5)
+    private final byte[] cabecera = new byte[16];
+
+    // Para copiar los datagramas salientes (están en un ByteBuffer directo)
+    private final byte[] copia = new byte[2048];
+
+    private long ultimoNs;
+
+    private boolean roto = false;
+
+    private long registrados = 0;
+
+    private GrabadorPaquetes(String ruta) throws IOException {
+        this.ruta = ruta;
+        this.salida = new BufferedOutputStream(new FileOutputStream(ruta, true), BUFFER);
+
+        byte[] cab = new byte[MAGIA.length + 1 + 8];
+        System.arraycopy(MAGIA, 0, cab, 0, MAGIA.length);
+        cab[MAGIA.length] = (byte) VERSION;
+        long inicioMs = System.currentTimeMillis();
+        for (int i = 0; i < 8; i++) cab[MAGIA.length + 1 + i] = (byte) (inicioMs >>> (56 - 8 * i));
+        salida.write(cab);
+
+        ultimoNs = System.nanoTime();
+    }
+
+    /** Abre (o crea) la captura. Devuelve null si no se puede escribir: el juego sigue sin grabar. */
+    public static GrabadorPaquetes abrir(String ruta) {
+        if (ruta == null || ruta.isBlank()) return null;
+        try {
+            System.out.println("[CAPTURA] grabando en " + ruta);
+            return new GrabadorPaquetes(ruta);
+        } catch (IOException e) {
+            System.out.println("[CAPTURA] no se pudo abrir " + ruta + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void registrar(int sentido, byte[] datos, int offset, int largo) {
+        if (roto) return;
+
+        long ahora = System.nanoTime();
+        long delta = Math.max(0L, ahora - ultimoNs);
+        ultimoNs = ahora;
+
+        int n = 0;
+        cabecera[n++] = (byte) sentido;
+        n = varLong(cabecera, n, delta);
+        n = varLong(cabecera, n, largo);
+
+        try {
+            salida.write(cabecera, 0, n);
+            salida.write(datos, offset, largo);
+            registrados++;
+        } catch (IOException e) {
+            System.out.println("[CAPTURA] error escribiendo " + ruta + ", se deja de grabar: " + e.getMessage());
+            roto = true;
+        }
+    }
+
+    /** Igual, leyendo [ini, ini+largo) de un buffer sin mover su posición. */
+    public void registrar(int sentido, ByteBuffer datos, int ini, int largo) {
+        if (roto || largo > copia.length) return;
+        for (int i = 0; i < largo; i++) copia[i] = datos.get(ini + i);
+        registrar(sentido, copia, 0, largo);
+    }
+
+    public long getRegistrados() {
+        return registrados;
+    }
+
+    public void cerrar() {
+        try {
+            salida.close();
+        } catch (IOException ignored) {}
+        System.out.println("[CAPTURA] " + registrados + " datagramas en " + ruta);
+    }
+
+    private static int varLong(byte[] out, int pos, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[pos++] = (byte) v;
+        return pos;
+    }
+}
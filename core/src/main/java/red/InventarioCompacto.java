@@ -0,0 +1,61 @@
+package red;
+
+import java.util.List;
+
+import entidades.items.Item;
+import entidades.items.ItemTipo;
+
+/**
+* Inventario como cantidad por ItemTipo (índice = ordinal) en vez de la lista de nombres.
+*
+* Texto: Hud:playerId:vida:vidaMax:version:c0:c1:...  (se omiten los ceros del final, pero
+* siempre va al menos c0: así nunca se confunde con el Hud viejo, que traía un CSV de nombres).
+* Binario: OP_HUD_INV [playerId][vida][vidaMax][version][cantTipos] { [cantidad] }
+*
+* version la sube el Jugador del server cada vez que cambia su inventario: si el cliente ya
+* aplicó esa versión, el Hud solo trae vida.
+* El orden de ItemTipo tiene que ser el mismo en server y cliente (igual que en ProtocoloBinario).
+*/
+public final class InventarioCompacto {
+    public static final int TIPOS = ItemTipo.values().length;
+
+    private static final ItemTipo[] ITEMS = ItemTipo.values();
+
+    private InventarioCompacto() {}
+
+    /** Cuenta los ítems por tipo en conteos (los ítems sin tipo no cuentan). */
+    public static void contar(List<Item> objetos, int[] conteos) {
+        java.util.Arrays.fill(conteos, 0);
+        for (int i = 0; i < objetos.size(); i++) {
+            ItemTipo tipo = objetos.get(i).getTipo();
+            if (tipo != null) conteos[tipo.ordinal()]++;
+        }
+    }
+
+    /** Cuántos campos hay que mandar: hasta el último tipo con cantidad, como mínimo 1. */
+    public static int camposUsados(int[] conteos) {
+        int n = conteos.length;
+        while (n > 1 && conteos[n - 1] == 0) n--;
+        return n;
+    }
+
+    /** Hud viejo ("TIPO1,TIPO2,..."): nombres desconocidos se ignoran. */
+    public static void desdeCsv(String tiposCsv, int[] conteos) {
+        java.util.Arrays.fill(conteos, 0);
+        if (tiposCsv == null || tiposCsv.isBlank()) return;
+
+        for (String p : tiposCsv.split(",")) {
+            String t = p.trim();
+            for (ItemTipo tipo : ITEMS) {
+                if (tipo.name().equals(t)) {
+                    conteos[tipo.ordinal()]++;
+                    break;
+                }
+            }
+        }
+    }
+
+    public static ItemTipo tipo(int ordinal) {
+        return (ordinal >= 0 && ordinal < ITEMS.length) ? ITEMS[ordinal] : null;
+    }
+}
@@ -0,0 +1,139 @@
+package red;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+* Cursor de lectura sobre un byte[] para el protocolo binario.
+* No tira excepciones: si el frame viene corto queda en error y devuelve 0,
+* así un datagrama roto no mata al hilo de red.
+*/
+public final class LectorBinario {
+    private byte[] datos;
+
+    private int pos;
+
+    private int fin;
+
+    private boolean error;
+
+    public void reset(byte[] datos, int offset, int largo) {
+        this.datos = datos;
+        this.pos = offset;
+        this.fin = offset + largo;
+        this.error = false;
+    }
+
+    public boolean ok() {
+        return !error;
+    }
+
+    public int restantes() {
+        return error ? 0 : fin - pos;
+    }
+
+    /**
+    * Limita la lectura a los próximos "largo" bytes (un mensaje dentro de un bundle).
+    * Devuelve el fin anterior para pasarlo a salirDeLimite().
+    */
+    public int limitar(int largo) {
+        int finAnterior = fin;
+        if (error || largo < 0 || fin - pos < largo) {
+            error = true;
+            return finAnterior;
+        }
+        fin = pos + largo;
+        return finAnterior;
+    }
+
+    /**
+    * Salta lo que quede del mensaje limitado (aunque no se haya leído entero o tuviera error)
+    * y vuelve al rango anterior. Devuelve false si el error fue del propio bundle.
+    */
+    public boolean salirDeLimite(int finAnterior) {
+        if (fin > finAnterior) return false;
+        pos = fin;
+        fin = finAnterior;
+        error = false;
+        return true;
+    }
+
+    public int u8() {
+        if (pos >= fin) {
+            error = true;
+            return 0;
+        }
+        return datos[pos++] & 0xFF;
+    }
+
+    public int s8() {
+        return (byte) u8();
+    }
+
+    public int u16() {
+        int alto = u8();
+        int bajo = u8();
+        return (alto << 8) | bajo;
+    }
+
+    /** Entero sin signo en formato LEB128 (7 bits por byte). */
+    public int varInt() {
+        int valor = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = u8();
+            if (error) return 0;
+            valor |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return valor;
+        }
+        error = true;
+        return 0;
+    }
+
+    public int i32() {
+        if (fin - pos < 4) {
+            error = true;
+            pos = fin;
+            return 0;
+        }
+        int v = ((datos[pos] & 0xFF) << 24)
+        | ((datos[pos + 1] & 0xFF) << 16)
+        | ((datos[pos + 2] & 0xFF) << 8)
+        | (datos[pos + 3] & 0xFF);
+        pos += 4;
+        return v;
+    }
+
+    public long i64() {
+        long alto = i32() & 0xFFFFFFFFL;
+        long bajo = i32() & 0xFFFFFFFFL;
+        return (alto << 32) | bajo;
+    }
+
+    public float f32() {
+        return Float.intBitsToFloat(i32());
+    }
+
+    /** Copia los próximos "largo" bytes a destino (desde 0). */
+    public void copiar(byte[] destino, int largo) {
+        if (error || largo < 0 || fin - pos < largo) {
+            error = true;
+            pos = fin;
+            return;
+        }
+        System.arraycopy(datos, pos, destino, 0, largo);
+        pos += largo;
+    }
+
+    /** String UTF-8 con largo varint. */
+    public String texto() {
+        int n = varInt();
+        if (error) return null;
+        if (n < 0 || fin - pos < n) {
+            error = true;
+            pos = fin;
+            return null;
+        }
+        String s = new String(datos, pos, n, StandardCharsets.UTF_8);
+        pos += n;
+        return s;
+    }
+}
@@ -0,0 +1,327 @@
+package red;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+* Cursor sobre un datagrama de texto "Tipo:campo:campo" que parsea directo desde el byte[].
+* Reemplaza new String + split + parseInt/parseFloat boxeados: no crea objetos por paquete
+* (salvo cuando se pide un String que no está en la tabla de conocidos).
+*
+* Igual que LectorBinario: no tira excepciones. Si un campo falta o no parsea queda en error
+* y devuelve 0, así un datagrama roto no mata al hilo de red.
+*/
+public final class LectorTexto {
+    private static final byte SEP = ':';
+
+    // 10^0 .. 10^22 son exactos en double
+    private static final double[] POTENCIAS_10 = new double[23];
+
+    static {
+        POTENCIAS_10[0] = 1d;
+        for (int i = 1; i < POTENCIAS_10.length; i++) POTENCIAS_10[i] = POTENCIAS_10[i - 1] * 10d;
+    }
+
+    private byte[] datos;
+
+    private int inicio;
+
+    private int pos;
+
+    private int fin;
+
+    private int campos;
+
+    private boolean error;
+
+    public void reset(byte[] datos, int offset, int largo) {
+        int ini = offset;
+        int f = offset + largo;
+
+        // equivalente al trim() del path viejo
+        while (ini < f && datos[ini] <= ' ') ini++;
+        while (f > ini && datos[f - 1] <= ' ') f--;
+
+        this.datos = datos;
+        this.inicio = ini;
+        this.pos = ini;
+        this.fin = f;
+        this.error = false;
+
+        int n = (ini < f) ? 1 : 0;
+        for (int i = ini; i < f; i++) {
+            if (datos[i] == SEP) n++;
+        }
+        this.campos = n;
+    }
+
+    public boolean vacio() {
+        return inicio >= fin;
+    }
+
+    public boolean ok() {
+        return !error;
+    }
+
+    /** Cantidad total de campos (incluyendo el tipo), como parts.length del split. */
+    public int campos() {
+        return campos;
+    }
+
+    /**
+    * Compara el campo actual contra la tabla de comandos y avanza.
+    * Devuelve el índice del comando o -1 si no está.
+    */
+    public int comando(byte[][] nombres) {
+        int ini = pos;
+        int f = finCampo();
+        saltar();
+
+        int n = f - ini;
+        for (int i = 0; i < nombres.length; i++) {
+            byte[] nombre = nombres[i];
+            if (nombre.length != n) continue;
+
+            boolean igual = true;
+            for (int k = 0; k < n; k++) {
+                if (datos[ini + k] != nombre[k]) {
+                    igual = false;
+                    break;
+                }
+            }
+            if (igual) return i;
+        }
+        return -1;
+    }
+
+    /** Saltea el campo actual. */
+    public void saltar() {
+        int f = finCampo();
+        pos = (f < fin) ? f + 1 : fin + 1;
+    }
+
+    public int entero() {
+        long v = largo();
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+            error = true;
+            return 0;
+        }
+        return (int) v;
+    }
+
+    public int enteroOr(int def) {
+        boolean antes = error;
+        error = false;
+        long v = largo();
+        boolean malo = error || v < Integer.MIN_VALUE || v > Integer.MAX_VALUE;
+        error = antes;
+        return malo ? def : (int) v;
+    }
+
+    public long largoOr(long def) {
+        boolean antes = error;
+        error = false;
+        long v = largo();
+        boolean malo = error;
+        error = antes;
+        return malo ? def : v;
+    }
+
+    public long largo() {
+        if (pos > fin) {
+            error = true;
+            return 0L;
+        }
+
+        int i = pos;
+        int f = finCampo();
+        saltar();
+
+        boolean negativo = false;
+        if (i < f && (datos[i] == '-' || datos[i] == '+')) {
+            negativo = datos[i] == '-';
+            i++;
+        }
+        if (i >= f) {
+            error = true;
+            return 0L;
+        }
+
+        // Se acumula en negativo (como Long.parseLong): así entra Long.MIN_VALUE y los
+        // 19 dígitos de seeds y tokens; el desborde se detecta antes de multiplicar y de restar
+        long limite = negativo ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long minPrevio = limite / 10;
+        long v = 0L;
+        for (; i < f; i++) {
+            int d = datos[i] - '0';
+            if (d < 0 || d > 9 || v < minPrevio) {
+                error = true;
+                return 0L;
+            }
+            v *= 10;
+            if (v < limite + d) {
+                error = true;
+                return 0L;
+            }
+            v -= d;
+        }
+        return negativo ? v : -v;
+    }
+
+    /** Float en formato decimal simple (-12.5, 3, 1e-3). Otros formatos caen al parser de Java. */
+    public float flotante() {
+        if (pos > fin) {
+            error = true;
+            return 0f;
+        }
+
+        int ini = pos;
+        int f = finCampo();
+        saltar();
+
+        int i = ini;
+        boolean negativo = false;
+        if (i < f && (datos[i] == '-' || datos[i] == '+')) {
+            negativo = datos[i] == '-';
+            i++;
+        }
+
+        long mantisa = 0L;
+        int digitos = 0;
+        int exponente = 0;
+        boolean hayDigitos = false;
+
+        for (; i < f; i++) {
+            int d = datos[i] - '0';
+            if (d < 0 || d > 9) break;
+            hayDigitos = true;
+            if (digitos < 18) {
+                mantisa = mantisa * 10 + d;
+                if (mantisa != 0) digitos++;
+            } else {
+                exponente++;
+            }
+        }
+
+        if (i < f && datos[i] == '.') {
+            i++;
+            for (; i < f; i++) {
+                int d = datos[i] - '0';
+                if (d < 0 || d > 9) break;
+                hayDigitos = true;
+                if (digitos < 18) {
+                    mantisa = mantisa * 10 + d;
+                    if (mantisa != 0) digitos++;
+                    exponente--;
+                }
+            }
+        }
+
+        if (hayDigitos && i < f && (datos[i] == 'e' || datos[i] == 'E')) {
+            i++;
+            boolean expNegativo = false;
+            if (i < f && (datos[i] == '-' || datos[i] == '+')) {
+                expNegativo = datos[i] == '-';
+                i++;
+            }
+            int e = 0;
+            boolean hayExp = false;
+            for (; i < f && e < 1000; i++) {
+                int d = datos[i] - '0';
+                if (d < 0 || d > 9) break;
+                hayExp = true;
+                e = e * 10 + d;
+            }
+            if (!hayExp) i = -1;
+            exponente += expNegativo ? -e : e;
+        }
+
+        if (!hayDigitos || i != f) {
+            // NaN, Infinity, hex, etc: raro en este protocolo, usamos el parser de Java
+            try {
+                return Float.parseFloat(new String(datos, ini, f - ini, StandardCharsets.US_ASCII));
+            } catch (Exception e) {
+                error = true;
+                return 0f;
+            }
+        }
+
+        double v = mantisa;
+        if (exponente < 0) {
+            v = (-exponente < POTENCIAS_10.length) ? v / POTENCIAS_10[-exponente] : v / Math.pow(10d, -exponente);
+        } else if (exponente > 0) {
+            v = (exponente < POTENCIAS_10.length) ? v * POTENCIAS_10[exponente] : v * Math.pow(10d, exponente);
+        }
+        return (float) (negativo ? -v : v);
+    }
+
+    /**
+    * Copia los bytes del campo actual en destino (sin allocar) y devuelve cuántos copió;
+    * lo que no entra en destino se corta. -1 si no hay campo.
+    */
+    public int copiar(byte[] destino) {
+        if (pos > fin) {
+            error = true;
+            return -1;
+        }
+        int ini = pos;
+        int n = Math.min(finCampo() - ini, destino.length);
+        System.arraycopy(datos, ini, destino, 0, n);
+        saltar();
+        return n;
+    }
+
+    /** String del campo actual (alloca; usar solo en mensajes poco frecuentes). */
+    public String texto() {
+        if (pos > fin) {
+            error = true;
+            return null;
+        }
+        int ini = pos;
+        int f = finCampo();
+        saltar();
+        return new String(datos, ini, f - ini, StandardCharsets.UTF_8);
+    }
+
+    /**
+    * Igual que texto(), pero si el campo coincide con alguno de los conocidos
+    * devuelve esa misma instancia (nombres de enums, salas, etc.) sin allocar.
+    */
+    public String texto(String[] conocidos) {
+        if (pos > fin) {
+            error = true;
+            return null;
+        }
+        int ini = pos;
+        int f = finCampo();
+        int n = f - ini;
+
+        for (int i = 0; i < conocidos.length; i++) {
+            String s = conocidos[i];
+            if (s.length() != n) continue;
+
+            boolean igual = true;
+            for (int k = 0; k < n; k++) {
+                if (datos[ini + k] != s.charAt(k)) {
+                    igual = false;
+                    break;
+                }
+            }
+            if (igual) {
+                saltar();
+                return s;
+            }
+        }
+        return texto();
+    }
+
+    /** Mensaje completo como String (solo para logs). */
+    public String mensaje() {
+        return new String(datos, inicio, fin - inicio, StandardCharsets.UTF_8);
+    }
+
+    private int finCampo() {
+        int i = pos;
+        while (i < fin && datos[i] != SEP) i++;
+        return i;
+    }
+}
@@ -0,0 +1,190 @@
+package red;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+* Lo que el juego manda durante un frame, antes de pasar a la ColaSalida.
+*
+* - Texto: una línea idéntica a otra del mismo frame no se repite. Las líneas se juntan en un
+*   datagrama separadas por '\n' solo si el server lo anunció (lote en el Connected, ver
+*   setJuntarTexto); un server de texto viejo espera una línea por datagrama.
+* - Binario: los frames se juntan en un OP_BUNDLE ([varint largo][opcode][campos...]);
+*   si en el frame hubo uno solo, sale tal cual.
+*
+* vaciar() va una vez por frame: un datagrama (o pocos, si no entra) en vez de uno por mensaje.
+* Solo lo usa el hilo render.
+*/
+final class LoteSalida {
+    // Líneas distintas que se recuerdan por frame para descartar repetidas
+    private static final int MAX_LINEAS = 32;
+
+    private final ColaSalida cola;
+
+    private final int maxBytes;
+
+    private final byte[] texto;
+
+    private int largoTexto = 0;
+
+    private final int[] inicioLinea = new int[MAX_LINEAS];
+
+    private final int[] largoLinea = new int[MAX_LINEAS];
+
+    private int lineas = 0;
+
+    private final byte[] bundle;
+
+    private int largoBundle = 0;
+
+    private int mensajesBundle = 0;
+
+    // Para mandar sin bundle cuando hubo un solo frame binario
+    private final byte[] suelto;
+
+    private int largoSuelto = 0;
+
+    private int repetidos = 0;
+
+    // false: cada línea sale en su datagrama (igual se descartan las repetidas)
+    private boolean juntarTexto = false;
+
+    LoteSalida(int maxBytes, ColaSalida cola) {
+        this.cola = cola;
+        this.maxBytes = maxBytes;
+        this.texto = new byte[maxBytes];
+        this.bundle = new byte[maxBytes];
+        this.suelto = new byte[maxBytes];
+    }
+
+    void setJuntarTexto(boolean juntarTexto) {
+        this.juntarTexto = juntarTexto;
+    }
+
+    /** false si la línea ya estaba en el frame (o no entra ni sola en un datagrama). */
+    boolean agregarTexto(CharSequence linea) {
+        byte[] bytes = null;
+        int n = linea.length();
+        for (int k = 0; k < n; k++) {
+            if (linea.charAt(k) > 0x7F) {
+                bytes = linea.toString().getBytes(StandardCharsets.UTF_8);
+                n = bytes.length;
+                break;
+            }
+        }
+        if (n == 0 || n > maxBytes) return false;
+
+        if (esRepetida(linea, bytes, n)) {
+            repetidos++;
+            return false;
+        }
+
+        // Sin juntar, las líneas se guardan igual (para descartar repetidas) y salen de a una:
+        // cada una tiene que quedar anotada
+        if (!juntarTexto && lineas == MAX_LINEAS) vaciarTexto();
+
+        int separador = (largoTexto > 0) ? 1 : 0;
+        if (largoTexto + separador + n > maxBytes) {
+            vaciarTexto();
+            separador = 0;
+        }
+        if (separador > 0) texto[largoTexto++] = '\n';
+
+        int ini = largoTexto;
+        if (bytes != null) System.arraycopy(bytes, 0, texto, ini, n);
+        else for (int k = 0; k < n; k++) texto[ini + k] = (byte) linea.charAt(k);
+        largoTexto += n;
+
+        if (lineas < MAX_LINEAS) {
+            inicioLinea[lineas] = ini;
+            largoLinea[lineas] = n;
+            lineas++;
+        }
+        return true;
+    }
+
+    /** datos = frame completo de ProtocoloBinario ([MAGIC][opcode][campos...]). */
+    boolean agregarBinario(byte[] datos, int largo) {
+        if (largo < 2 || largo > maxBytes || datos[0] != ProtocoloBinario.MAGIC) return false;
+
+        int cuerpo = largo - 1; // sin MAGIC
+        int entrada = largoVarInt(cuerpo) + cuerpo;
+        if (largoBundle > 0 && largoBundle + entrada > maxBytes) vaciarBinario();
+        if (2 + entrada > maxBytes) {
+            // no entra ni solo en un bundle: sale suelto
+            return cola.encolar(datos, largo);
+        }
+
+        if (largoBundle == 0) {
+            bundle[0] = ProtocoloBinario.MAGIC;
+            bundle[1] = (byte) ProtocoloBinario.OP_BUNDLE;
+            largoBundle = 2;
+            System.arraycopy(datos, 0, suelto, 0, largo);
+            largoSuelto = largo;
+        }
+        largoBundle = escribirVarInt(bundle, largoBundle, cuerpo);
+        System.arraycopy(datos, 1, bundle, largoBundle, cuerpo);
+        largoBundle += cuerpo;
+        mensajesBundle++;
+        return true;
+    }
+
+    /** Pasa todo lo juntado a la cola. true si encoló algo (hay que despertar al hilo de red). */
+    boolean vaciar() {
+        boolean hay = largoTexto > 0 || mensajesBundle > 0;
+        vaciarTexto();
+        vaciarBinario();
+        return hay;
+    }
+
+    /** Líneas descartadas por repetidas dentro de un mismo frame. */
+    int getRepetidos() {
+        return repetidos;
+    }
+
+    private void vaciarTexto() {
+        if (juntarTexto) {
+            if (largoTexto > 0) cola.encolar(texto, largoTexto);
+        } else {
+            for (int l = 0; l < lineas; l++) cola.encolar(texto, inicioLinea[l], largoLinea[l]);
+        }
+        largoTexto = 0;
+        // las líneas se comparan contra el buffer: lo que ya salió no se puede comparar
+        lineas = 0;
+    }
+
+    private void vaciarBinario() {
+        if (mensajesBundle == 1) cola.encolar(suelto, largoSuelto);
+        else if (mensajesBundle > 1) cola.encolar(bundle, largoBundle);
+        largoBundle = 0;
+        mensajesBundle = 0;
+    }
+
+    private boolean esRepetida(CharSequence linea, byte[] bytes, int n) {
+        for (int l = 0; l < lineas; l++) {
+            if (largoLinea[l] != n) continue;
+            int ini = inicioLinea[l];
+            boolean igual = true;
+            for (int k = 0; k < n && igual; k++) {
+                byte b = (bytes != null) ? bytes[k] : (byte) linea.charAt(k);
+                igual = texto[ini + k] == b;
+            }
+            if (igual) return true;
+        }
+        return false;
+    }
+
+    private static int largoVarInt(int v) {
+        int n = 1;
+        while ((v >>>= 7) != 0) n++;
+        return n;
+    }
+
+    private static int escribirVarInt(byte[] destino, int pos, int v) {
+        while ((v & ~0x7F) != 0) {
+            destino[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        destino[pos++] = (byte) v;
+        return pos;
+    }
+}
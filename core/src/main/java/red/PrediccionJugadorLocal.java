@@ -0,0 +1,178 @@
+package red;
+
+/**
+* Predicción del jugador local en online + reconciliación con el server.
+*
+* - Cada input que se manda (Move) lleva un número de secuencia y se aplica acá al toque,
+*   con la misma regla que ControlJugador (dirección normalizada * velocidad).
+* - Cuando el server confirma hasta qué input procesó (inputAck en UpdatePosition),
+*   se parte de su posición y se re-simulan los inputs todavía no confirmados.
+* - La diferencia con lo que se venía mostrando no se aplica de golpe: queda como
+*   error visual que se va achicando (salvo que sea enorme, ej. cambio de sala).
+*
+* La re-simulación es cinemática (sin Box2D): contra una pared puede "meterse" unos
+* píxeles hasta que llega la confirmación del server. Se usa solo desde el hilo render.
+*/
+public final class PrediccionJugadorLocal {
+    // ~2 s de inputs a 60 fps sin confirmar
+    private static final int MAX_INPUTS = 128;
+
+    // Si la corrección es más grande que esto, se teletransporta (no se suaviza)
+    private static final float ERROR_SNAP = 48f;
+
+    // Velocidad con la que se achica el error visual (1/s)
+    private static final float SUAVIZADO_ERROR = 12f;
+
+    private static final float DIAGONAL = (float) (1.0 / Math.sqrt(2.0));
+
+    private final int[] seqs = new int[MAX_INPUTS];
+
+    private final byte[] dxs = new byte[MAX_INPUTS];
+
+    private final byte[] dys = new byte[MAX_INPUTS];
+
+    private final float[] dts = new float[MAX_INPUTS];
+
+    private final float[] velocidades = new float[MAX_INPUTS];
+
+    private int inicio;
+
+    private int cantidad;
+
+    private int proxSeq = 1;
+
+    private int ultimoAck = -1;
+
+    private boolean activa = false;
+
+    private float x;
+
+    private float y;
+
+    private float errorX;
+
+    private float errorY;
+
+    private float velocidad = 100f;
+
+    private boolean puedeMoverse = true;
+
+    /** Velocidad/estado del Jugador local (se refresca cada frame). */
+    public void actualizarJugador(float velocidad, boolean puedeMoverse) {
+        this.velocidad = velocidad;
+        this.puedeMoverse = puedeMoverse;
+    }
+
+    /** Guarda el input y lo aplica a la predicción. Devuelve la secuencia a mandar en el Move. */
+    public int registrarInput(int dx, int dy, float dt) {
+        int seq = proxSeq++;
+
+        if (cantidad == MAX_INPUTS) {
+            // sin confirmaciones hace rato: descartamos el más viejo
+            inicio = (inicio + 1) % MAX_INPUTS;
+            cantidad--;
+        }
+        int i = (inicio + cantidad) % MAX_INPUTS;
+        cantidad++;
+
+        float v = puedeMoverse ? velocidad : 0f;
+        seqs[i] = seq;
+        dxs[i] = (byte) dx;
+        dys[i] = (byte) dy;
+        dts[i] = dt;
+        velocidades[i] = v;
+
+        if (activa) {
+            x += desplazamientoX(dx, dy, v, dt);
+            y += desplazamientoY(dx, dy, v, dt);
+        }
+        return seq;
+    }
+
+    /** Posición autoritativa del server para el jugador local, con el último input que procesó. */
+    public void reconciliar(float serverX, float serverY, int inputAck) {
+        if (inputAck < 0) return;
+        if (activa && inputAck < ultimoAck) return; // llegó desordenado
+
+        ultimoAck = inputAck;
+
+        // Inputs ya procesados por el server: afuera
+        while (cantidad > 0 && seqs[inicio] <= inputAck) {
+            inicio = (inicio + 1) % MAX_INPUTS;
+            cantidad--;
+        }
+
+        // Re-simulación de lo que el server todavía no vio
+        float nx = serverX;
+        float ny = serverY;
+        for (int k = 0; k < cantidad; k++) {
+            int i = (inicio + k) % MAX_INPUTS;
+            nx += desplazamientoX(dxs[i], dys[i], velocidades[i], dts[i]);
+            ny += desplazamientoY(dxs[i], dys[i], velocidades[i], dts[i]);
+        }
+
+        if (!activa) {
+            // ✅ primera confirmación: arrancamos a predecir desde acá
+            activa = true;
+            errorX = 0f;
+            errorY = 0f;
+        } else {
+            // Mantener continuidad visual: lo que se mostraba - lo nuevo
+            errorX = (x + errorX) - nx;
+            errorY = (y + errorY) - ny;
+            if (errorX * errorX + errorY * errorY > ERROR_SNAP * ERROR_SNAP) {
+                errorX = 0f;
+                errorY = 0f;
+            }
+        }
+
+        x = nx;
+        y = ny;
+    }
+
+    /** Achica el error visual (llamar una vez por frame). */
+    public void suavizar(float delta) {
+        float f = (float) Math.exp(-SUAVIZADO_ERROR * delta);
+        errorX *= f;
+        errorY *= f;
+        if (Math.abs(errorX) < 0.01f) errorX = 0f;
+        if (Math.abs(errorY) < 0.01f) errorY = 0f;
+    }
+
+    /** True desde que el server empezó a confirmar inputs. */
+    public boolean isActiva() {
+        return activa;
+    }
+
+    public float getX() {
+        return x + errorX;
+    }
+
+    public float getY() {
+        return y + errorY;
+    }
+
+    public int getInputsSinConfirmar() {
+        return cantidad;
+    }
+
+    public void reset() {
+        inicio = 0;
+        cantidad = 0;
+        ultimoAck = -1;
+        activa = false;
+        errorX = 0f;
+        errorY = 0f;
+        // proxSeq NO se reinicia: el server compara contra el último que vio
+    }
+
+    private static float desplazamientoX(int dx, int dy, float v, float dt) {
+        if (dx == 0) return 0f;
+        return dx * v * dt * ((dy != 0) ? DIAGONAL : 1f);
+    }
+
+    private static float desplazamientoY(int dx, int dy, float v, float dt) {
+        if (dy == 0) return 0f;
+        return dy * v * dt * ((dx != 0) ? DIAGONAL : 1f);
+    }
+}
@@ -0,0 +1,545 @@
+package red;
+
+import entidades.datos.Estilo;
+import entidades.datos.Genero;
+import entidades.items.ItemTipo;
+import mapa.model.Direccion;
+import mapa.model.Habitacion;
+
+/**
+* Protocolo binario compacto (alternativa al formato texto "Tipo:campo:campo").
+*
+* Frame: [MAGIC][opcode][campos...]
+* - ids / contadores: varint (LEB128)
+* - posiciones: float32 big-endian
+* - Habitacion / Direccion: ordinal + 1 (0 = desconocida)
+* - ItemTipo / Genero / Estilo: ordinal
+*
+* Bundle: varios mensajes en un mismo datagrama (hasta el MTU), cada uno con su largo
+* adelante. Un mensaje roto adentro se saltea sin perder los demás.
+*
+* Negociación: el cliente agrega TOKEN_VERSION al Connect y, si el server lo soporta,
+* responde Connected:playerId:TOKEN_VERSION. Si no, todo sigue en texto.
+* El primer byte nunca es ASCII, así que texto y binario conviven en el mismo socket.
+*/
+public final class ProtocoloBinario {
+    public static final int VERSION = 1;
+
+    public static final String TOKEN_VERSION = "bin" + VERSION;
+
+    public static final byte MAGIC = (byte) (0xB0 | VERSION);
+
+    // ===== Server -> cliente =====
+    public static final int OP_APPEARANCE = 0x01;
+    public static final int OP_START = 0x02;
+    public static final int OP_UPDATE_POSITION = 0x03;
+    public static final int OP_UPDATE_ROOM = 0x04;
+    public static final int OP_SPAWN_ITEM = 0x05;
+    public static final int OP_DESPAWN_ITEM = 0x06;
+    public static final int OP_PICKUP_ITEM = 0x07;
+    public static final int OP_HUD = 0x08;
+    public static final int OP_OTHER = 0x09;
+    public static final int OP_SPAWN_ENEMY = 0x0A;
+    public static final int OP_UPDATE_ENEMY = 0x0B;
+    public static final int OP_DESPAWN_ENEMY = 0x0C;
+    public static final int OP_ROOM_CLEAR = 0x0D;
+    public static final int OP_DAMAGE = 0x0E;
+    public static final int OP_DEAD = 0x0F;
+    public static final int OP_GAME_OVER = 0x10;
+    public static final int OP_DISCONNECT = 0x11;
+
+    // UpdatePosition con campos opcionales según flags (ver FLAG_*)
+    public static final int OP_UPDATE_POSITION_EXT = 0x12;
+
+    public static final int FLAG_TIEMPO_SERVER = 0x01; // u32: ms del reloj del server
+    public static final int FLAG_ACK_INPUT = 0x02;     // varint: último input procesado de ese jugador
+    public static final int FLAG_SECUENCIA = 0x04;     // u16: secuencia por entidad (ver FiltroSecuencias)
+
+    // UpdateEnemy con flags (FLAG_TIEMPO_SERVER, FLAG_SECUENCIA)
+    public static final int OP_UPDATE_ENEMY_EXT = 0x13;
+
+    // Hud con inventario compacto: [playerId][vida][vidaMax][version][cantTipos] { [cantidad] } (ver InventarioCompacto)
+    public static final int OP_HUD_INV = 0x14;
+
+    // Bundle: [MAGIC][OP_BUNDLE] y después N veces [varint largo][opcode][campos...]
+    public static final int OP_BUNDLE = 0x20;
+
+    // Snapshot del mundo (completo o delta contra un baseline), ver ReplicadorSnapshots
+    public static final int OP_SNAPSHOT = 0x21;
+
+    // ===== Canal confiable (los dos sentidos), ver CanalConfiable =====
+    public static final int OP_CONFIABLE = 0x22;
+    public static final int OP_ACK = 0x23;
+
+    // Respuesta al ping: [pingId varint][clienteMs u32] tal cual vino. Siempre solo en su datagrama.
+    public static final int OP_PONG = 0x24;
+
+    // Pedazo de un datagrama más grande que el MTU (los dos sentidos), ver Fragmentador / Reensamblador:
+    // [msgId u16][indice u8][total u8][datos...]. Lo reensamblado se procesa como un datagrama más.
+    public static final int OP_FRAGMENTO = 0x25;
+
+    // ===== Cliente -> server =====
+    public static final int OP_MOVE = 0x40;
+    public static final int OP_DOOR = 0x41;
+    public static final int OP_READY = 0x42;
+    public static final int OP_ROOM_CLEAR_REQ = 0x43;
+    public static final int OP_NEXT_LEVEL_REQ = 0x44;
+    public static final int OP_SNAPSHOT_ACK = 0x45;
+    public static final int OP_PING = 0x46;
+
+    // Salas de interés del cliente: [mascara i64] (bit = ordinal de Habitacion, -1 = todas), ver FiltroInteres
+    public static final int OP_INTEREST = 0x47;
+
+    private static final Habitacion[] HABITACIONES = Habitacion.values();
+    private static final Direccion[] DIRECCIONES = Direccion.values();
+    private static final ItemTipo[] ITEMS = ItemTipo.values();
+    private static final Genero[] GENEROS = Genero.values();
+    private static final Estilo[] ESTILOS = Estilo.values();
+
+    private ProtocoloBinario() {}
+
+    public static boolean esBinario(byte[] datos, int offset, int largo) {
+        return largo >= 2 && datos[offset] == MAGIC;
+    }
+
+    /**
+    * Decodifica un frame (incluyendo MAGIC) y despacha al controller.
+    * Frames cortos o con opcode desconocido se ignoran.
+    * conteosHud (InventarioCompacto.TIPOS) se reusa para cada OP_HUD_INV: el controller copia lo que necesita.
+    */
+    public static void decodificar(LectorBinario in, GameController controller, ReplicadorSnapshots snapshots,
+                                   CanalConfiable confiable, FiltroSecuencias secuencias, FiltroInteres interes,
+                                   int[] conteosHud) {
+        if (in.u8() != (MAGIC & 0xFF)) return;
+        int op = in.u8();
+        if (!in.ok()) return;
+
+        if (op == OP_BUNDLE) {
+            decodificarBundle(in, controller, snapshots, confiable, secuencias, interes, conteosHud);
+            return;
+        }
+
+        despachar(op, in, controller, snapshots, confiable, secuencias, interes, conteosHud);
+    }
+
+    /**
+    * Decodifica un mensaje sin MAGIC ([opcode][campos...]), como los que entrega CanalConfiable.
+    * Adentro no se aceptan otros mensajes confiables.
+    */
+    static void decodificarMensaje(LectorBinario in, GameController controller, ReplicadorSnapshots snapshots,
+                                   FiltroSecuencias secuencias, FiltroInteres interes, int[] conteosHud) {
+        int op = in.u8();
+        if (!in.ok()) return;
+
+        if (op == OP_BUNDLE) decodificarBundle(in, controller, snapshots, null, secuencias, interes, conteosHud);
+        else despachar(op, in, controller, snapshots, null, secuencias, interes, conteosHud);
+    }
+
+    private static void decodificarBundle(LectorBinario in, GameController controller, ReplicadorSnapshots snapshots,
+                                          CanalConfiable confiable, FiltroSecuencias secuencias, FiltroInteres interes,
+                                          int[] conteosHud) {
+        while (in.restantes() > 0) {
+            int largo = in.varInt();
+            if (!in.ok() || largo <= 0) return;
+
+            int finBundle = in.limitar(largo);
+            if (!in.ok()) return; // largo mayor a lo que queda: datagrama truncado
+
+            int op = in.u8();
+            // sin bundles anidados
+            if (op != OP_BUNDLE) despachar(op, in, controller, snapshots, confiable, secuencias, interes, conteosHud);
+
+            if (!in.salirDeLimite(finBundle)) return;
+        }
+    }
+
+    private static void despachar(int op, LectorBinario in, GameController controller, ReplicadorSnapshots snapshots,
+                                  CanalConfiable confiable, FiltroSecuencias secuencias, FiltroInteres interes,
+                                  int[] conteosHud) {
+        switch (op) {
+
+        case OP_CONFIABLE: {
+                if (confiable != null) confiable.recibir(in, controller, snapshots, secuencias, interes, conteosHud);
+                break;
+            }
+
+        case OP_ACK: {
+                if (confiable != null) confiable.recibirAck(in);
+                break;
+            }
+
+        case OP_SNAPSHOT: {
+                if (snapshots != null) snapshots.recibir(in, controller, interes);
+                break;
+            }
+
+        case OP_APPEARANCE: {
+                int id = in.varInt();
+                Genero g = porOrdinal(GENEROS, in.u8());
+                Estilo e = porOrdinal(ESTILOS, in.u8());
+                if (in.ok()) {
+                    controller.appearance(id, g != null ? g.name() : null, e != null ? e.name() : null);
+                }
+                break;
+            }
+
+        case OP_START: {
+                long seed = in.i64();
+                int nivel = in.varInt();
+                if (in.ok()) {
+                    if (secuencias != null) secuencias.reset();
+                    if (interes != null) interes.reset();
+                    controller.start(seed, nivel);
+                }
+                break;
+            }
+
+        case OP_UPDATE_POSITION: {
+                int id = in.varInt();
+                float x = in.f32();
+                float y = in.f32();
+                if (in.ok()) controller.updatePlayerPosition(id, x, y);
+                break;
+            }
+
+        case OP_UPDATE_POSITION_EXT: {
+                int id = in.varInt();
+                int flags = in.u8();
+                float x = in.f32();
+                float y = in.f32();
+                long serverMs = ((flags & FLAG_TIEMPO_SERVER) != 0) ? (in.i32() & 0xFFFFFFFFL) : -1L;
+                int inputAck = ((flags & FLAG_ACK_INPUT) != 0) ? in.varInt() : -1;
+                int seq = ((flags & FLAG_SECUENCIA) != 0) ? in.u16() : -1;
+                if (!in.ok()) break;
+                // viejo o duplicado: ni llega al anillo
+                if (secuencias != null && !secuencias.aceptarJugador(id, seq)) break;
+                controller.updatePlayerPosition(id, x, y, serverMs, inputAck);
+                break;
+            }
+
+        case OP_UPDATE_ROOM: {
+                Habitacion destino = habitacion(in.varInt());
+                Direccion dir = porOrdinal(DIRECCIONES, in.varInt() - 1);
+                int playerId = in.varInt();
+                if (in.ok() && destino != null) controller.updateRoom(destino.name(), dir != null ? dir.name() : "", playerId);
+                break;
+            }
+
+        case OP_SPAWN_ITEM: {
+                int itemId = in.varInt();
+                ItemTipo tipo = porOrdinal(ITEMS, in.varInt());
+                float x = in.f32();
+                float y = in.f32();
+                if (in.ok() && tipo != null) controller.spawnItem(itemId, tipo.name(), x, y);
+                break;
+            }
+
+        case OP_DESPAWN_ITEM: {
+                int itemId = in.varInt();
+                if (in.ok()) controller.despawnItem(itemId);
+                break;
+            }
+
+        case OP_PICKUP_ITEM: {
+                int jugadorId = in.varInt();
+                int itemId = in.varInt();
+                ItemTipo tipo = porOrdinal(ITEMS, in.varInt());
+                if (in.ok()) controller.pickupItem(jugadorId, itemId, tipo != null ? tipo.name() : null);
+                break;
+            }
+
+        case OP_HUD: {
+                // un tipo por ítem: se cuentan en conteosHud, como lo que trae OP_HUD_INV (sin versión)
+                int playerId = in.varInt();
+                int vida = in.varInt();
+                int vidaMax = in.varInt();
+                int n = in.varInt();
+                java.util.Arrays.fill(conteosHud, 0);
+                for (int i = 0; i < n && in.ok(); i++) {
+                    int tipo = in.varInt();
+                    if (tipo >= 0 && tipo < conteosHud.length) conteosHud[tipo]++;
+                }
+                if (in.ok()) controller.hud(playerId, vida, vidaMax, -1, conteosHud);
+                break;
+            }
+
+        case OP_HUD_INV: {
+                int playerId = in.varInt();
+                int vida = in.varInt();
+                int vidaMax = in.varInt();
+                int version = in.varInt();
+                int n = in.varInt();
+                java.util.Arrays.fill(conteosHud, 0);
+                for (int t = 0; t < n && in.ok(); t++) {
+                    int cantidad = in.varInt();
+                    if (t < conteosHud.length) conteosHud[t] = cantidad;
+                }
+                if (in.ok()) controller.hud(playerId, vida, vidaMax, version, conteosHud);
+                break;
+            }
+
+        case OP_OTHER: {
+                int otherId = in.varInt();
+                int vida = in.varInt();
+                int vidaMax = in.varInt();
+                if (in.ok()) controller.other(otherId, vida, vidaMax);
+                break;
+            }
+
+        case OP_SPAWN_ENEMY: {
+                int enemyId = in.varInt();
+                String nombre = in.texto();
+                float x = in.f32();
+                float y = in.f32();
+                Habitacion sala = habitacion(in.varInt());
+                if (!in.ok()) break;
+                if (interes != null) interes.registrarEnemigo(enemyId, sala);
+                controller.spawnEnemy(enemyId, nombre, x, y, sala != null ? sala.name() : null);
+                break;
+            }
+
+        case OP_UPDATE_ENEMY: {
+                int enemyId = in.varInt();
+                // fuera del interés: el resto del mensaje ni se lee (el bundle salta al siguiente)
+                if (interes != null && !interes.aceptarEnemigo(enemyId)) break;
+                float x = in.f32();
+                float y = in.f32();
+                if (in.ok()) controller.updateEnemy(enemyId, x, y);
+                break;
+            }
+
+        case OP_UPDATE_ENEMY_EXT: {
+                int enemyId = in.varInt();
+                if (interes != null && !interes.aceptarEnemigo(enemyId)) break;
+                int flags = in.u8();
+                float x = in.f32();
+                float y = in.f32();
+                long serverMs = ((flags & FLAG_TIEMPO_SERVER) != 0) ? (in.i32() & 0xFFFFFFFFL) : -1L;
+                int seq = ((flags & FLAG_SECUENCIA) != 0) ? in.u16() : -1;
+                if (!in.ok()) break;
+                if (secuencias != null && !secuencias.aceptarEnemigo(enemyId, seq)) break;
+                controller.updateEnemy(enemyId, x, y, serverMs);
+                break;
+            }
+
+        case OP_DESPAWN_ENEMY: {
+                int enemyId = in.varInt();
+                if (!in.ok()) break;
+                if (secuencias != null) secuencias.olvidarEnemigo(enemyId);
+                if (interes != null) interes.olvidarEnemigo(enemyId);
+                controller.despawnEnemy(enemyId);
+                break;
+            }
+
+        case OP_ROOM_CLEAR: {
+                Habitacion sala = habitacion(in.varInt());
+                if (in.ok() && sala != null) controller.roomClear(sala.name());
+                break;
+            }
+
+        case OP_DAMAGE: {
+                int playerId = in.varInt();
+                int vida = in.varInt();
+                int vidaMax = in.varInt();
+                if (in.ok()) controller.damage(playerId, vida, vidaMax);
+                break;
+            }
+
+        case OP_DEAD: {
+                int playerId = in.varInt();
+                if (in.ok()) controller.dead(playerId);
+                break;
+            }
+
+        case OP_GAME_OVER: {
+                int loserId = in.varInt();
+                if (in.ok()) controller.gameOver(loserId);
+                break;
+            }
+
+        case OP_DISCONNECT: {
+                controller.disconnect("Server closed");
+                break;
+            }
+
+        default:
+            // ignorar desconocidos (sin romper)
+            break;
+        }
+    }
+
+    // ===== Encoders cliente -> server =====
+
+    /** Move: [dx s8][dy s8][seq varint] (seq = número de input, para la reconciliación). */
+    public static void move(EscritorBinario out, int dx, int dy, int seq) {
+        out.reset().u8(MAGIC).u8(OP_MOVE).u8(dx).u8(dy).varInt(seq);
+    }
+
+    public static void door(EscritorBinario out, int playerId, String origen, String destino, String dir) {
+        out.reset().u8(MAGIC).u8(OP_DOOR)
+        .varInt(Math.max(0, playerId))
+        .varInt(ordinalHabitacion(origen))
+        .varInt(ordinalHabitacion(destino))
+        .varInt(ordinalDireccion(dir));
+    }
+
+    public static void ready(EscritorBinario out, int playerId) {
+        out.reset().u8(MAGIC).u8(OP_READY).varInt(Math.max(0, playerId));
+    }
+
+    public static void roomClearReq(EscritorBinario out, Habitacion sala) {
+        out.reset().u8(MAGIC).u8(OP_ROOM_CLEAR_REQ).varInt(sala != null ? sala.ordinal() + 1 : 0);
+    }
+
+    public static void nextLevelReq(EscritorBinario out) {
+        out.reset().u8(MAGIC).u8(OP_NEXT_LEVEL_REQ);
+    }
+
+    public static void snapshotAck(EscritorBinario out, int snapshotId) {
+        out.reset().u8(MAGIC).u8(OP_SNAPSHOT_ACK).varInt(snapshotId);
+    }
+
+    /** Ping: [pingId varint][clienteMs u32]. El server lo devuelve igual como OP_PONG. */
+    public static void ping(EscritorBinario out, int pingId, long clienteMs) {
+        out.reset().u8(MAGIC).u8(OP_PING).varInt(pingId).i32((int) clienteMs);
+    }
+
+    /** Interest: [mascara i64]. El server deja de mandar updates de entidades de otras salas. */
+    public static void interes(EscritorBinario out, long mascara) {
+        out.reset().u8(MAGIC).u8(OP_INTEREST).i64(mascara);
+    }
+
+    // ===== Encoders server -> cliente =====
+
+    public static void appearance(EscritorBinario out, int playerId, Genero genero, Estilo estilo) {
+        out.reset().u8(MAGIC).u8(OP_APPEARANCE).varInt(playerId)
+        .u8(genero != null ? genero.ordinal() : 0xFF).u8(estilo != null ? estilo.ordinal() : 0xFF);
+    }
+
+    public static void start(EscritorBinario out, long seed, int nivel) {
+        out.reset().u8(MAGIC).u8(OP_START).i64(seed).varInt(nivel);
+    }
+
+    /** UpdatePosition con tiempo de server, secuencia y (si inputAck >= 0) el último input procesado. */
+    public static void updatePosition(EscritorBinario out, int playerId, float x, float y, long serverMs,
+                                      int inputAck, int seq) {
+        int flags = FLAG_TIEMPO_SERVER | FLAG_SECUENCIA | (inputAck >= 0 ? FLAG_ACK_INPUT : 0);
+        out.reset().u8(MAGIC).u8(OP_UPDATE_POSITION_EXT).varInt(playerId).u8(flags).f32(x).f32(y).i32((int) serverMs);
+        if (inputAck >= 0) out.varInt(inputAck);
+        out.u16(seq);
+    }
+
+    /** UpdateRoom sin dirección ni jugador (el server solo avisa la sala nueva). */
+    public static void updateRoom(EscritorBinario out, Habitacion sala) {
+        out.reset().u8(MAGIC).u8(OP_UPDATE_ROOM).varInt(sala != null ? sala.ordinal() + 1 : 0).varInt(0).varInt(0);
+    }
+
+    public static void spawnItem(EscritorBinario out, int itemId, ItemTipo tipo, float x, float y) {
+        out.reset().u8(MAGIC).u8(OP_SPAWN_ITEM).varInt(itemId).varInt(tipo.ordinal()).f32(x).f32(y);
+    }
+
+    public static void pickupItem(EscritorBinario out, int jugadorId, int itemId, ItemTipo tipo) {
+        out.reset().u8(MAGIC).u8(OP_PICKUP_ITEM).varInt(jugadorId).varInt(itemId).varInt(tipo.ordinal());
+    }
+
+    /** Hud con inventario compacto: conteos[0, n) (ver InventarioCompacto.camposUsados). */
+    public static void hud(EscritorBinario out, int playerId, int vida, int vidaMax, int version, int[] conteos, int n) {
+        out.reset().u8(MAGIC).u8(OP_HUD_INV).varInt(playerId).varInt(vida).varInt(vidaMax).varInt(version).varInt(n);
+        for (int t = 0; t < n; t++) out.varInt(conteos[t]);
+    }
+
+    public static void other(EscritorBinario out, int playerId, int vida, int vidaMax) {
+        out.reset().u8(MAGIC).u8(OP_OTHER).varInt(playerId).varInt(vida).varInt(vidaMax);
+    }
+
+    public static void damage(EscritorBinario out, int playerId, int vida, int vidaMax) {
+        out.reset().u8(MAGIC).u8(OP_DAMAGE).varInt(playerId).varInt(vida).varInt(vidaMax);
+    }
+
+    public static void spawnEnemy(EscritorBinario out, int enemyId, String nombre, float x, float y, Habitacion sala) {
+        out.reset().u8(MAGIC).u8(OP_SPAWN_ENEMY).varInt(enemyId).texto(nombre).f32(x).f32(y)
+        .varInt(sala != null ? sala.ordinal() + 1 : 0);
+    }
+
+    public static void despawnEnemy(EscritorBinario out, int enemyId) {
+        out.reset().u8(MAGIC).u8(OP_DESPAWN_ENEMY).varInt(enemyId);
+    }
+
+    public static void roomClear(EscritorBinario out, Habitacion sala) {
+        out.reset().u8(MAGIC).u8(OP_ROOM_CLEAR).varInt(sala != null ? sala.ordinal() + 1 : 0);
+    }
+
+    public static void dead(EscritorBinario out, int playerId) {
+        out.reset().u8(MAGIC).u8(OP_DEAD).varInt(playerId);
+    }
+
+    public static void gameOver(EscritorBinario out, int loserId) {
+        out.reset().u8(MAGIC).u8(OP_GAME_OVER).varInt(loserId);
+    }
+
+    /** Pong: devuelve [pingId][clienteMs] tal cual vinieron en el OP_PING. */
+    public static void pong(EscritorBinario out, int pingId, int clienteMs) {
+        out.reset().u8(MAGIC).u8(OP_PONG).varInt(pingId).i32(clienteMs);
+    }
+
+    // ===== Helpers =====
+
+    /** Nombre corto del opcode (estadísticas / logs). */
+    public static String nombreOp(int op) {
+        switch (op) {
+        case OP_APPEARANCE: return "APPEARANCE";
+        case OP_START: return "START";
+        case OP_UPDATE_POSITION: return "UPDATE_POSITION";
+        case OP_UPDATE_ROOM: return "UPDATE_ROOM";
+        case OP_SPAWN_ITEM: return "SPAWN_ITEM";
+        case OP_DESPAWN_ITEM: return "DESPAWN_ITEM";
+        case OP_PICKUP_ITEM: return "PICKUP_ITEM";
+        case OP_HUD: return "HUD";
+        case OP_OTHER: return "OTHER";
+        case OP_SPAWN_ENEMY: return "SPAWN_ENEMY";
+        case OP_UPDATE_ENEMY: return "UPDATE_ENEMY";
+        case OP_DESPAWN_ENEMY: return "DESPAWN_ENEMY";
+        case OP_ROOM_CLEAR: return "ROOM_CLEAR";
+        case OP_DAMAGE: return "DAMAGE";
+        case OP_DEAD: return "DEAD";
+        case OP_GAME_OVER: return "GAME_OVER";
+        case OP_DISCONNECT: return "DISCONNECT";
+        case OP_UPDATE_POSITION_EXT: return "UPDATE_POSITION_EXT";
+        case OP_UPDATE_ENEMY_EXT: return "UPDATE_ENEMY_EXT";
+        case OP_HUD_INV: return "HUD_INV";
+        case OP_BUNDLE: return "BUNDLE";
+        case OP_SNAPSHOT: return "SNAPSHOT";
+        case OP_CONFIABLE: return "CONFIABLE";
+        case OP_ACK: return "ACK";
+        case OP_PONG: return "PONG";
+        case OP_FRAGMENTO: return "FRAGMENTO";
+        case OP_MOVE: return "MOVE";
+        case OP_DOOR: return "DOOR";
+        case OP_READY: return "READY";
+        case OP_ROOM_CLEAR_REQ: return "ROOM_CLEAR_REQ";
+        case OP_NEXT_LEVEL_REQ: return "NEXT_LEVEL_REQ";
+        case OP_SNAPSHOT_ACK: return "SNAPSHOT_ACK";
+        case OP_PING: return "PING";
+        case OP_INTEREST: return "INTEREST";
+        default: return "0x" + Integer.toHexString(op);
+        }
+    }
+
+    public static Habitacion habitacion(int ordinalMasUno) {
+        return porOrdinal(HABITACIONES, ordinalMasUno - 1);
+    }
+
+    private static int ordinalHabitacion(String nombre) {
+        if (nombre == null) return 0;
+        try { return Habitacion.valueOf(nombre).ordinal() + 1; } catch (Exception e) { return 0; }
+    }
+
+    private static int ordinalDireccion(String nombre) {
+        if (nombre == null) return 0;
+        try { return Direccion.valueOf(nombre).ordinal() + 1; } catch (Exception e) { return 0; }
+    }
+
+    private static <T> T porOrdinal(T[] valores, int ordinal) {
+        return (ordinal >= 0 && ordinal < valores.length) ? valores[ordinal] : null;
+    }
+}
@@ -1,19 +1,21 @@
 package red;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
 
 import control.input.ControlJugador;
 import entidades.GestorDeEntidades;
 import entidades.enemigos.Enemigo;
 import entidades.items.ItemTipo;
 import entidades.personajes.Jugador;
+import mapa.generacion.DisposicionMapa;
 import mapa.model.Habitacion;
 
 public class RedPartidaCliente implements GameController {
@@ -44,8 +46,11 @@ public class RedPartidaCliente implements GameController {
         if (playerId <= 0) return;
         if (genero == null) genero = "MASCULINO";
         if (estilo == null) estilo = "CLASICO";
-        aparienciaPorJugador.put(playerId, new String[]{genero, estilo});
-        aparienciaAplicada.put(playerId, false);
+        AparienciaEv ev = aparienciasPendientes.reservar();
+        if (ev != null) {
+            ev.set(playerId, genero, estilo);
+            aparienciasPendientes.publicar();
+        }
         System.out.println("[NET] Appearance recv id=" + playerId + " " + genero + " " + estilo);
     }
 
@@ -57,18 +62,22 @@ public class RedPartidaCliente implements GameController {
     @Override
     public void despawnEnemy(int enemyId) {
         if (!modoOnline) return;
-        synchronized (lockEnemies) {
-            despawnEnemiesPendientes.addLast(enemyId);
-            while (despawnEnemiesPendientes.size() > 50) despawnEnemiesPendientes.pollFirst();
-        }
+        // Los updates que queden de este id ya no sirven (y el slot queda para otro)
+        estadoEnemigos.olvidar(enemyId);
+
+        EnemigoEv ev = enemigosPendientes.reservar();
+        if (ev == null) return;
+        ev.despawn(enemyId);
+        enemigosPendientes.publicar();
     }
 
     @Override
     public void despawnItem(int itemId) {
         if (!modoOnline) return;
-        synchronized (lockItems) {
-            despawnItemsPendientes.addLast(itemId);
-        }
+        IdEv ev = despawnItemsPendientes.reservar();
+        if (ev == null) return;
+        ev.id = itemId;
+        despawnItemsPendientes.publicar();
     }
 
     @Override
@@ -89,21 +98,55 @@ public class RedPartidaCliente implements GameController {
 
     @Override
     public void hud(int playerId, int vida, int vidaMax, String tiposCsv) {
+        // Hud viejo (CSV de nombres): se pasa a conteos acá, no en el hilo render
+        if (tiposCsv == null) {
+            hud(playerId, vida, vidaMax, -1, null);
+            return;
+        }
+        InventarioCompacto.desdeCsv(tiposCsv, conteosCsv);
+        hud(playerId, vida, vidaMax, -1, conteosCsv);
+    }
+
+    /** conteos null = solo vida. versionInventario -1 = sin versión (se aplica siempre, igual es un diff). */
+    @Override
+    public void hud(int playerId, int vida, int vidaMax, int versionInventario, int[] conteos) {
         if (!modoOnline) return;
-        synchronized (lockHud) {
-            hudPendiente.addLast(new HudEv(playerId, vida, vidaMax, tiposCsv));
-            // Mantener cola acotada
-            while (hudPendiente.size() > 20) hudPendiente.pollFirst();
+
+        // Misma versión que la última publicada: el inventario no cambió, solo viaja la vida
+        boolean conInventario = conteos != null
+            && (versionInventario < 0 || versionInventario != versionesInventario.get(playerId, -1));
+
+        // El estado entero del jugador (vida + último inventario) pisa al anterior en la tabla:
+        // si el render se atrasa gana el Hud más nuevo, y un Hud de solo vida no borra un
+        // inventario que todavía no se aplicó. extra = cuántas veces cambió el inventario.
+        int[] estado = hudPorJugador.get(playerId);
+        if (estado == null) {
+            estado = new int[HUD_ENTEROS];
+            hudPorJugador.put(playerId, estado);
+        }
+        estado[HUD_VIDA] = vida;
+        estado[HUD_VIDA_MAX] = vidaMax;
+
+        int cambiosInventario = cambiosInventarioRed.get(playerId, 0);
+        if (conInventario) {
+            System.arraycopy(conteos, 0, estado, HUD_CONTEOS, Math.min(conteos.length, InventarioCompacto.TIPOS));
+            cambiosInventario++;
+            cambiosInventarioRed.put(playerId, cambiosInventario);
         }
+
+        // tabla llena: queda contado en getDesbordes()
+        hudPendiente.escribir(playerId, 0f, 0f, System.currentTimeMillis(), -1L, cambiosInventario, estado);
+
+        if (conInventario && versionInventario >= 0) versionesInventario.put(playerId, versionInventario);
     }
 
     @Override
     public void other(int otherPlayerId, int vida, int vidaMax) {
         if (!modoOnline) return;
-        synchronized (lockOther) {
-            otherPendiente.addLast(new OtherEv(otherPlayerId, vida, vidaMax));
-            while (otherPendiente.size() > 10) otherPendiente.pollFirst();
-        }
+        // Último que llega gana: solo se muestra la vida actual
+        datosOther[0] = vida;
+        datosOther[1] = vidaMax;
+        otherPendiente.escribir(otherPlayerId, 0f, 0f, System.currentTimeMillis(), -1L, 0, datosOther);
     }
 
     @Override
@@ -115,57 +158,212 @@ public class RedPartidaCliente implements GameController {
 
     @Override
     public void start(long seed, int nivel) {
+        recibirStart(seed, nivel, false, false);
+    }
+
+    /** Start lockstep: el Start es el mismo, pero después el mundo lo simula este cliente. */
+    @Override
+    public void startLockstep(long seed, int nivel) {
+        recibirStart(seed, nivel, true, false);
+    }
+
+    /** Start rollback: lockstep sin retardo, con la entrada del otro predicha mientras no llega. */
+    @Override
+    public void startRollback(long seed, int nivel) {
+        recibirStart(seed, nivel, true, true);
+    }
+
+    private void recibirStart(long seed, int nivel, boolean lockstep, boolean rollback) {
         // ✅ TRANSICIÓN DE NIVEL: mientras el hilo render recrea World, no aplicar Box2D ni samples
         this.mundoListo = false;
 
         this.seedServidor = seed;
         this.nivelServidor = nivel;
 
-        synchronized (samplesPorJugador) {
-            samplesPorJugador.clear();
-        }
+        // las muestras son del hilo render: le pedimos que las descarte
+        limpiarSamples = true;
+        // ids de enemigos nuevos por nivel (las tablas de último estado son de este hilo)
+        estadoEnemigos.reset();
         salaPendiente = null;
 
         // ✅ nuevo nivel => HUD debe re-sincronizarse por snapshot del server
         hudSincronizado = false;
+        // (los jugadores del nivel nuevo arrancan con el inventario vacío: el próximo Hud va completo)
+        versionesInventario.clear();
 
+        this.modoLockstep = lockstep;
+        this.modoRollback = rollback;
         this.startRecibido = true;
         this.onlineArrancado = true;
 
-        // input local pausado en online
-        ControlJugador.setPausa(true);
+        // input local pausado en online (en lockstep los controles los mueven las entradas por tick)
+        ControlJugador.setPausa(!lockstep);
 
         ignorarPosFrames = 0;
         teleportFrames = 2;
 
-        Gdx.app.log(TAG, "Start recibido seed=" + seed + " nivel=" + nivel);
+        Gdx.app.log(TAG, "Start recibido seed=" + seed + " nivel=" + nivel
+            + (rollback ? " (rollback)" : lockstep ? " (lockstep)" : ""));
     }
 
     @Override
-    public void updateEnemy(int enemyId, float x, float y) {
+    public void inputs(int playerId, int desde, int ack, byte[] hex, int largoHex) {
+        if (!modoLockstep || playerId == miPlayerId) return;
+        lockstep.recibir(desde, ack, hex, largoHex);
+    }
+
+    /** Start:...:Lockstep: no hay estado del server, cada cliente corre la simulación entera. */
+    public boolean isLockstep() {
+        return modoOnline && modoLockstep;
+    }
+
+    /** Start:...:Rollback (también es isLockstep(): todo lo que no manda el server sigue igual). */
+    public boolean isRollback() {
+        return isLockstep() && modoRollback;
+    }
+
+    /** Hilo render, con el nivel del Start ya armado: arranca los ticks desde 0. */
+    public void iniciarLockstep() {
+        lockstep.reiniciar(miPlayerId, modoRollback ? 0 : SincronizadorLockstep.RETARDO);
+        rebobinados = 0;
+        ticksResimulados = 0;
+    }
+
+    /**
+    * Antes de cada tick lockstep. false = todavía falta la entrada del otro jugador para
+    * este tick (no se simula: se vuelve a intentar el próximo frame).
+    */
+    public boolean prepararTickLockstep(boolean opcionesAbiertas, boolean gameOverSolicitado) {
+        return lockstep.prepararTick(leerMascaraLocal(opcionesAbiertas, gameOverSolicitado));
+    }
+
+    private static int leerMascaraLocal(boolean opcionesAbiertas, boolean gameOverSolicitado) {
+        // Mismas teclas que el Move online; con opciones abiertas el jugador queda quieto
+        if (opcionesAbiertas || gameOverSolicitado) return 0;
+        return ControlJugador.leerTeclado(Input.Keys.W, Input.Keys.S, Input.Keys.A, Input.Keys.D);
+    }
+
+    public int getEntradaLockstep(int playerId) {
+        return lockstep.entrada(playerId);
+    }
+
+    /**
+    * Rollback: un tick más de cabeza con la entrada local de este frame. false = ya hay
+    * MAX_PREDICCION ticks sin confirmar y se espera al otro.
+    */
+    public boolean programarEntradaRollback(boolean opcionesAbiertas, boolean gameOverSolicitado) {
+        if (lockstep.getHastaLocal() - lockstep.getTick() + 1 >= SincronizadorLockstep.MAX_PREDICCION) {
+            lockstep.contarEspera();
+            return false;
+        }
+        return lockstep.programarLocal(leerMascaraLocal(opcionesAbiertas, gameOverSolicitado));
+    }
+
+    /** Rollback: el tick actual ya tiene las dos entradas y se puede simular de verdad. */
+    public boolean tickLockstepConfirmado() {
+        return lockstep.confirmado();
+    }
+
+    public int getTickLockstep() {
+        return lockstep.getTick();
+    }
+
+    public int getCabezaRollback() {
+        return lockstep.getHastaLocal();
+    }
+
+    public int getEntradaPredicha(int playerId, int tick) {
+        return lockstep.entradaPredicha(playerId, tick);
+    }
+
+    /** Para el overlay: cada vez que llegaron entradas y se volvió a predecir desde lo confirmado. */
+    public void contarRebobinado(int ticks) {
+        rebobinados++;
+        ticksResimulados += ticks;
+    }
+
+    public void avanzarTickLockstep() {
+        lockstep.avanzar();
+    }
+
+    /** Una vez por frame: las entradas sin confirmar (o el keepalive) en el lote del frame. */
+    public void enviarInputsLockstep() {
+        if (!isLockstep() || client == null) return;
+        CharSequence msg = lockstep.armarMensaje(System.currentTimeMillis());
+        if (msg != null) client.sendMessageEnFrame(msg);
+    }
+
+    /**
+    * Respuesta al Resume tras una caída. Si es el mismo nivel no se toca el World: se pide al
+    * render que saque los enemigos / ítems de red (marcas en los mismos anillos, así van antes
+    * que los spawns del resync) y se marcan las salas resueltas. Otro nivel = Start normal.
+    */
+    @Override
+    public void resync(long seed, int nivel, String sala, long salasResueltas) {
         if (!modoOnline) return;
-        synchronized (lockEnemies) {
-            updateEnemiesPendientes.addLast(new UpdateEnemyEv(enemyId, x, y));
-            while (updateEnemiesPendientes.size() > 200) updateEnemiesPendientes.pollFirst();
+        if (!onlineArrancado || seed != seedServidor || nivel != nivelServidor) {
+            Gdx.app.log(TAG, "Resync de otro nivel: se arma de cero");
+            start(seed, nivel);
+            return;
+        }
+
+        limpiarSamples = true;
+        estadoEnemigos.reset();
+        // el Hud que sigue en el lote trae el inventario completo
+        versionesInventario.clear();
+
+        EnemigoEv ev = enemigosPendientes.reservar();
+        if (ev != null) {
+            ev.despawn(TODOS);
+            enemigosPendientes.publicar();
+        }
+        SpawnItemEv item = spawnItemsPendientes.reservar();
+        if (item != null) {
+            item.set(TODOS, null, 0f, 0f);
+            spawnItemsPendientes.publicar();
         }
+
+        salasResueltasPendientes.getAndAccumulate(salasResueltas, (a, b) -> a | b);
+        if (sala != null) updateRoom(sala);
+        Gdx.app.log(TAG, "Resync seed=" + seed + " nivel=" + nivel + " sala=" + sala);
+    }
+
+    @Override
+    public void reconexion(boolean enCurso) {
+        reconectando = enCurso;
+        Gdx.app.log(TAG, enCurso ? "Conexión perdida, reconectando..." : "Reconexión terminada");
+    }
+
+    /** true mientras ClientThread reintenta la sesión (el HUD se muestra sin sincronizar). */
+    public boolean isReconectando() {
+        return reconectando;
+    }
+
+    @Override
+    public void updateEnemy(int enemyId, float x, float y) {
+        updateEnemy(enemyId, x, y, -1L);
+    }
+
+    @Override
+    public void updateEnemy(int enemyId, float x, float y, long serverTimeMs) {
+        if (!modoOnline) return;
+        // Último que escribe gana: si el render se atrasa, solo aplica el más nuevo de cada enemigo
+        estadoEnemigos.escribir(enemyId, x, y, System.currentTimeMillis(), serverTimeMs, -1);
     }
 
     @Override
     public void updatePlayerPosition(int playerId, float x, float y) {
+        updatePlayerPosition(playerId, x, y, -1L, -1);
+    }
+
+    @Override
+    public void updatePlayerPosition(int playerId, float x, float y, long serverTimeMs, int inputAck) {
         if (!modoOnline) return;
         if (!mundoListo) return; // durante transición de nivel, ignoramos posiciones para evitar crash nativo
 
-        final long nowMs = System.currentTimeMillis();
-        synchronized (samplesPorJugador) {
-            Deque<Sample> q = samplesPorJugador.computeIfAbsent(playerId, k -> new ArrayDeque<>());
-            // Asegura orden no-decreciente por si el reloj cambiara levemente
-            if (!q.isEmpty() && nowMs < q.peekLast().tMs) {
-                q.addLast(new Sample(x, y, q.peekLast().tMs));
-            } else {
-                q.addLast(new Sample(x, y, nowMs));
-            }
-            while (q.size() > MAX_SAMPLES_PER_PLAYER) q.pollFirst();
-        }
+        // Se estampa la hora de llegada acá; el hilo render arma el buffer de interpolación
+        // con la más nueva de cada jugador por frame (inputAck incluido)
+        posicionesJugadores.escribir(playerId, x, y, System.currentTimeMillis(), serverTimeMs, inputAck);
     }
 
     @Override
@@ -174,8 +372,16 @@ public class RedPartidaCliente implements GameController {
         teleportFrames = 2;
     }
 
+    @Override
+    public void updateRoom(String destino, String direccion, int playerId) {
+        // Partida solo usa la sala destino: el nombre del enum, sin armar un String por mensaje
+        updateRoom(destino);
+    }
+
     public boolean isHudSincronizado() {
-        return hudSincronizado;
+        // Lockstep: el HUD sale de la simulación local
+        if (modoLockstep) return true;
+        return hudSincronizado && !reconectando;
     }
 
     public int consumirGameOverLoserId() {
@@ -202,28 +408,83 @@ public class RedPartidaCliente implements GameController {
     public void aplicarEventosEnemigos(GestorDeEntidades gestorEntidades) {
         if (!modoOnline || !mundoListo || gestorEntidades == null) return;
 
-        synchronized (lockEnemies) {
-            while (!spawnEnemiesPendientes.isEmpty()) {
-                SpawnEnemyEv ev = spawnEnemiesPendientes.pollFirst();
-                if (ev == null) continue;
+        final long nowMs = System.currentTimeMillis();
 
+        // Spawns y despawns en el orden en que llegaron (un id puede morir y volver a usarse)
+        EnemigoEv ev;
+        while ((ev = enemigosPendientes.leer()) != null) {
+            if (!ev.spawn && ev.enemyId == TODOS) {
+                // Resync: el server vuelve a mandar los vivos a continuación
+                gestorEntidades.despawnEnemigosOnline();
+                for (BufferMuestras q : muestrasEnemigos.values()) buffersEnemigoLibres.add(q);
+                muestrasEnemigos.clear();
+            } else if (ev.spawn) {
                 Habitacion sala = null;
                 try { sala = Habitacion.valueOf(ev.sala); } catch (Exception ignored) {}
                 gestorEntidades.spawnEnemyOnline(ev.enemyId, ev.nombre, sala, ev.x, ev.y);
-            }
 
-            while (!updateEnemiesPendientes.isEmpty()) {
-                UpdateEnemyEv ev = updateEnemiesPendientes.pollFirst();
-                if (ev == null) continue;
-                gestorEntidades.updateEnemyOnline(ev.enemyId, ev.x, ev.y);
-            }
+                // buffer de interpolación arrancando en la posición de spawn
+                BufferMuestras q = bufferEnemigo(ev.enemyId);
+                q.limpiar();
+                q.agregar(ev.x, ev.y, tiempoMuestra(nowMs, -1L));
+            } else {
+                gestorEntidades.despawnEnemyOnline(ev.enemyId);
 
-            while (!despawnEnemiesPendientes.isEmpty()) {
-                Integer id = despawnEnemiesPendientes.pollFirst();
-                if (id == null) continue;
-                gestorEntidades.despawnEnemyOnline(id);
+                BufferMuestras q = muestrasEnemigos.remove(ev.enemyId);
+                if (q != null) buffersEnemigoLibres.add(q);
             }
+            enemigosPendientes.liberar();
+        }
+
+        // Los updates no mueven el body directo: van al buffer y se interpola abajo.
+        // Uno por enemigo como mucho (el más nuevo), no importa cuántos llegaron desde el frame anterior.
+        final int slots = estadoEnemigos.slots();
+        for (int i = 0; i < slots; i++) {
+            if (!estadoEnemigos.leer(i, muestraRed)) continue;
+            // Sin spawn aplicado (se perdió o ya murió): no se arma un buffer huérfano
+            BufferMuestras q = muestrasEnemigos.get(muestraRed.id);
+            if (q == null) continue;
+
+            long t = tiempoMuestra(muestraRed.tMs, muestraRed.serverMs);
+            // Llegó desordenado: ya tenemos algo más nuevo de este enemigo
+            if (q.isEmpty() || t >= q.t(q.size() - 1)) q.agregar(muestraRed.x, muestraRed.y, t);
+        }
+
+        aplicarInterpoladoEnemigos(gestorEntidades, tiempoRender(nowMs));
+    }
+
+    private BufferMuestras bufferEnemigo(int enemyId) {
+        BufferMuestras q = muestrasEnemigos.get(enemyId);
+        if (q == null) {
+            q = (buffersEnemigoLibres.size > 0) ? buffersEnemigoLibres.pop() : new BufferMuestras(MAX_SAMPLES_PER_ENEMY);
+            q.limpiar();
+            muestrasEnemigos.put(enemyId, q);
         }
+        return q;
+    }
+
+    /** Mueve cada enemigo online a su posición interpolada (con extrapolación acotada si hay atraso). */
+    private void aplicarInterpoladoEnemigos(GestorDeEntidades gestorEntidades, long renderTimeMs) {
+        for (IntMap.Entry<BufferMuestras> e : muestrasEnemigos.entries()) {
+            BufferMuestras q = e.value;
+            if (q.isEmpty()) continue;
+
+            q.descartarAnterioresA(renderTimeMs - 1000, 2);
+            if (!q.interpolar(renderTimeMs, interpolado, MAX_EXTRAPOLACION_ENEMIGO_MS)) continue;
+
+            gestorEntidades.updateEnemyOnline(e.key, interpolado[0], interpolado[1]);
+        }
+    }
+
+    /** Tiempo de render en el mismo dominio que las muestras (server o llegada local). */
+    private long tiempoRender(long nowMs) {
+        return usandoRelojServer ? jitter.tiempoRender(nowMs) : nowMs - INTERP_DELAY_MS;
+    }
+
+    /** Tiempo de una muestra: el del server si vino, si no la llegada (convertida si usamos reloj de server). */
+    private long tiempoMuestra(long llegadaMs, long serverMs) {
+        if (!usandoRelojServer) return llegadaMs;
+        return (serverMs >= 0) ? serverMs : jitter.serverAhora(llegadaMs);
     }
 
     public void aplicarUpdatesPendientes(Jugador jugador1, Jugador jugador2) {
@@ -236,14 +497,25 @@ public class RedPartidaCliente implements GameController {
             motivoDisconnect = null;
         }
 
+        // Lockstep: vida, inventario y posiciones salen de la simulación local
+        if (modoLockstep) return;
+
         // ✅ HUD/inventario server-driven: aplicar antes del render.
         aplicarHudPendiente(jugador1, jugador2);
 
         // ✅ MVP: estado del otro jugador (solo vida)
         aplicarOtherPendiente();
 
+        Jugador jugadorLocal = (miPlayerId == 1) ? jugador1 : (miPlayerId == 2) ? jugador2 : null;
+        if (jugadorLocal != null) {
+            prediccion.actualizarJugador(jugadorLocal.getVelocidad(), jugadorLocal.puedeMoverse());
+        }
+
+        drenarPosiciones();
+
         final long nowMs = System.currentTimeMillis();
-        final long renderTimeMs = nowMs - INTERP_DELAY_MS;
+        // Con tiempo de server: delay adaptativo según jitter medido. Sin él: delay fijo de siempre.
+        final long renderTimeMs = tiempoRender(nowMs);
 
         // Si venimos de un cambio de sala, preferimos "snap" a la última muestra
         final boolean snap = (teleportFrames > 0);
@@ -251,8 +523,11 @@ public class RedPartidaCliente implements GameController {
 
         // Aplicamos interpolación SOLO visual: movemos los cuerpos al punto interpolado
         // (en online, el cliente no debería depender de la física local para gameplay).
-        aplicarInterpoladoParaJugador(1, jugador1, renderTimeMs, snap);
-        aplicarInterpoladoParaJugador(2, jugador2, renderTimeMs, snap);
+        // El jugador local, si ya hay predicción, se dibuja donde predice (sin esperar al server)
+        boolean predecir = prediccion.isActiva() && jugadorLocal != null;
+        if (!predecir || miPlayerId != 1) aplicarInterpoladoParaJugador(1, jugador1, renderTimeMs, snap);
+        if (!predecir || miPlayerId != 2) aplicarInterpoladoParaJugador(2, jugador2, renderTimeMs, snap);
+        if (predecir) aplicarPrediccion(jugadorLocal);
     }
 
     public void damage(int playerId, int vida, int vidaMax) {
@@ -262,14 +537,15 @@ public class RedPartidaCliente implements GameController {
         // - Si es mi jugador => va a Hud (porque ese HUD se renderiza)
         // - Si es el otro => va a Other (porque se muestra como UI secundaria)
         if (miPlayerId > 0 && playerId == miPlayerId) {
-            hud(playerId, vida, vidaMax, "");
+            // null => solo vida, el inventario queda como está
+            hud(playerId, vida, vidaMax, -1, null);
         } else {
             other(playerId, vida, vidaMax);
         }
     }
 
     public void enviarInputOnline(boolean opcionesAbiertas, boolean gameOverSolicitado) {
-        if (!modoOnline || !onlineArrancado || client == null) return;
+        if (!modoOnline || !onlineArrancado || client == null || modoLockstep) return;
         if (opcionesAbiertas || gameOverSolicitado) return;
 
         int dx = 0, dy = 0;
@@ -279,21 +555,66 @@ public class RedPartidaCliente implements GameController {
         if (Gdx.input.isKeyPressed(Input.Keys.A)) dx -= 1;
         if (Gdx.input.isKeyPressed(Input.Keys.D)) dx += 1;
 
-        client.sendMessage("Move:" + dx + ":" + dy);
+        // ✅ Predicción local: el input se aplica ya y se numera para reconciliar con el server
+        float dt = Math.min(Gdx.graphics.getDeltaTime(), 1f / 30f);
+        int seq = prediccion.registrarInput(dx, dy, dt);
+        framesInput++;
+
+        // El server mantiene el último input hasta el próximo Move: solo se manda si cambió
+        // (y se repite MOVE_REDUNDANCIA frames por si se pierde), a ritmo de tick mientras
+        // se mueve (así el inputAck no se atrasa) y como keepalive quieto. Los frames quietos
+        // sin confirmar no desplazan nada al re-simular, por eso ahí alcanza con poco.
+        long ahora = System.currentTimeMillis();
+        boolean cambio = dx != ultimoMoveDx || dy != ultimoMoveDy;
+        if (cambio) {
+            ultimoMoveDx = dx;
+            ultimoMoveDy = dy;
+            repeticionesMove = MOVE_REDUNDANCIA + 1;
+        }
+        long intervalo = (dx != 0 || dy != 0) ? MOVE_EN_MOVIMIENTO_MS : MOVE_KEEPALIVE_MS;
+        if (repeticionesMove == 0 && ahora - ultimoMoveMs < intervalo) return;
+        if (repeticionesMove > 0) repeticionesMove--;
+        ultimoMoveMs = ahora;
+        movesEnviados++;
+
+        if (client.isBinario()) {
+            ProtocoloBinario.move(salida, dx, dy, seq);
+            client.sendBytesEnFrame(salida.datos(), salida.largo());
+        } else {
+            client.sendMessageEnFrame("Move:" + dx + ":" + dy + ":" + seq);
+        }
+    }
+
+    /** Fin del frame: todo lo que se mandó en este frame sale junto (ver ClientThread.flushFrame). */
+    public void flushSalida() {
+        if (client != null) client.flushFrame();
+    }
+
+    /** Los pedidos (RoomClearReq / NextLevelReq) son idempotentes: repetidos al toque no se mandan. */
+    private boolean pedidoRepetido(String pedido) {
+        long ahora = System.currentTimeMillis();
+        if (pedido.equals(ultimoPedido) && ahora - ultimoPedidoMs < PEDIDO_REPETIDO_MS) return true;
+        ultimoPedido = pedido;
+        ultimoPedidoMs = ahora;
+        return false;
     }
 
     public void enviarNextLevelRequest() {
         // Fallback: si el cliente cree que tocó la trampilla, le pide al server el cambio de nivel.
         // El server valida si corresponde (autoridad).
         if (!modoOnline || !onlineArrancado || client == null) return;
-        client.sendMessage("NextLevelReq");
+        if (pedidoRepetido("NextLevelReq")) return;
+        if (client.isBinario()) {
+            ProtocoloBinario.nextLevelReq(salida);
+            client.sendConfiable(salida.datos(), salida.largo());
+        } else {
+            client.sendMessageEnFrame("NextLevelReq");
+        }
     }
 
     public void onCambioSalaAplicado() {
         // Limpiamos buffer para no interpolar entre salas distintas
-        synchronized (samplesPorJugador) {
-            samplesPorJugador.clear();
-        }
+        limpiarSamplesRender();
         teleportFrames = 2;
     }
 
@@ -311,14 +632,6 @@ public class RedPartidaCliente implements GameController {
         if (!online) limpiarEstadoOnline();
     }
 
-    private final Object lockEnemies = new Object();
-
-    private final Object lockHud = new Object();
-
-    private final Object lockItems = new Object();
-
-    private final Object lockOther = new Object();
-
     private void aplicarAparienciaSiHaceFalta(Jugador j) {
         int id = j.getId();
         String[] ap = aparienciaPorJugador.get(id);
@@ -340,30 +653,35 @@ public class RedPartidaCliente implements GameController {
     }
 
     private void aplicarHudPendiente(Jugador jugador1, Jugador jugador2) {
-        synchronized (lockHud) {
-            while (!hudPendiente.isEmpty()) {
-                HudEv ev = hudPendiente.pollFirst();
-                if (ev == null) continue;
-
-                // ✅ Cada cliente muestra SU HUD. Ignoramos HUD del otro jugador.
-                if (miPlayerId > 0 && ev.playerId != miPlayerId) {
-                    continue;
-                }
+        // Un Hud por jugador y por frame: el más nuevo (los intermedios ya se pisaron)
+        final int slots = hudPendiente.slots();
+        for (int i = 0; i < slots; i++) {
+            if (!hudPendiente.leer(i, muestraHud)) continue;
+            final TablaUltimoEstado.Muestra ev = muestraHud;
+
+            // ✅ Cada cliente muestra SU HUD. Ignoramos HUD del otro jugador.
+            if (miPlayerId > 0 && ev.id != miPlayerId) {
+                continue;
+            }
 
-                Jugador j = (ev.playerId == 1) ? jugador1 : (ev.playerId == 2) ? jugador2 : null;
-                if (j == null) continue;
+            Jugador j = (ev.id == 1) ? jugador1 : (ev.id == 2) ? jugador2 : null;
+            if (j == null) continue;
 
-                // Vida
-                j.setVidaMaxima(ev.vidaMax);
-                j.setVida(ev.vida);
+            // Vida
+            j.setVidaMaxima(ev.datos[HUD_VIDA_MAX]);
+            j.setVida(ev.datos[HUD_VIDA]);
 
-                // Inventario: lista de ItemTipo separada por ',' (puede venir vacía)
-                j.setInventarioRemoto(ev.tiposCsv);
+            // Inventario: cantidad por ItemTipo; solo se tocan los ítems que cambiaron.
+            // Mismo contador de cambios => desde el último aplicado solo llegó vida (Damage / misma versión)
+            if (ev.extra != inventarioAplicado.get(ev.id, 0)) {
+                System.arraycopy(ev.datos, HUD_CONTEOS, conteosRender, 0, InventarioCompacto.TIPOS);
+                j.setInventarioRemoto(conteosRender);
+                inventarioAplicado.put(ev.id, ev.extra);
+            }
 
-                // ✅ Primer snapshot aplicado => HUD sincronizado
-                if (miPlayerId > 0 && ev.playerId == miPlayerId) {
-                    hudSincronizado = true;
-                }
+            // ✅ Primer snapshot aplicado => HUD sincronizado
+            if (miPlayerId > 0 && ev.id == miPlayerId) {
+                hudSincronizado = true;
             }
         }
     }
@@ -373,83 +691,216 @@ public class RedPartidaCliente implements GameController {
         Body b = jugador.getCuerpoFisico();
         if (b == null) return;
 
-        Sample a = null;
-        Sample c = null;
+        // Buffer propio del hilo render: no hace falta lock
+        BufferMuestras q = samplesPorJugador.get(id);
+        if (q == null || q.isEmpty()) return;
 
-        synchronized (samplesPorJugador) {
-            Deque<Sample> q = samplesPorJugador.get(id);
-            if (q == null || q.isEmpty()) return;
+        // En modo "snap" nos quedamos con la última muestra y limpiamos el resto.
+        if (snap) {
+            q.dejarSoloUltima();
+            return;
+        }
 
-            // En modo "snap" tomamos la última muestra y limpiamos el resto.
-            if (snap) {
-                Sample last = q.peekLast();
-                q.clear();
-                q.addLast(last);
-                a = last;
-            } else {
-                // Descarta muestras demasiado viejas (para mantener cola chica y evitar interpolar con basura)
-                while (q.size() > 2 && q.peekFirst().tMs < renderTimeMs - 1000) {
-                    q.pollFirst();
-                }
+        // Descarta muestras demasiado viejas (para mantener cola chica y evitar interpolar con basura)
+        q.descartarAnterioresA(renderTimeMs - 1000, 2);
 
-                // Queremos dos muestras que enmarquen renderTimeMs.
-                // Como llegan ordenadas por tiempo de llegada, recorremos desde el inicio.
-                Sample prev = null;
-                for (Sample s : q) {
-                    if (s.tMs <= renderTimeMs) prev = s;
-                    if (s.tMs >= renderTimeMs) {
-                        c = s;
-                        break;
-                    }
-                }
+        if (!q.interpolar(renderTimeMs, interpolado)) return;
 
-                if (prev == null) {
-                    // Todavía no tenemos una muestra <= renderTime, usamos la primera disponible
-                    a = q.peekFirst();
-                } else {
-                    a = prev;
-                }
+        float x = interpolado[0];
+        float y = interpolado[1];
 
-                if (c == null) {
-                    // No hay muestra futura, usamos la última (extrapolación cero)
-                    c = q.peekLast();
+        b.setTransform(x, y, b.getAngle());
+        b.setLinearVelocity(0f, 0f);
+        b.setAwake(true);
+    }
+
+    /** Pasa las posiciones recibidas al buffer de interpolación (hilo render). */
+    private void drenarPosiciones() {
+        if (limpiarSamples) {
+            limpiarSamples = false;
+            limpiarSamplesRender();
+            reiniciarReloj();
+            return;
+        }
+
+        // Una muestra por jugador y por frame: la más nueva (las intermedias ya se pisaron)
+        final int slots = posicionesJugadores.slots();
+        for (int i = 0; i < slots; i++) {
+            if (!posicionesJugadores.leer(i, muestraRed)) continue;
+            final TablaUltimoEstado.Muestra ev = muestraRed;
+            final int inputAck = ev.extra;
+
+            if (ev.serverMs >= 0) {
+                jitter.registrar(ev.serverMs, ev.tMs);
+
+                // Pasamos de reloj local a reloj del server: las muestras viejas no sirven
+                if (!usandoRelojServer) {
+                    usandoRelojServer = true;
+                    for (BufferMuestras q : samplesPorJugador.values()) q.limpiar();
+                    for (BufferMuestras q : muestrasEnemigos.values()) q.limpiar();
                 }
             }
-        }
 
-        // Si solo tenemos una muestra útil
-        if (a == null || c == null) return;
+            BufferMuestras q = samplesPorJugador.get(ev.id);
+            if (q == null) {
+                q = new BufferMuestras(MAX_SAMPLES_PER_PLAYER);
+                samplesPorJugador.put(ev.id, q);
+            }
 
-        float x;
-        float y;
+            if (!usandoRelojServer) {
+                q.agregar(ev.x, ev.y, ev.tMs);
+            } else {
+                // Sin tiempo propio (ej: snapshot): estimamos el tiempo de server de la llegada
+                long t = tiempoMuestra(ev.tMs, ev.serverMs);
+                // Llegó desordenado: ya tenemos algo más nuevo de este jugador
+                if (q.isEmpty() || t >= q.t(q.size() - 1)) q.agregar(ev.x, ev.y, t);
+            }
 
-        if (snap || a == c || a.tMs == c.tMs) {
-            x = c.x;
-            y = c.y;
-        } else {
-            float alpha = (float) (renderTimeMs - a.tMs) / (float) (c.tMs - a.tMs);
-            if (alpha < 0f) alpha = 0f;
-            if (alpha > 1f) alpha = 1f;
-            x = a.x + (c.x - a.x) * alpha;
-            y = a.y + (c.y - a.y) * alpha;
+            // Confirmación de inputs del jugador local => reconciliar la predicción
+            if (ev.id == miPlayerId && inputAck >= 0) {
+                prediccion.reconciliar(ev.x, ev.y, inputAck);
+            }
         }
+    }
 
-        b.setTransform(x, y, b.getAngle());
+    private void aplicarPrediccion(Jugador jugador) {
+        Body b = jugador.getCuerpoFisico();
+        if (b == null) return;
+
+        prediccion.suavizar(Gdx.graphics.getDeltaTime());
+
+        b.setTransform(prediccion.getX(), prediccion.getY(), b.getAngle());
         b.setLinearVelocity(0f, 0f);
         b.setAwake(true);
     }
 
+    /** Nuevo nivel / sesión: se vuelve a medir el reloj del server desde cero. */
+    private void reiniciarReloj() {
+        jitter.reset();
+        usandoRelojServer = false;
+        prediccion.reset();
+
+        // Enemigos: ids nuevos por nivel, los buffers vuelven al pool
+        for (BufferMuestras q : muestrasEnemigos.values()) buffersEnemigoLibres.add(q);
+        muestrasEnemigos.clear();
+    }
+
+    private void limpiarSamplesRender() {
+        // los buffers se reutilizan: solo se vacían
+        for (BufferMuestras q : samplesPorJugador.values()) q.limpiar();
+        posicionesJugadores.descartarPendientes();
+    }
+
+    /** Delay de interpolación actual (adaptativo si el server manda su tiempo). */
+    public long getDelayInterpolacionMs() {
+        return jitter.activo() ? jitter.getDelayMs() : INTERP_DELAY_MS;
+    }
+
+    public long getJitterP95Ms() {
+        return jitter.getJitterP95Ms();
+    }
+
+    /**
+    * Texto para el overlay de red (F3): RTT/pérdida/tráfico del ClientThread + colas de acá.
+    * Se rearma a lo sumo cada RESUMEN_RED_MS para no generar basura por frame.
+    */
+    public String getResumenRed() {
+        long ahora = System.currentTimeMillis();
+        if (resumenRed != null && ahora - ultimoResumenRedMs < RESUMEN_RED_MS) return resumenRed;
+        ultimoResumenRedMs = ahora;
+
+        StringBuilder sb = resumenRedSb;
+        sb.setLength(0);
+
+        ClientThread c = client;
+        if (!modoOnline || c == null) {
+            sb.append("Red: offline");
+            resumenRed = sb.toString();
+            return resumenRed;
+        }
+
+        EstadisticasRed est = c.getEstadisticas();
+        est.actualizarTasas(ahora);
+        sb.append(c.isBinario() ? "Red (binario)\n" : "Red (texto)\n");
+        est.escribirResumen(sb);
+
+        sb.append("Interp ").append(getDelayInterpolacionMs()).append(" ms  jitter p95 ")
+            .append(getJitterP95Ms()).append(" ms");
+        if (prediccion.isActiva()) sb.append("  inputs sin ack ").append(prediccion.getInputsSinConfirmar());
+        sb.append('\n');
+        sb.append("Move ").append(movesEnviados).append(" en ").append(framesInput).append(" frames  repetidos ")
+            .append(c.getRepetidosEnFrame()).append('\n');
+
+        sb.append("Salida ").append(c.getColaSalidaSize()).append('/').append(c.getColaSalidaCapacidad())
+            .append(" (desc ").append(c.getSalidaDescartados()).append(")  confiables sin ack ")
+            .append(c.getConfiablesSinConfirmar()).append(" (reenv ").append(c.getReenviosConfiables()).append(")\n");
+        sb.append("Snapshots desc ").append(c.getSnapshotsDescartados())
+            .append("  updates viejos desc ").append(c.getUpdatesViejosDescartados())
+            .append("  fuera de interés ").append(c.getUpdatesFueraDeInteres())
+            .append("  reconexiones ").append(c.getReconexiones()).append('\n');
+        sb.append("Fragmentados ").append(c.getReensamblados())
+            .append(" (vencidos ").append(c.getFragmentadosVencidos()).append(")\n");
+        if (modoLockstep) {
+            sb.append(modoRollback ? "Rollback" : "Lockstep").append(" tick ").append(lockstep.getTick())
+                .append("  adelanto ").append(lockstep.getAdelantoRemoto())
+                .append("  esperas ").append(lockstep.getEsperas()).append('\n');
+        }
+        if (modoRollback) {
+            sb.append("Predichos ").append(lockstep.getHastaLocal() - lockstep.getTick() + 1)
+                .append("  rebobinados ").append(rebobinados)
+                .append(" (ticks ").append(ticksResimulados).append(")\n");
+        }
+
+        escribirTabla(sb, "hud", hudPendiente);
+        escribirTabla(sb, "other", otherPendiente);
+        escribirTabla(sb, "posiciones", posicionesJugadores);
+        escribirCola(sb, "apariencias", aparienciasPendientes);
+        escribirCola(sb, "spawn/despawnEnemy", enemigosPendientes);
+        escribirTabla(sb, "updateEnemy", estadoEnemigos);
+        escribirCola(sb, "spawnItem", spawnItemsPendientes);
+        escribirCola(sb, "despawnItem", despawnItemsPendientes);
+        escribirCola(sb, "roomClear", roomClearPendientes);
+
+        resumenRed = sb.toString();
+        return resumenRed;
+    }
+
+    private static void escribirCola(StringBuilder sb, String nombre, AnilloSpsc<?> cola) {
+        sb.append("  ").append(nombre).append(' ').append(cola.size()).append('/').append(cola.capacidad());
+        long desb = cola.getDesbordes();
+        if (desb > 0) sb.append(" (desc ").append(desb).append(')');
+        sb.append('\n');
+    }
+
+    private static void escribirTabla(StringBuilder sb, String nombre, TablaUltimoEstado tabla) {
+        sb.append("  ").append(nombre).append(' ').append(tabla.slots()).append('/').append(tabla.capacidad())
+            .append(" (pisados ").append(tabla.getCoalescidos()).append(')');
+        long desb = tabla.getDesbordes();
+        if (desb > 0) sb.append(" (desc ").append(desb).append(')');
+        sb.append('\n');
+    }
+
+    /** Eventos de red descartados por anillos / tablas llenas (suma de todos los tipos). */
+    public long getEventosDescartados() {
+        return hudPendiente.getDesbordes()
+            + otherPendiente.getDesbordes()
+            + enemigosPendientes.getDesbordes()
+            + estadoEnemigos.getDesbordes()
+            + spawnItemsPendientes.getDesbordes()
+            + despawnItemsPendientes.getDesbordes()
+            + roomClearPendientes.getDesbordes()
+            + posicionesJugadores.getDesbordes()
+            + aparienciasPendientes.getDesbordes();
+    }
+
     private void aplicarOtherPendiente() {
-        synchronized (lockOther) {
-            while (!otherPendiente.isEmpty()) {
-                OtherEv ev = otherPendiente.pollFirst();
-                if (ev == null) continue;
-
-                // guardamos para que el HUD lo muestre (no toca gameplay)
-                otherPlayerId = ev.otherId;
-                otherVida = ev.vida;
-                otherVidaMax = ev.vidaMax;
-            }
+        final int slots = otherPendiente.slots();
+        for (int i = 0; i < slots; i++) {
+            if (!otherPendiente.leer(i, muestraOther)) continue;
+            // guardamos para que el HUD lo muestre (no toca gameplay)
+            otherPlayerId = muestraOther.id;
+            otherVida = muestraOther.datos[0];
+            otherVidaMax = muestraOther.datos[1];
         }
     }
 
@@ -457,18 +908,29 @@ public class RedPartidaCliente implements GameController {
         ControlJugador.setPausa(false);
 
         onlineArrancado = false;
+        modoLockstep = false;
+        modoRollback = false;
         miPlayerId = -1;
 
+        ultimoMoveDx = Integer.MIN_VALUE;
+        ultimoMoveDy = Integer.MIN_VALUE;
+        repeticionesMove = 0;
+        ultimoPedido = null;
+
         startRecibido = false;
         seedServidor = 0L;
         nivelServidor = 1;
 
-        synchronized (samplesPorJugador) {
-            samplesPorJugador.clear();
-        }
+        limpiarSamplesRender();
+        reiniciarReloj();
 
         salaPendiente = null;
 
+        salaInteres = null;
+        disposicionInteres = null;
+        mascaraInteres = FiltroInteres.TODAS;
+        if (client != null) client.setInteres(FiltroInteres.TODAS);
+
         hudSincronizado = false;
 
         hudSincronizado = false;
@@ -479,49 +941,90 @@ public class RedPartidaCliente implements GameController {
         ignorarPosFrames = 0;
         teleportFrames = 0;
 
-        synchronized (lockItems) {
-            spawnItemsPendientes.clear();
-            despawnItemsPendientes.clear();
-        }
-
-        synchronized (lockEnemies) {
-            spawnEnemiesPendientes.clear();
-            updateEnemiesPendientes.clear();
-            despawnEnemiesPendientes.clear();
-        }
+        // Se llama desde el hilo render (consumidor): puede vaciar los anillos
+        spawnItemsPendientes.vaciar();
+        despawnItemsPendientes.vaciar();
 
-        synchronized (lockHud) {
-            hudPendiente.clear();
-        }
+        enemigosPendientes.vaciar();
+        estadoEnemigos.descartarPendientes();
 
-        synchronized (lockOther) {
-            otherPendiente.clear();
-        }
+        hudPendiente.descartarPendientes();
+        otherPendiente.descartarPendientes();
+        inventarioAplicado.clear();
+        roomClearPendientes.vaciar();
+        salasResueltasPendientes.set(0L);
+        reconectando = false;
 
         otherPlayerId = -1;
         otherVida = 0;
         otherVidaMax = 0;
     }
 
-    private final ArrayDeque<HudEv> hudPendiente = new ArrayDeque<>();
+    // ✅ Un anillo SPSC por tipo de evento: productor = hilo de red, consumidor = hilo render.
+    // Sin locks; si un anillo se llena se descarta lo nuevo y se cuenta (ver getEventosDescartados()).
+    // Hud y Other no son eventos sino el último estado de cada jugador: van en tablas (el último gana).
+    // Hud por slot: [vida, vidaMax, conteos por ItemTipo...]
+    private static final int HUD_VIDA = 0;
+    private static final int HUD_VIDA_MAX = 1;
+    private static final int HUD_CONTEOS = 2;
+    private static final int HUD_ENTEROS = HUD_CONTEOS + InventarioCompacto.TIPOS;
 
-    private final ArrayDeque<Integer> despawnEnemiesPendientes = new ArrayDeque<>();
+    private final TablaUltimoEstado hudPendiente = new TablaUltimoEstado(8, HUD_ENTEROS);
 
-    private final ArrayDeque<Integer> despawnItemsPendientes = new ArrayDeque<>();
+    // Solo hilo de red: última versión de inventario publicada por jugador, y el CSV del Hud viejo pasado a conteos
+    private final IntIntMap versionesInventario = new IntIntMap();
 
-    private final ArrayDeque<OtherEv> otherPendiente = new ArrayDeque<>();
+    // Solo hilo de red: estado completo del último Hud por jugador y cuántas veces cambió su inventario
+    private final IntMap<int[]> hudPorJugador = new IntMap<>();
 
-    private final ArrayDeque<SpawnEnemyEv> spawnEnemiesPendientes = new ArrayDeque<>();
+    private final IntIntMap cambiosInventarioRed = new IntIntMap();
 
-    private final ArrayDeque<SpawnItemEv> spawnItemsPendientes = new ArrayDeque<>();
+    private final int[] datosOther = new int[2];
 
-    private final ArrayDeque<UpdateEnemyEv> updateEnemiesPendientes = new ArrayDeque<>();
+    // Solo hilo render: contador de cambios de inventario ya aplicado por jugador
+    private final IntIntMap inventarioAplicado = new IntIntMap();
 
-    private final Deque<RoomClearEv> roomClearPendientes = new ArrayDeque<>();
+    private final int[] conteosRender = new int[InventarioCompacto.TIPOS];
 
-    private final Map<Integer, Boolean> aparienciaAplicada = new HashMap<>();
+    private final int[] conteosCsv = new int[InventarioCompacto.TIPOS];
+
+    private final AnilloSpsc<IdEv> despawnItemsPendientes = new AnilloSpsc<>(256, IdEv::new);
+
+    // Other: [vida, vidaMax] por id del otro jugador
+    private final TablaUltimoEstado otherPendiente = new TablaUltimoEstado(4, 2);
+
+    // Spawn y despawn de enemigos en el mismo anillo: se aplican en el orden en que llegaron
+    private final AnilloSpsc<EnemigoEv> enemigosPendientes = new AnilloSpsc<>(128, EnemigoEv::new);
+
+    private final AnilloSpsc<SpawnItemEv> spawnItemsPendientes = new AnilloSpsc<>(256, SpawnItemEv::new);
+
+    // Posiciones (enemigos / jugadores): no hacen cola, el último update de cada id pisa al anterior
+    private final TablaUltimoEstado estadoEnemigos = new TablaUltimoEstado(256);
+
+    private final AnilloSpsc<RoomClearEv> roomClearPendientes = new AnilloSpsc<>(16, RoomClearEv::new);
+
+    // Resync: bits (FiltroInteres.bit) de salas resueltas que el render todavía no marcó
+    private final java.util.concurrent.atomic.AtomicLong salasResueltasPendientes =
+        new java.util.concurrent.atomic.AtomicLong();
+
+    // Id de las marcas "sacar todos" en los anillos de enemigos / ítems (resync)
+    private static final int TODOS = -1;
+
+    private volatile boolean reconectando = false;
 
-    private final Object lockRoomClear = new Object();
+    private final TablaUltimoEstado posicionesJugadores = new TablaUltimoEstado(8);
+
+    // Lo que devuelven las tablas al leer (solo hilo render)
+    private final TablaUltimoEstado.Muestra muestraRed = new TablaUltimoEstado.Muestra();
+
+    private final TablaUltimoEstado.Muestra muestraHud = new TablaUltimoEstado.Muestra(HUD_ENTEROS);
+
+    private final TablaUltimoEstado.Muestra muestraOther = new TablaUltimoEstado.Muestra(2);
+
+    private final AnilloSpsc<AparienciaEv> aparienciasPendientes = new AnilloSpsc<>(16, AparienciaEv::new);
+
+    // Solo hilo render
+    private final Map<Integer, Boolean> aparienciaAplicada = new HashMap<>();
 
     /**
     * Aplica eventos de enemigos recibidos por red.
@@ -532,14 +1035,23 @@ public class RedPartidaCliente implements GameController {
     juego.sistemas.SistemaSpritesEntidades sprites,
     mapa.model.Habitacion salaActual) {
         if (!modoOnline) return;
-        RoomClearEv ev = null;
-        synchronized (lockRoomClear) {
-            if (!roomClearPendientes.isEmpty()) ev = roomClearPendientes.pollFirst();
+
+        // Resync: todas las salas que el server ya tenía resueltas, de una
+        long resueltas = salasResueltasPendientes.getAndSet(0L);
+        if (resueltas != 0L && controlPuzzle != null) {
+            for (mapa.model.Habitacion h : mapa.model.Habitacion.values()) {
+                if (FiltroInteres.contiene(resueltas, h)) controlPuzzle.marcarResuelta(h);
+            }
         }
+
+        RoomClearEv ev = roomClearPendientes.leer();
         if (ev == null) return;
+        String nombreSala = ev.sala;
+        roomClearPendientes.liberar();
+        if (nombreSala == null) return;
 
         mapa.model.Habitacion sala = null;
-        try { sala = mapa.model.Habitacion.valueOf(ev.sala); } catch (Exception ignored) {}
+        try { sala = mapa.model.Habitacion.valueOf(nombreSala); } catch (Exception ignored) {}
         if (sala == null) return;
 
         // ✅ Marca resuelta (desbloquea puertas visuales y persiste estado)
@@ -556,23 +1068,23 @@ public class RedPartidaCliente implements GameController {
     public void aplicarEventosItems(GestorDeEntidades gestorEntidades) {
         if (!modoOnline || !mundoListo || gestorEntidades == null) return;
 
-        synchronized (lockItems) {
-            while (!spawnItemsPendientes.isEmpty()) {
-                SpawnItemEv ev = spawnItemsPendientes.pollFirst();
-                if (ev == null) continue;
-
-                ItemTipo tipo = null;
-                try { tipo = ItemTipo.valueOf(ev.tipo); } catch (Exception ignored) {}
-                if (tipo == null) continue;
-
-                gestorEntidades.spawnItemOnline(ev.itemId, tipo, ev.x, ev.y);
+        SpawnItemEv spawn;
+        while ((spawn = spawnItemsPendientes.leer()) != null) {
+            if (spawn.itemId == TODOS && spawn.tipo == null) {
+                gestorEntidades.despawnItemsOnline();
+                spawnItemsPendientes.liberar();
+                continue;
             }
+            ItemTipo tipo = null;
+            try { tipo = ItemTipo.valueOf(spawn.tipo); } catch (Exception ignored) {}
+            if (tipo != null) gestorEntidades.spawnItemOnline(spawn.itemId, tipo, spawn.x, spawn.y);
+            spawnItemsPendientes.liberar();
+        }
 
-            while (!despawnItemsPendientes.isEmpty()) {
-                Integer id = despawnItemsPendientes.pollFirst();
-                if (id == null) continue;
-                gestorEntidades.despawnItemOnline(id);
-            }
+        IdEv despawn;
+        while ((despawn = despawnItemsPendientes.leer()) != null) {
+            gestorEntidades.despawnItemOnline(despawn.id);
+            despawnItemsPendientes.liberar();
         }
     }
 
@@ -587,6 +1099,13 @@ public class RedPartidaCliente implements GameController {
     /** Pide al server un snapshot completo de HUD/Inventario (usar cuando el mundo ya está listo). */
     public void enviarReadyOnline() {
         if (!modoOnline || client == null) return;
+        // desde acá el server manda estado seguido: un silencio largo ya es una caída
+        client.marcarEnPartida();
+        if (client.isBinario()) {
+            ProtocoloBinario.ready(salida, miPlayerId);
+            client.sendConfiable(salida.datos(), salida.largo());
+            return;
+        }
         // Ready:playerId (playerId opcional, lo mando para debug)
         if (miPlayerId > 0) client.sendMessage("Ready:" + miPlayerId);
         else client.sendMessage("Ready");
@@ -608,19 +1127,47 @@ public class RedPartidaCliente implements GameController {
 
     // ===== Sala despejada server-driven =====
     private static class RoomClearEv {
-        final String sala;
-        RoomClearEv(String sala) { this.sala = sala; }
+        String sala;
     }
 
     // ===== Sala pendiente =====
     private volatile String salaPendiente = null;
 
+    // ===== Interés (solo hilo render) =====
+    // La actual + las vecinas: al cruzar una puerta los enemigos del otro lado ya están al día
+    private static final boolean INTERES_CON_VECINAS = true;
+
+    private static final long REENVIO_INTERES_MS = 2000;
+
+    private static final Habitacion[] HABITACIONES = Habitacion.values();
+
+    private Habitacion salaInteres = null;
+
+    private DisposicionMapa disposicionInteres = null;
+
+    private long mascaraInteres = FiltroInteres.TODAS;
+
+    private long ultimoInteresMs = 0L;
+
     // ===== Snapshots para interpolación (cliente visual) =====
     private static final int MAX_SAMPLES_PER_PLAYER = 10;
 
     // ===== Start/seed/nivel =====
     private volatile boolean startRecibido = false;
 
+    // El último Start fue lockstep (ver SincronizadorLockstep)
+    private volatile boolean modoLockstep = false;
+
+    // El último Start fue rollback (lockstep + predicción, ver PrediccionRollback)
+    private volatile boolean modoRollback = false;
+
+    private final SincronizadorLockstep lockstep = new SincronizadorLockstep();
+
+    // Overlay rollback (hilo render)
+    private long rebobinados = 0;
+
+    private long ticksResimulados = 0;
+
     // ===== Ventanas anti-glitch =====
     private volatile int ignorarPosFrames = 0; // (lo dejé, aunque hoy no lo uses)
     private volatile int teleportFrames = 0;
@@ -628,12 +1175,20 @@ public class RedPartidaCliente implements GameController {
     // Apariencia que el jugador eligió en el menú (para aplicar localmente al conectarse)
     private String miGeneroDeseado = "MASCULINO";
 
-    // Apariencia recibida del servidor (playerId -> [genero, estilo])
+    // Apariencia recibida del servidor (playerId -> [genero, estilo]). Solo hilo render:
+    // el hilo de red la manda por aparienciasPendientes.
     private final Map<Integer, String[]> aparienciaPorJugador = new HashMap<>();
 
     // Aplicación de updates
 
     private void aplicarAparienciasSiHaceFalta(Jugador jugador1, Jugador jugador2) {
+        AparienciaEv ev;
+        while ((ev = aparienciasPendientes.leer()) != null) {
+            aparienciaPorJugador.put(ev.playerId, new String[]{ev.genero, ev.estilo});
+            aparienciaAplicada.put(ev.playerId, false);
+            aparienciasPendientes.liberar();
+        }
+
         if (jugador1 != null) aplicarAparienciaSiHaceFalta(jugador1);
         if (jugador2 != null) aplicarAparienciaSiHaceFalta(jugador2);
     }
@@ -652,25 +1207,34 @@ public class RedPartidaCliente implements GameController {
     @Override
     public void roomClear(String sala) {
         if (sala == null || sala.isBlank()) return;
-        synchronized (lockRoomClear) {
-            roomClearPendientes.addLast(new RoomClearEv(sala.trim()));
-        }
+        RoomClearEv ev = roomClearPendientes.reservar();
+        if (ev == null) return;
+        ev.sala = sala.trim();
+        roomClearPendientes.publicar();
     }
 
-    // Enemigos (server-driven)
-    private static final class SpawnEnemyEv {
-        final int enemyId;
-        final String nombre;
-        final float x;
-        final float y;
-        final String sala;
-        SpawnEnemyEv(int enemyId, String nombre, float x, float y, String sala) {
+    // Enemigos (server-driven): spawn o despawn (solo enemyId)
+    private static final class EnemigoEv {
+        boolean spawn;
+        int enemyId;
+        String nombre;
+        float x;
+        float y;
+        String sala;
+        void spawn(int enemyId, String nombre, float x, float y, String sala) {
+            this.spawn = true;
             this.enemyId = enemyId;
             this.nombre = nombre;
             this.x = x;
             this.y = y;
             this.sala = sala;
         }
+        void despawn(int enemyId) {
+            this.spawn = false;
+            this.enemyId = enemyId;
+            this.nombre = null;
+            this.sala = null;
+        }
     }
 
     // Enemigos callbacks (desde ClientThread)
@@ -678,17 +1242,72 @@ public class RedPartidaCliente implements GameController {
     @Override
     public void spawnEnemy(int enemyId, String nombre, float x, float y, String sala) {
         if (!modoOnline) return;
-        synchronized (lockEnemies) {
-            spawnEnemiesPendientes.addLast(new SpawnEnemyEv(enemyId, nombre, x, y, sala));
-            while (spawnEnemiesPendientes.size() > 50) spawnEnemiesPendientes.pollFirst();
-        }
+        EnemigoEv ev = enemigosPendientes.reservar();
+        if (ev == null) return;
+        ev.spawn(enemyId, nombre, x, y, sala);
+        enemigosPendientes.publicar();
     }
 
     // Envíos al server
 
     public void enviarRoomClearReq(mapa.model.Habitacion sala) {
         if (!modoOnline || !onlineArrancado || client == null || sala == null) return;
-        client.sendMessage("RoomClearReq:" + sala.name());
+        String pedido = "RoomClearReq:" + sala.name();
+        if (pedidoRepetido(pedido)) return;
+        if (client.isBinario()) {
+            ProtocoloBinario.roomClearReq(salida, sala);
+            client.sendConfiable(salida.datos(), salida.largo());
+        } else {
+            client.sendMessageEnFrame(pedido);
+        }
+    }
+
+    /**
+    * Declara al server (y al filtro del ClientThread) las salas de las que queremos updates
+    * de entidades: la actual y, con INTERES_CON_VECINAS, las conectadas por puertas válidas.
+    * Se llama por frame: solo manda cuando cambia la sala / el nivel, y cada tanto repite
+    * (UDP: si se pierde, el server sigue mandando todo y el cliente lo corta igual).
+    */
+    public void declararInteres(Habitacion sala, DisposicionMapa disposicion) {
+        // Lockstep: el server no manda entidades, no hay nada que filtrar
+        if (!modoOnline || !onlineArrancado || client == null || sala == null || modoLockstep) return;
+
+        long ahora = System.currentTimeMillis();
+        if (sala != salaInteres || disposicion != disposicionInteres) {
+            salaInteres = sala;
+            disposicionInteres = disposicion;
+            mascaraInteres = calcularMascaraInteres(sala, disposicion);
+            client.setInteres(mascaraInteres);
+        } else if (ahora - ultimoInteresMs < REENVIO_INTERES_MS) {
+            return;
+        }
+        ultimoInteresMs = ahora;
+
+        if (client.isBinario()) {
+            ProtocoloBinario.interes(salida, mascaraInteres);
+            client.sendBytesEnFrame(salida.datos(), salida.largo());
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder("Interest");
+        for (Habitacion h : HABITACIONES) {
+            if ((mascaraInteres & FiltroInteres.bit(h)) != 0) sb.append(':').append(h.name());
+        }
+        client.sendMessageEnFrame(sb.toString());
+    }
+
+    /** Salas cuyos enemigos se dibujan (FiltroInteres.TODAS offline o antes de la primera sala). */
+    public long getMascaraInteres() {
+        return mascaraInteres;
+    }
+
+    private static long calcularMascaraInteres(Habitacion sala, DisposicionMapa disposicion) {
+        long mascara = FiltroInteres.bit(sala);
+        if (!INTERES_CON_VECINAS || disposicion == null) return mascara;
+        for (Habitacion vecina : disposicion.getConexionesEnPiso(sala).values()) {
+            mascara |= FiltroInteres.bit(vecina);
+        }
+        return mascara;
     }
 
     // GameController callbacks desde ClientThread
@@ -717,11 +1336,11 @@ public class RedPartidaCliente implements GameController {
 
     // Items (server-driven)
     private static final class SpawnItemEv {
-        final int itemId;
-        final String tipo;
-        final float x;
-        final float y;
-        SpawnItemEv(int itemId, String tipo, float x, float y) {
+        int itemId;
+        String tipo;
+        float x;
+        float y;
+        void set(int itemId, String tipo, float x, float y) {
             this.itemId = itemId;
             this.tipo = tipo;
             this.x = x;
@@ -734,26 +1353,66 @@ public class RedPartidaCliente implements GameController {
     @Override
     public void spawnItem(int itemId, String tipo, float x, float y) {
         if (!modoOnline) return;
-        synchronized (lockItems) {
-            spawnItemsPendientes.addLast(new SpawnItemEv(itemId, tipo, x, y));
-        }
+        SpawnItemEv ev = spawnItemsPendientes.reservar();
+        if (ev == null) return;
+        ev.set(itemId, tipo, x, y);
+        spawnItemsPendientes.publicar();
     }
 
-    // MVP: UI del otro jugador (solo vida)
-    private static final class OtherEv {
-        final int otherId;
-        final int vida;
-        final int vidaMax;
+    // playerId -> buffer de muestras (ordenadas por llegada). Solo hilo render.
+    private final IntMap<BufferMuestras> samplesPorJugador = new IntMap<>();
 
-        OtherEv(int otherId, int vida, int vidaMax) {
-            this.otherId = otherId;
-            this.vida = vida;
-            this.vidaMax = vidaMax;
-        }
-    }
+    // Resultado de BufferMuestras.interpolar (evita crear un Vector2 por frame)
+    private final float[] interpolado = new float[2];
+
+    // Reloj del server + delay adaptativo (solo hilo render)
+    private final BufferJitter jitter = new BufferJitter();
+
+    // true cuando las muestras están en tiempo de server (si no, en hora de llegada local)
+    private boolean usandoRelojServer = false;
+
+    // enemyId -> buffer de muestras (solo hilo render). Los buffers se reciclan al despawnear.
+    private final IntMap<BufferMuestras> muestrasEnemigos = new IntMap<>();
+
+    private final Array<BufferMuestras> buffersEnemigoLibres = new Array<>();
+
+    private static final int MAX_SAMPLES_PER_ENEMY = 8;
+
+    // Si el próximo update se atrasa, el enemigo sigue con su velocidad hasta este tiempo
+    private static final long MAX_EXTRAPOLACION_ENEMIGO_MS = 120;
+
+    // Predicción del jugador local (se activa con el primer inputAck del server)
+    private final PrediccionJugadorLocal prediccion = new PrediccionJugadorLocal();
+
+    // ===== Move (solo hilo render) =====
+    // Mientras se mueve: uno por tick del server (30/s), no uno por frame
+    private static final long MOVE_EN_MOVIMIENTO_MS = 33;
+
+    private static final long MOVE_KEEPALIVE_MS = 250;
+
+    // Frames extra en los que se repite un cambio de input (UDP: puede perderse)
+    private static final int MOVE_REDUNDANCIA = 2;
+
+    private static final long PEDIDO_REPETIDO_MS = 250;
+
+    private int ultimoMoveDx = Integer.MIN_VALUE;
+
+    private int ultimoMoveDy = Integer.MIN_VALUE;
+
+    private long ultimoMoveMs = 0;
+
+    private int repeticionesMove = 0;
 
-    // playerId -> cola de samples (ordenados por llegada)
-    private final Map<Integer, Deque<Sample>> samplesPorJugador = new HashMap<>();
+    private long movesEnviados = 0;
+
+    private long framesInput = 0;
+
+    private String ultimoPedido = null;
+
+    private long ultimoPedidoMs = 0;
+
+    // Start (hilo de red) pide descartar muestras; lo hace el hilo render
+    private volatile boolean limpiarSamples = false;
 
     // ✅ Mantengo compat: con playerId o sin playerId (server acepta ambos)
     public void enviarPuertaOnline(String origen, String destino, String dir) {
@@ -764,49 +1423,45 @@ public class RedPartidaCliente implements GameController {
         else msg = "Door:" + origen + ":" + destino + ":" + dir;
 
         Gdx.app.log(TAG, ">> " + msg);
-        client.sendMessage(msg);
+        if (client.isBinario()) {
+            ProtocoloBinario.door(salida, miPlayerId, origen, destino, dir);
+            client.sendConfiable(salida.datos(), salida.largo());
+        } else {
+            client.sendMessageEnFrame(msg);
+        }
     }
 
-    private static final class HudEv {
-        final int playerId;
-        final int vida;
-        final int vidaMax;
-        final String tiposCsv;
-
-        HudEv(int playerId, int vida, int vidaMax, String tiposCsv) {
+    private static final class AparienciaEv {
+        int playerId;
+        String genero;
+        String estilo;
+        void set(int playerId, String genero, String estilo) {
             this.playerId = playerId;
-            this.vida = vida;
-            this.vidaMax = vidaMax;
-            this.tiposCsv = (tiposCsv != null) ? tiposCsv : "";
+            this.genero = genero;
+            this.estilo = estilo;
         }
     }
 
-    private static final class UpdateEnemyEv {
-        final int enemyId;
-        final float x;
-        final float y;
-        UpdateEnemyEv(int enemyId, float x, float y) {
-            this.enemyId = enemyId;
-            this.x = x;
-            this.y = y;
-        }
+    // Despawns de items: solo el id, sin boxear Integer
+    private static final class IdEv {
+        int id;
     }
 
     private static final boolean TELEPORT_ALWAYS_ONLINE = true; // (lo dejé por compat aunque hoy no lo uses)
 
     private ClientThread client;
 
+    // Buffer reutilizable para frames binarios (solo se usa desde el hilo de render)
+    private final EscritorBinario salida = new EscritorBinario(64);
+
     private static final long INTERP_DELAY_MS = 100; // delay visual para interpolar (buffer)
 
-    private static final class Sample {
-        final float x;
-        final float y;
-        final long tMs;
+    // Overlay de red (solo hilo render)
+    private static final long RESUMEN_RED_MS = 250;
 
-        Sample(float x, float y, long tMs) {
-            this.x = x;
-            this.y = y;
-            this.tMs = tMs;
-        }
-    }
+    private final StringBuilder resumenRedSb = new StringBuilder(1024);
+
+    private String resumenRed;
+
+    private long ultimoResumenRedMs;
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package red;
+
+import java.net.SocketAddress;
+
+/**
+* Junta los OP_FRAGMENTO de Fragmentador hasta tener el datagrama completo.
+*
+* - Unos pocos mensajes en armado a la vez (SLOTS), por origen + msgId. Si llega uno nuevo
+*   y no hay lugar, se pisa el más viejo.
+* - Si un mensaje no se completa en TIMEOUT_MS (se perdió un fragmento) se descarta entero:
+*   UDP no reenvía y lo que venía ahí ya es viejo.
+* - El tamaño de fragmento tiene que ser el mismo que usó el Fragmentador del otro lado
+*   (los dos usan el MTU de 1472).
+*
+* Los buffers de cada slot se crean recién la primera vez que hacen falta.
+* Un solo hilo por instancia (el que recibe).
+*/
+public final class Reensamblador {
+    public static final long TIMEOUT_MS = 1000;
+
+    private static final int SLOTS = 4;
+
+    private final int porFragmento;
+
+    private final SocketAddress[] origenes = new SocketAddress[SLOTS];
+
+    private final int[] ids = new int[SLOTS];
+
+    private final int[] totales = new int[SLOTS];
+
+    // bit i = llegó el fragmento i (MAX_FRAGMENTOS <= 32)
+    private final int[] recibidos = new int[SLOTS];
+
+    private final int[] largos = new int[SLOTS];
+
+    private final long[] iniciosMs = new long[SLOTS];
+
+    private final byte[][] datos = new byte[SLOTS][];
+
+    private final boolean[] usados = new boolean[SLOTS];
+
+    private byte[] completo;
+
+    private long completos = 0;
+
+    private long vencidos = 0;
+
+    private long invalidos = 0;
+
+    public Reensamblador(int maxDatagrama) {
+        this.porFragmento = Fragmentador.datosPorFragmento(maxDatagrama);
+    }
+
+    /**
+    * Un datagrama OP_FRAGMENTO (frame completo, con MAGIC). Devuelve el largo del mensaje
+    * si con este quedó completo (los bytes en getCompleto()) o -1 si todavía falta.
+    */
+    public int agregar(SocketAddress origen, byte[] frame, int offset, int largo, long ahoraMs) {
+        vencer(ahoraMs);
+
+        if (largo < Fragmentador.CABECERA || frame[offset + 1] != (byte) ProtocoloBinario.OP_FRAGMENTO) {
+            invalidos++;
+            return -1;
+        }
+        int id = ((frame[offset + 2] & 0xFF) << 8) | (frame[offset + 3] & 0xFF);
+        int indice = frame[offset + 4] & 0xFF;
+        int total = frame[offset + 5] & 0xFF;
+        int n = largo - Fragmentador.CABECERA;
+
+        // Todos llenos salvo el último: si no, no sabemos dónde va
+        boolean ultimo = indice == total - 1;
+        if (total == 0 || total > Fragmentador.MAX_FRAGMENTOS || indice >= total
+            || n <= 0 || n > porFragmento || (!ultimo && n != porFragmento)) {
+            invalidos++;
+            return -1;
+        }
+
+        int slot = buscar(origen, id, total);
+        if (slot < 0) slot = abrir(origen, id, total, ahoraMs);
+
+        int bit = 1 << indice;
+        if ((recibidos[slot] & bit) != 0) return -1; // duplicado
+
+        System.arraycopy(frame, offset + Fragmentador.CABECERA, datos[slot], indice * porFragmento, n);
+        recibidos[slot] |= bit;
+        largos[slot] += n;
+
+        int todos = (total == 32) ? -1 : (1 << total) - 1;
+        if (recibidos[slot] != todos) return -1;
+
+        // Completo: el slot se libera y sus bytes quedan como "completo" hasta el próximo agregar
+        byte[] buf = datos[slot];
+        datos[slot] = completo;
+        completo = buf;
+        usados[slot] = false;
+        origenes[slot] = null;
+        completos++;
+        return largos[slot];
+    }
+
+    /** Bytes del último mensaje completo (válidos hasta el próximo agregar). */
+    public byte[] getCompleto() {
+        return completo;
+    }
+
+    public long getCompletos() {
+        return completos;
+    }
+
+    /** Mensajes descartados por faltar fragmentos (timeout o pisados por otros). */
+    public long getVencidos() {
+        return vencidos;
+    }
+
+    public long getInvalidos() {
+        return invalidos;
+    }
+
+    public void reset() {
+        for (int s = 0; s < SLOTS; s++) {
+            usados[s] = false;
+            origenes[s] = null;
+        }
+    }
+
+    private int buscar(SocketAddress origen, int id, int total) {
+        for (int s = 0; s < SLOTS; s++) {
+            if (usados[s] && ids[s] == id && totales[s] == total && origenes[s].equals(origen)) return s;
+        }
+        return -1;
+    }
+
+    private int abrir(SocketAddress origen, int id, int total, long ahoraMs) {
+        int slot = -1;
+        for (int s = 0; s < SLOTS && slot < 0; s++) {
+            if (!usados[s]) slot = s;
+        }
+        if (slot < 0) {
+            slot = 0;
+            for (int s = 1; s < SLOTS; s++) {
+                if (iniciosMs[s] < iniciosMs[slot]) slot = s;
+            }
+            vencidos++;
+        }
+
+        if (datos[slot] == null) datos[slot] = new byte[porFragmento * Fragmentador.MAX_FRAGMENTOS];
+        usados[slot] = true;
+        origenes[slot] = origen;
+        ids[slot] = id;
+        totales[slot] = total;
+        recibidos[slot] = 0;
+        largos[slot] = 0;
+        iniciosMs[slot] = ahoraMs;
+        return slot;
+    }
+
+    private void vencer(long ahoraMs) {
+        for (int s = 0; s < SLOTS; s++) {
+            if (!usados[s] || ahoraMs - iniciosMs[s] < TIMEOUT_MS) continue;
+            usados[s] = false;
+            origenes[s] = null;
+            vencidos++;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package red;
+
+/**
+* Reconstruye snapshots del mundo mandados como delta contra un baseline ya confirmado.
+*
+* Formato OP_SNAPSHOT (después de MAGIC + opcode):
+* [snapshotId varint][baselineId varint, 0 = completo][serverMs u32]
+* [cantEnemigos varint]  { [id][mascara u8][x f32]?[y f32]? }
+* [cantBajas varint]     { [enemyId] }
+*
+* Solo viajan los enemigos que cambiaron (y solo los campos marcados en la máscara);
+* el resto se copia del baseline. serverMs es el reloj del server al armarlo: los enemigos
+* se interpolan con el mismo tiempo que un OP_UPDATE_ENEMY_EXT. Los jugadores no van acá
+* (UpdatePosition con inputAck, vida con Damage / Hud). Cada snapshot aplicado se guarda en un anillo y se
+* confirma con OP_SNAPSHOT_ACK, para que el server lo use como próximo baseline.
+*
+* Se usa solo desde el hilo de red.
+*/
+public final class ReplicadorSnapshots {
+    public static final int CAMPO_X = 0x01;
+    public static final int CAMPO_Y = 0x02;
+
+    // Baselines guardados: el server no debería referenciar uno más viejo que esto
+    private static final int HISTORIAL = 32;
+
+    private static final int MAX_ENEMIGOS = 256;
+
+    private final Estado[] historial = new Estado[HISTORIAL];
+
+    // ids de enemigos tocados por el delta actual (para despachar solo esos)
+    private final int[] enemigosCambiados = new int[MAX_ENEMIGOS];
+
+    private final int[] bajas = new int[MAX_ENEMIGOS];
+
+    private int ultimoAplicado = 0;
+
+    private boolean ackPendiente = false;
+
+    private int descartados = 0;
+
+    public ReplicadorSnapshots() {
+        for (int i = 0; i < HISTORIAL; i++) historial[i] = new Estado();
+    }
+
+    /**
+    * Lee un OP_SNAPSHOT, reconstruye el estado completo y despacha los cambios al controller.
+    * Si falta el baseline o viene roto, se descarta (el server reenvía contra el último ack).
+    * Los enemigos fuera del interés se reconstruyen igual (son parte del baseline) pero no se despachan.
+    */
+    public void recibir(LectorBinario in, GameController controller, FiltroInteres interes) {
+        int snapshotId = in.varInt();
+        int baselineId = in.varInt();
+        long serverMs = in.i32() & 0xFFFFFFFFL;
+        if (!in.ok() || snapshotId <= 0) return;
+
+        // viejo o repetido (UDP desordenado): ya tenemos algo más nuevo
+        if (snapshotId <= ultimoAplicado) {
+            ackPendiente = true; // re-confirmamos, por si se perdió el ack
+            return;
+        }
+
+        Estado base = null;
+        if (baselineId != 0) {
+            base = buscar(baselineId);
+            if (base == null) {
+                descartados++;
+                return;
+            }
+        }
+
+        Estado nuevo = historial[snapshotId % HISTORIAL];
+        if (nuevo == base) {
+            // el anillo dio la vuelta sobre el propio baseline: no debería pasar con un server sano
+            descartados++;
+            return;
+        }
+
+        nuevo.id = 0; // inválido hasta terminar de leer
+        if (base != null) nuevo.copiarDe(base);
+        else nuevo.vaciar();
+
+        // ===== Enemigos =====
+        int nEne = in.varInt();
+        int cambiados = 0;
+        for (int k = 0; k < nEne && in.ok(); k++) {
+            int id = in.varInt();
+            int mascara = in.u8();
+            int i = nuevo.indiceEnemigo(id);
+            if (i < 0) {
+                descartados++;
+                return; // más enemigos de los que soportamos
+            }
+            if ((mascara & CAMPO_X) != 0) nuevo.eneX[i] = in.f32();
+            if ((mascara & CAMPO_Y) != 0) nuevo.eneY[i] = in.f32();
+            if (mascara == 0 || cambiados >= enemigosCambiados.length) continue;
+            if (interes == null || interes.aceptarEnemigo(id)) enemigosCambiados[cambiados++] = id;
+        }
+
+        // ===== Bajas =====
+        int nBajas = in.varInt();
+        int cantBajas = 0;
+        for (int k = 0; k < nBajas && in.ok(); k++) {
+            int id = in.varInt();
+            if (nuevo.quitarEnemigo(id) && cantBajas < bajas.length) bajas[cantBajas++] = id;
+            if (interes != null) interes.olvidarEnemigo(id);
+        }
+
+        if (!in.ok()) {
+            descartados++;
+            return;
+        }
+
+        // ✅ Snapshot completo y válido: queda como baseline posible
+        nuevo.id = snapshotId;
+        ultimoAplicado = snapshotId;
+        ackPendiente = true;
+
+        despachar(nuevo, cambiados, cantBajas, serverMs, controller);
+    }
+
+    /** True si hay que mandar OP_SNAPSHOT_ACK (se limpia al consultarlo). */
+    public boolean consumirAckPendiente() {
+        if (!ackPendiente) return false;
+        ackPendiente = false;
+        return true;
+    }
+
+    public int getUltimoAplicado() {
+        return ultimoAplicado;
+    }
+
+    /** Snapshots descartados por baseline desconocido o datos rotos. */
+    public int getDescartados() {
+        return descartados;
+    }
+
+    public void reset() {
+        for (Estado e : historial) e.id = 0;
+        ultimoAplicado = 0;
+        ackPendiente = false;
+    }
+
+    private void despachar(Estado s, int cambiados, int cantBajas, long serverMs, GameController controller) {
+        for (int k = 0; k < cambiados; k++) {
+            int i = s.buscarEnemigo(enemigosCambiados[k]);
+            if (i >= 0) controller.updateEnemy(s.eneId[i], s.eneX[i], s.eneY[i], serverMs);
+        }
+
+        for (int k = 0; k < cantBajas; k++) {
+            controller.despawnEnemy(bajas[k]);
+        }
+    }
+
+    private Estado buscar(int snapshotId) {
+        Estado e = historial[snapshotId % HISTORIAL];
+        return (e.id == snapshotId) ? e : null;
+    }
+
+    /** Enemigos replicados en un snapshot (arrays preallocados). */
+    private static final class Estado {
+        int id;
+
+        int nEne;
+        final int[] eneId = new int[MAX_ENEMIGOS];
+        final float[] eneX = new float[MAX_ENEMIGOS];
+        final float[] eneY = new float[MAX_ENEMIGOS];
+
+        void vaciar() {
+            nEne = 0;
+        }
+
+        void copiarDe(Estado o) {
+            nEne = o.nEne;
+            System.arraycopy(o.eneId, 0, eneId, 0, nEne);
+            System.arraycopy(o.eneX, 0, eneX, 0, nEne);
+            System.arraycopy(o.eneY, 0, eneY, 0, nEne);
+        }
+
+        int buscarEnemigo(int id) {
+            for (int i = 0; i < nEne; i++) {
+                if (eneId[i] == id) return i;
+            }
+            return -1;
+        }
+
+        /** Índice del enemigo (lo agrega si es nuevo). -1 si no hay lugar. */
+        int indiceEnemigo(int id) {
+            int i = buscarEnemigo(id);
+            if (i >= 0) return i;
+            if (nEne == MAX_ENEMIGOS) return -1;
+            i = nEne++;
+            eneId[i] = id;
+            eneX[i] = 0f;
+            eneY[i] = 0f;
+            return i;
+        }
+
+        boolean quitarEnemigo(int id) {
+            int i = buscarEnemigo(id);
+            if (i < 0) return false;
+            // swap-remove: el orden no importa
+            int last = --nEne;
+            eneId[i] = eneId[last];
+            eneX[i] = eneX[last];
+            eneY[i] = eneY[last];
+            return true;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package red;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+* Vuelve a pasar una captura (GrabadorPaquetes) por el decode real, sin socket:
+* los datagramas de ENTRADA se entregan a un ClientThread armado sobre un transporte
+* en memoria, que llama al GameController igual que en la sesión original.
+* Lo que el cliente manda (Move, acks, pings...) se descarta; los SALIDA grabados solo se cuentan.
+*
+* - Como hilo (start()): respeta los tiempos originales divididos por velocidad
+*   (1 = tiempo real, 4 = cuatro veces más rápido). Para ver la sesión en el juego y
+*   probar colas / interpolación de RedPartidaCliente con tráfico real.
+* - reproducirSinEsperas(): todo de una en el hilo que llama (benchmark del decode).
+*/
+public final class ReproductorCaptura extends Thread {
+    private static final int MAX_DATAGRAMA = 2048;
+
+    private final String ruta;
+
+    private final float velocidad;
+
+    private final TransporteCaptura transporte = new TransporteCaptura();
+
+    private final ClientThread cliente;
+
+    private final byte[] datos = new byte[MAX_DATAGRAMA];
+
+    private volatile boolean corriendo = true;
+
+    private long entradas = 0;
+
+    private long salidas = 0;
+
+    public ReproductorCaptura(String ruta, GameController controller, float velocidad) {
+        super("ReproductorCaptura");
+        setDaemon(true);
+        this.ruta = ruta;
+        this.velocidad = velocidad;
+        this.cliente = new ClientThread(controller, transporte, transporte.origen);
+    }
+
+    /** El ClientThread que decodifica: se le puede pasar a Partida como cliente (sus envíos no salen). */
+    public ClientThread getCliente() {
+        return cliente;
+    }
+
+    public void detener() {
+        corriendo = false;
+        interrupt();
+    }
+
+    @Override
+    public void run() {
+        try {
+            reproducir(true);
+        } catch (InterruptedException ignored) {
+            // detener()
+        } catch (IOException e) {
+            System.out.println("[CAPTURA] error leyendo " + ruta + ": " + e.getMessage());
+        }
+        System.out.println("[CAPTURA] fin de " + ruta + ": " + entradas + " entrantes, " + salidas + " salientes");
+    }
+
+    /** Entrega todo sin esperar. Devuelve los ns que tardó (lectura de archivo incluida). */
+    public long reproducirSinEsperas() throws IOException {
+        long inicio = System.nanoTime();
+        try {
+            reproducir(false);
+        } catch (InterruptedException ignored) {}
+        return System.nanoTime() - inicio;
+    }
+
+    public long getEntradas() {
+        return entradas;
+    }
+
+    public long getSalidas() {
+        return salidas;
+    }
+
+    private void reproducir(boolean conTiempos) throws IOException, InterruptedException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(ruta), 64 * 1024))) {
+            long tCaptura = 0;                 // ns desde la cabecera, en el tiempo de la captura
+            long inicioReal = System.nanoTime();
+
+            leerCabecera(in, in.readUnsignedByte());
+
+            while (corriendo) {
+                int sentido;
+                try {
+                    sentido = in.readUnsignedByte();
+                } catch (EOFException fin) {
+                    break;
+                }
+
+                if (sentido == GrabadorPaquetes.MAGIA[0]) {
+                    // Otra sesión agregada al mismo archivo: el tiempo arranca de nuevo
+                    leerCabecera(in, sentido);
+                    tCaptura = 0;
+                    inicioReal = System.nanoTime();
+                    continue;
+                }
+
+                tCaptura += leerVarLong(in);
+                int largo = (int) leerVarLong(in);
+                if (largo > MAX_DATAGRAMA) throw new IOException("datagrama de " + largo + " bytes");
+                in.readFully(datos, 0, largo);
+
+                if (sentido != GrabadorPaquetes.ENTRADA) {
+                    salidas++;
+                    continue;
+                }
+
+                if (conTiempos && velocidad > 0f) {
+                    long objetivo = inicioReal + (long) (tCaptura / velocidad);
+                    long falta = objetivo - System.nanoTime();
+                    if (falta > 0) Thread.sleep(falta / 1_000_000L, (int) (falta % 1_000_000L));
+                }
+
+                transporte.poner(datos, largo);
+                cliente.pasoRed();
+                entradas++;
+            }
+        }
+    }
+
+    private static void leerCabecera(DataInputStream in, int primero) throws IOException {
+        byte[] magia = GrabadorPaquetes.MAGIA;
+        boolean ok = primero == magia[0];
+        for (int i = 1; i < magia.length; i++) ok &= in.readUnsignedByte() == magia[i];
+        if (!ok) throw new IOException("no es una captura (.rgcap)");
+
+        int version = in.readUnsignedByte();
+        if (version != GrabadorPaquetes.VERSION) throw new IOException("versión de captura " + version);
+        in.readLong(); // inicio en ms de pared (solo informativo)
+    }
+
+    private static long leerVarLong(InputStream in) throws IOException {
+        long v = 0;
+        for (int corrimiento = 0; corrimiento < 64; corrimiento += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            v |= (long) (b & 0x7F) << corrimiento;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("varint corrupto");
+    }
+
+    /**
+    * Transporte en memoria con un solo datagrama pendiente: el que puso el reproductor.
+    * Todo lo que se envía se acepta y se tira.
+    */
+    private static final class TransporteCaptura implements TransporteRed {
+        // El "server" de la captura (el Connected hace que el cliente aprenda esta dirección)
+        final InetSocketAddress origen = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5555);
+
+        private byte[] pendiente;
+
+        private int largo;
+
+        void poner(byte[] datos, int largo) {
+            this.pendiente = datos;
+            this.largo = largo;
+        }
+
+        @Override
+        public SocketAddress recibir(ByteBuffer destino) {
+            if (pendiente == null) return null;
+            destino.put(pendiente, 0, largo);
+            pendiente = null;
+            return origen;
+        }
+
+        @Override
+        public boolean enviar(ByteBuffer datos, SocketAddress destino) {
+            datos.position(datos.limit());
+            return true;
+        }
+
+        @Override
+        public void esperar(long timeoutMs, boolean quiereEscribir) {
+            // lo maneja el reproductor
+        }
+
+        @Override
+        public void despertar() {}
+
+        @Override
+        public void cerrar() {
+            pendiente = null;
+        }
+    }
+}
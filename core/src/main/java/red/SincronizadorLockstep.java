@@ -0,0 +1,227 @@
+package red;
+
+/**
+* Entradas por tick del modo lockstep.
+*
+* Cada cliente corre la simulación completa (SistemaActualizacionPartida) a tick fijo y lo único
+* que viaja es la máscara de teclas de cada tick (ControlJugador.ARRIBA...): 4 bits por jugador,
+* sin importar cuántos enemigos haya. El tick t se simula recién cuando están las entradas de los
+* dos jugadores para t; si falta la del otro, se espera.
+*
+* - La entrada local se programa RETARDO ticks adelante: es el margen que tiene para llegarle
+*   al otro antes de que la necesite. Los primeros RETARDO ticks son quietos en los dos lados.
+* - Se manda todo lo que el otro todavía no confirmó (In:desde:ack:hex, un dígito hex por tick):
+*   un datagrama perdido no frena a nadie, el siguiente trae lo mismo.
+* - ack = último tick del otro que ya llegó sin huecos. Sin nada nuevo se repite cada KEEPALIVE_MS
+*   (hace de ack y el silencio sigue significando caída para ClientThread).
+*
+* Modo rollback: mismo intercambio, pero con retardo 0 (la entrada local es para el tick que se
+* está por jugar) y sin esperar al otro para mostrar: programarLocal() avanza la cabeza,
+* confirmado() dice qué ticks ya se pueden simular de verdad y entradaPredicha() completa los
+* que faltan repitiendo la última entrada conocida del otro (ver PrediccionRollback).
+*
+* Hilos: recibir() es del hilo de red; el resto, del hilo render.
+*/
+public final class SincronizadorLockstep {
+    public static final float TICK = 1f / 60f;
+
+    // ~67 ms: con menos latencia que esto no se espera nunca
+    public static final int RETARDO = 4;
+
+    // Rollback: ~250 ms de predicción como mucho; más allá se espera igual que en lockstep
+    public static final int MAX_PREDICCION = 15;
+
+    // Ticks por In (si hay más sin confirmar salen los más viejos primero)
+    public static final int MAX_POR_MENSAJE = 64;
+
+    private static final long KEEPALIVE_MS = 100;
+
+    // Potencia de 2; más que lo que puede quedar sin confirmar / sin simular
+    private static final int VENTANA = 256;
+
+    private static final int MASCARA = VENTANA - 1;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] locales = new byte[VENTANA];
+
+    private final byte[] remotas = new byte[VENTANA];
+
+    private int miPlayerId = 1;
+
+    private int retardo = RETARDO;
+
+    // Próximo tick a simular (lo lee el hilo de red para no pisar la ventana)
+    private volatile int tick = 0;
+
+    // Último tick con entrada local programada
+    private int hastaLocal = RETARDO - 1;
+
+    // Último tick del otro recibido sin huecos (se publica después de escribir remotas)
+    private volatile int hastaRemoto = RETARDO - 1;
+
+    // Último tick nuestro que el otro confirmó
+    private volatile int ackRemoto = RETARDO - 1;
+
+    private int enviadoHasta = RETARDO - 1;
+
+    private int ackEnviado = RETARDO - 1;
+
+    private long ultimoEnvioMs = 0;
+
+    private long esperas = 0;
+
+    private final StringBuilder sb = new StringBuilder(32 + MAX_POR_MENSAJE);
+
+    /** Start de una partida lockstep: tick 0 y los primeros RETARDO ticks quietos. */
+    public void reiniciar(int miPlayerId) {
+        reiniciar(miPlayerId, RETARDO);
+    }
+
+    /** Igual, con otro retardo (rollback usa 0: no hay ticks quietos al arrancar). */
+    public void reiniciar(int miPlayerId, int retardo) {
+        this.miPlayerId = miPlayerId;
+        this.retardo = retardo;
+        for (int i = 0; i < VENTANA; i++) {
+            locales[i] = 0;
+            remotas[i] = 0;
+        }
+        hastaLocal = retardo - 1;
+        hastaRemoto = retardo - 1;
+        ackRemoto = retardo - 1;
+        enviadoHasta = retardo - 1;
+        ackEnviado = retardo - 1;
+        ultimoEnvioMs = 0;
+        esperas = 0;
+        tick = 0;
+    }
+
+    /**
+    * Antes de simular el tick actual: programa la entrada local para tick + RETARDO (una vez
+    * por tick) y dice si ya se puede simular. false = falta la entrada del otro.
+    */
+    public boolean prepararTick(int mascaraLocal) {
+        if (hastaLocal < tick + retardo) programarLocal(mascaraLocal);
+        if (confirmado()) return true;
+        esperas++;
+        return false;
+    }
+
+    /**
+    * Programa la entrada local del tick siguiente a la última programada. false = la ventana
+    * está llena (el otro no confirma) y no se programó nada.
+    */
+    public boolean programarLocal(int mascaraLocal) {
+        if (hastaLocal - ackRemoto >= VENTANA - 1 || hastaLocal - tick >= VENTANA - 1) return false;
+        hastaLocal++;
+        locales[hastaLocal & MASCARA] = (byte) mascaraLocal;
+        return true;
+    }
+
+    /** El tick actual ya tiene las entradas de los dos jugadores. */
+    public boolean confirmado() {
+        int t = tick;
+        return hastaRemoto >= t && hastaLocal >= t;
+    }
+
+    /** Máscara del jugador para el tick actual (después de prepararTick() == true). */
+    public int entrada(int playerId) {
+        byte[] origen = (playerId == miPlayerId) ? locales : remotas;
+        return origen[tick & MASCARA];
+    }
+
+    /**
+    * Máscara para un tick entre el actual y getHastaLocal(): la local es la programada; la del
+    * otro, si todavía no llegó, se predice repitiendo la última que llegó.
+    */
+    public int entradaPredicha(int playerId, int t) {
+        if (playerId == miPlayerId) return locales[t & MASCARA];
+        int hasta = hastaRemoto;
+        if (t <= hasta) return remotas[t & MASCARA];
+        return (hasta >= 0) ? remotas[hasta & MASCARA] : 0;
+    }
+
+    public void avanzar() {
+        tick = tick + 1;
+    }
+
+    /**
+    * In:desde:ack[:hex] con lo que el otro no confirmó, o null si no hace falta mandar
+    * (nada nuevo, el ack no cambió y no pasó KEEPALIVE_MS).
+    * Es un buffer que se reusa: mandarlo (sendMessageEnFrame lo copia) antes de volver a llamar.
+    */
+    public CharSequence armarMensaje(long ahoraMs) {
+        int ack = hastaRemoto;
+        int desde = ackRemoto + 1;
+        int hasta = Math.min(hastaLocal, desde + MAX_POR_MENSAJE - 1);
+
+        boolean nuevo = hasta > enviadoHasta || ack != ackEnviado;
+        if (!nuevo && ahoraMs - ultimoEnvioMs < KEEPALIVE_MS) return null;
+        enviadoHasta = Math.max(enviadoHasta, hasta);
+        ackEnviado = ack;
+        ultimoEnvioMs = ahoraMs;
+
+        sb.setLength(0);
+        sb.append("In:").append(desde).append(':').append(ack);
+        if (hasta >= desde) {
+            sb.append(':');
+            for (int t = desde; t <= hasta; t++) sb.append(HEX[locales[t & MASCARA] & 0xF]);
+        }
+        return sb;
+    }
+
+    /** Hilo de red: In del otro jugador (hex[0, largo) en ASCII; hex null = solo ack). */
+    public void recibir(int desde, int ack, byte[] hex, int largo) {
+        if (ack > ackRemoto) ackRemoto = ack;
+        if (hex == null) return;
+
+        // Los slots en uso son [tick, hastaRemoto]: más allá de la ventana no se escribe
+        int limite = tick + VENTANA - 1;
+        int hasta = hastaRemoto;
+        for (int i = 0; i < largo; i++) {
+            int t = desde + i;
+            if (t <= hasta) continue;
+            if (t != hasta + 1 || t > limite) break;
+            int v = Character.digit(hex[i], 16);
+            if (v < 0) break;
+            remotas[t & MASCARA] = (byte) v;
+            hasta = t;
+        }
+        hastaRemoto = hasta;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    /** Último tick con entrada local programada (la cabeza de la predicción en rollback). */
+    public int getHastaLocal() {
+        return hastaLocal;
+    }
+
+    /** Último tick del otro recibido sin huecos. */
+    public int getHastaRemoto() {
+        return hastaRemoto;
+    }
+
+    /** Ticks recibidos del otro que todavía no se simularon (margen contra la latencia). */
+    public int getAdelantoRemoto() {
+        return hastaRemoto - tick + 1;
+    }
+
+    /** Veces que hubo que frenar un tick esperando la entrada del otro. */
+    public long getEsperas() {
+        return esperas;
+    }
+
+    /** Rollback: la cabeza llegó a MAX_PREDICCION y se frenó igual que una espera lockstep. */
+    public void contarEspera() {
+        esperas++;
+    }
+
+    /** Semilla del nivel siguiente: sale de la anterior, igual en los dos clientes. */
+    public static long semillaSiguienteNivel(long semilla, int nivel) {
+        long s = semilla * 6364136223846793005L + 1442695040888963407L + nivel;
+        return s & Long.MAX_VALUE;
+    }
+}
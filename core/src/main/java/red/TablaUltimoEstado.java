@@ -0,0 +1,251 @@
+package red;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+* Último estado recibido por entidad (posición + tiempos), último que escribe gana.
+*
+* Reemplaza a un anillo de updates: si el hilo render se atrasa, los updates viejos de
+* una entidad se pisan con el nuevo en vez de hacer cola, así que aplicar cuesta
+* O(entidades vivas) por frame y un enemigo que manda mucho no le quita lugar a otro.
+*
+* Cada slot puede llevar además `enteros` ints propios (ej: vida + inventario del Hud), que
+* viajan con el resto del estado: siempre completos, nunca como diff, porque se pueden pisar.
+*
+* Un slot por id (lo asigna el productor). Cada slot es un seqlock: el productor pone la
+* versión en impar, escribe los campos y la deja en par; el consumidor lee la versión,
+* los campos y otra vez la versión, y si cambió en el medio lo deja para el próximo frame.
+* Sin locks y sin allocs en ninguno de los dos lados.
+*
+* Productor: hilo de red (escribir / olvidar / reset).
+* Consumidor: hilo render (slots / leer / descartarPendientes).
+*/
+public final class TablaUltimoEstado {
+    private static final VarHandle VERSION = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private static final int LIBRE = Integer.MIN_VALUE;
+
+    private static final int REINTENTOS = 4;
+
+    /** Lo que devuelve leer(): se reusa, no guardar la referencia. */
+    public static final class Muestra {
+        public int id;
+        public float x;
+        public float y;
+        public long tMs;      // llegada (reloj local)
+        public long serverMs; // -1 si el server no manda tiempo
+        public int extra;     // ej: inputAck del jugador (-1 si no viene)
+        public final int[] datos; // los enteros del slot (largo = enteros de la tabla)
+
+        public Muestra() {
+            this(0);
+        }
+
+        public Muestra(int enteros) {
+            datos = new int[enteros];
+        }
+    }
+
+    private final int capacidad;
+
+    // Par = estable, impar = el productor está escribiendo ese slot
+    private final int[] versiones;
+
+    private final int[] ids;
+
+    private final float[] xs;
+
+    private final float[] ys;
+
+    private final long[] tiemposMs;
+
+    private final long[] serverMs;
+
+    private final int[] extras;
+
+    private final int enteros;
+
+    // enteros por slot, uno detrás del otro
+    private final int[] datos;
+
+    // ===== Solo productor =====
+    private final IntIntMap slotPorId = new IntIntMap();
+
+    private final IntArray libres = new IntArray();
+
+    // Slots usados alguna vez (el consumidor recorre [0, usados))
+    private volatile int usados = 0;
+
+    private volatile long escrituras = 0;
+
+    private volatile long desbordes = 0;
+
+    // ===== Solo consumidor =====
+    private final int[] versionLeida;
+
+    private volatile long lecturas = 0;
+
+    public TablaUltimoEstado(int capacidad) {
+        this(capacidad, 0);
+    }
+
+    public TablaUltimoEstado(int capacidad, int enteros) {
+        this.capacidad = capacidad;
+        this.enteros = enteros;
+        datos = new int[capacidad * enteros];
+        versiones = new int[capacidad];
+        ids = new int[capacidad];
+        xs = new float[capacidad];
+        ys = new float[capacidad];
+        tiemposMs = new long[capacidad];
+        serverMs = new long[capacidad];
+        extras = new int[capacidad];
+        versionLeida = new int[capacidad];
+        java.util.Arrays.fill(ids, LIBRE);
+    }
+
+    // ===== Productor =====
+
+    /** Pisa el estado de id. false si la tabla está llena (se cuenta en desbordes). */
+    public boolean escribir(int id, float x, float y, long tMs, long tServerMs, int extra) {
+        return escribir(id, x, y, tMs, tServerMs, extra, null);
+    }
+
+    /** Igual, con los enteros del slot (valores[0, enteros); null = ceros). */
+    public boolean escribir(int id, float x, float y, long tMs, long tServerMs, int extra, int[] valores) {
+        int slot = slotPorId.get(id, -1);
+        if (slot < 0) {
+            if (libres.size > 0) slot = libres.pop();
+            else if (usados < capacidad) slot = usados;
+            else {
+                desbordes++;
+                return false;
+            }
+            slotPorId.put(id, slot);
+        }
+
+        int v = versiones[slot];
+        VERSION.setVolatile(versiones, slot, v + 1);
+        VarHandle.storeStoreFence();
+        ids[slot] = id;
+        xs[slot] = x;
+        ys[slot] = y;
+        tiemposMs[slot] = tMs;
+        serverMs[slot] = tServerMs;
+        extras[slot] = extra;
+        if (enteros > 0) {
+            if (valores != null) System.arraycopy(valores, 0, datos, slot * enteros, enteros);
+            else java.util.Arrays.fill(datos, slot * enteros, (slot + 1) * enteros, 0);
+        }
+        VERSION.setRelease(versiones, slot, v + 2);
+
+        if (slot == usados) usados = slot + 1;
+        escrituras++;
+        return true;
+    }
+
+    /** La entidad ya no existe (despawn): su slot queda libre para otro id. */
+    public void olvidar(int id) {
+        int slot = slotPorId.remove(id, -1);
+        if (slot < 0) return;
+        vaciarSlot(slot);
+        libres.add(slot);
+    }
+
+    /** Nivel / sesión nueva: olvida todos los ids. */
+    public void reset() {
+        slotPorId.clear();
+        libres.clear();
+        int n = usados;
+        for (int slot = n - 1; slot >= 0; slot--) {
+            if (ids[slot] != LIBRE) vaciarSlot(slot);
+            libres.add(slot);
+        }
+    }
+
+    private void vaciarSlot(int slot) {
+        int v = versiones[slot];
+        VERSION.setVolatile(versiones, slot, v + 1);
+        VarHandle.storeStoreFence();
+        ids[slot] = LIBRE;
+        VERSION.setRelease(versiones, slot, v + 2);
+    }
+
+    // ===== Consumidor =====
+
+    /** Cantidad de slots a recorrer con leer(). */
+    public int slots() {
+        return usados;
+    }
+
+    /**
+    * Copia en destino el estado del slot si cambió desde la última lectura.
+    * false si no hay nada nuevo, el slot está libre o el productor lo estaba escribiendo
+    * (en ese caso destino.datos puede quedar a medio copiar: no usarlo).
+    */
+    public boolean leer(int slot, Muestra destino) {
+        for (int i = 0; i < REINTENTOS; i++) {
+            int v1 = (int) VERSION.getAcquire(versiones, slot);
+            if (v1 == versionLeida[slot]) return false;
+            if ((v1 & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            int id = ids[slot];
+            float x = xs[slot];
+            float y = ys[slot];
+            long t = tiemposMs[slot];
+            long ts = serverMs[slot];
+            int extra = extras[slot];
+            int n = Math.min(enteros, destino.datos.length);
+            if (n > 0) System.arraycopy(datos, slot * enteros, destino.datos, 0, n);
+
+            VarHandle.loadLoadFence();
+            if ((int) VERSION.getVolatile(versiones, slot) != v1) continue;
+
+            versionLeida[slot] = v1;
+            if (id == LIBRE) return false;
+
+            destino.id = id;
+            destino.x = x;
+            destino.y = y;
+            destino.tMs = t;
+            destino.serverMs = ts;
+            destino.extra = extra;
+            lecturas++;
+            return true;
+        }
+        return false;
+    }
+
+    /** Da por leído todo lo que hay ahora (equivale a vaciar una cola). */
+    public void descartarPendientes() {
+        int n = usados;
+        for (int slot = 0; slot < n; slot++) {
+            int v = (int) VERSION.getAcquire(versiones, slot);
+            // si se está escribiendo, la versión que va a quedar es v + 1
+            versionLeida[slot] = ((v & 1) != 0) ? v + 1 : v;
+        }
+    }
+
+    // ===== Métricas =====
+
+    public int capacidad() {
+        return capacidad;
+    }
+
+    /** Updates que se pisaron antes de que el render los aplique. */
+    public long getCoalescidos() {
+        return Math.max(0L, escrituras - lecturas);
+    }
+
+    /** Updates descartados por tabla llena (más ids vivos que capacidad). */
+    public long getDesbordes() {
+        return desbordes;
+    }
+}
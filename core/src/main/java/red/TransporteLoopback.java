@@ -0,0 +1,237 @@
+package red;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+* Transporte en memoria: dos extremos conectados (cliente / servidor) dentro del mismo proceso.
+*
+* Cada datagrama enviado se entrega al otro extremo después de latenciaMs ± jitterMs;
+* con probabilidad "perdida" se tira y con probabilidad "reordenamiento" se atrasa de más
+* (así llega después de otros mandados más tarde). Si la bandeja del receptor supera
+* "capacidad" se descarta, como un buffer de socket lleno.
+*
+* Las condiciones se aplican a lo que envía cada extremo y se pueden cambiar en caliente.
+* Con la misma semilla la secuencia de pérdidas/demoras es la misma (por dirección).
+*
+* Uso: TransporteLoopback[] par = TransporteLoopback.crearPar(...);
+*      new ClientThread(controller, par[0], par[1].getDireccion());
+*      // el test/bot hace de server con par[1].recibir / enviar
+*/
+public final class TransporteLoopback implements TransporteRed {
+    public static final int PUERTO_CLIENTE = 5556;
+
+    public static final int PUERTO_SERVIDOR = 5555;
+
+    private static final int CAPACIDAD_DEFAULT = 4096;
+
+    private final InetSocketAddress direccion;
+
+    private final Random random;
+
+    private TransporteLoopback otro;
+
+    // Bandeja de entrada, ordenada por momento de entrega (y orden de envío)
+    private final PriorityQueue<Paquete> bandeja = new PriorityQueue<>();
+
+    private long proxOrden = 0;
+
+    private boolean despertado = false;
+
+    private boolean cerrado = false;
+
+    // Condiciones de lo que envía este extremo
+    private volatile long latenciaMs;
+
+    private volatile long jitterMs;
+
+    private volatile float perdida;
+
+    private volatile float reordenamiento;
+
+    private volatile int capacidad = CAPACIDAD_DEFAULT;
+
+    private long enviados = 0;
+
+    private long perdidos = 0;
+
+    private long desbordes = 0;
+
+    private TransporteLoopback(int puerto, long semilla) {
+        this.direccion = new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto);
+        this.random = new Random(semilla);
+    }
+
+    /** Par sin demoras ni pérdidas: [cliente, servidor]. */
+    public static TransporteLoopback[] crearPar() {
+        return crearPar(0L, 0L, 0f, 0f, 1L);
+    }
+
+    /** Par con las mismas condiciones en los dos sentidos: [cliente, servidor]. */
+    public static TransporteLoopback[] crearPar(long latenciaMs, long jitterMs, float perdida,
+                                                float reordenamiento, long semilla) {
+        TransporteLoopback cliente = new TransporteLoopback(PUERTO_CLIENTE, semilla);
+        TransporteLoopback servidor = new TransporteLoopback(PUERTO_SERVIDOR, semilla + 1);
+        cliente.otro = servidor;
+        servidor.otro = cliente;
+        cliente.setCondiciones(latenciaMs, jitterMs, perdida, reordenamiento);
+        servidor.setCondiciones(latenciaMs, jitterMs, perdida, reordenamiento);
+        return new TransporteLoopback[] { cliente, servidor };
+    }
+
+    /** Condiciones para lo que envía este extremo (perdida/reordenamiento en 0..1). */
+    public void setCondiciones(long latenciaMs, long jitterMs, float perdida, float reordenamiento) {
+        this.latenciaMs = Math.max(0L, latenciaMs);
+        this.jitterMs = Math.max(0L, jitterMs);
+        this.perdida = perdida;
+        this.reordenamiento = reordenamiento;
+    }
+
+    /** Máximo de datagramas esperando en la bandeja de este extremo. */
+    public void setCapacidad(int capacidad) {
+        this.capacidad = Math.max(1, capacidad);
+    }
+
+    public InetSocketAddress getDireccion() {
+        return direccion;
+    }
+
+    @Override
+    public SocketAddress recibir(ByteBuffer destino) throws ClosedChannelException {
+        synchronized (this) {
+            if (cerrado) throw new ClosedChannelException();
+
+            Paquete p = bandeja.peek();
+            if (p == null || p.entregaMs > ahoraMs()) return null;
+            bandeja.poll();
+
+            // como UDP: si no entra, se trunca
+            destino.put(p.datos, 0, Math.min(p.datos.length, destino.remaining()));
+            return p.origen;
+        }
+    }
+
+    @Override
+    public boolean enviar(ByteBuffer datos, SocketAddress destino) throws ClosedChannelException {
+        byte[] copia = new byte[datos.remaining()];
+        datos.get(copia);
+
+        long entrega;
+        synchronized (this) {
+            if (cerrado) throw new ClosedChannelException();
+            enviados++;
+
+            if (perdida > 0f && random.nextFloat() < perdida) {
+                perdidos++;
+                return true; // para el que manda, salió
+            }
+
+            entrega = ahoraMs() + latenciaMs;
+            if (jitterMs > 0) entrega += (long) ((random.nextFloat() * 2f - 1f) * jitterMs);
+            if (reordenamiento > 0f && random.nextFloat() < reordenamiento) {
+                entrega += 1 + random.nextInt((int) Math.max(1L, latenciaMs + 2 * jitterMs));
+            }
+        }
+
+        otro.entregar(new Paquete(copia, direccion, entrega));
+        return true;
+    }
+
+    @Override
+    public void esperar(long timeoutMs, boolean quiereEscribir) throws ClosedChannelException {
+        // quiereEscribir no aplica: enviar() nunca rechaza
+        synchronized (this) {
+            long limite = (timeoutMs > 0) ? ahoraMs() + timeoutMs : Long.MAX_VALUE;
+            while (true) {
+                if (cerrado) throw new ClosedChannelException();
+                if (despertado) {
+                    despertado = false;
+                    return;
+                }
+
+                long ahora = ahoraMs();
+                Paquete p = bandeja.peek();
+                if (p != null && p.entregaMs <= ahora) return;
+                if (ahora >= limite) return;
+
+                long hasta = limite;
+                if (p != null) hasta = Math.min(hasta, p.entregaMs);
+                try {
+                    wait(Math.max(1L, Math.min(hasta - ahora, Integer.MAX_VALUE)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void despertar() {
+        despertado = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void cerrar() {
+        cerrado = true;
+        bandeja.clear();
+        notifyAll();
+    }
+
+    public synchronized long getEnviados() {
+        return enviados;
+    }
+
+    public synchronized long getPerdidos() {
+        return perdidos;
+    }
+
+    /** Datagramas que llegaron a este extremo con la bandeja llena. */
+    public synchronized long getDesbordes() {
+        return desbordes;
+    }
+
+    public synchronized int getPendientes() {
+        return bandeja.size();
+    }
+
+    private synchronized void entregar(Paquete p) {
+        if (cerrado) return;
+        if (bandeja.size() >= capacidad) {
+            desbordes++;
+            return;
+        }
+        p.orden = proxOrden++;
+        bandeja.add(p);
+        notifyAll();
+    }
+
+    private static long ahoraMs() {
+        return System.nanoTime() / 1_000_000L;
+    }
+
+    private static final class Paquete implements Comparable<Paquete> {
+        final byte[] datos;
+        final SocketAddress origen;
+        final long entregaMs;
+        long orden;
+
+        Paquete(byte[] datos, SocketAddress origen, long entregaMs) {
+            this.datos = datos;
+            this.origen = origen;
+            this.entregaMs = entregaMs;
+        }
+
+        @Override
+        public int compareTo(Paquete o) {
+            if (entregaMs != o.entregaMs) return Long.compare(entregaMs, o.entregaMs);
+            return Long.compare(orden, o.orden);
+        }
+    }
+}
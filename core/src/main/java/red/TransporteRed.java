@@ -0,0 +1,39 @@
+package red;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+* Transporte de datagramas que usa ClientThread.
+*
+* - TransporteUdp: DatagramChannel + Selector (el juego real).
+* - TransporteLoopback: en memoria, con latencia/jitter/pérdida/reordenamiento
+*   configurables, para probar sincronización y colas sin server externo.
+*
+* Todos los métodos los llama el hilo de red salvo despertar() y cerrar().
+*/
+public interface TransporteRed {
+    /**
+    * Copia el próximo datagrama en destino (posición en adelante) y devuelve su origen,
+    * o null si no hay nada para leer. No bloquea.
+    */
+    SocketAddress recibir(ByteBuffer destino) throws IOException;
+
+    /**
+    * Manda lo que queda en datos. Devuelve false si el transporte no lo aceptó todavía
+    * (buffer lleno): hay que reintentar con el mismo buffer después de esperar().
+    */
+    boolean enviar(ByteBuffer datos, SocketAddress destino) throws IOException;
+
+    /**
+    * Bloquea hasta que haya algo para leer, timeoutMs o despertar() (0 = sin límite).
+    * quiereEscribir: además despierta cuando se pueda volver a enviar.
+    */
+    void esperar(long timeoutMs, boolean quiereEscribir) throws IOException;
+
+    /** Hace volver a esperar() (desde cualquier hilo). */
+    void despertar();
+
+    void cerrar();
+}
@@ -0,0 +1,71 @@
+package red;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+/**
+* Transporte real: DatagramChannel no bloqueante con Selector.
+* Si el buffer del SO se llena, esperar() también despierta con OP_WRITE.
+*/
+public final class TransporteUdp implements TransporteRed {
+    private final DatagramChannel canal;
+
+    private final Selector selector;
+
+    private final SelectionKey clave;
+
+    public TransporteUdp() throws IOException {
+        this(0);
+    }
+
+    /** puerto 0 = cualquiera libre (cliente). El server bindea el suyo. */
+    public TransporteUdp(int puerto) throws IOException {
+        canal = DatagramChannel.open();
+        canal.configureBlocking(false);
+        canal.setOption(StandardSocketOptions.SO_BROADCAST, true);
+        canal.bind(puerto > 0 ? new InetSocketAddress(puerto) : null);
+
+        selector = Selector.open();
+        clave = canal.register(selector, SelectionKey.OP_READ);
+    }
+
+    @Override
+    public SocketAddress recibir(ByteBuffer destino) throws IOException {
+        return canal.receive(destino);
+    }
+
+    @Override
+    public boolean enviar(ByteBuffer datos, SocketAddress destino) throws IOException {
+        return canal.send(datos, destino) != 0;
+    }
+
+    @Override
+    public void esperar(long timeoutMs, boolean quiereEscribir) throws IOException {
+        if (clave.isValid()) {
+            clave.interestOps(quiereEscribir ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ);
+        }
+        selector.select(timeoutMs);
+        selector.selectedKeys().clear();
+    }
+
+    @Override
+    public void despertar() {
+        selector.wakeup();
+    }
+
+    @Override
+    public void cerrar() {
+        try {
+            selector.close();
+        } catch (IOException ignored) {}
+        try {
+            canal.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,68 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/** AnilloSpsc: los eventos del hilo de red al render, sin locks. */
+class AnilloSpscTest {
+    @Test
+    void llenoDescartaLoNuevo() {
+        AnilloSpsc<int[]> anillo = new AnilloSpsc<>(3, () -> new int[1]);
+        assertEquals(4, anillo.capacidad());
+
+        for (int i = 0; i < 5; i++) {
+            int[] ev = anillo.reservar();
+            if (ev == null) continue;
+            ev[0] = i;
+            anillo.publicar();
+        }
+        assertEquals(1, anillo.getDesbordes());
+
+        int[] ev = anillo.leer();
+        assertEquals(0, ev[0]);
+        // sin liberar, leer() devuelve el mismo slot
+        assertSame(ev, anillo.leer());
+        anillo.liberar();
+        assertEquals(1, anillo.leer()[0]);
+
+        anillo.vaciar();
+        assertNull(anillo.leer());
+        assertEquals(0, anillo.size());
+    }
+
+    @Test
+    void entreHilos() throws InterruptedException {
+        AnilloSpsc<int[]> anillo = new AnilloSpsc<>(64, () -> new int[1]);
+        final int total = 20_000;
+        final long limite = System.currentTimeMillis() + 10_000;
+        // yield y no spin: con un solo core el que espera le tiene que dejar lugar al otro
+        Thread productor = new Thread(() -> {
+            for (int i = 0; i < total && System.currentTimeMillis() < limite; i++) {
+                int[] ev;
+                while ((ev = anillo.reservar()) == null) {
+                    if (System.currentTimeMillis() > limite) return;
+                    Thread.yield();
+                }
+                ev[0] = i;
+                anillo.publicar();
+            }
+        });
+        productor.start();
+
+        int esperado = 0;
+        while (esperado < total && System.currentTimeMillis() < limite) {
+            int[] ev = anillo.leer();
+            if (ev == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(esperado++, ev[0]);
+            anillo.liberar();
+        }
+        productor.join();
+        assertEquals(total, esperado);
+    }
+}
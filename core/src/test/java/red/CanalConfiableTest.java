@@ -0,0 +1,200 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+* Dos CanalConfiable conectados a mano: lo que sale del tick() de uno se entrega al otro
+* (o se pierde / se desordena), sin hilos ni reloj real.
+*/
+class CanalConfiableTest {
+    private static final int MAX = 64;
+
+    /** Un extremo: su canal, lo que le entregó en orden y lo que está por mandar. */
+    private static final class Extremo {
+        final CanalConfiable canal = new CanalConfiable(MAX);
+        final EscritorBinario out = new EscritorBinario(MAX + CanalConfiable.CABECERA);
+        final LectorBinario in = new LectorBinario();
+        final List<Integer> entregados = new ArrayList<>();
+        final List<byte[]> salida = new ArrayList<>();
+
+        /** false solo si el mensaje no entra en maxPayload (con la ventana llena espera). */
+        boolean enviar(int valor) {
+            byte[] msg = { (byte) ProtocoloBinario.OP_DESPAWN_ENEMY, (byte) valor };
+            return canal.enviar(msg, 0, msg.length);
+        }
+
+        void tick(long ahoraMs) {
+            canal.tick(ahoraMs, out, (datos, largo) -> {
+                byte[] copia = new byte[largo];
+                System.arraycopy(datos, 0, copia, 0, largo);
+                salida.add(copia);
+            });
+        }
+
+        void recibir(byte[] frame) {
+            in.reset(frame, 0, frame.length);
+            assertEquals(ProtocoloBinario.MAGIC & 0xFF, in.u8());
+            int op = in.u8();
+            if (op == ProtocoloBinario.OP_ACK) {
+                canal.recibirAck(in);
+                return;
+            }
+            assertEquals(ProtocoloBinario.OP_CONFIABLE, op);
+            canal.recibir(in, mensaje -> {
+                assertEquals(ProtocoloBinario.OP_DESPAWN_ENEMY, mensaje.u8());
+                entregados.add(mensaje.u8());
+            });
+        }
+    }
+
+    /** Pasa lo pendiente de a hacia b: pierde con probabilidad "perdida" y mezcla el orden. */
+    private static void transmitir(Extremo a, Extremo b, Random random, float perdida) {
+        List<byte[]> enVuelo = new ArrayList<>(a.salida);
+        a.salida.clear();
+        Collections.shuffle(enVuelo, random);
+        for (byte[] frame : enVuelo) {
+            if (random.nextFloat() >= perdida) b.recibir(frame);
+        }
+    }
+
+    @Test
+    void entregaEnOrdenSinPerdidas() {
+        Extremo a = new Extremo();
+        Extremo b = new Extremo();
+        for (int i = 0; i < 5; i++) assertTrue(a.enviar(i));
+
+        a.tick(0);
+        assertEquals(5, a.salida.size());
+        // llegan al revés: igual se entregan en orden
+        Collections.reverse(a.salida);
+        transmitir(a, b, new Random(1), 0f);
+        assertEquals(List.of(0, 1, 2, 3, 4), b.entregados);
+
+        // b confirma con un OP_ACK suelto
+        b.tick(0);
+        assertEquals(1, b.salida.size());
+        transmitir(b, a, new Random(1), 0f);
+        assertEquals(0, a.canal.getSinConfirmar());
+        assertFalse(a.canal.tienePendientes());
+    }
+
+    @Test
+    void duplicadosNoSeEntreganDosVeces() {
+        Extremo a = new Extremo();
+        Extremo b = new Extremo();
+        assertTrue(a.enviar(7));
+        a.tick(0);
+        byte[] frame = a.salida.get(0);
+
+        b.recibir(frame);
+        b.recibir(frame);
+        assertEquals(List.of(7), b.entregados);
+
+        // pero el duplicado se vuelve a confirmar (el ack anterior se pudo perder)
+        b.tick(0);
+        assertEquals(1, b.salida.size());
+    }
+
+    @Test
+    void reenviaHastaQueConfirman() {
+        Extremo a = new Extremo();
+        assertTrue(a.enviar(1));
+        a.tick(0);
+        a.salida.clear(); // se perdió
+
+        a.tick(100);
+        assertTrue(a.salida.isEmpty()); // todavía no venció
+        a.tick(200);
+        assertEquals(1, a.salida.size());
+        assertEquals(1, a.canal.getReenvios());
+    }
+
+    @Test
+    void conPerdidaYDesordenLlegaTodoEnOrden() {
+        Extremo a = new Extremo();
+        Extremo b = new Extremo();
+        Random random = new Random(42);
+
+        // todos de una: más de la ventana, el resto espera en el canal a que haya lugar
+        for (int i = 0; i < 200; i++) assertTrue(a.enviar(i & 0xFF));
+
+        long ahora = 0;
+        while (ahora < 60_000 && b.entregados.size() < 200) {
+            a.tick(ahora);
+            b.tick(ahora);
+            transmitir(a, b, random, 0.3f);
+            transmitir(b, a, random, 0.3f);
+            ahora += 50;
+        }
+
+        assertEquals(200, b.entregados.size());
+        for (int i = 0; i < 200; i++) assertEquals(i & 0xFF, (int) b.entregados.get(i));
+        assertTrue(a.canal.getReenvios() > 0);
+        assertEquals(0, a.canal.getEnEspera());
+    }
+
+    @Test
+    void ventanaLlenaEspera() {
+        Extremo a = new Extremo();
+        Extremo b = new Extremo();
+        for (int i = 0; i < 40; i++) assertTrue(a.enviar(i));
+        assertEquals(8, a.canal.getEnEspera());
+        assertEquals(40, a.canal.getSinConfirmar());
+
+        // sale solo la ventana; los 8 de atrás toman seq cuando llega el ack
+        a.tick(0);
+        assertEquals(32, a.salida.size());
+        transmitir(a, b, new Random(1), 0f);
+        b.tick(0);
+        transmitir(b, a, new Random(1), 0f);
+        assertEquals(0, a.canal.getEnEspera());
+
+        a.tick(0);
+        assertEquals(8, a.salida.size());
+        transmitir(a, b, new Random(1), 0f);
+        assertEquals(40, b.entregados.size());
+        for (int i = 0; i < 40; i++) assertEquals(i, (int) b.entregados.get(i));
+    }
+
+    @Test
+    void despachaSinTenerElLock() {
+        Extremo a = new Extremo();
+        CanalConfiable b = new CanalConfiable(MAX);
+        assertTrue(a.enviar(1));
+        a.tick(0);
+        byte[] frame = a.salida.get(0);
+
+        // mientras b despacha, otro hilo (el render) manda por b: no tiene que quedar esperando
+        boolean[] mando = { false };
+        LectorBinario in = new LectorBinario();
+        in.reset(frame, 2, frame.length - 2);
+        b.recibir(in, mensaje -> {
+            Thread render = new Thread(() -> mando[0] = b.enviar(new byte[] { (byte) ProtocoloBinario.OP_READY }, 0, 1));
+            render.start();
+            try {
+                render.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse(render.isAlive());
+        });
+        assertTrue(mando[0]);
+        assertEquals(1, b.getSinConfirmar());
+    }
+
+    @Test
+    void masGrandeQueMaxPayloadNoEntra() {
+        CanalConfiable canal = new CanalConfiable(MAX);
+        assertFalse(canal.enviar(new byte[MAX + 1], 0, MAX + 1));
+        assertEquals(0, canal.getSinConfirmar());
+    }
+}
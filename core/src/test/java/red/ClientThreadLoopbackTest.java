@@ -0,0 +1,285 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+* ClientThread de verdad (con su hilo) contra un server de prueba, por TransporteLoopback
+* con latencia, pérdida y reordenamiento. El server lo maneja el propio test con paso().
+*/
+class ClientThreadLoopbackTest {
+    private static final int MTU = 1472;
+
+    private static final long TIMEOUT_MS = 20_000;
+
+    private final ControladorPrueba controller = new ControladorPrueba();
+
+    private ClientThread cliente;
+
+    private TransporteLoopback transporteCliente;
+
+    private ServidorPrueba servidor;
+
+    /** Lo mínimo de un server: texto por líneas, binario con un CanalConfiable. */
+    private static final class ServidorPrueba {
+        final TransporteLoopback transporte;
+        final CanalConfiable canal = new CanalConfiable(MTU);
+        final EscritorBinario out = new EscritorBinario(MTU);
+        final LectorBinario lector = new LectorBinario();
+        final ByteBuffer entrada = ByteBuffer.allocate(MTU);
+        final List<String> lineas = new ArrayList<>();
+        final List<Integer> readys = new ArrayList<>();
+        SocketAddress cliente;
+
+        ServidorPrueba(TransporteLoopback transporte) {
+            this.transporte = transporte;
+        }
+
+        /** Procesa lo que llegó y pasa al transporte lo que toque del canal confiable. */
+        void paso() throws IOException {
+            while (true) {
+                entrada.clear();
+                SocketAddress origen = transporte.recibir(entrada);
+                if (origen == null) break;
+                cliente = origen;
+                entrada.flip();
+                byte[] b = new byte[entrada.remaining()];
+                entrada.get(b);
+
+                if (!ProtocoloBinario.esBinario(b, 0, b.length)) {
+                    for (String linea : new String(b, StandardCharsets.UTF_8).split("\n")) lineas.add(linea);
+                    continue;
+                }
+                lector.reset(b, 1, b.length - 1);
+                binario(true);
+            }
+            if (cliente != null) canal.tick(System.currentTimeMillis(), out, this::enviar);
+        }
+
+        /** Un mensaje binario del cliente; un OP_BUNDLE se abre (sin bundles adentro). */
+        private void binario(boolean admiteBundle) {
+            int op = lector.u8();
+            if (op == ProtocoloBinario.OP_ACK) canal.recibirAck(lector);
+            else if (op == ProtocoloBinario.OP_CONFIABLE) canal.recibir(lector, this::confiable);
+            else if (op == ProtocoloBinario.OP_BUNDLE && admiteBundle) {
+                while (lector.restantes() > 0) {
+                    int largo = lector.varInt();
+                    if (!lector.ok() || largo <= 0) return;
+                    int fin = lector.limitar(largo);
+                    if (!lector.ok()) return;
+                    binario(false);
+                    if (!lector.salirDeLimite(fin)) return;
+                }
+            }
+        }
+
+        private void confiable(LectorBinario in) {
+            if (in.u8() == ProtocoloBinario.OP_READY) readys.add(in.varInt());
+        }
+
+        void enviarTexto(String texto) {
+            byte[] b = texto.getBytes(StandardCharsets.UTF_8);
+            enviar(b, b.length);
+        }
+
+        /** Frame completo (con MAGIC) por el canal confiable. */
+        void enviarConfiable(EscritorBinario frame) {
+            assertTrue(canal.enviar(frame.datos(), 1, frame.largo() - 1));
+        }
+
+        private void enviar(byte[] datos, int largo) {
+            try {
+                transporte.enviar(ByteBuffer.wrap(datos, 0, largo), cliente);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean recibioLinea(String prefijo) {
+            for (String l : lineas) {
+                if (l.startsWith(prefijo)) return true;
+            }
+            return false;
+        }
+    }
+
+    private void arrancar(long latenciaMs, long jitterMs, float perdida, float reordenamiento) {
+        TransporteLoopback[] par = TransporteLoopback.crearPar(latenciaMs, jitterMs, perdida, reordenamiento, 7L);
+        transporteCliente = par[0];
+        servidor = new ServidorPrueba(par[1]);
+        cliente = new ClientThread(controller, par[0], par[1].getDireccion());
+        cliente.start();
+    }
+
+    /** Corre el server hasta que se cumpla la condición; "cada" se llama en cada vuelta. */
+    private boolean correr(BooleanSupplier condicion, Runnable cada) throws Exception {
+        long limite = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) return false;
+            if (cada != null) cada.run();
+            servidor.paso();
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /** Connect (repetido hasta que llega) y Connected (repetido hasta que el cliente lo toma). */
+    private void conectar(String connect, String connected) throws Exception {
+        long[] proximo = { 0L };
+        assertTrue(correr(() -> servidor.recibioLinea("Connect:"), () -> {
+            if (System.currentTimeMillis() < proximo[0]) return;
+            proximo[0] = System.currentTimeMillis() + 100;
+            cliente.sendMessage(connect);
+        }));
+        proximo[0] = 0L;
+        assertTrue(correr(() -> !controller.eventos("connect").isEmpty(), () -> {
+            if (System.currentTimeMillis() < proximo[0]) return;
+            proximo[0] = System.currentTimeMillis() + 100;
+            servidor.enviarTexto(connected);
+        }));
+    }
+
+    @AfterEach
+    void cerrar() {
+        if (cliente != null) cliente.close();
+        if (servidor != null) servidor.transporte.cerrar();
+    }
+
+    @Test
+    void confiablesEnLosDosSentidosConPerdidaYDesorden() throws Exception {
+        arrancar(10, 5, 0.2f, 0.2f);
+        conectar("Connect:MASCULINO:CLASICO:" + ProtocoloBinario.TOKEN_VERSION,
+            "Connected:1:" + ProtocoloBinario.TOKEN_VERSION + ":" + ClientThread.TOKEN_LOTE);
+        assertTrue(cliente.isBinario());
+
+        // todo de una, más que la ventana (32): lo que no entra espera en el canal de cada lado
+        final int total = 100;
+        EscritorBinario frame = new EscritorBinario(64);
+        for (int i = 0; i < total; i++) {
+            ProtocoloBinario.despawnEnemy(frame, i);
+            servidor.enviarConfiable(frame);
+            ProtocoloBinario.ready(frame, i + 1);
+            cliente.sendConfiable(frame.datos(), frame.largo());
+        }
+
+        assertTrue(correr(
+            () -> controller.eventos("despawnEnemy").size() == total && servidor.readys.size() == total, null),
+            () -> "al cliente " + controller.eventos("despawnEnemy").size() + "/" + total
+                + ", al server " + servidor.readys.size() + "/" + total);
+
+        List<String> despawns = controller.eventos("despawnEnemy");
+        for (int i = 0; i < total; i++) assertEquals("despawnEnemy " + i, despawns.get(i));
+        for (int i = 0; i < total; i++) assertEquals(i + 1, (int) servidor.readys.get(i));
+
+        // los acks terminan de llegar: no queda nada sin confirmar en ningún lado
+        assertTrue(correr(() -> cliente.getConfiablesSinConfirmar() == 0 && servidor.canal.getSinConfirmar() == 0, null));
+        assertTrue(cliente.getReenviosConfiables() + servidor.canal.getReenvios() > 0);
+    }
+
+    @Test
+    void rafagaDeUpdatesConLatenciaPerdidaYDesorden() throws Exception {
+        arrancar(40, 15, 0.1f, 0.1f);
+        conectar("Connect:MASCULINO:CLASICO", "Connected:1");
+
+        // los Connected repetidos de conectar() no cuentan
+        final int total = 20_000;
+        final long perdidosAntes = servidor.transporte.getPerdidos();
+        int[] enviados = { 0 };
+
+        // de a 200 por vuelta: el cliente decodifica mientras el server sigue mandando
+        assertTrue(correr(() -> enviados[0] == total
+                && controller.eventos("updatePlayerPosition").size()
+                    == total - (servidor.transporte.getPerdidos() - perdidosAntes) - transporteCliente.getDesbordes(),
+            () -> {
+                for (int n = 0; n < 200 && enviados[0] < total; n++) {
+                    servidor.enviarTexto("UpdatePosition:1:" + enviados[0]++ + ":0");
+                }
+            }), () -> "llegaron " + controller.eventos("updatePlayerPosition").size() + " de " + enviados[0]);
+
+        // ninguno dos veces; alguno fuera de orden (el reordenamiento llegó al cliente)
+        List<String> updates = controller.eventos("updatePlayerPosition");
+        boolean[] visto = new boolean[total];
+        boolean desordenado = false;
+        int anterior = -1;
+        for (String u : updates) {
+            int x = (int) Float.parseFloat(u.split(" ")[2]);
+            assertFalse(visto[x], "duplicado " + x);
+            visto[x] = true;
+            if (x < anterior) desordenado = true;
+            anterior = x;
+        }
+        assertTrue(desordenado);
+        assertTrue(servidor.transporte.getPerdidos() - perdidosAntes > 0);
+    }
+
+    @Test
+    void textoEnLoteYPingDeTexto() throws Exception {
+        arrancar(5, 2, 0f, 0f);
+        conectar("Connect:MASCULINO:CLASICO",
+            "Connected:2:" + ClientThread.TOKEN_LOTE + ":" + ClientThread.TOKEN_PING);
+        assertEquals(List.of("connect 2"), controller.eventos("connect"));
+
+        // varias líneas en un datagrama
+        servidor.enviarTexto("Damage:2:3:6\nDespawnItem:9\nRoomClear:SALA_1");
+        assertTrue(ControladorPrueba.esperar(() -> !controller.eventos("roomClear").isEmpty(), TIMEOUT_MS));
+        List<String> ev = controller.eventos();
+        assertTrue(ev.indexOf("despawnItem 9") < ev.indexOf("roomClear SALA_1"));
+
+        // el cliente pinguea por texto; el server contesta con lo mismo
+        assertTrue(correr(() -> servidor.recibioLinea("Ping:"), null));
+        String ping = null;
+        for (String l : servidor.lineas) {
+            if (l.startsWith("Ping:")) ping = l;
+        }
+        servidor.enviarTexto("Pong" + ping.substring("Ping".length()));
+        assertTrue(ControladorPrueba.esperar(() -> cliente.getEstadisticas().getRttMs() >= 0f, TIMEOUT_MS));
+    }
+
+    @Test
+    void tokenDeSesionDe19DigitosVuelveEnElResume() throws Exception {
+        final long token = 8123456789012345678L;
+        arrancar(5, 2, 0f, 0f);
+        conectar("Connect:MASCULINO:CLASICO", "Connected:3:" + ClientThread.TOKEN_LOTE);
+
+        // en el mismo datagrama: cuando llega el despawnItem el Session ya se procesó
+        servidor.enviarTexto("Session:" + token + "\nDespawnItem:1");
+        assertTrue(ControladorPrueba.esperar(() -> !controller.eventos("despawnItem").isEmpty(), TIMEOUT_MS));
+        cliente.marcarEnPartida();
+
+        // el server se calla: pasados SILENCIO_RECONEXION_MS el cliente pide Resume con el token entero
+        assertTrue(correr(() -> servidor.recibioLinea("Resume:"), null));
+        assertTrue(cliente.isReconectando());
+        String resume = null;
+        for (String l : servidor.lineas) {
+            if (l.startsWith("Resume:")) resume = l;
+        }
+        assertEquals("Resume:" + token + ":MASCULINO:CLASICO", resume);
+
+        // como lo lee ServidorJuego
+        LectorTexto in = new LectorTexto();
+        byte[] b = resume.getBytes(StandardCharsets.US_ASCII);
+        in.reset(b, 0, b.length);
+        in.saltar();
+        assertEquals(token, in.largoOr(0L));
+
+        // Resync cierra la reconexión (la seed también va como largo)
+        servidor.enviarTexto("Resync:" + Long.MAX_VALUE + ":2:SALA_1:5");
+        assertTrue(ControladorPrueba.esperar(() -> !controller.eventos("resync").isEmpty(), TIMEOUT_MS));
+        assertEquals(List.of("resync " + Long.MAX_VALUE + " 2 SALA_1 5"), controller.eventos("resync"));
+        assertEquals(List.of("reconexion true", "reconexion false"), controller.eventos("reconexion"));
+        assertEquals(1, cliente.getReconexiones());
+    }
+}
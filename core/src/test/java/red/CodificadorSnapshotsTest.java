@@ -0,0 +1,99 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/** CodificadorSnapshots (server) contra ReplicadorSnapshots (cliente). */
+class CodificadorSnapshotsTest {
+    private final CodificadorSnapshots codificador = new CodificadorSnapshots();
+
+    private final ReplicadorSnapshots replicador = new ReplicadorSnapshots();
+
+    private final ControladorPrueba controller = new ControladorPrueba();
+
+    private final EscritorBinario out = new EscritorBinario(2048);
+
+    private final LectorBinario in = new LectorBinario();
+
+    // Reloj del server: avanza un tick (50 ms) por snapshot
+    private long ahoraMs = 1000;
+
+    private int mandar(float[][] enemigos) {
+        codificador.empezar();
+        for (float[] e : enemigos) codificador.agregarEnemigo((int) e[0], e[1], e[2]);
+        ahoraMs += 50;
+        return codificador.codificar(out, ahoraMs);
+    }
+
+    private void recibir() {
+        in.reset(out.datos(), 0, out.largo());
+        assertEquals(ProtocoloBinario.MAGIC & 0xFF, in.u8());
+        assertEquals(ProtocoloBinario.OP_SNAPSHOT, in.u8());
+        replicador.recibir(in, controller, null);
+    }
+
+    @Test
+    void completoYDespuesDelta() {
+        int id = mandar(new float[][] { { 1, 10, 20 }, { 2, 30, 40 } });
+        recibir();
+        assertEquals(List.of("updateEnemy 1 10.0 20.0 @1050", "updateEnemy 2 30.0 40.0 @1050"), controller.eventos());
+        assertEquals(1, codificador.getCompletos());
+
+        assertTrue(replicador.consumirAckPendiente());
+        codificador.confirmar(replicador.getUltimoAplicado());
+        assertEquals(id, replicador.getUltimoAplicado());
+
+        // 1 se movió, 2 quedó quieto, 3 es nuevo: el delta lleva solo 1 y 3
+        int largoCompleto = out.largo();
+        mandar(new float[][] { { 1, 11, 20 }, { 2, 30, 40 }, { 3, 5, 5 } });
+        assertTrue(out.largo() < largoCompleto + 13);
+        recibir();
+        assertEquals(List.of("updateEnemy 1 11.0 20.0 @1100", "updateEnemy 3 5.0 5.0 @1100"),
+            controller.eventos().subList(2, 4));
+        assertEquals(1, codificador.getCompletos());
+    }
+
+    @Test
+    void bajas() {
+        mandar(new float[][] { { 1, 0, 0 }, { 2, 0, 0 } });
+        recibir();
+        codificador.confirmar(replicador.getUltimoAplicado());
+
+        mandar(new float[][] { { 2, 0, 0 } });
+        recibir();
+        assertEquals(List.of("despawnEnemy 1"), controller.eventos("despawnEnemy"));
+    }
+
+    @Test
+    void sinAckSeSigueContraElUltimoConfirmado() {
+        mandar(new float[][] { { 1, 0, 0 } });
+        recibir();
+        codificador.confirmar(replicador.getUltimoAplicado());
+
+        // se pierden dos snapshots: el tercero igual se arma contra el confirmado y se aplica
+        mandar(new float[][] { { 1, 1, 0 } });
+        mandar(new float[][] { { 1, 2, 0 } });
+        mandar(new float[][] { { 1, 3, 0 } });
+        recibir();
+        assertEquals("updateEnemy 1 3.0 0.0 @1200", controller.eventos().get(1));
+        assertEquals(0, replicador.getDescartados());
+    }
+
+    @Test
+    void resetMandaCompleto() {
+        mandar(new float[][] { { 1, 0, 0 } });
+        recibir();
+        codificador.confirmar(replicador.getUltimoAplicado());
+
+        codificador.reset();
+        replicador.reset();
+        mandar(new float[][] { { 1, 0, 0 } });
+        recibir();
+        assertEquals(2, codificador.getCompletos());
+        assertEquals(2, controller.eventos("updateEnemy").size());
+    }
+}
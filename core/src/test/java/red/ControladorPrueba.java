@@ -0,0 +1,63 @@
+package red;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+* GameController de los tests: anota cada llamada como texto ("despawnEnemy 7") en el orden
+* en que llegó. Lo escribe el hilo de red del cliente y lo lee el test.
+*/
+final class ControladorPrueba implements GameController {
+    private final List<String> eventos = new ArrayList<>();
+
+    private synchronized void anotar(String evento) {
+        eventos.add(evento);
+    }
+
+    /** Copia de lo anotado hasta ahora. */
+    synchronized List<String> eventos() {
+        return new ArrayList<>(eventos);
+    }
+
+    /** Eventos que empiezan con prefijo, en orden. */
+    synchronized List<String> eventos(String prefijo) {
+        List<String> r = new ArrayList<>();
+        for (String e : eventos) {
+            if (e.startsWith(prefijo)) r.add(e);
+        }
+        return r;
+    }
+
+    /** Espera (hasta timeoutMs) a que se cumpla la condición. */
+    static boolean esperar(BooleanSupplier condicion, long timeoutMs) throws InterruptedException {
+        long limite = System.currentTimeMillis() + timeoutMs;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    @Override public void disconnect(String reason) { anotar("disconnect " + reason); }
+    @Override public void updatePlayerPosition(int playerId, float x, float y) { anotar("updatePlayerPosition " + playerId + " " + x + " " + y); }
+    @Override public void updateRoom(String habitacionId) { anotar("updateRoom " + habitacionId); }
+    @Override public void connect(int playerId) { anotar("connect " + playerId); }
+    @Override public void dead(int playerId) { anotar("dead " + playerId); }
+    @Override public void despawnEnemy(int enemyId) { anotar("despawnEnemy " + enemyId); }
+    @Override public void despawnItem(int itemId) { anotar("despawnItem " + itemId); }
+    @Override public void pickupItem(int jugadorId, int itemId, String tipo) { anotar("pickupItem " + jugadorId + " " + itemId + " " + tipo); }
+    @Override public void updateEnemy(int enemyId, float x, float y) { anotar("updateEnemy " + enemyId + " " + x + " " + y); }
+    @Override public void updateEnemy(int enemyId, float x, float y, long serverTimeMs) { anotar("updateEnemy " + enemyId + " " + x + " " + y + " @" + serverTimeMs); }
+    @Override public void damage(int playerId, int vida, int vidaMax) { anotar("damage " + playerId + " " + vida + " " + vidaMax); }
+    @Override public void spawnEnemy(int enemyId, String nombre, float x, float y, String sala) { anotar("spawnEnemy " + enemyId + " " + nombre); }
+    @Override public void hud(int playerId, int vida, int vidaMax, String tiposCsv) { anotar("hud " + playerId + " " + vida + " " + vidaMax); }
+    @Override public void spawnItem(int itemId, String tipo, float x, float y) { anotar("spawnItem " + itemId + " " + tipo); }
+    @Override public void other(int otherPlayerId, int vida, int vidaMax) { anotar("other " + otherPlayerId + " " + vida + " " + vidaMax); }
+    @Override public void roomClear(String sala) { anotar("roomClear " + sala); }
+    @Override public void appearance(int playerId, String genero, String estilo) { anotar("appearance " + playerId); }
+    @Override public void gameOver(int loserId) { anotar("gameOver " + loserId); }
+    @Override public void start(long seed, int nivel) { anotar("start " + seed + " " + nivel); }
+    @Override public void reconexion(boolean enCurso) { anotar("reconexion " + enCurso); }
+    @Override public void resync(long seed, int nivel, String sala, long salasResueltas) { anotar("resync " + seed + " " + nivel + " " + sala + " " + salasResueltas); }
+}
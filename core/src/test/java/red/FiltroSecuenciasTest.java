@@ -0,0 +1,49 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class FiltroSecuenciasTest {
+    @Test
+    void viejosYDuplicadosSeDescartan() {
+        FiltroSecuencias f = new FiltroSecuencias();
+        assertTrue(f.aceptarJugador(1, 10));
+        assertFalse(f.aceptarJugador(1, 10));
+        assertFalse(f.aceptarJugador(1, 9));
+        assertTrue(f.aceptarJugador(1, 12));
+        // cada id lleva su secuencia
+        assertTrue(f.aceptarJugador(2, 1));
+        assertEquals(2, f.getDescartados());
+    }
+
+    @Test
+    void daLaVuelta() {
+        FiltroSecuencias f = new FiltroSecuencias();
+        assertTrue(f.aceptarEnemigo(5, 0xFFFE));
+        assertTrue(f.aceptarEnemigo(5, 0x0001));
+        assertFalse(f.aceptarEnemigo(5, 0xFFFF));
+    }
+
+    @Test
+    void sinSecuenciaPasaSiempre() {
+        FiltroSecuencias f = new FiltroSecuencias();
+        assertTrue(f.aceptarJugador(1, 100));
+        assertTrue(f.aceptarJugador(1, -1));
+        assertTrue(f.aceptarJugador(1, -1));
+    }
+
+    @Test
+    void olvidarYReset() {
+        FiltroSecuencias f = new FiltroSecuencias();
+        assertTrue(f.aceptarEnemigo(3, 50));
+        f.olvidarEnemigo(3);
+        assertTrue(f.aceptarEnemigo(3, 0));
+
+        assertTrue(f.aceptarJugador(1, 50));
+        f.reset();
+        assertTrue(f.aceptarJugador(1, 0));
+    }
+}
@@ -0,0 +1,87 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class FragmentadorTest {
+    private static final int MTU = 100;
+
+    private static final InetSocketAddress ORIGEN = new InetSocketAddress("127.0.0.1", 5556);
+
+    private static byte[] mensaje(int largo, long semilla) {
+        byte[] b = new byte[largo];
+        new Random(semilla).nextBytes(b);
+        return b;
+    }
+
+    private static List<byte[]> fragmentar(Fragmentador f, byte[] datos) {
+        List<byte[]> fragmentos = new ArrayList<>();
+        assertTrue(f.fragmentar(datos, datos.length, (b, n) -> fragmentos.add(Arrays.copyOf(b, n))));
+        return fragmentos;
+    }
+
+    @Test
+    void desordenadoYConDuplicados() {
+        Fragmentador f = new Fragmentador(MTU);
+        Reensamblador r = new Reensamblador(MTU);
+        byte[] datos = mensaje(1000, 1);
+
+        List<byte[]> fragmentos = fragmentar(f, datos);
+        assertEquals(11, fragmentos.size()); // 94 bytes por fragmento
+        fragmentos.add(fragmentos.get(3));
+        Collections.shuffle(fragmentos, new Random(2));
+
+        int largo = -1;
+        for (byte[] frag : fragmentos) {
+            int n = r.agregar(ORIGEN, frag, 0, frag.length, 0L);
+            if (n >= 0) largo = n;
+        }
+        assertEquals(datos.length, largo);
+        assertArrayEquals(datos, Arrays.copyOf(r.getCompleto(), largo));
+        assertEquals(1, r.getCompletos());
+    }
+
+    @Test
+    void unFragmentoPerdidoVence() {
+        Fragmentador f = new Fragmentador(MTU);
+        Reensamblador r = new Reensamblador(MTU);
+
+        List<byte[]> fragmentos = fragmentar(f, mensaje(500, 3));
+        fragmentos.remove(2);
+        for (byte[] frag : fragmentos) assertEquals(-1, r.agregar(ORIGEN, frag, 0, frag.length, 0L));
+
+        // el siguiente mensaje, pasado el timeout, se lleva el viejo
+        byte[] otro = mensaje(200, 4);
+        int largo = -1;
+        for (byte[] frag : fragmentar(f, otro)) largo = r.agregar(ORIGEN, frag, 0, frag.length, Reensamblador.TIMEOUT_MS + 1);
+        assertEquals(otro.length, largo);
+        assertEquals(1, r.getVencidos());
+    }
+
+    @Test
+    void demasiadoGrandeNoSeManda() {
+        Fragmentador f = new Fragmentador(MTU);
+        byte[] datos = new byte[f.maxMensaje() + 1];
+        assertFalse(f.fragmentar(datos, datos.length, (b, n) -> { throw new AssertionError("no debería mandar nada"); }));
+    }
+
+    @Test
+    void fragmentoMalFormadoEsInvalido() {
+        Reensamblador r = new Reensamblador(MTU);
+        // índice 0 de 2 que no viene lleno: no se sabe dónde va el siguiente
+        byte[] frag = { ProtocoloBinario.MAGIC, (byte) ProtocoloBinario.OP_FRAGMENTO, 0, 1, 0, 2, 9, 9 };
+        assertEquals(-1, r.agregar(ORIGEN, frag, 0, frag.length, 0L));
+        assertEquals(1, r.getInvalidos());
+    }
+}
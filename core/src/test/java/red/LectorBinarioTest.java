@@ -0,0 +1,97 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LectorBinarioTest {
+    private final EscritorBinario out = new EscritorBinario(256);
+
+    private final LectorBinario in = new LectorBinario();
+
+    private void leer() {
+        in.reset(out.datos(), 0, out.largo());
+    }
+
+    @Test
+    void idaYVuelta() {
+        out.reset().u8(200).u8(-3 & 0xFF).u16(0xBEEF).varInt(0).varInt(300).varInt(Integer.MAX_VALUE)
+            .i32(-123456789).i64(8123456789012345678L).f32(-1.5f).texto("Sala ñ");
+        leer();
+
+        assertEquals(200, in.u8());
+        assertEquals(-3, in.s8());
+        assertEquals(0xBEEF, in.u16());
+        assertEquals(0, in.varInt());
+        assertEquals(300, in.varInt());
+        assertEquals(Integer.MAX_VALUE, in.varInt());
+        assertEquals(-123456789, in.i32());
+        assertEquals(8123456789012345678L, in.i64());
+        assertEquals(-1.5f, in.f32());
+        assertEquals("Sala ñ", in.texto());
+        assertEquals(0, in.restantes());
+        assertTrue(in.ok());
+    }
+
+    @Test
+    void cortoEsErrorSinExcepcion() {
+        out.reset().u8(1).u8(2).u8(3);
+        leer();
+        assertEquals(0, in.i32());
+        assertFalse(in.ok());
+        assertEquals(0, in.restantes());
+
+        // varint sin fin
+        out.reset().u8(0x80).u8(0x80);
+        leer();
+        assertEquals(0, in.varInt());
+        assertFalse(in.ok());
+
+        // texto que dice ser más largo que el frame
+        out.reset().varInt(10).u8('a');
+        leer();
+        assertNull(in.texto());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void limiteDeBundle() {
+        // [largo 3][u8 u8 u8] [largo 1][u8]
+        out.reset().varInt(3).u8(1).u8(2).u8(3).varInt(1).u8(9);
+        leer();
+
+        int fin = in.limitar(in.varInt());
+        assertEquals(1, in.u8());
+        // se pasa del mensaje: error solo adentro del límite
+        assertEquals(0, in.i32());
+        assertFalse(in.ok());
+        assertTrue(in.salirDeLimite(fin));
+        assertTrue(in.ok());
+
+        fin = in.limitar(in.varInt());
+        assertEquals(9, in.u8());
+        assertTrue(in.salirDeLimite(fin));
+        assertEquals(0, in.restantes());
+
+        // un largo mayor a lo que queda es error del bundle
+        out.reset().varInt(5).u8(1);
+        leer();
+        in.limitar(in.varInt());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void copiar() {
+        out.reset().u8(4).u8(5).u8(6);
+        leer();
+        byte[] destino = new byte[2];
+        in.copiar(destino, 2);
+        assertEquals(4, destino[0]);
+        assertEquals(5, destino[1]);
+        in.copiar(destino, 2);
+        assertFalse(in.ok());
+    }
+}
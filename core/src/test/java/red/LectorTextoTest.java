@@ -0,0 +1,132 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class LectorTextoTest {
+    private static final byte[][] NOMBRES = {
+        "Connected".getBytes(StandardCharsets.US_ASCII),
+        "Session".getBytes(StandardCharsets.US_ASCII),
+        "In".getBytes(StandardCharsets.US_ASCII)
+    };
+
+    private final LectorTexto in = new LectorTexto();
+
+    private void leer(String mensaje) {
+        byte[] b = mensaje.getBytes(StandardCharsets.UTF_8);
+        in.reset(b, 0, b.length);
+    }
+
+    @Test
+    void comandoYCampos() {
+        leer("  Session:42:-7 \n");
+        assertEquals(3, in.campos());
+        assertEquals(1, in.comando(NOMBRES));
+        assertEquals(42, in.entero());
+        assertEquals(-7, in.entero());
+        assertTrue(in.ok());
+
+        leer("Desconocido:1");
+        assertEquals(-1, in.comando(NOMBRES));
+
+        leer("");
+        assertTrue(in.vacio());
+    }
+
+    @Test
+    void largoDe19Digitos() {
+        leer("Session:8123456789012345678:9223372036854775807:-9223372036854775808");
+        in.saltar();
+        assertEquals(8123456789012345678L, in.largo());
+        assertEquals(Long.MAX_VALUE, in.largo());
+        assertEquals(Long.MIN_VALUE, in.largo());
+        assertTrue(in.ok());
+    }
+
+    @Test
+    void largoQueNoEntraEsError() {
+        leer("Session:9223372036854775808");
+        in.saltar();
+        assertEquals(0L, in.largo());
+        assertFalse(in.ok());
+
+        leer("Session:-9223372036854775809");
+        in.saltar();
+        in.largo();
+        assertFalse(in.ok());
+
+        leer("Session:99999999999999999999");
+        in.saltar();
+        in.largo();
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void enteroMalFormadoEsError() {
+        leer("In:12a:3");
+        in.saltar();
+        in.entero();
+        assertFalse(in.ok());
+
+        // el campo que falta también
+        leer("In:1");
+        in.saltar();
+        assertEquals(1, in.entero());
+        assertEquals(0, in.entero());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void flotantes() {
+        leer("UpdatePosition:12.5:-0.25:3:1e2");
+        in.saltar();
+        assertEquals(12.5f, in.flotante());
+        assertEquals(-0.25f, in.flotante());
+        assertEquals(3f, in.flotante());
+        assertEquals(100f, in.flotante());
+        assertTrue(in.ok());
+    }
+
+    @Test
+    void textoConocidoNoAlloca() {
+        String[] conocidos = { "bin1", "lote" };
+        leer("Connected:1:lote:bin1:otro");
+        in.saltar();
+        in.saltar();
+        assertSame(conocidos[1], in.texto(conocidos));
+        assertSame(conocidos[0], in.texto(conocidos));
+        assertEquals("otro", in.texto(conocidos));
+        assertNull(in.texto());
+        assertFalse(in.ok());
+    }
+
+    @Test
+    void copiarCampo() {
+        byte[] destino = new byte[4];
+        leer("In:1:2:0a9f:x");
+        in.saltar();
+        in.saltar();
+        in.saltar();
+        assertEquals(4, in.copiar(destino));
+        assertEquals("0a9f", new String(destino, 0, 4, StandardCharsets.US_ASCII));
+
+        // lo que no entra se corta, y el cursor igual pasa al campo siguiente
+        leer("In:0123456789:z");
+        in.saltar();
+        assertEquals(4, in.copiar(destino));
+        assertEquals("0123", new String(destino, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals("z", in.texto());
+
+        leer("In");
+        in.saltar();
+        assertEquals(-1, in.copiar(destino));
+        assertFalse(in.ok());
+    }
+}
@@ -0,0 +1,103 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SincronizadorLockstepTest {
+    private final LectorTexto lector = new LectorTexto();
+
+    private final byte[] hex = new byte[SincronizadorLockstep.MAX_POR_MENSAJE];
+
+    /** Como ClientThread: In:desde:ack[:hex] parseado sin Strings. */
+    private void entregar(CharSequence mensaje, SincronizadorLockstep destino) {
+        byte[] b = mensaje.toString().getBytes(StandardCharsets.US_ASCII);
+        lector.reset(b, 0, b.length);
+        int campos = lector.campos();
+        lector.saltar();
+        int desde = lector.entero();
+        int ack = lector.entero();
+        int largo = (campos >= 4) ? lector.copiar(hex) : -1;
+        assertTrue(lector.ok());
+        destino.recibir(desde, ack, (largo >= 0) ? hex : null, largo);
+    }
+
+    @Test
+    void losPrimerosTicksSonQuietos() {
+        SincronizadorLockstep s = new SincronizadorLockstep();
+        s.reiniciar(1);
+        for (int t = 0; t < SincronizadorLockstep.RETARDO; t++) {
+            assertTrue(s.prepararTick(0xF));
+            assertEquals(0, s.entrada(1));
+            assertEquals(0, s.entrada(2));
+            s.avanzar();
+        }
+        // la entrada del tick RETARDO es la local, pero falta la del otro
+        assertFalse(s.prepararTick(0xF));
+    }
+
+    @Test
+    void mensajeSeArmaYSeLeeIgual() {
+        SincronizadorLockstep a = new SincronizadorLockstep();
+        SincronizadorLockstep b = new SincronizadorLockstep();
+        a.reiniciar(1);
+        b.reiniciar(2);
+
+        a.prepararTick(0x3);
+        CharSequence msg = a.armarMensaje(1000);
+        assertEquals("In:" + SincronizadorLockstep.RETARDO + ":" + (SincronizadorLockstep.RETARDO - 1) + ":3",
+            msg.toString());
+        // nada nuevo y sin pasar el keepalive: no se manda
+        assertNull(a.armarMensaje(1001));
+
+        entregar(msg, b);
+        for (int t = 0; t < SincronizadorLockstep.RETARDO; t++) {
+            assertTrue(b.prepararTick(0));
+            b.avanzar();
+        }
+        assertTrue(b.prepararTick(0));
+        assertEquals(0x3, b.entrada(1));
+    }
+
+    @Test
+    void conPerdidasLosDosSimulanLoMismo() {
+        SincronizadorLockstep a = new SincronizadorLockstep();
+        SincronizadorLockstep b = new SincronizadorLockstep();
+        a.reiniciar(1);
+        b.reiniciar(2);
+        Random random = new Random(7);
+
+        // cada lado anota las dos entradas de cada tick simulado
+        int[] simA = new int[600];
+        int[] simB = new int[600];
+        long ahora = 0;
+        for (int vuelta = 0; vuelta < 5000 && (a.getTick() < 300 || b.getTick() < 300); vuelta++) {
+            ahora += 16;
+            if (a.getTick() < 300 && a.prepararTick(random.nextInt(16))) {
+                simA[2 * a.getTick()] = a.entrada(1);
+                simA[2 * a.getTick() + 1] = a.entrada(2);
+                a.avanzar();
+            }
+            if (b.getTick() < 300 && b.prepararTick(random.nextInt(16))) {
+                simB[2 * b.getTick()] = b.entrada(1);
+                simB[2 * b.getTick() + 1] = b.entrada(2);
+                b.avanzar();
+            }
+
+            CharSequence deA = a.armarMensaje(ahora);
+            if (deA != null && random.nextFloat() > 0.3f) entregar(deA, b);
+            CharSequence deB = b.armarMensaje(ahora);
+            if (deB != null && random.nextFloat() > 0.3f) entregar(deB, a);
+        }
+
+        assertEquals(300, a.getTick());
+        assertEquals(300, b.getTick());
+        for (int i = 0; i < 600; i++) assertEquals(simA[i], simB[i], "entrada " + i);
+    }
+}
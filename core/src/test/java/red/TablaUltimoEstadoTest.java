@@ -0,0 +1,68 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** TablaUltimoEstado: lo que une al hilo de red con el render para las muestras por id. */
+class TablaUltimoEstadoTest {
+    @Test
+    void elUltimoGana() {
+        TablaUltimoEstado t = new TablaUltimoEstado(4);
+        TablaUltimoEstado.Muestra m = new TablaUltimoEstado.Muestra();
+        t.escribir(7, 1f, 1f, 10L, -1L, 0);
+        t.escribir(7, 2f, 3f, 20L, 100L, 5);
+
+        assertEquals(1, t.slots());
+        assertTrue(t.leer(0, m));
+        assertEquals(7, m.id);
+        assertEquals(2f, m.x);
+        assertEquals(3f, m.y);
+        assertEquals(100L, m.serverMs);
+        assertEquals(5, m.extra);
+        assertEquals(1, t.getCoalescidos());
+
+        // ya leído: hasta que no escriban de nuevo no hay nada
+        assertFalse(t.leer(0, m));
+    }
+
+    @Test
+    void enterosPorSlot() {
+        TablaUltimoEstado t = new TablaUltimoEstado(2, 3);
+        TablaUltimoEstado.Muestra m = new TablaUltimoEstado.Muestra(3);
+        t.escribir(1, 0f, 0f, 0L, -1L, 0, new int[] { 1, 2, 3 });
+        t.escribir(1, 0f, 0f, 0L, -1L, 0, new int[] { 4, 5, 6 });
+        assertTrue(t.leer(0, m));
+        assertArrayEquals(new int[] { 4, 5, 6 }, m.datos);
+
+        t.escribir(1, 0f, 0f, 0L, -1L, 0, null);
+        assertTrue(t.leer(0, m));
+        assertArrayEquals(new int[] { 0, 0, 0 }, m.datos);
+    }
+
+    @Test
+    void llenaYOlvidar() {
+        TablaUltimoEstado t = new TablaUltimoEstado(2);
+        TablaUltimoEstado.Muestra m = new TablaUltimoEstado.Muestra();
+        assertTrue(t.escribir(1, 0f, 0f, 0L, -1L, 0));
+        assertTrue(t.escribir(2, 0f, 0f, 0L, -1L, 0));
+        assertFalse(t.escribir(3, 0f, 0f, 0L, -1L, 0));
+        assertEquals(1, t.getDesbordes());
+
+        t.olvidar(1);
+        assertTrue(t.escribir(3, 9f, 0f, 0L, -1L, 0));
+        assertTrue(t.leer(0, m));
+        assertEquals(3, m.id);
+    }
+
+    @Test
+    void descartarPendientes() {
+        TablaUltimoEstado t = new TablaUltimoEstado(2);
+        t.escribir(1, 0f, 0f, 0L, -1L, 0);
+        t.descartarPendientes();
+        assertFalse(t.leer(0, new TablaUltimoEstado.Muestra()));
+    }
+}
@@ -9,11 +9,30 @@ import io.github.principal.Principal;
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
         if (StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
-        createApplication();
+        createApplication(args);
     }
 
-    private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new Principal(), getDefaultConfiguration());
+    private static Lwjgl3Application createApplication(String[] args) {
+        Principal principal = new Principal();
+
+        // Debug de red: --captura=sesion.rgcap graba el online; --reproducir=sesion.rgcap [--velocidad=2] lo repite
+        String reproducir = null;
+        float velocidad = 1f;
+        for (String a : args) {
+            String valor = a.substring(a.indexOf('=') + 1).trim();
+            if (a.startsWith("--captura=")) principal.setArchivoCaptura(valor);
+            else if (a.startsWith("--reproducir=")) reproducir = valor;
+            else if (a.startsWith("--velocidad=")) {
+                try {
+                    velocidad = Float.parseFloat(valor);
+                } catch (NumberFormatException e) {
+                    System.out.println("[LAUNCHER] velocidad inválida: " + a);
+                }
+            }
+        }
+        if (reproducir != null) principal.setReproduccion(reproducir, velocidad);
+
+        return new Lwjgl3Application(principal, getDefaultConfiguration());
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {
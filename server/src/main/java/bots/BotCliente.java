@@ -0,0 +1,427 @@
+package bots;
+
+import java.io.IOException;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.channels.Selector;
+import java.util.Random;
+
+import entidades.datos.Estilo;
+import entidades.datos.Genero;
+import mapa.model.Direccion;
+import mapa.model.Habitacion;
+import red.ClientThread;
+import red.EscritorBinario;
+import red.GameController;
+import red.ProtocoloBinario;
+
+/**
+* Un cliente falso: habla el mismo protocolo que el juego (Connect / Ready / Move /
+* Door / RoomClearReq) y todo lo que recibe pasa por el ClientThread real, así que el
+* decode (texto o binario) es exactamente el del cliente. En vez de actualizar un mundo,
+* los callbacks de GameController solo cuentan y miden.
+*
+* Lo maneja un solo hilo de EnjambreBots: todo lo de acá corre en ese hilo; el reporte
+* solo lee los contadores (volatile).
+*/
+final class BotCliente implements GameController {
+    /** ALEATORIA: cambia de dirección cada tanto. GUION: recorre siempre el mismo cuadrado. */
+    enum Caminata { ALEATORIA, GUION }
+
+    // Cuadrado: derecha, arriba, izquierda, abajo y una pausa; cada paso dura PASO_GUION_MS
+    private static final int[][] GUION = {
+        {1, 0}, {1, 0}, {0, 1}, {0, 1}, {-1, 0}, {-1, 0}, {0, -1}, {0, -1}, {0, 0}
+    };
+
+    private static final long PASO_GUION_MS = 500;
+
+    private static final long CAMBIO_MIN_MS = 300;
+
+    private static final long CAMBIO_MAX_MS = 1500;
+
+    // Cada cuánto (en promedio) manda un Door / RoomClearReq de la sala donde está
+    private static final long PUERTA_CADA_MS = 5000;
+
+    private static final long ROOM_CLEAR_CADA_MS = 3000;
+
+    // Sin respuesta al Connect (UDP): se reintenta
+    private static final long REINTENTO_CONNECT_MS = 1000;
+
+    // Inputs en vuelo que se pueden medir (el server confirma el último con inputAck)
+    private static final int VENTANA_INPUTS = 256;
+
+    private static final Habitacion[] SALAS = Habitacion.values();
+
+    private static final Direccion[] DIRECCIONES = Direccion.values();
+
+    final int indice;
+
+    private final ClientThread cliente;
+
+    private final TransporteCompartido transporte;
+
+    private final Caminata caminata;
+
+    private final boolean ofrecerBinario;
+
+    private final Random rnd;
+
+    private final ThreadMXBean cpu;
+
+    // Del hilo que maneja al bot (se suman en el reporte)
+    private final Histograma rttInput;
+
+    private final Histograma edadEstado;
+
+    private final EscritorBinario salida = new EscritorBinario(64);
+
+    private final int[] seqEnviado = new int[VENTANA_INPUTS];
+
+    private final long[] enviadoNs = new long[VENTANA_INPUTS];
+
+    private volatile int playerId = -1;
+
+    private volatile boolean enPartida = false;
+
+    // Disconnect antes del Connected: el server no tenía lugar
+    private volatile boolean rechazado = false;
+
+    private volatile boolean desconectado = false;
+
+    private Habitacion sala;
+
+    private int seq = 0;
+
+    private int dx, dy;
+
+    private int pasoGuion = 0;
+
+    private long proximoCambioMs = 0;
+
+    private long proximoConnectMs = 0;
+
+    private long proximaPuertaMs;
+
+    private long proximoRoomClearMs;
+
+    // ===== Contadores (los escribe solo el hilo del bot) =====
+    private volatile long mensajes = 0;
+
+    private volatile long cpuDecodeNs = 0;
+
+    private volatile long inputsEnviados = 0;
+
+    BotCliente(int indice, Selector selector, InetSocketAddress destino, Caminata caminata, boolean ofrecerBinario,
+               Histograma rttInput, Histograma edadEstado, ThreadMXBean cpu) throws IOException {
+        this.indice = indice;
+        this.caminata = caminata;
+        this.ofrecerBinario = ofrecerBinario;
+        this.rttInput = rttInput;
+        this.edadEstado = edadEstado;
+        this.cpu = cpu;
+        this.rnd = new Random(indice * 7919L + 17L);
+        this.transporte = new TransporteCompartido(selector, this);
+        this.cliente = new ClientThread(this, transporte, destino);
+
+        java.util.Arrays.fill(seqEnviado, -1);
+        pasoGuion = indice % GUION.length; // que no caminen todos sincronizados
+    }
+
+    // ===== Lo llama el hilo del enjambre =====
+
+    /** El selector avisó que hay datagramas: se decodifican con el ClientThread real. */
+    void alRecibir() {
+        long antes = cpu.getCurrentThreadCpuTime();
+        pasoRed();
+        cpuDecodeNs += cpu.getCurrentThreadCpuTime() - antes;
+    }
+
+    /** Input / pedidos del bot. Se llama a la frecuencia de input configurada. */
+    void tick(long ahoraMs) {
+        if (rechazado || desconectado) return;
+
+        if (playerId < 0) {
+            if (ahoraMs >= proximoConnectMs) {
+                proximoConnectMs = ahoraMs + REINTENTO_CONNECT_MS;
+                enviarConnect();
+                pasoRed();
+            }
+            return;
+        }
+        if (!enPartida) return;
+
+        caminar(ahoraMs);
+        enviarMove();
+
+        if (sala != null && ahoraMs >= proximaPuertaMs) {
+            proximaPuertaMs = ahoraMs + azar(PUERTA_CADA_MS);
+            enviarDoor();
+        }
+        if (sala != null && ahoraMs >= proximoRoomClearMs) {
+            proximoRoomClearMs = ahoraMs + azar(ROOM_CLEAR_CADA_MS);
+            enviarRoomClearReq();
+        }
+        pasoRed();
+    }
+
+    void cerrar() {
+        cliente.close();
+    }
+
+    // ===== Envíos (mismo formato que RedPartidaCliente / JuegoPrincipal) =====
+
+    private void enviarConnect() {
+        Genero genero = Genero.values()[indice % Genero.values().length];
+        Estilo estilo = Estilo.values()[indice % Estilo.values().length];
+        String msg = "Connect:" + genero.name() + ":" + estilo.name();
+        cliente.sendMessage(ofrecerBinario ? msg + ":" + ProtocoloBinario.TOKEN_VERSION : msg);
+    }
+
+    private void enviarReady() {
+        if (cliente.isBinario()) {
+            ProtocoloBinario.ready(salida, playerId);
+            cliente.sendConfiable(salida.datos(), salida.largo());
+        } else {
+            cliente.sendMessage("Ready:" + playerId);
+        }
+    }
+
+    private void enviarMove() {
+        seq++;
+        int i = seq % VENTANA_INPUTS;
+        seqEnviado[i] = seq;
+        enviadoNs[i] = System.nanoTime();
+        inputsEnviados++;
+
+        if (cliente.isBinario()) {
+            ProtocoloBinario.move(salida, dx, dy, seq);
+            cliente.sendBytes(salida.datos(), salida.largo());
+        } else {
+            cliente.sendMessage("Move:" + dx + ":" + dy + ":" + seq);
+        }
+    }
+
+    private void enviarDoor() {
+        String origen = sala.name();
+        String destino = SALAS[rnd.nextInt(SALAS.length)].name();
+        String dir = DIRECCIONES[rnd.nextInt(DIRECCIONES.length)].name();
+        if (cliente.isBinario()) {
+            ProtocoloBinario.door(salida, playerId, origen, destino, dir);
+            cliente.sendConfiable(salida.datos(), salida.largo());
+        } else {
+            cliente.sendMessage("Door:" + playerId + ":" + origen + ":" + destino + ":" + dir);
+        }
+    }
+
+    private void enviarRoomClearReq() {
+        if (cliente.isBinario()) {
+            ProtocoloBinario.roomClearReq(salida, sala);
+            cliente.sendConfiable(salida.datos(), salida.largo());
+        } else {
+            cliente.sendMessage("RoomClearReq:" + sala.name());
+        }
+    }
+
+    private void caminar(long ahoraMs) {
+        if (ahoraMs < proximoCambioMs) return;
+
+        if (caminata == Caminata.GUION) {
+            int[] paso = GUION[pasoGuion];
+            pasoGuion = (pasoGuion + 1) % GUION.length;
+            dx = paso[0];
+            dy = paso[1];
+            proximoCambioMs = ahoraMs + PASO_GUION_MS;
+            return;
+        }
+
+        dx = rnd.nextInt(3) - 1;
+        dy = rnd.nextInt(3) - 1;
+        proximoCambioMs = ahoraMs + CAMBIO_MIN_MS + (long) (rnd.nextFloat() * (CAMBIO_MAX_MS - CAMBIO_MIN_MS));
+    }
+
+    private long azar(long promedio) {
+        return promedio / 2 + (long) (rnd.nextFloat() * promedio);
+    }
+
+    private void pasoRed() {
+        try {
+            cliente.pasoRed();
+            transporte.quiereEscribir(cliente.tieneSalidaPendiente());
+        } catch (IOException e) {
+            disconnect("IO error: " + e.getMessage());
+        }
+    }
+
+    // ===== GameController: solo cuenta y mide =====
+
+    @Override
+    public void connect(int playerId) {
+        mensajes++;
+        this.playerId = playerId;
+    }
+
+    @Override
+    public void start(long seed, int nivel) {
+        mensajes++;
+        enPartida = true;
+        sala = null;
+        // igual que Partida: con el nivel armado pide el snapshot
+        enviarReady();
+    }
+
+    @Override
+    public void updatePlayerPosition(int playerId, float x, float y) {
+        mensajes++;
+    }
+
+    @Override
+    public void updatePlayerPosition(int playerId, float x, float y, long serverTimeMs, int inputAck) {
+        mensajes++;
+        if (serverTimeMs > 0) edadEstado.registrar((System.currentTimeMillis() - serverTimeMs) * 1000L);
+        if (playerId != this.playerId || inputAck < 0) return;
+
+        // RTT del input: desde que salió el Move hasta el primer UpdatePosition que lo confirma
+        int i = inputAck % VENTANA_INPUTS;
+        if (seqEnviado[i] != inputAck) return;
+        seqEnviado[i] = -1;
+        rttInput.registrar((System.nanoTime() - enviadoNs[i]) / 1000L);
+    }
+
+    @Override
+    public void updateRoom(String destino, String direccion, int playerId) {
+        updateRoom(destino);
+    }
+
+    @Override
+    public void updateRoom(String habitacionId) {
+        mensajes++;
+        if (habitacionId == null) return;
+        int sep = habitacionId.indexOf(':');
+        String nombre = (sep >= 0) ? habitacionId.substring(0, sep) : habitacionId;
+        for (Habitacion h : SALAS) {
+            if (h.name().equals(nombre)) {
+                sala = h;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void updateEnemy(int enemyId, float x, float y) {
+        mensajes++;
+    }
+
+    @Override
+    public void updateEnemy(int enemyId, float x, float y, long serverTimeMs) {
+        mensajes++;
+        if (serverTimeMs > 0) edadEstado.registrar((System.currentTimeMillis() - serverTimeMs) * 1000L);
+    }
+
+    @Override
+    public void disconnect(String reason) {
+        mensajes++;
+        if (playerId < 0) rechazado = true;
+        else desconectado = true;
+        enPartida = false;
+    }
+
+    @Override
+    public void dead(int playerId) {
+        mensajes++;
+    }
+
+    @Override
+    public void despawnEnemy(int enemyId) {
+        mensajes++;
+    }
+
+    @Override
+    public void despawnItem(int itemId) {
+        mensajes++;
+    }
+
+    @Override
+    public void pickupItem(int jugadorId, int itemId, String tipo) {
+        mensajes++;
+    }
+
+    @Override
+    public void damage(int playerId, int vida, int vidaMax) {
+        mensajes++;
+    }
+
+    @Override
+    public void spawnEnemy(int enemyId, String nombre, float x, float y, String sala) {
+        mensajes++;
+    }
+
+    @Override
+    public void hud(int playerId, int vida, int vidaMax, String tiposCsv) {
+        mensajes++;
+    }
+
+    @Override
+    public void hud(int playerId, int vida, int vidaMax, int versionInventario, int[] conteos) {
+        mensajes++;
+    }
+
+    @Override
+    public void spawnItem(int itemId, String tipo, float x, float y) {
+        mensajes++;
+    }
+
+    @Override
+    public void other(int otherPlayerId, int vida, int vidaMax) {
+        mensajes++;
+    }
+
+    @Override
+    public void roomClear(String sala) {
+        mensajes++;
+    }
+
+    @Override
+    public void appearance(int playerId, String genero, String estilo) {
+        mensajes++;
+    }
+
+    @Override
+    public void gameOver(int loserId) {
+        mensajes++;
+        enPartida = false;
+    }
+
+    // ===== Para el reporte =====
+
+    long getMensajes() {
+        return mensajes;
+    }
+
+    long getCpuDecodeNs() {
+        return cpuDecodeNs;
+    }
+
+    long getInputsEnviados() {
+        return inputsEnviados;
+    }
+
+    boolean isConectado() {
+        return playerId > 0 && !desconectado;
+    }
+
+    boolean isEnPartida() {
+        return enPartida;
+    }
+
+    boolean isRechazado() {
+        return rechazado;
+    }
+
+    boolean isDesconectado() {
+        return desconectado;
+    }
+
+    boolean isBinario() {
+        return cliente.isBinario();
+    }
+}
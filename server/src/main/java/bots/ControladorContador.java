@@ -0,0 +1,38 @@
+package bots;
+
+import red.GameController;
+
+/**
+* GameController que no hace nada más que contar: para medir solo el decode
+* (reproducción de capturas a máxima velocidad).
+*/
+public final class ControladorContador implements GameController {
+    private long mensajes = 0;
+
+    public long getMensajes() {
+        return mensajes;
+    }
+
+    @Override public void disconnect(String reason) { mensajes++; }
+    @Override public void updatePlayerPosition(int playerId, float x, float y) { mensajes++; }
+    @Override public void updatePlayerPosition(int playerId, float x, float y, long serverTimeMs, int inputAck) { mensajes++; }
+    @Override public void updateRoom(String habitacionId) { mensajes++; }
+    @Override public void updateRoom(String destino, String direccion, int playerId) { mensajes++; }
+    @Override public void connect(int playerId) { mensajes++; }
+    @Override public void dead(int playerId) { mensajes++; }
+    @Override public void despawnEnemy(int enemyId) { mensajes++; }
+    @Override public void despawnItem(int itemId) { mensajes++; }
+    @Override public void pickupItem(int jugadorId, int itemId, String tipo) { mensajes++; }
+    @Override public void updateEnemy(int enemyId, float x, float y) { mensajes++; }
+    @Override public void updateEnemy(int enemyId, float x, float y, long serverTimeMs) { mensajes++; }
+    @Override public void damage(int playerId, int vida, int vidaMax) { mensajes++; }
+    @Override public void spawnEnemy(int enemyId, String nombre, float x, float y, String sala) { mensajes++; }
+    @Override public void hud(int playerId, int vida, int vidaMax, String tiposCsv) { mensajes++; }
+    @Override public void hud(int playerId, int vida, int vidaMax, int versionInventario, int[] conteos) { mensajes++; }
+    @Override public void spawnItem(int itemId, String tipo, float x, float y) { mensajes++; }
+    @Override public void other(int otherPlayerId, int vida, int vidaMax) { mensajes++; }
+    @Override public void roomClear(String sala) { mensajes++; }
+    @Override public void appearance(int playerId, String genero, String estilo) { mensajes++; }
+    @Override public void gameOver(int loserId) { mensajes++; }
+    @Override public void start(long seed, int nivel) { mensajes++; }
+}
@@ -0,0 +1,241 @@
+package bots;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+* Cientos de bots en una sola JVM para medir hasta dónde escala el protocolo.
+*
+* No hay un hilo por bot: cada hilo del enjambre tiene un Selector compartido por todos
+* sus bots (un DatagramChannel por bot, así el server los ve como clientes distintos).
+* El hilo hace select, decodifica lo que llegó con el ClientThread de cada bot y a la
+* frecuencia de input manda los Move (y cada tanto Door / RoomClearReq).
+*
+* Bots repartidos entre puertos: el server acepta MAX_JUGADORES por instancia, así que
+* con --puertos=N se reparten entre N servers consecutivos (puertoBase, puertoBase+1...).
+*
+* Reporte cada segundo y al final:
+* - mensajes server->cliente por segundo (total y por bot)
+* - RTT del input (Move -> UpdatePosition con su inputAck) en percentiles
+* - edad del estado (llegada - serverMs; solo tiene sentido con el server en la misma máquina)
+* - CPU de recepción + decode por bot y por mensaje
+*/
+public final class EnjambreBots {
+    private static final String TAG = "[BOTS] ";
+
+    private final String host;
+
+    private final int puertoBase;
+
+    private final int puertos;
+
+    private final int cantidadBots;
+
+    private final int hilos;
+
+    private final int inputHz;
+
+    private final BotCliente.Caminata caminata;
+
+    private final boolean ofrecerBinario;
+
+    private final ThreadMXBean cpu = ManagementFactory.getThreadMXBean();
+
+    private final List<Hilo> hilosEnjambre = new ArrayList<>();
+
+    private volatile boolean corriendo = false;
+
+    public EnjambreBots(String host, int puertoBase, int puertos, int cantidadBots, int hilos, int inputHz,
+                        boolean caminataGuion, boolean ofrecerBinario) {
+        this.host = host;
+        this.puertoBase = puertoBase;
+        this.puertos = Math.max(1, puertos);
+        this.cantidadBots = Math.max(1, cantidadBots);
+        this.hilos = Math.max(1, Math.min(hilos, this.cantidadBots));
+        this.inputHz = Math.max(1, inputHz);
+        this.caminata = caminataGuion ? BotCliente.Caminata.GUION : BotCliente.Caminata.ALEATORIA;
+        this.ofrecerBinario = ofrecerBinario;
+
+        if (cpu.isThreadCpuTimeSupported() && !cpu.isThreadCpuTimeEnabled()) cpu.setThreadCpuTimeEnabled(true);
+    }
+
+    /** Arranca los bots, reporta cada segundo durante segundos y los cierra. */
+    public void correr(int segundos) throws IOException, InterruptedException {
+        corriendo = true;
+        for (int h = 0; h < hilos; h++) hilosEnjambre.add(new Hilo(h));
+
+        // Bot i -> hilo i % hilos, server puertoBase + (i % puertos)
+        for (int i = 0; i < cantidadBots; i++) {
+            Hilo h = hilosEnjambre.get(i % hilos);
+            InetSocketAddress destino = new InetSocketAddress(host, puertoBase + (i % puertos));
+            h.bots.add(new BotCliente(i, h.selector, destino, caminata, ofrecerBinario, h.rttInput, h.edadEstado, cpu));
+        }
+        for (Hilo h : hilosEnjambre) h.start();
+
+        System.out.println(TAG + cantidadBots + " bots, " + hilos + " hilo(s), " + puertos + " server(s) desde "
+            + host + ":" + puertoBase + ", input " + inputHz + " Hz, caminata " + caminata);
+
+        long inicioNs = System.nanoTime();
+        long anteriorMensajes = 0;
+        long anteriorNs = inicioNs;
+        for (int s = 0; s < segundos; s++) {
+            Thread.sleep(1000);
+            long ahoraNs = System.nanoTime();
+            long totalMensajes = sumarMensajes();
+            float seg = (ahoraNs - anteriorNs) / 1e9f;
+            System.out.println(TAG + lineaSegundo(s + 1, (totalMensajes - anteriorMensajes) / seg));
+            anteriorMensajes = totalMensajes;
+            anteriorNs = ahoraNs;
+        }
+
+        corriendo = false;
+        for (Hilo h : hilosEnjambre) {
+            h.selector.wakeup();
+            h.join(2000);
+        }
+        System.out.println(reporteFinal((System.nanoTime() - inicioNs) / 1e9f));
+    }
+
+    // ===== Reporte =====
+
+    private long sumarMensajes() {
+        long total = 0;
+        for (Hilo h : hilosEnjambre) {
+            for (BotCliente b : h.bots) total += b.getMensajes();
+        }
+        return total;
+    }
+
+    private String lineaSegundo(int segundo, float mensajesPorSeg) {
+        int conectados = 0, jugando = 0, rechazados = 0;
+        for (Hilo h : hilosEnjambre) {
+            for (BotCliente b : h.bots) {
+                if (b.isConectado()) conectados++;
+                if (b.isEnPartida()) jugando++;
+                if (b.isRechazado()) rechazados++;
+            }
+        }
+
+        Histograma rtt = new Histograma();
+        for (Hilo h : hilosEnjambre) h.rttInput.sumarEn(rtt);
+
+        return "t=" + segundo + "s  conectados " + conectados + "  jugando " + jugando + "  rechazados " + rechazados
+            + "  rx " + Math.round(mensajesPorSeg) + " msg/s (" + Math.round(mensajesPorSeg / cantidadBots) + "/bot)"
+            + "  rtt (acum.) p50 " + ms(rtt.percentil(0.5)) + " p99 " + ms(rtt.percentil(0.99));
+    }
+
+    private String reporteFinal(float segundos) {
+        Histograma rtt = new Histograma();
+        Histograma edad = new Histograma();
+        long mensajes = 0, cpuNs = 0, inputs = 0;
+        long cpuMaxNs = 0;
+        int binarios = 0, desconectados = 0, rechazados = 0;
+
+        for (Hilo h : hilosEnjambre) {
+            h.rttInput.sumarEn(rtt);
+            h.edadEstado.sumarEn(edad);
+            for (BotCliente b : h.bots) {
+                mensajes += b.getMensajes();
+                cpuNs += b.getCpuDecodeNs();
+                cpuMaxNs = Math.max(cpuMaxNs, b.getCpuDecodeNs());
+                inputs += b.getInputsEnviados();
+                if (b.isBinario()) binarios++;
+                if (b.isDesconectado()) desconectados++;
+                if (b.isRechazado()) rechazados++;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("===== Enjambre: ").append(cantidadBots).append(" bots, ")
+            .append(Math.round(segundos)).append(" s =====\n");
+        sb.append("  protocolo        ").append(binarios).append(" binario / ").append(cantidadBots - binarios).append(" texto\n");
+        sb.append("  rechazados       ").append(rechazados).append("  desconectados ").append(desconectados).append('\n');
+        sb.append("  rx total         ").append(Math.round(mensajes / segundos)).append(" msg/s  (")
+            .append(Math.round(mensajes / segundos / cantidadBots)).append(" msg/s por bot)\n");
+        sb.append("  tx Move          ").append(Math.round(inputs / segundos)).append(" msg/s\n");
+        sb.append("  rtt input        ").append(percentiles(rtt)).append('\n');
+        sb.append("  edad del estado  ").append(percentiles(edad)).append('\n');
+        if (cpu.isThreadCpuTimeSupported()) {
+            sb.append("  cpu decode       ")
+                .append(String.format("%.2f", cpuNs / 1e6f / segundos / cantidadBots)).append(" ms/s por bot (max ")
+                .append(String.format("%.2f", cpuMaxNs / 1e6f / segundos)).append("), ")
+                .append(String.format("%.2f", mensajes > 0 ? cpuNs / 1000f / mensajes : 0f)).append(" µs/msg");
+        } else {
+            sb.append("  cpu decode       (la JVM no mide CPU por hilo)");
+        }
+        return sb.toString();
+    }
+
+    private static String percentiles(Histograma h) {
+        if (h.getTotal() == 0) return "--";
+        return "p50 " + ms(h.percentil(0.5)) + "  p90 " + ms(h.percentil(0.9)) + "  p99 " + ms(h.percentil(0.99))
+            + "  max " + ms(h.getMaximo()) + "  (" + h.getTotal() + " muestras)";
+    }
+
+    private static String ms(long micros) {
+        if (micros < 0) return "--";
+        return String.format("%.1fms", micros / 1000f);
+    }
+
+    // ===== Hilo: un Selector para todos sus bots =====
+
+    private final class Hilo extends Thread {
+        final Selector selector;
+
+        final List<BotCliente> bots = new ArrayList<>();
+
+        final Histograma rttInput = new Histograma();
+
+        final Histograma edadEstado = new Histograma();
+
+        Hilo(int numero) throws IOException {
+            super("EnjambreBots-" + numero);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        @Override
+        public void run() {
+            final long periodoMs = Math.max(1L, 1000L / inputHz);
+            long proximoInputMs = System.currentTimeMillis();
+
+            try {
+                while (corriendo) {
+                    long espera = proximoInputMs - System.currentTimeMillis();
+                    if (espera > 0) selector.select(espera);
+                    else selector.selectNow();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey k = it.next();
+                        it.remove();
+                        if (k.isValid()) ((BotCliente) k.attachment()).alRecibir();
+                    }
+
+                    long ahora = System.currentTimeMillis();
+                    if (ahora >= proximoInputMs) {
+                        for (int i = 0; i < bots.size(); i++) bots.get(i).tick(ahora);
+                        proximoInputMs += periodoMs;
+                        // Si el hilo no da abasto se saltean ticks en vez de acumularlos
+                        if (proximoInputMs < ahora) proximoInputMs = ahora + periodoMs;
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                System.out.println(TAG + getName() + " terminó: " + e.getMessage());
+            } finally {
+                for (BotCliente b : bots) b.cerrar();
+                try {
+                    selector.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+}
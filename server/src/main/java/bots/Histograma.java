@@ -0,0 +1,83 @@
+package bots;
+
+/**
+* Histograma de latencias en microsegundos con memoria fija (sin guardar muestras).
+*
+* Buckets log-lineales: 16 por potencia de 2, así cualquier percentil sale con ~6% de
+* error relativo desde 1 µs hasta horas. registrar() no reserva memoria, se puede
+* llamar por mensaje recibido.
+*
+* Cada hilo del enjambre tiene los suyos; el reporte los junta con sumarEn().
+*/
+final class Histograma {
+    private static final int SUB = 16;
+
+    private static final int BITS_SUB = 4;
+
+    // Valores < SUB van directo; después 16 buckets por cada exponente hasta 2^42 µs
+    private static final int BUCKETS = SUB + (42 - BITS_SUB) * SUB;
+
+    private final long[] cuentas = new long[BUCKETS];
+
+    private long total;
+
+    private long maximo;
+
+    synchronized void registrar(long micros) {
+        if (micros < 0) micros = 0;
+        cuentas[indice(micros)]++;
+        total++;
+        if (micros > maximo) maximo = micros;
+    }
+
+    synchronized void sumarEn(Histograma destino) {
+        synchronized (destino) {
+            for (int i = 0; i < BUCKETS; i++) destino.cuentas[i] += cuentas[i];
+            destino.total += total;
+            if (maximo > destino.maximo) destino.maximo = maximo;
+        }
+    }
+
+    synchronized void reset() {
+        java.util.Arrays.fill(cuentas, 0L);
+        total = 0;
+        maximo = 0;
+    }
+
+    synchronized long getTotal() {
+        return total;
+    }
+
+    synchronized long getMaximo() {
+        return maximo;
+    }
+
+    /** Percentil (0..1) en µs: el límite inferior del bucket donde cae. -1 si está vacío. */
+    synchronized long percentil(double p) {
+        if (total == 0) return -1;
+        long objetivo = (long) Math.ceil(p * total);
+        if (objetivo < 1) objetivo = 1;
+
+        long acumulado = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) return Math.min(valor(i), maximo);
+        }
+        return maximo;
+    }
+
+    private static int indice(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v); // >= BITS_SUB
+        int sub = (int) (v >>> (exp - BITS_SUB)) & (SUB - 1);
+        int i = SUB + (exp - BITS_SUB) * SUB + sub;
+        return Math.min(i, BUCKETS - 1);
+    }
+
+    private static long valor(int i) {
+        if (i < SUB) return i;
+        int exp = (i - SUB) / SUB + BITS_SUB;
+        int sub = (i - SUB) % SUB;
+        return (1L << exp) + ((long) sub << (exp - BITS_SUB));
+    }
+}
@@ -0,0 +1,65 @@
+package bots;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import red.TransporteRed;
+
+/**
+* Transporte de un bot: su propio DatagramChannel, pero registrado en el Selector
+* compartido del hilo del enjambre (un selector para cientos de canales).
+*
+* El que espera es el hilo del enjambre (select sobre todos), no el ClientThread:
+* por eso esperar() no bloquea y el ClientThread del bot nunca se arranca con start(),
+* se maneja con pasoRed().
+*/
+final class TransporteCompartido implements TransporteRed {
+    private final DatagramChannel canal;
+
+    private final SelectionKey clave;
+
+    TransporteCompartido(Selector selector, Object adjunto) throws IOException {
+        canal = DatagramChannel.open();
+        canal.configureBlocking(false);
+        canal.bind(null);
+        clave = canal.register(selector, SelectionKey.OP_READ, adjunto);
+    }
+
+    @Override
+    public SocketAddress recibir(ByteBuffer destino) throws IOException {
+        return canal.receive(destino);
+    }
+
+    @Override
+    public boolean enviar(ByteBuffer datos, SocketAddress destino) throws IOException {
+        return canal.send(datos, destino) != 0;
+    }
+
+    @Override
+    public void esperar(long timeoutMs, boolean quiereEscribir) {
+        // Lo hace el hilo del enjambre para todos los bots a la vez
+    }
+
+    /** Con un datagrama trabado el select también tiene que avisar cuando se pueda escribir. */
+    void quiereEscribir(boolean si) {
+        if (!clave.isValid()) return;
+        clave.interestOps(si ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ);
+    }
+
+    @Override
+    public void despertar() {
+        // sendMessage() del bot corre en el mismo hilo que el select: no hace falta despertarlo
+    }
+
+    @Override
+    public void cerrar() {
+        clave.cancel();
+        try {
+            canal.close();
+        } catch (IOException ignored) {}
+    }
+}
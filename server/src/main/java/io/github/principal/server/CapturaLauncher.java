@@ -0,0 +1,56 @@
+package io.github.principal.server;
+
+import bots.ControladorContador;
+import red.ReproductorCaptura;
+
+/**
+* Benchmark del decode del cliente con tráfico real: reproduce una captura (.rgcap,
+* grabada con el juego y --captura=archivo) sin esperas y sin socket, varias veces.
+*
+* Args: --captura=sesion.rgcap [--repeticiones=20]
+* (la primera vuelta calienta el JIT y no se cuenta).
+*/
+public class CapturaLauncher {
+    public static void main(String[] args) throws Exception {
+        String ruta = null;
+        int repeticiones = 20;
+
+        for (String a : args) {
+            if (a.startsWith("--captura=")) ruta = a.substring(a.indexOf('=') + 1).trim();
+            else if (a.startsWith("--repeticiones=")) {
+                try {
+                    repeticiones = Integer.parseInt(a.substring(a.indexOf('=') + 1).trim());
+                } catch (NumberFormatException e) {
+                    System.out.println("[CAPTURA] valor inválido: " + a);
+                }
+            } else System.out.println("[CAPTURA] argumento ignorado: " + a);
+        }
+        if (ruta == null) {
+            System.out.println("[CAPTURA] falta --captura=archivo.rgcap");
+            return;
+        }
+
+        long mejorNs = Long.MAX_VALUE;
+        long totalNs = 0;
+        long datagramas = 0;
+        long mensajes = 0;
+
+        for (int i = 0; i <= repeticiones; i++) {
+            ControladorContador contador = new ControladorContador();
+            ReproductorCaptura r = new ReproductorCaptura(ruta, contador, 0f);
+            long ns = r.reproducirSinEsperas();
+            if (i == 0) continue;
+
+            mejorNs = Math.min(mejorNs, ns);
+            totalNs += ns;
+            datagramas = r.getEntradas();
+            mensajes = contador.getMensajes();
+        }
+        if (repeticiones <= 0) return;
+
+        float promedioMs = totalNs / 1e6f / repeticiones;
+        System.out.println("[CAPTURA] " + ruta + ": " + datagramas + " datagramas, " + mensajes + " mensajes por vuelta");
+        System.out.println(String.format("[CAPTURA] promedio %.2f ms (mejor %.2f ms), %.0f msg/s, %.3f µs/msg",
+            promedioMs, mejorNs / 1e6f, mensajes / (promedioMs / 1000f), promedioMs * 1000f / Math.max(1L, mensajes)));
+    }
+}
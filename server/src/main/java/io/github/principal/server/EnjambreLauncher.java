@@ -0,0 +1,50 @@
+package io.github.principal.server;
+
+import bots.EnjambreBots;
+import servidor.ServidorJuego;
+
+/**
+* Lanza el enjambre de bots contra uno o varios servers (prueba de carga del protocolo).
+*
+* Args opcionales: --host=127.0.0.1 --puerto=5555 --puertos=1 --bots=200 --hilos=1
+*                  --hz=60 --segundos=30 --guion --texto
+* (puertos = cuántos servers consecutivos desde puerto; guion = caminata fija en vez de
+* aleatoria; texto = no ofrecer el protocolo binario en el Connect).
+*/
+public class EnjambreLauncher {
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int puerto = ServidorJuego.PUERTO_DEFAULT;
+        int puertos = 1;
+        int bots = 200;
+        int hilos = 1;
+        int hz = 60;
+        int segundos = 30;
+        boolean guion = false;
+        boolean binario = true;
+
+        for (String a : args) {
+            if (a.startsWith("--host=")) host = a.substring(a.indexOf('=') + 1).trim();
+            else if (a.startsWith("--puerto=")) puerto = leerEntero(a, puerto);
+            else if (a.startsWith("--puertos=")) puertos = leerEntero(a, puertos);
+            else if (a.startsWith("--bots=")) bots = leerEntero(a, bots);
+            else if (a.startsWith("--hilos=")) hilos = leerEntero(a, hilos);
+            else if (a.startsWith("--hz=")) hz = leerEntero(a, hz);
+            else if (a.startsWith("--segundos=")) segundos = leerEntero(a, segundos);
+            else if (a.equals("--guion")) guion = true;
+            else if (a.equals("--texto")) binario = false;
+            else System.out.println("[BOTS] argumento ignorado: " + a);
+        }
+
+        new EnjambreBots(host, puerto, puertos, bots, hilos, hz, guion, binario).correr(segundos);
+    }
+
+    private static int leerEntero(String arg, int def) {
+        try {
+            return Integer.parseInt(arg.substring(arg.indexOf('=') + 1).trim());
+        } catch (NumberFormatException e) {
+            System.out.println("[BOTS] valor inválido: " + arg);
+            return def;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.principal.server;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+import servidor.ServidorJuego;
+
+/**
+* Lanza el server autoritativo sin ventana (backend headless).
+*
+* Args opcionales: --puerto=5555 --ticks=30 --jugadores=2 --lockstep --rollback
+* (jugadores = cuántos Connect esperar antes de mandar Start; 1 sirve para probar solo;
+* lockstep = los clientes simulan y el server solo reenvía entradas, siempre con 2;
+* rollback = lockstep donde cada cliente predice la entrada del otro mientras no llega).
+*/
+public class ServerLauncher {
+    public static void main(String[] args) {
+        int puerto = ServidorJuego.PUERTO_DEFAULT;
+        int ticks = ServidorJuego.TICKS_DEFAULT;
+        int jugadores = ServidorJuego.MAX_JUGADORES;
+        boolean lockstep = false;
+        boolean rollback = false;
+
+        for (String a : args) {
+            if (a.startsWith("--puerto=")) puerto = leerEntero(a, puerto);
+            else if (a.startsWith("--ticks=")) ticks = leerEntero(a, ticks);
+            else if (a.startsWith("--jugadores=")) jugadores = leerEntero(a, jugadores);
+            else if (a.equals("--lockstep")) lockstep = true;
+            else if (a.equals("--rollback")) rollback = true;
+            else System.out.println("[SERVER] argumento ignorado: " + a);
+        }
+
+        HeadlessApplicationConfiguration configuration = new HeadlessApplicationConfiguration();
+        // el loop headless llama render() a esta frecuencia: es el tick de la simulación
+        configuration.updatesPerSecond = ticks;
+
+        ServidorJuego servidor = new ServidorJuego(puerto, ticks, jugadores);
+        servidor.setLockstep(lockstep);
+        servidor.setRollback(rollback);
+        new HeadlessApplication(servidor, configuration);
+    }
+
+    private static int leerEntero(String arg, int def) {
+        try {
+            return Integer.parseInt(arg.substring(arg.indexOf('=') + 1).trim());
+        } catch (NumberFormatException e) {
+            System.out.println("[SERVER] valor inválido: " + arg);
+            return def;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package servidor;
+
+import java.lang.reflect.Proxy;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+* GL20 que no hace nada.
+*
+* El backend headless deja Gdx.gl en null, pero TmxMapLoader carga las imágenes de los
+* tilesets como Texture aunque el server solo quiera las capas de objetos (colisiones,
+* botones, enemigos). Con esto las texturas se "crean" sin GPU: cada llamada devuelve
+* 0 / false / null.
+*/
+final class GlNulo {
+    private GlNulo() {}
+
+    static void instalarSiFalta() {
+        if (Gdx.gl != null) return;
+
+        GL20 gl = (GL20) Proxy.newProxyInstance(
+            GL20.class.getClassLoader(),
+            new Class<?>[] { GL20.class },
+            (proxy, metodo, args) -> valorPorDefecto(metodo.getReturnType())
+        );
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+    }
+
+    private static Object valorPorDefecto(Class<?> tipo) {
+        if (tipo == boolean.class) return Boolean.FALSE;
+        if (tipo == int.class) return 0;
+        if (tipo == long.class) return 0L;
+        if (tipo == float.class) return 0f;
+        if (tipo == double.class) return 0d;
+        if (tipo == byte.class) return (byte) 0;
+        if (tipo == short.class) return (short) 0;
+        if (tipo == char.class) return (char) 0;
+        return null;
+    }
+}
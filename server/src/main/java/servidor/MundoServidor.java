@@ -0,0 +1,411 @@
+package servidor;
+
+import java.util.*;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+
+import control.puzzle.ControlPuzzlePorSala;
+import control.salas.GestorSalas;
+import entidades.GestorDeEntidades;
+import entidades.enemigos.EnemigosDesdeTiled;
+import entidades.enemigos.Enemigo;
+import entidades.items.Item;
+import entidades.personajes.Jugador;
+import fisica.BotonesDesdeTiled;
+import fisica.ColisionesDesdeTiled;
+import fisica.FisicaMundo;
+import juego.contactos.DestinoContactos;
+import juego.contactos.EnrutadorContactosPartida;
+import juego.eventos.ColaEventos;
+import juego.eventos.EventoDanio;
+import juego.eventos.EventoFinNivel;
+import juego.eventos.EventoPickup;
+import juego.inicializacion.InicializadorSensoresPuertas;
+import juego.sistemas.ProcesadorColasEventos;
+import juego.sistemas.SistemaFinNivel;
+import juego.sistemas.SistemaTransicionSala;
+import mapa.generacion.DisposicionMapa;
+import mapa.generacion.GeneradorMapa;
+import mapa.generacion.GrafoPuertas;
+import mapa.model.Habitacion;
+import red.FiltroInteres;
+
+/**
+* Un nivel corriendo en el server, sin render.
+*
+* Arma lo mismo que InicializadorPartida.crearContextoNivel (mapa por seed, Tiled, puertas,
+* botones, enemigos, puzzle) pero sin SpriteBatch / cámara / HUD, y lo avanza a tick fijo
+* con los mismos sistemas que el modo offline:
+* input -> IA enemigos -> físicas -> puertas -> botones -> pickups -> daño -> trampilla.
+*
+* Lo que cambia se avisa a un OyenteMundo (ServidorJuego lo traduce al protocolo).
+*/
+final class MundoServidor implements DestinoContactos {
+    private static final String TAG = "MundoServidor";
+
+    private final int nivel;
+
+    private final long semilla;
+
+    private final OyenteMundo oyente;
+
+    private final World world;
+
+    private final FisicaMundo fisica;
+
+    private final TiledMap mapaTiled;
+
+    private final DisposicionMapa disposicion;
+
+    private final ControlPuzzlePorSala controlPuzzle = new ControlPuzzlePorSala();
+
+    private final GestorDeEntidades gestorEntidades;
+
+    private final GestorSalas gestorSalas;
+
+    private final ColaEventos eventos = new ColaEventos();
+
+    private final ProcesadorColasEventos procesadorEventos = new ProcesadorColasEventos();
+
+    private final SistemaTransicionSala transicionSala = new SistemaTransicionSala();
+
+    private final SistemaFinNivel sistemaFinNivel = new SistemaFinNivel();
+
+    private final Jugador jugador1;
+
+    private final Jugador jugador2;
+
+    private Habitacion salaActual;
+
+    // Input vigente por jugador (índice = id): el último Move recibido manda hasta el próximo
+    private final int[] inputDx = new int[3];
+
+    private final int[] inputDy = new int[3];
+
+    // Última vida avisada por jugador, para mandar Damage solo cuando cambia
+    private final int[] vidaAvisada = new int[3];
+
+    private final Set<Integer> jugadoresDanioFrame = new HashSet<>();
+
+    private final Set<Item> itemsYaProcesados = new HashSet<>();
+
+    // Ids de red: se asignan cuando la entidad aparece en el mundo (Tiled / botín)
+    private final Map<Enemigo, Integer> idsEnemigos = new IdentityHashMap<>();
+
+    private final Map<Item, Integer> idsItems = new IdentityHashMap<>();
+
+    private int proxIdEnemigo = 1;
+
+    private int proxIdItem = 1;
+
+    private boolean finNivelPedido = false;
+
+    // tmp para no alocar
+    private final Vector2 dir = new Vector2();
+
+    MundoServidor(int nivel, long semilla, Jugador jugador1, Jugador jugador2, OyenteMundo oyente) {
+        this.nivel = Math.max(1, nivel);
+        this.semilla = semilla;
+        this.jugador1 = jugador1;
+        this.jugador2 = jugador2;
+        this.oyente = oyente;
+
+        // Mapa lógico: misma seed => mismo piso que arma cada cliente al recibir Start
+        GeneradorMapa.Configuracion cfg = new GeneradorMapa.Configuracion();
+        cfg.nivel = this.nivel;
+        cfg.semilla = semilla;
+
+        GrafoPuertas grafo = new GrafoPuertas(Arrays.asList(Habitacion.values()), new Random(cfg.semilla));
+        disposicion = new GeneradorMapa(cfg, grafo).generar();
+
+        salaActual = disposicion.salaInicio();
+        disposicion.descubrir(salaActual);
+        controlPuzzle.alEntrarASala(salaActual);
+
+        // Física + Tiled (solo capas de objetos: colisiones, botones, enemigos)
+        world = new World(new Vector2(0, 0), true);
+        fisica = new FisicaMundo(world);
+        fisica.setContactListener(new EnrutadorContactosPartida(this));
+
+        mapaTiled = new TmxMapLoader().load("TMX/mapa.tmx");
+        ColisionesDesdeTiled.crearColisiones(mapaTiled, world);
+        InicializadorSensoresPuertas.generarSensoresPuertas(fisica, disposicion, registro -> {});
+        BotonesDesdeTiled.crearBotones(mapaTiled, world, null, null, null);
+
+        // Jugadores persistentes entre niveles: bodies nuevos en este World
+        jugador1.setCuerpoFisico(null);
+        jugador2.setCuerpoFisico(null);
+
+        gestorEntidades = new GestorDeEntidades(world);
+        gestorEntidades.registrarJugador(jugador1);
+        gestorEntidades.registrarJugador(jugador2);
+
+        float px = salaActual.gridX * salaActual.ancho + salaActual.ancho / 2f;
+        float py = salaActual.gridY * salaActual.alto + salaActual.alto / 2f;
+        gestorEntidades.crearOReposicionarJugador(1, salaActual, px - 32f, py);
+        gestorEntidades.crearOReposicionarJugador(2, salaActual, px + 32f, py);
+
+        EnemigosDesdeTiled.crearEnemigosDesdeMapa(mapaTiled, salaActual, world, gestorEntidades);
+        controlPuzzle.setEnemigosVivos(salaActual, gestorEntidades.getEnemigosDeSala(salaActual).size());
+
+        gestorSalas = new GestorSalas(disposicion, fisica, null, gestorEntidades);
+
+        jugador1.reaplicarEfectosDeItems();
+        jugador2.reaplicarEfectosDeItems();
+        vidaAvisada[1] = jugador1.getVida();
+        vidaAvisada[2] = jugador2.getVida();
+
+        Gdx.app.log(TAG, "Nivel " + this.nivel + " seed=" + semilla + " salaInicio=" + salaActual);
+    }
+
+    /** Avanza un tick fijo de simulación y avisa los cambios al oyente. */
+    void tick(float delta) {
+        // 1) lógica pura (botín)
+        gestorEntidades.actualizar(delta, salaActual);
+
+        // 2) input (lo que mandaron los clientes)
+        aplicarInput(jugador1);
+        aplicarInput(jugador2);
+
+        // 3) IA enemigos
+        gestorEntidades.actualizarEnemigos(delta, jugador1, jugador2);
+
+        // 4) físicas
+        fisica.step(delta);
+
+        // 5) eventos: puertas (teletransporte autoritativo), botones, pickups, daño
+        Habitacion anterior = salaActual;
+        transicionSala.tickCooldown();
+        salaActual = transicionSala.procesarPuertasPendientes(
+        salaActual,
+        eventos,
+        controlPuzzle,
+        gestorSalas,
+        disposicion,
+        null,
+        mapaTiled,
+        world,
+        gestorEntidades,
+        null,
+        false,
+        null
+        );
+        if (salaActual != anterior) oyente.cambioSala(salaActual);
+
+        procesadorEventos.procesarBotonesPendientes(eventos, salaActual, controlPuzzle, this::despejarSala, null);
+        procesarPickups();
+        procesadorEventos.procesarDaniosPendientes(eventos, jugadoresDanioFrame, gestorEntidades, null);
+
+        // 6) estado jugadores (igual que SistemaActualizacionPartida en offline)
+        actualizarJugador(jugador1, delta);
+        actualizarJugador(jugador2, delta);
+
+        // 7) puzzle / trampilla
+        controlPuzzle.setEnemigosVivos(salaActual, gestorEntidades.getEnemigosDeSala(salaActual).size());
+        sistemaFinNivel.actualizar(salaActual, controlPuzzle, fisica, null);
+        eventos.drenar(EventoFinNivel.class, ev -> {
+            if (ev.sala() == salaActual) finNivelPedido = true;
+        });
+
+        // lo que quede (trampillas de otra sala, etc.) no sirve para el próximo tick
+        eventos.clear();
+
+        // 8) replicar altas/bajas
+        sincronizarEnemigos();
+        sincronizarItems();
+
+        if (finNivelPedido) {
+            finNivelPedido = false;
+            oyente.finNivel();
+        }
+    }
+
+    /** Move:dx:dy de un cliente (cada eje en -1..1). */
+    void setInput(int jugadorId, int dx, int dy) {
+        if (jugadorId < 1 || jugadorId > 2) return;
+        inputDx[jugadorId] = Math.max(-1, Math.min(1, dx));
+        inputDy[jugadorId] = Math.max(-1, Math.min(1, dy));
+    }
+
+    /**
+    * RoomClearReq del cliente: el server decide por sus propios sensores, así que solo
+    * confirma si la sala ya está resuelta acá (sirve de reenvío si se perdió el RoomClear).
+    */
+    boolean estaDespejada(Habitacion sala) {
+        return sala != null && sala == salaActual && controlPuzzle.estaResuelta(sala)
+        && gestorEntidades.getEnemigosDeSala(sala).isEmpty();
+    }
+
+    /**
+    * Salas resueltas como máscara (un bit por Habitacion, ver FiltroInteres.bit) para el Resync.
+    * La actual cuenta solo si además no quedan enemigos (igual que estaDespejada).
+    */
+    long getSalasResueltas() {
+        long mascara = 0L;
+        for (Habitacion h : Habitacion.values()) {
+            boolean resuelta = (h == salaActual) ? estaDespejada(h) : controlPuzzle.estaResuelta(h);
+            if (resuelta) mascara |= FiltroInteres.bit(h);
+        }
+        return mascara;
+    }
+
+    /** NextLevelReq: vale solo si la trampilla ya existe (sala JEFE resuelta). */
+    boolean hayTrampilla() {
+        return sistemaFinNivel.hayTrampilla();
+    }
+
+    public int getNivel() {
+        return nivel;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    Map<Enemigo, Integer> getEnemigosConId() {
+        return Collections.unmodifiableMap(idsEnemigos);
+    }
+
+    Map<Item, Integer> getItemsConId() {
+        return Collections.unmodifiableMap(idsItems);
+    }
+
+    Body getCuerpoItem(Item item) {
+        return gestorEntidades.getCuerpoItem(item);
+    }
+
+    void dispose() {
+        sistemaFinNivel.limpiar(fisica);
+        jugador1.setCuerpoFisico(null);
+        jugador2.setCuerpoFisico(null);
+        fisica.dispose();
+        mapaTiled.dispose();
+    }
+
+    // ===== DestinoContactos =====
+
+    @Override
+    public ColaEventos getEventos() {
+        return eventos;
+    }
+
+    @Override
+    public Habitacion getSalaActual() {
+        return salaActual;
+    }
+
+    @Override
+    public boolean puertasRemotas() {
+        return false; // acá se deciden
+    }
+
+    @Override
+    public boolean puertasEnCooldown() {
+        return transicionSala.bloqueoActivo();
+    }
+
+    @Override
+    public void encolarDanioJugador(int jugadorId, float ex, float ey) {
+        if (jugadorId <= 0) return;
+        eventos.publicar(new EventoDanio(jugadorId, ex, ey));
+    }
+
+    // ===== Helpers =====
+
+    private void aplicarInput(Jugador jugador) {
+        Body cuerpo = jugador.getCuerpoFisico();
+        if (cuerpo == null) return;
+
+        // mismo cálculo que ControlJugador, con el input del cliente en vez del teclado
+        if (!jugador.puedeMoverse()) {
+            cuerpo.setLinearVelocity(0f, 0f);
+            return;
+        }
+
+        dir.set(inputDx[jugador.getId()], inputDy[jugador.getId()]);
+        if (dir.len2() == 0) {
+            cuerpo.setLinearVelocity(0f, 0f);
+            return;
+        }
+
+        dir.nor();
+        float velocidad = jugador.getVelocidad();
+        cuerpo.setLinearVelocity(dir.x * velocidad, dir.y * velocidad);
+    }
+
+    private void actualizarJugador(Jugador jugador, float delta) {
+        jugador.updateEstado(delta);
+        jugador.tick(delta);
+
+        int id = jugador.getId();
+        if (jugador.getVida() != vidaAvisada[id]) {
+            vidaAvisada[id] = jugador.getVida();
+            oyente.vidaCambiada(jugador);
+            if (!jugador.estaViva()) oyente.jugadorMuerto(jugador);
+        }
+    }
+
+    private void despejarSala(Habitacion sala) {
+        Gdx.app.log(TAG, "Sala despejada: " + sala);
+        gestorEntidades.eliminarEnemigosDeSala(sala);
+        oyente.salaDespejada(sala);
+    }
+
+    private void procesarPickups() {
+        itemsYaProcesados.clear();
+
+        eventos.drenar(EventoPickup.class, ev -> {
+            Item item = ev.item();
+            if (!itemsYaProcesados.add(item)) return;
+
+            Jugador jugador = gestorEntidades.getJugador(ev.jugadorId());
+            if (jugador == null || !jugador.estaViva()) return;
+
+            Integer itemId = idsItems.remove(item);
+            gestorEntidades.recogerItem(ev.jugadorId(), item);
+            if (itemId != null) oyente.itemRecogido(ev.jugadorId(), itemId, item.getTipo());
+        });
+    }
+
+    private void sincronizarEnemigos() {
+        List<Enemigo> vivos = gestorEntidades.getEnemigosMundo();
+
+        // Bajas: tenían id y ya no están (sala despejada o cambio de sala)
+        for (Iterator<Map.Entry<Enemigo, Integer>> it = idsEnemigos.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Enemigo, Integer> e = it.next();
+            if (vivos.contains(e.getKey())) continue;
+            it.remove();
+            oyente.enemigoDespawn(e.getValue());
+        }
+
+        // Altas: enemigos nuevos de Tiled (solo se spawnean en la sala actual)
+        for (Enemigo e : vivos) {
+            if (idsEnemigos.containsKey(e) || e.getCuerpoFisico() == null) continue;
+            int id = proxIdEnemigo++;
+            idsEnemigos.put(e, id);
+            Vector2 p = e.getCuerpoFisico().getPosition();
+            oyente.enemigoSpawn(id, e.getNombre(), p.x, p.y, salaActual);
+        }
+    }
+
+    private void sincronizarItems() {
+        List<Item> enMundo = gestorEntidades.getItemsMundo();
+
+        // Los ítems solo se van por pickup (ya avisado en procesarPickups)
+        idsItems.keySet().removeIf(item -> !enMundo.contains(item));
+
+        for (Item item : enMundo) {
+            if (idsItems.containsKey(item)) continue;
+            Body b = gestorEntidades.getCuerpoItem(item);
+            if (b == null) continue;
+            int id = proxIdItem++;
+            idsItems.put(item, id);
+            oyente.itemSpawn(id, item.getTipo(), b.getPosition().x, b.getPosition().y);
+        }
+    }
+}
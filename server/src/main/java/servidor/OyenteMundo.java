@@ -0,0 +1,38 @@
+package servidor;
+
+import entidades.items.ItemTipo;
+import entidades.personajes.Jugador;
+import mapa.model.Habitacion;
+
+/**
+* Cambios de MundoServidor que hay que replicar a los clientes.
+* Se llaman desde MundoServidor.tick(), en el hilo del server.
+*/
+interface OyenteMundo {
+    // UpdateRoom:sala
+    void cambioSala(Habitacion sala);
+
+    // SpawnEnemy:id:nombre:x:y:sala
+    void enemigoSpawn(int enemyId, String nombre, float x, float y, Habitacion sala);
+
+    // DespawnEnemy:id
+    void enemigoDespawn(int enemyId);
+
+    // SpawnItem:id:tipo:x:y
+    void itemSpawn(int itemId, ItemTipo tipo, float x, float y);
+
+    // PickupItem:jugadorId:itemId:tipo (+ Hud del que lo agarró)
+    void itemRecogido(int jugadorId, int itemId, ItemTipo tipo);
+
+    // RoomClear:sala
+    void salaDespejada(Habitacion sala);
+
+    // Damage:playerId:vida:vidaMax
+    void vidaCambiada(Jugador jugador);
+
+    // Dead:playerId + GameOver:loserId
+    void jugadorMuerto(Jugador jugador);
+
+    // Un jugador tocó la trampilla de la sala JEFE resuelta
+    void finNivel();
+}
@@ -0,0 +1,1296 @@
+package servidor;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.badlogic.gdx.ApplicationListener;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+
+import entidades.datos.Estilo;
+import entidades.datos.Genero;
+import entidades.enemigos.Enemigo;
+import entidades.items.Item;
+import entidades.items.ItemTipo;
+import entidades.personajes.Jugador;
+import mapa.model.Habitacion;
+import red.CanalConfiable;
+import red.ClientThread;
+import red.EscritorBinario;
+import red.FiltroInteres;
+import red.Fragmentador;
+import red.InventarioCompacto;
+import red.LectorBinario;
+import red.LectorTexto;
+import red.ProtocoloBinario;
+import red.Reensamblador;
+import red.SincronizadorLockstep;
+import red.TransporteRed;
+import red.TransporteUdp;
+
+/**
+* Server autoritativo headless.
+*
+* Cada render() del backend headless es un tick fijo:
+* 1) drena los datagramas del transporte (Connect / Move / Ready / ...),
+* 2) avanza MundoServidor 1/ticks segundos,
+* 3) manda el estado a los clientes listos (UpdatePosition / UpdateEnemy) más los
+*    eventos que haya disparado el tick (UpdateRoom, SpawnEnemy, RoomClear, Damage, ...).
+*
+* Habla los dos protocolos de ClientThread. Si el Connect trae bin1 se contesta
+* Connected:id:bin1 y esa sesión pasa a binario: los eventos (Start, UpdateRoom, RoomClear,
+* Spawn*, PickupItem, GameOver...) van por su CanalConfiable y el estado de cada tick en un OP_BUNDLE (UpdatePosition de los jugadores + snapshot delta
+* de los enemigos, ver CodificadorSnapshots). Connected, Session, Resync y lo de lockstep
+* siguen en texto: el cliente entiende los dos en el mismo socket.
+* En texto el estado de cada tick sale en un lote por cliente (líneas separadas por '\n').
+*
+* Reconexión: cada Connected va seguido de Session:token. Un cliente que se cayó manda
+* Resume:token (desde cualquier dirección) y recibe en pocos datagramas Resync + el estado
+* completo, sin pasar por Start ni rearmar el nivel.
+*
+* Lockstep (setLockstep): no hay MundoServidor. El server manda Start:seed:1:Lockstep y
+* después solo reenvía a cada cliente las entradas por tick del otro (In); cada cliente corre
+* la simulación entera, también los cambios de nivel. Hacen falta los dos jugadores.
+* Rollback (setRollback) es lo mismo para el server; solo cambia el Start (:Rollback).
+*/
+public final class ServidorJuego implements ApplicationListener, OyenteMundo {
+    public static final int PUERTO_DEFAULT = 5555;
+
+    public static final int TICKS_DEFAULT = 30;
+
+    public static final int MAX_JUGADORES = 2;
+
+    private static final String TAG = "SERVER";
+
+    private static final char SEP = ':';
+
+    // Igual que Partida: después de este nivel no hay siguiente
+    private static final int NIVEL_FINAL = 3;
+
+    // Un cliente en partida manda Move cada frame; si calla tanto tiempo, se fue
+    private static final long TIMEOUT_CLIENTE_MS = 10_000;
+
+    // Después del timeout el lugar se guarda este tiempo para un Resume (más que la ventana del cliente)
+    private static final long GRACIA_RECONEXION_MS = 30_000;
+
+    private static final int BUFFER_SIZE = 1472;
+
+    // Un mensaje confiable: lo que queda del datagrama después de la cabecera (+ MAGIC, que no viaja)
+    private static final int CONFIABLE_MAX = BUFFER_SIZE - CanalConfiable.CABECERA;
+
+    // Tope de un OP_BUNDLE del lote binario (Ready / Resume / Connect): entra como un solo mensaje confiable
+    private static final int LOTE_BINARIO_MAX = CONFIABLE_MAX + 1;
+
+    // Después del GameOver la sesión se sigue atendiendo (solo acks) hasta que lo confirme
+    private static final long DESPEDIDA_MS = 3_000;
+
+    private final int puerto;
+
+    private final int ticksPorSegundo;
+
+    private final int jugadoresParaEmpezar;
+
+    private TransporteRed transporte;
+
+    // Índice = playerId (1..MAX_JUGADORES)
+    private final SesionCliente[] sesiones = new SesionCliente[MAX_JUGADORES + 1];
+
+    // Sesiones binarias de una partida terminada con el GameOver todavía sin confirmar
+    private final List<SesionCliente> despedidas = new ArrayList<>();
+
+    // Persisten entre niveles (vida, ítems); se recrean al terminar la partida
+    private final Jugador[] jugadores = new Jugador[MAX_JUGADORES + 1];
+
+    private MundoServidor mundo;
+
+    private final Random random = new Random();
+
+    private final SecureRandom randomTokens = new SecureRandom();
+
+    private long tick = 0;
+
+    // Se resuelven después del tick (no se cambia de mundo adentro de su propio tick)
+    private boolean siguienteNivelPedido = false;
+
+    private int perdedor = -1;
+
+    private boolean lockstep = false;
+
+    // Lockstep con predicción en el cliente (Start:seed:1:Rollback)
+    private boolean rollback = false;
+
+    // Lockstep: ya se mandó el Start (el nivel lo llevan los clientes)
+    private boolean partidaLockstep = false;
+
+    private long semillaLockstep = 0L;
+
+    private final ByteBuffer entrada = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final ByteBuffer salida = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final byte[] recibido = new byte[BUFFER_SIZE];
+
+    // Lo que no entra en un datagrama viaja en OP_FRAGMENTO (los dos sentidos)
+    private final Fragmentador fragmentador = new Fragmentador(BUFFER_SIZE);
+
+    private final Reensamblador reensamblador = new Reensamblador(BUFFER_SIZE);
+
+    // El mensaje a mandar ya en UTF-8 (hasta lo que entra fragmentado)
+    private final byte[] mensajeBytes = new byte[fragmentador.maxMensaje()];
+
+    private final LectorTexto lector = new LectorTexto();
+
+    private final StringBuilder sb = new StringBuilder(128);
+
+    // Campo hex del In que se reenvía
+    private final byte[] hexIn = new byte[SincronizadorLockstep.MAX_POR_MENSAJE];
+
+    // Snapshot / Resync: varias líneas por datagrama, separadas por '\n'
+    private final StringBuilder lote = new StringBuilder(BUFFER_SIZE);
+
+    private int loteBytes = 0;
+
+    private int loteDatagramas = 0;
+
+    private final int[] conteosHud = new int[InventarioCompacto.TIPOS];
+
+    private final LectorBinario lectorBin = new LectorBinario();
+
+    // Forma binaria del último mensaje armado (vacío = solo existe en texto: Connected, Session, In...)
+    private final EscritorBinario bin = new EscritorBinario(BUFFER_SIZE);
+
+    // Lote de una sesión binaria: un OP_BUNDLE por datagrama
+    private final EscritorBinario loteBin = new EscritorBinario(LOTE_BINARIO_MAX);
+
+    private int loteBinMensajes = 0;
+
+    // Estado de un tick para una sesión binaria (si no entra en el MTU sale fragmentado)
+    private final EscritorBinario estadoBin = new EscritorBinario(fragmentador.maxMensaje());
+
+    private final EscritorBinario snapshotBin = new EscritorBinario(fragmentador.maxMensaje());
+
+    // Lo que arma el canal confiable de cada sesión (acks y reenvíos)
+    private final EscritorBinario confiableBin = new EscritorBinario(BUFFER_SIZE);
+
+    private long descartadosSalida = 0;
+
+    public ServidorJuego(int puerto, int ticksPorSegundo, int jugadoresParaEmpezar) {
+        this.puerto = puerto;
+        this.ticksPorSegundo = Math.max(1, ticksPorSegundo);
+        this.jugadoresParaEmpezar = Math.max(1, Math.min(MAX_JUGADORES, jugadoresParaEmpezar));
+        crearJugadores();
+    }
+
+    /** Con un transporte ya armado (por ejemplo el extremo servidor de TransporteLoopback). */
+    public ServidorJuego(TransporteRed transporte, int ticksPorSegundo, int jugadoresParaEmpezar) {
+        this(0, ticksPorSegundo, jugadoresParaEmpezar);
+        this.transporte = transporte;
+    }
+
+    @Override
+    public void create() {
+        GlNulo.instalarSiFalta();
+
+        if (transporte == null) {
+            try {
+                transporte = new TransporteUdp(puerto);
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "No se pudo abrir el puerto " + puerto + ": " + e.getMessage());
+                Gdx.app.exit();
+                return;
+            }
+        }
+        Gdx.app.log(TAG, "Escuchando en " + puerto + " a " + ticksPorSegundo + " ticks/s, esperando "
+        + jugadoresParaEmpezar + " jugador(es)");
+    }
+
+    @Override
+    public void render() {
+        if (transporte == null) return;
+
+        long ahora = System.currentTimeMillis();
+        try {
+            recibirPendientes(ahora);
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Error recibiendo: " + e.getMessage());
+        }
+
+        if (mundo != null) {
+            mundo.tick(1f / ticksPorSegundo);
+            tick++;
+            enviarEstado(ahora);
+        }
+
+        if (perdedor > 0) {
+            terminarPartida(perdedor);
+        } else if (siguienteNivelPedido) {
+            siguienteNivelPedido = false;
+            avanzarNivel();
+        }
+
+        revisarTimeouts(ahora);
+
+        // Eventos confiables nuevos, reenvíos y acks de lo que mandaron los clientes (Ready, Door...)
+        for (SesionCliente s : sesiones) {
+            if (s != null && s.binario) s.confiable.tick(ahora, confiableBin, s.salida);
+        }
+        for (int i = despedidas.size() - 1; i >= 0; i--) {
+            SesionCliente s = despedidas.get(i);
+            s.confiable.tick(ahora, confiableBin, s.salida);
+            if (s.confiable.getSinConfirmar() == 0 || ahora >= s.despedidaHastaMs) despedidas.remove(i);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (SesionCliente s : sesiones) {
+            if (s != null) enviar(s, armar("Disconnect"));
+        }
+        if (mundo != null) mundo.dispose();
+        mundo = null;
+        if (transporte != null) transporte.cerrar();
+    }
+
+    @Override public void resize(int width, int height) {}
+    @Override public void pause() {}
+    @Override public void resume() {}
+
+    /** Antes de create(): partidas lockstep en vez de autoritativas. */
+    public void setLockstep(boolean lockstep) {
+        this.lockstep = lockstep;
+    }
+
+    /** Antes de create(): lockstep, pero avisando a los clientes que predigan (rollback). */
+    public void setRollback(boolean rollback) {
+        this.rollback = rollback;
+        if (rollback) lockstep = true;
+    }
+
+    public long getDescartadosSalida() {
+        return descartadosSalida;
+    }
+
+    // ===== Recepción =====
+
+    private void recibirPendientes(long ahora) throws IOException {
+        while (true) {
+            entrada.clear();
+            SocketAddress origen = transporte.recibir(entrada);
+            if (origen == null) return;
+
+            entrada.flip();
+            int n = entrada.remaining();
+            if (n == 0) continue;
+            entrada.get(recibido, 0, n);
+
+            if (ProtocoloBinario.esBinario(recibido, 0, n) && (recibido[1] & 0xFF) == ProtocoloBinario.OP_FRAGMENTO) {
+                // Un mensaje largo partido en fragmentos
+                int completo = reensamblador.agregar(origen, recibido, 0, n, ahora);
+                if (completo > 0) procesarDatagrama(reensamblador.getCompleto(), completo, origen, ahora);
+                continue;
+            }
+            procesarDatagrama(recibido, n, origen, ahora);
+        }
+    }
+
+    private void procesarDatagrama(byte[] datos, int n, SocketAddress origen, long ahora) {
+        if (datos[0] == ProtocoloBinario.MAGIC) {
+            // Binario solo después de un Connect: sin sesión no hay a quién atribuirlo
+            SesionCliente s = buscarSesion(origen);
+            lectorBin.reset(datos, 0, n);
+            lectorBin.u8();
+            if (s == null) {
+                recibirAckDespedida(origen, lectorBin);
+                return;
+            }
+            s.ultimoMensajeMs = ahora;
+            procesarBinario(s, lectorBin, true, true);
+            return;
+        }
+
+        // Puede venir más de un mensaje por datagrama (un frame del cliente), separados por '\n'
+        int ini = 0;
+        for (int i = 0; i <= n; i++) {
+            if (i < n && datos[i] != '\n') continue;
+            if (i > ini) {
+                lector.reset(datos, ini, i - ini);
+                procesarMensaje(origen, ahora);
+            }
+            ini = i + 1;
+        }
+    }
+
+    private void procesarMensaje(SocketAddress origen, long ahora) {
+        if (lector.vacio()) return;
+
+        final int campos = lector.campos();
+        final int cmd = lector.comando(COMANDOS);
+
+        if (cmd == CMD_CONNECT) {
+            // Connect[:GENERO:ESTILO[:binN]]
+            Genero genero = (campos >= 2) ? leerEnum(Genero.class, lector.texto(NOMBRES_GENERO)) : null;
+            Estilo estilo = (campos >= 3) ? leerEnum(Estilo.class, lector.texto(NOMBRES_ESTILO)) : null;
+            boolean binario = campos >= 4 && ProtocoloBinario.TOKEN_VERSION.equals(lector.texto());
+            conectar(origen, genero, estilo, binario, ahora);
+            return;
+        }
+
+        if (cmd == CMD_RESUME) {
+            // Resume:token[:GENERO:ESTILO[:binN]] (lo que sigue al token es el Connect original)
+            long token = (campos >= 2) ? lector.largoOr(0L) : 0L;
+            Genero genero = (campos >= 3) ? leerEnum(Genero.class, lector.texto(NOMBRES_GENERO)) : null;
+            Estilo estilo = (campos >= 4) ? leerEnum(Estilo.class, lector.texto(NOMBRES_ESTILO)) : null;
+            boolean binario = campos >= 5 && ProtocoloBinario.TOKEN_VERSION.equals(lector.texto());
+            reanudar(origen, token, genero, estilo, binario, ahora);
+            return;
+        }
+
+        SesionCliente s = buscarSesion(origen);
+        if (s == null) return; // no mandó Connect (o ya lo echamos)
+        s.ultimoMensajeMs = ahora;
+
+        switch (cmd) {
+
+        case CMD_MOVE: {
+                // Move:dx:dy[:seq]
+                if (campos < 3) break;
+                int dx = lector.entero();
+                int dy = lector.entero();
+                int seq = (campos >= 4) ? lector.enteroOr(-1) : -1;
+                if (!lector.ok()) break;
+                mover(s, dx, dy, seq);
+                break;
+            }
+
+        case CMD_READY: {
+                listo(s);
+                break;
+            }
+
+        case CMD_ROOM_CLEAR_REQ: {
+                if (campos < 2) break;
+                pedidoSalaDespejada(s, leerEnum(Habitacion.class, lector.texto(NOMBRES_HABITACION)));
+                break;
+            }
+
+        case CMD_NEXT_LEVEL_REQ: {
+                pedidoSiguienteNivel();
+                break;
+            }
+
+        case CMD_DOOR: {
+                // Las puertas las detecta el server con sus propios sensores
+                break;
+            }
+
+        case CMD_INTEREST: {
+                // Interest[:SALA...] (sin salas = todas). Nombres desconocidos se ignoran.
+                long mascara = 0L;
+                for (int i = 1; i < campos; i++) {
+                    mascara |= FiltroInteres.bit(leerEnum(Habitacion.class, lector.texto(NOMBRES_HABITACION)));
+                }
+                s.interes = (mascara != 0L) ? mascara : FiltroInteres.TODAS;
+                break;
+            }
+
+        case CMD_PING: {
+                // Ping:id:ms -> Pong:id:ms al momento, solo en su datagrama (el RTT no espera al tick)
+                if (campos < 3) break;
+                int pingId = lector.entero();
+                long clienteMs = lector.largo();
+                if (!lector.ok()) break;
+                enviar(s.direccion, armar("Pong").append(SEP).append(pingId).append(SEP).append(clienteMs));
+                break;
+            }
+
+        case CMD_IN: {
+                // In:desde:ack[:hex] -> al otro como In:playerId:desde:ack[:hex]
+                if (!partidaLockstep || campos < 3) break;
+                int desde = lector.entero();
+                int ack = lector.entero();
+                // el hex pasa por un byte[] reusado (llega un In por frame de cada jugador)
+                int largoHex = (campos >= 4) ? lector.copiar(hexIn) : -1;
+                if (!lector.ok()) break;
+                armar("In").append(SEP).append(s.playerId).append(SEP).append(desde).append(SEP).append(ack);
+                if (largoHex >= 0) {
+                    sb.append(SEP);
+                    for (int k = 0; k < largoHex; k++) sb.append((char) hexIn[k]);
+                }
+                enviarATodosMenos(s.playerId);
+                break;
+            }
+
+        default:
+            Gdx.app.log(TAG, "Mensaje desconocido de J" + s.playerId + ": " + lector.mensaje());
+            break;
+        }
+    }
+
+    /**
+    * Un mensaje binario de s: el lector queda parado en el opcode. Si admiteBundle, un
+    * OP_BUNDLE se abre (sin bundles adentro), como hace el cliente con los del server.
+    * Lo que entrega el canal confiable no puede traer otro OP_CONFIABLE (admiteConfiable).
+    */
+    private void procesarBinario(SesionCliente s, LectorBinario in, boolean admiteBundle, boolean admiteConfiable) {
+        int op = in.u8();
+        if (!in.ok()) return;
+
+        if (op != ProtocoloBinario.OP_BUNDLE) {
+            if (op == ProtocoloBinario.OP_CONFIABLE && !admiteConfiable) return;
+            despacharBinario(s, op, in);
+            return;
+        }
+        if (!admiteBundle) return;
+
+        // [varint largo][opcode][campos...] hasta el final
+        while (in.restantes() > 0) {
+            int largo = in.varInt();
+            if (!in.ok() || largo <= 0) return;
+            int fin = in.limitar(largo);
+            if (!in.ok()) return;
+            procesarBinario(s, in, false, admiteConfiable);
+            if (!in.salirDeLimite(fin)) return;
+        }
+    }
+
+    private void despacharBinario(SesionCliente s, int op, LectorBinario in) {
+        switch (op) {
+
+        case ProtocoloBinario.OP_MOVE: {
+                int dx = in.s8();
+                int dy = in.s8();
+                int seq = in.varInt();
+                if (in.ok()) mover(s, dx, dy, seq);
+                break;
+            }
+
+        case ProtocoloBinario.OP_READY: {
+                in.varInt(); // playerId: el server ya sabe quién es
+                if (in.ok()) listo(s);
+                break;
+            }
+
+        case ProtocoloBinario.OP_ROOM_CLEAR_REQ: {
+                Habitacion sala = ProtocoloBinario.habitacion(in.varInt());
+                if (in.ok()) pedidoSalaDespejada(s, sala);
+                break;
+            }
+
+        case ProtocoloBinario.OP_NEXT_LEVEL_REQ: {
+                pedidoSiguienteNivel();
+                break;
+            }
+
+        case ProtocoloBinario.OP_DOOR: {
+                // Las puertas las detecta el server con sus propios sensores
+                break;
+            }
+
+        case ProtocoloBinario.OP_SNAPSHOT_ACK: {
+                int snapshotId = in.varInt();
+                if (in.ok()) s.snapshots.confirmar(snapshotId);
+                break;
+            }
+
+        case ProtocoloBinario.OP_PING: {
+                // Pong solo en su datagrama y en el momento: el RTT no tiene que esperar al tick
+                int pingId = in.varInt();
+                int clienteMs = in.i32();
+                if (!in.ok()) break;
+                ProtocoloBinario.pong(bin, pingId, clienteMs);
+                enviarDatagrama(s.direccion, bin.datos(), bin.largo());
+                break;
+            }
+
+        case ProtocoloBinario.OP_INTEREST: {
+                long mascara = in.i64();
+                if (in.ok()) s.interes = (mascara != 0L) ? mascara : FiltroInteres.TODAS;
+                break;
+            }
+
+        case ProtocoloBinario.OP_CONFIABLE: {
+                s.confiable.recibir(in, s.receptor);
+                break;
+            }
+
+        case ProtocoloBinario.OP_ACK: {
+                s.confiable.recibirAck(in);
+                break;
+            }
+
+        default:
+            // desconocido: se ignora sin romper
+            break;
+        }
+    }
+
+    /** Partida terminada: de esa sesión solo interesa el ack del GameOver. */
+    private void recibirAckDespedida(SocketAddress origen, LectorBinario in) {
+        for (SesionCliente d : despedidas) {
+            if (!d.direccion.equals(origen)) continue;
+            if (in.u8() == ProtocoloBinario.OP_ACK) d.confiable.recibirAck(in);
+            return;
+        }
+    }
+
+    private void mover(SesionCliente s, int dx, int dy, int seq) {
+        if (mundo != null) mundo.setInput(s.playerId, dx, dy);
+        if (seq >= 0) s.ultimoInput = seq;
+    }
+
+    private void listo(SesionCliente s) {
+        if (partidaLockstep) {
+            // No hay estado que mandar: desde acá solo cuenta para el timeout
+            s.listo = true;
+            return;
+        }
+        if (mundo == null) return;
+        s.listo = true;
+        enviarSnapshot(s);
+    }
+
+    /** El server resuelve por sus sensores: solo contesta si acá ya está despejada. */
+    private void pedidoSalaDespejada(SesionCliente s, Habitacion sala) {
+        if (mundo == null || sala == null) return;
+        if (mundo.estaDespejada(sala)) enviar(s, armarRoomClear(sala));
+    }
+
+    private void pedidoSiguienteNivel() {
+        if (mundo != null && mundo.hayTrampilla()) siguienteNivelPedido = true;
+    }
+
+    private SesionCliente nuevaSesion(int id, SocketAddress origen, long ahora) {
+        SesionCliente s = new SesionCliente(id, nuevoToken(), origen, ahora, BUFFER_SIZE - CanalConfiable.CABECERA);
+        s.receptor = in -> procesarBinario(s, in, true, false);
+        s.salida = (datos, largo) -> enviarDatagrama(s.direccion, datos, largo);
+        return s;
+    }
+
+    /** Connected (con bin1 si el cliente lo ofreció) + Session; el canal y los snapshots arrancan de cero. */
+    private void agregarConnected(SesionCliente s, boolean binario) {
+        s.binario = binario;
+        s.confiable.reset();
+        s.snapshots.reset();
+
+        // Connected:id[:bin1]:lote:ping (lote = acá se separan varias líneas por datagrama,
+        // ping = se contesta el Ping de texto)
+        armar("Connected").append(SEP).append(s.playerId);
+        if (binario) sb.append(SEP).append(ProtocoloBinario.TOKEN_VERSION);
+        sb.append(SEP).append(ClientThread.TOKEN_LOTE).append(SEP).append(ClientThread.TOKEN_PING);
+        agregarALote(s, sb);
+        agregarALote(s, armarSession(s));
+    }
+
+    private void conectar(SocketAddress origen, Genero genero, Estilo estilo, boolean binario, long ahora) {
+        SesionCliente s = buscarSesion(origen);
+
+        if (s == null) {
+            int id = slotLibre();
+            if (id < 0) {
+                Gdx.app.log(TAG, "Connect rechazado (partida llena): " + origen);
+                enviar(origen, armar("Disconnect"));
+                return;
+            }
+            s = nuevaSesion(id, origen, ahora);
+            sesiones[id] = s;
+            Gdx.app.log(TAG, "J" + id + " conectado desde " + origen);
+        }
+        s.ultimoMensajeMs = ahora;
+
+        Jugador j = jugadores[s.playerId];
+        j.setGenero(genero);
+        j.setEstilo(estilo);
+
+        // Reintento del mismo cliente: vuelve a recibir lo mismo
+        agregarConnected(s, binario);
+        cerrarLote(s);
+        for (SesionCliente otra : sesiones) {
+            if (otra != null) enviarApariencias(otra);
+        }
+
+        // Lockstep sin un jugador no avanza nunca: espera a los dos
+        int necesarios = lockstep ? MAX_JUGADORES : jugadoresParaEmpezar;
+        if (mundo != null || partidaLockstep) {
+            // Entra a una partida ya empezada: arma el mismo nivel
+            // (en lockstep el otro ya simuló ticks: solo sirve si fue antes de su primer In)
+            enviar(s, armarStart());
+        } else if (contarSesiones() >= necesarios) {
+            iniciarNivel(1);
+        }
+    }
+
+    /**
+    * Resume de un cliente que perdió la conexión: la sesión sigue siendo suya (mismo playerId,
+    * mismo Jugador) y recibe el estado actual sin Start. Token desconocido = Connect común.
+    */
+    private void reanudar(SocketAddress origen, long token, Genero genero, Estilo estilo, boolean binario, long ahora) {
+        SesionCliente s = buscarSesionPorToken(token);
+        if (s == null) {
+            Gdx.app.log(TAG, "Resume con sesión vencida desde " + origen + ": entra como nuevo");
+            conectar(origen, genero, estilo, binario, ahora);
+            return;
+        }
+
+        if (!s.direccion.equals(origen)) {
+            Gdx.app.log(TAG, "J" + s.playerId + " reanuda desde " + origen + " (antes " + s.direccion + ")");
+        }
+        s.direccion = origen;
+        s.ultimoMensajeMs = ahora;
+        s.caidaDesdeMs = -1;
+
+        agregarConnected(s, binario);
+        agregarApariencias(s);
+
+        if (mundo != null) {
+            // Resync:seed:nivel:sala:salasResueltas y atrás el estado; desde ya recibe ticks
+            s.listo = true;
+            agregarALote(s, armar("Resync").append(SEP).append(mundo.getSemilla()).append(SEP).append(mundo.getNivel())
+            .append(SEP).append(mundo.getSalaActual().name()).append(SEP).append(mundo.getSalasResueltas()));
+            agregarEstado(s);
+        } else if (partidaLockstep) {
+            // Sin Resync: el mundo lo tiene el cliente, con volver a recibir In sigue donde estaba
+            s.listo = true;
+        }
+
+        int datagramas = cerrarLote(s);
+        Gdx.app.log(TAG, "J" + s.playerId + " reanudó la sesión (" + datagramas + " datagramas)");
+    }
+
+    // ===== Envío de estado =====
+
+    private void enviarEstado(long ahora) {
+        // Los enemigos vivos son los de la sala actual (se spawnean al entrar):
+        // a quien no la tenga en su Interest no se le manda ni un UpdateEnemy
+        Habitacion salaEnemigos = mundo.getSalaActual();
+
+        for (SesionCliente s : sesiones) {
+            if (s == null || !s.listo) continue;
+            boolean conEnemigos = FiltroInteres.contiene(s.interes, salaEnemigos);
+            if (s.binario) enviarEstadoBinario(s, conEnemigos, ahora);
+            else enviarEstadoTexto(s, conEnemigos, ahora);
+        }
+    }
+
+    /** Un lote por cliente con los UpdatePosition / UpdateEnemy del tick (no uno por entidad). */
+    private void enviarEstadoTexto(SesionCliente s, boolean conEnemigos, long ahora) {
+        final int seq = (int) (tick & 0xFFFF);
+
+        for (int id = 1; id <= MAX_JUGADORES; id++) {
+            Body b = jugadores[id].getCuerpoFisico();
+            if (b == null) continue;
+
+            // UpdatePosition:id:x:y:serverMs:inputAck:seq
+            Vector2 p = b.getPosition();
+            armar("UpdatePosition").append(SEP).append(id)
+            .append(SEP).append(p.x).append(SEP).append(p.y)
+            .append(SEP).append(ahora).append(SEP).append(inputAck(id)).append(SEP).append(seq);
+            agregarALote(s, sb);
+        }
+
+        if (conEnemigos) {
+            for (Map.Entry<Enemigo, Integer> e : mundo.getEnemigosConId().entrySet()) {
+                Body b = e.getKey().getCuerpoFisico();
+                if (b == null) continue;
+
+                // UpdateEnemy:id:x:y:serverMs:seq
+                Vector2 p = b.getPosition();
+                armar("UpdateEnemy").append(SEP).append(e.getValue())
+                .append(SEP).append(p.x).append(SEP).append(p.y)
+                .append(SEP).append(ahora).append(SEP).append(seq);
+                agregarALote(s, sb);
+            }
+        }
+        cerrarLote(s);
+    }
+
+    /**
+    * Un OP_BUNDLE con los UpdatePosition de los jugadores y el snapshot de enemigos (delta contra
+    * el último que confirmó el cliente). No es confiable: el tick siguiente trae estado nuevo.
+    */
+    private void enviarEstadoBinario(SesionCliente s, boolean conEnemigos, long ahora) {
+        final int seq = (int) (tick & 0xFFFF);
+
+        estadoBin.reset().u8(ProtocoloBinario.MAGIC).u8(ProtocoloBinario.OP_BUNDLE);
+
+        for (int id = 1; id <= MAX_JUGADORES; id++) {
+            Body b = jugadores[id].getCuerpoFisico();
+            if (b == null) continue;
+            Vector2 p = b.getPosition();
+            ProtocoloBinario.updatePosition(bin, id, p.x, p.y, ahora, inputAck(id), seq);
+            agregarABundle(estadoBin, bin);
+        }
+
+        if (conEnemigos) {
+            s.snapshots.empezar();
+            for (Map.Entry<Enemigo, Integer> e : mundo.getEnemigosConId().entrySet()) {
+                Body b = e.getKey().getCuerpoFisico();
+                if (b == null) continue;
+                s.snapshots.agregarEnemigo(e.getValue(), b.getPosition().x, b.getPosition().y);
+            }
+            s.snapshots.codificar(snapshotBin, ahora);
+            agregarABundle(estadoBin, snapshotBin);
+        }
+
+        enviarBytes(s.direccion, estadoBin.datos(), estadoBin.largo());
+    }
+
+    private int inputAck(int playerId) {
+        SesionCliente duenio = sesiones[playerId];
+        return (duenio != null) ? duenio.ultimoInput : -1;
+    }
+
+    /** Lo que un cliente necesita al terminar de armar el nivel (Ready). */
+    private void enviarSnapshot(SesionCliente s) {
+        agregarApariencias(s);
+        agregarALote(s, armarUpdateRoom(mundo.getSalaActual()));
+        agregarEstado(s);
+
+        if (mundo.estaDespejada(mundo.getSalaActual())) {
+            agregarALote(s, armarRoomClear(mundo.getSalaActual()));
+        }
+        cerrarLote(s);
+    }
+
+    /** HUD propio, vida del otro, enemigos e ítems vivos (común a Ready y Resume). */
+    private void agregarEstado(SesionCliente s) {
+        for (int id = 1; id <= MAX_JUGADORES; id++) {
+            if (id == s.playerId) agregarALote(s, armarHud(jugadores[id]));
+            else agregarALote(s, armarOther(jugadores[id]));
+        }
+
+        for (Map.Entry<Enemigo, Integer> e : mundo.getEnemigosConId().entrySet()) {
+            Body b = e.getKey().getCuerpoFisico();
+            if (b == null) continue;
+            agregarALote(s, armarSpawnEnemy(e.getValue(), e.getKey().getNombre(),
+            b.getPosition().x, b.getPosition().y, mundo.getSalaActual()));
+        }
+
+        for (Map.Entry<Item, Integer> e : mundo.getItemsConId().entrySet()) {
+            Body b = mundo.getCuerpoItem(e.getKey());
+            if (b == null) continue;
+            agregarALote(s, armarSpawnItem(e.getValue(), e.getKey().getTipo(), b.getPosition().x, b.getPosition().y));
+        }
+    }
+
+    private void enviarApariencias(SesionCliente s) {
+        agregarApariencias(s);
+        cerrarLote(s);
+    }
+
+    private void agregarApariencias(SesionCliente s) {
+        for (int id = 1; id <= MAX_JUGADORES; id++) {
+            if (sesiones[id] == null) continue;
+            agregarALote(s, armarAppearance(jugadores[id]));
+        }
+    }
+
+    // ===== OyenteMundo =====
+
+    @Override
+    public void cambioSala(Habitacion sala) {
+        armarUpdateRoom(sala);
+        enviarATodos();
+    }
+
+    @Override
+    public void enemigoSpawn(int enemyId, String nombre, float x, float y, Habitacion sala) {
+        armarSpawnEnemy(enemyId, nombre, x, y, sala);
+        enviarATodos();
+    }
+
+    @Override
+    public void enemigoDespawn(int enemyId) {
+        armar("DespawnEnemy").append(SEP).append(enemyId);
+        ProtocoloBinario.despawnEnemy(bin, enemyId);
+        enviarATodos();
+    }
+
+    @Override
+    public void itemSpawn(int itemId, ItemTipo tipo, float x, float y) {
+        armarSpawnItem(itemId, tipo, x, y);
+        enviarATodos();
+    }
+
+    @Override
+    public void itemRecogido(int jugadorId, int itemId, ItemTipo tipo) {
+        armar("PickupItem").append(SEP).append(jugadorId).append(SEP).append(itemId).append(SEP).append(tipo.name());
+        ProtocoloBinario.pickupItem(bin, jugadorId, itemId, tipo);
+        enviarATodos();
+
+        // el inventario cambió (y quizás vidaMax / velocidad)
+        Jugador j = jugadores[jugadorId];
+        SesionCliente s = sesiones[jugadorId];
+        if (s != null && s.listo) enviar(s, armarHud(j));
+        armarOther(j);
+        enviarATodosMenos(jugadorId);
+    }
+
+    @Override
+    public void salaDespejada(Habitacion sala) {
+        armarRoomClear(sala);
+        enviarATodos();
+    }
+
+    @Override
+    public void vidaCambiada(Jugador jugador) {
+        armarVida("Damage", jugador);
+        ProtocoloBinario.damage(bin, jugador.getId(), jugador.getVida(), jugador.getVidaMaxima());
+        enviarATodos();
+    }
+
+    @Override
+    public void jugadorMuerto(Jugador jugador) {
+        armar("Dead").append(SEP).append(jugador.getId());
+        ProtocoloBinario.dead(bin, jugador.getId());
+        enviarATodos();
+        if (perdedor < 0) perdedor = jugador.getId();
+    }
+
+    @Override
+    public void finNivel() {
+        siguienteNivelPedido = true;
+    }
+
+    // ===== Partida =====
+
+    private void iniciarNivel(int nivel) {
+        if (mundo != null) mundo.dispose();
+
+        long semilla = random.nextLong() & Long.MAX_VALUE;
+        if (lockstep) {
+            iniciarLockstep(semilla);
+            return;
+        }
+        mundo = new MundoServidor(nivel, semilla, jugadores[1], jugadores[2], this);
+        siguienteNivelPedido = false;
+
+        // Hasta que cada cliente arme el nivel y mande Ready no le llega estado
+        for (SesionCliente s : sesiones) {
+            if (s == null) continue;
+            s.listo = false;
+            s.ultimoInput = -1;
+            // El baseline del nivel anterior no sirve: el primer snapshot va completo
+            s.snapshots.reset();
+            enviar(s, armarStart());
+        }
+        Gdx.app.log(TAG, "Start nivel " + nivel + " seed=" + semilla);
+    }
+
+    private void iniciarLockstep(long semilla) {
+        mundo = null;
+        partidaLockstep = true;
+        semillaLockstep = semilla;
+
+        for (SesionCliente s : sesiones) {
+            if (s == null) continue;
+            s.listo = false;
+            enviar(s, armarStart());
+        }
+        Gdx.app.log(TAG, "Start " + (rollback ? "rollback" : "lockstep") + " seed=" + semilla);
+    }
+
+    private void avanzarNivel() {
+        if (mundo == null) return;
+
+        if (mundo.getNivel() >= NIVEL_FINAL) {
+            // El protocolo no tiene mensaje de victoria: el nivel final queda abierto
+            Gdx.app.log(TAG, "Nivel final completado");
+            return;
+        }
+        iniciarNivel(mundo.getNivel() + 1);
+    }
+
+    private void terminarPartida(int loserId) {
+        armar("GameOver").append(SEP).append(loserId);
+        ProtocoloBinario.gameOver(bin, loserId);
+        enviarATodos();
+        Gdx.app.log(TAG, "GameOver loserId=" + loserId);
+
+        if (mundo != null) mundo.dispose();
+        mundo = null;
+        perdedor = -1;
+        siguienteNivelPedido = false;
+
+        // Los clientes vuelven al menú: la próxima partida arranca con Connect nuevos.
+        // Los binarios se siguen atendiendo hasta que confirmen el GameOver (sale en el próximo tick).
+        long ahora = System.currentTimeMillis();
+        for (int id = 1; id <= MAX_JUGADORES; id++) {
+            SesionCliente s = sesiones[id];
+            sesiones[id] = null;
+            if (s == null || !s.binario || s.confiable.getSinConfirmar() == 0) continue;
+            s.despedidaHastaMs = ahora + DESPEDIDA_MS;
+            despedidas.add(s);
+        }
+        crearJugadores();
+    }
+
+    private void revisarTimeouts(long ahora) {
+        for (int id = 1; id <= MAX_JUGADORES; id++) {
+            SesionCliente s = sesiones[id];
+            if (s == null) continue;
+
+            if (s.caidaDesdeMs >= 0) {
+                if (ahora - s.caidaDesdeMs < GRACIA_RECONEXION_MS) continue;
+                Gdx.app.log(TAG, "J" + id + " no volvió, se libera el lugar");
+                sesiones[id] = null;
+                continue;
+            }
+
+            // En el lobby el cliente no manda nada: solo se vence en partida
+            if (!s.listo) continue;
+            if (ahora - s.ultimoMensajeMs < TIMEOUT_CLIENTE_MS) continue;
+
+            // No se libera todavía: si manda Resume con su token sigue donde estaba
+            Gdx.app.log(TAG, "J" + id + " timeout, se guarda la sesión " + (GRACIA_RECONEXION_MS / 1000) + " s");
+            s.listo = false;
+            s.caidaDesdeMs = ahora;
+            if (mundo != null) mundo.setInput(id, 0, 0);
+        }
+
+        if ((mundo != null || partidaLockstep) && contarSesiones() == 0) {
+            Gdx.app.log(TAG, "Sin clientes: se cierra la partida");
+            if (mundo != null) mundo.dispose();
+            mundo = null;
+            partidaLockstep = false;
+            crearJugadores();
+        }
+    }
+
+    private void crearJugadores() {
+        jugadores[1] = new Jugador(1, "Jugador 1", Genero.MASCULINO, Estilo.CLASICO);
+        jugadores[2] = new Jugador(2, "Jugador 2", Genero.FEMENINO, Estilo.CLASICO);
+    }
+
+    // ===== Helpers de mensajes =====
+
+    private StringBuilder armar(String comando) {
+        sb.setLength(0);
+        bin.reset(); // sin forma binaria hasta que quien arma la escriba
+        return sb.append(comando);
+    }
+
+    private StringBuilder armarSession(SesionCliente s) {
+        return armar("Session").append(SEP).append(s.token);
+    }
+
+    private StringBuilder armarStart() {
+        // Lockstep: siempre el Start del nivel 1, los siguientes los arma cada cliente (solo texto: lleva el modo)
+        if (partidaLockstep) {
+            return armar("Start").append(SEP).append(semillaLockstep).append(SEP).append(1)
+                .append(SEP).append(rollback ? "Rollback" : "Lockstep");
+        }
+        armar("Start").append(SEP).append(mundo.getSemilla()).append(SEP).append(mundo.getNivel());
+        ProtocoloBinario.start(bin, mundo.getSemilla(), mundo.getNivel());
+        return sb;
+    }
+
+    // Hud:playerId:vida:vidaMax[:tiposCsv]
+    // Hud:playerId:vida:vidaMax:version:c0:c1:... (cantidad por ItemTipo, ver InventarioCompacto)
+    private StringBuilder armarHud(Jugador j) {
+        armarVida("Hud", j).append(SEP).append(j.getVersionInventario());
+        InventarioCompacto.contar(j.getObjetos(), conteosHud);
+        int n = InventarioCompacto.camposUsados(conteosHud);
+        for (int t = 0; t < n; t++) sb.append(SEP).append(conteosHud[t]);
+        ProtocoloBinario.hud(bin, j.getId(), j.getVida(), j.getVidaMaxima(), j.getVersionInventario(), conteosHud, n);
+        return sb;
+    }
+
+    private StringBuilder armarOther(Jugador j) {
+        armarVida("Other", j);
+        ProtocoloBinario.other(bin, j.getId(), j.getVida(), j.getVidaMaxima());
+        return sb;
+    }
+
+    // Comando:playerId:vida:vidaMax (Damage / Other / base de Hud)
+    private StringBuilder armarVida(String comando, Jugador j) {
+        return armar(comando).append(SEP).append(j.getId())
+        .append(SEP).append(j.getVida()).append(SEP).append(j.getVidaMaxima());
+    }
+
+    private StringBuilder armarAppearance(Jugador j) {
+        armar("Appearance").append(SEP).append(j.getId())
+        .append(SEP).append(j.getGenero().name()).append(SEP).append(j.getEstilo().name());
+        ProtocoloBinario.appearance(bin, j.getId(), j.getGenero(), j.getEstilo());
+        return sb;
+    }
+
+    private StringBuilder armarUpdateRoom(Habitacion sala) {
+        armar("UpdateRoom").append(SEP).append(sala.name());
+        ProtocoloBinario.updateRoom(bin, sala);
+        return sb;
+    }
+
+    private StringBuilder armarRoomClear(Habitacion sala) {
+        armar("RoomClear").append(SEP).append(sala.name());
+        ProtocoloBinario.roomClear(bin, sala);
+        return sb;
+    }
+
+    private StringBuilder armarSpawnEnemy(int enemyId, String nombre, float x, float y, Habitacion sala) {
+        armar("SpawnEnemy").append(SEP).append(enemyId).append(SEP).append(nombre)
+        .append(SEP).append(x).append(SEP).append(y).append(SEP).append(sala.name());
+        ProtocoloBinario.spawnEnemy(bin, enemyId, nombre, x, y, sala);
+        return sb;
+    }
+
+    private StringBuilder armarSpawnItem(int itemId, ItemTipo tipo, float x, float y) {
+        armar("SpawnItem").append(SEP).append(itemId).append(SEP).append(tipo.name())
+        .append(SEP).append(x).append(SEP).append(y);
+        ProtocoloBinario.spawnItem(bin, itemId, tipo, x, y);
+        return sb;
+    }
+
+    /** Manda lo último armado (sb / bin) a todos los clientes que ya están en el nivel. */
+    private void enviarATodos() {
+        enviarATodosMenos(-1);
+    }
+
+    private void enviarATodosMenos(int playerId) {
+        for (SesionCliente s : sesiones) {
+            if (s == null || !s.listo || s.playerId == playerId) continue;
+            enviar(s, sb);
+        }
+    }
+
+    /**
+    * mensaje = lo armado en sb. A una sesión binaria le va bin por el canal confiable,
+    * si el mensaje tiene esa forma (sale en el próximo tick del canal).
+    */
+    private void enviar(SesionCliente s, CharSequence mensaje) {
+        if (s.binario && bin.largo() > 0) {
+            enviarConfiable(s, bin);
+            return;
+        }
+        enviar(s.direccion, mensaje);
+    }
+
+    /**
+    * frame = [MAGIC][opcode][campos...]. Con la ventana llena espera en el canal; solo lo que
+    * no entra en un mensaje confiable sale sin confirmación.
+    */
+    private void enviarConfiable(SesionCliente s, EscritorBinario frame) {
+        if (s.confiable.enviar(frame.datos(), 1, frame.largo() - 1)) return;
+        Gdx.app.log(TAG, "J" + s.playerId + ": " + frame.largo() + " bytes no entran en el canal confiable, se manda sin confirmación");
+        enviarBytes(s.direccion, frame.datos(), frame.largo());
+    }
+
+    /**
+    * Suma el mensaje (lo armado en sb / bin) al lote de s; si no entra en el datagrama, antes sale
+    * lo que había. Texto y binario van en lotes separados: cerrarLote manda primero el texto.
+    */
+    private void agregarALote(SesionCliente s, CharSequence linea) {
+        if (s.binario && bin.largo() > 0) {
+            agregarALoteBinario(s);
+            return;
+        }
+
+        int bytes = largoUtf8(linea);
+        if (loteBytes > 0 && loteBytes + 1 + bytes > BUFFER_SIZE) enviarLote(s);
+        if (loteBytes > 0) {
+            lote.append('\n');
+            loteBytes++;
+        }
+        lote.append(linea);
+        loteBytes += bytes;
+    }
+
+    private void agregarALoteBinario(SesionCliente s) {
+        int cuerpo = bin.largo() - 1;
+        int entrada = largoVarInt(cuerpo) + cuerpo;
+        if (2 + entrada > LOTE_BINARIO_MAX) {
+            // no entra ni solo en un bundle: sale suelto
+            enviarConfiable(s, bin);
+            return;
+        }
+        if (loteBinMensajes > 0 && loteBin.largo() + entrada > LOTE_BINARIO_MAX) enviarLoteBinario(s);
+
+        if (loteBinMensajes == 0) loteBin.reset().u8(ProtocoloBinario.MAGIC).u8(ProtocoloBinario.OP_BUNDLE);
+        agregarABundle(loteBin, bin);
+        loteBinMensajes++;
+    }
+
+    /** Manda lo que quedó en el lote. Devuelve cuántos datagramas salieron desde el último cierre. */
+    private int cerrarLote(SesionCliente s) {
+        if (loteBytes > 0) enviarLote(s);
+        if (loteBinMensajes > 0) enviarLoteBinario(s);
+        int n = loteDatagramas;
+        loteDatagramas = 0;
+        return n;
+    }
+
+    private void enviarLote(SesionCliente s) {
+        enviar(s.direccion, lote);
+        lote.setLength(0);
+        loteBytes = 0;
+        loteDatagramas++;
+    }
+
+    private void enviarLoteBinario(SesionCliente s) {
+        // Todo el bundle es un mensaje confiable (el cliente abre bundles adentro del canal)
+        enviarConfiable(s, loteBin);
+        loteBinMensajes = 0;
+        loteDatagramas++;
+    }
+
+    /** [varint largo][opcode][campos...]: el frame sin MAGIC al final del bundle. */
+    private static void agregarABundle(EscritorBinario bundle, EscritorBinario frame) {
+        bundle.varInt(frame.largo() - 1).bytes(frame.datos(), 1, frame.largo() - 1);
+    }
+
+    private static int largoVarInt(int v) {
+        int n = 1;
+        while ((v >>>= 7) != 0) n++;
+        return n;
+    }
+
+    private static int largoUtf8(CharSequence texto) {
+        int n = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            n += (c < 0x80) ? 1 : (c < 0x800 ? 2 : 3);
+        }
+        return n;
+    }
+
+    private void enviar(SocketAddress destino, CharSequence mensaje) {
+        int n = codificar(mensaje);
+        if (n < 0) {
+            Gdx.app.error(TAG, "Mensaje de " + mensaje.length() + " chars: no entra ni fragmentado");
+            return;
+        }
+        enviarBytes(destino, mensajeBytes, n);
+    }
+
+    private void enviarBytes(SocketAddress destino, byte[] datos, int n) {
+        if (n <= BUFFER_SIZE) {
+            enviarDatagrama(destino, datos, n);
+            return;
+        }
+        // Más grande que el MTU: fragmentos (el cliente lo reensambla y lo procesa entero)
+        if (!fragmentador.fragmentar(datos, n, (fragmento, largo) -> enviarDatagrama(destino, fragmento, largo))) {
+            Gdx.app.error(TAG, "Mensaje de " + n + " bytes: no entra ni fragmentado");
+        }
+    }
+
+    /** mensaje en UTF-8 en mensajeBytes. -1 si no entra. */
+    private int codificar(CharSequence mensaje) {
+        int n = mensaje.length();
+        if (n > mensajeBytes.length) return -1;
+        for (int i = 0; i < n; i++) {
+            char c = mensaje.charAt(i);
+            if (c >= 0x80) {
+                // Nombres de Tiled con acentos: camino lento, pero raro
+                byte[] utf8 = mensaje.toString().getBytes(StandardCharsets.UTF_8);
+                if (utf8.length > mensajeBytes.length) return -1;
+                System.arraycopy(utf8, 0, mensajeBytes, 0, utf8.length);
+                return utf8.length;
+            }
+            mensajeBytes[i] = (byte) c;
+        }
+        return n;
+    }
+
+    private void enviarDatagrama(SocketAddress destino, byte[] datos, int largo) {
+        salida.clear();
+        salida.put(datos, 0, largo);
+        salida.flip();
+
+        try {
+            // UDP: si el buffer del SO está lleno se pierde, el próximo tick manda estado nuevo
+            if (!transporte.enviar(salida, destino)) descartadosSalida++;
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Error enviando a " + destino + ": " + e.getMessage());
+        }
+    }
+
+    private SesionCliente buscarSesionPorToken(long token) {
+        if (token == 0L) return null;
+        for (SesionCliente s : sesiones) {
+            if (s != null && s.token == token) return s;
+        }
+        return null;
+    }
+
+    private SesionCliente buscarSesion(SocketAddress origen) {
+        for (SesionCliente s : sesiones) {
+            if (s != null && s.direccion.equals(origen)) return s;
+        }
+        return null;
+    }
+
+    private long nuevoToken() {
+        long token;
+        do {
+            token = randomTokens.nextLong() & Long.MAX_VALUE;
+        } while (token == 0L || buscarSesionPorToken(token) != null);
+        return token;
+    }
+
+    private int slotLibre() {
+        for (int id = 1; id <= MAX_JUGADORES; id++) {
+            if (sesiones[id] == null) return id;
+        }
+        return -1;
+    }
+
+    private int contarSesiones() {
+        int n = 0;
+        for (SesionCliente s : sesiones) {
+            if (s != null) n++;
+        }
+        return n;
+    }
+
+    private static <E extends Enum<E>> E leerEnum(Class<E> tipo, String nombre) {
+        if (nombre == null) return null;
+        try {
+            return Enum.valueOf(tipo, nombre.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // ===== Comandos texto cliente -> server =====
+    private static final int CMD_CONNECT = 0;
+    private static final int CMD_MOVE = 1;
+    private static final int CMD_DOOR = 2;
+    private static final int CMD_READY = 3;
+    private static final int CMD_ROOM_CLEAR_REQ = 4;
+    private static final int CMD_NEXT_LEVEL_REQ = 5;
+    private static final int CMD_INTEREST = 6;
+    private static final int CMD_RESUME = 7;
+    private static final int CMD_IN = 8;
+    private static final int CMD_PING = 9;
+
+    // Orden = índices CMD_*
+    private static final String[] NOMBRES_COMANDO = {
+        "Connect", "Move", "Door", "Ready", "RoomClearReq", "NextLevelReq", "Interest",
+        "Resume", "In", "Ping"
+    };
+
+    private static final byte[][] COMANDOS = ascii(NOMBRES_COMANDO);
+
+    private static final String[] NOMBRES_HABITACION = nombres(Habitacion.values());
+    private static final String[] NOMBRES_GENERO = nombres(Genero.values());
+    private static final String[] NOMBRES_ESTILO = nombres(Estilo.values());
+
+    private static byte[][] ascii(String... s) {
+        byte[][] out = new byte[s.length][];
+        for (int i = 0; i < s.length; i++) out[i] = s[i].getBytes(StandardCharsets.US_ASCII);
+        return out;
+    }
+
+    private static String[] nombres(Enum<?>[] valores) {
+        String[] out = new String[valores.length];
+        for (int i = 0; i < valores.length; i++) out[i] = valores[i].name();
+        return out;
+    }
+}
@@ -0,0 +1,63 @@
+package servidor;
+
+import java.net.SocketAddress;
+
+import red.CanalConfiable;
+import red.CodificadorSnapshots;
+import red.FiltroInteres;
+
+/**
+* Un cliente conectado: dirección UDP, jugador que controla y lo que hace falta
+* para armar sus UpdatePosition (inputAck) y detectar que se fue (timeout).
+*
+* El token (Session) identifica la sesión aunque cambie la dirección: con Resume el
+* cliente la recupera mientras no venza la gracia de reconexión.
+*
+* Con binario (bin1 en el Connect) además tiene su canal confiable y los snapshots
+* que ya confirmó (ver CodificadorSnapshots).
+*/
+final class SesionCliente {
+    final int playerId;
+
+    final long token;
+
+    // Cambia si el cliente reanuda desde otro socket (Resume)
+    SocketAddress direccion;
+
+    // true después del Ready: ya armó el mundo del Start actual y puede recibir estado
+    boolean listo = false;
+
+    // Último Move:dx:dy:seq recibido (-1 = todavía ninguno)
+    int ultimoInput = -1;
+
+    // Salas de las que quiere UpdateEnemy (Interest). Hasta que lo mande, todas.
+    long interes = FiltroInteres.TODAS;
+
+    long ultimoMensajeMs;
+
+    // Desde cuándo no responde (-1 = activa). Mientras tanto el lugar queda reservado.
+    long caidaDesdeMs = -1;
+
+    // Ofreció bin1 en el último Connect / Resume (y se le contestó igual)
+    boolean binario = false;
+
+    final CanalConfiable confiable;
+
+    final CodificadorSnapshots snapshots = new CodificadorSnapshots();
+
+    // Los arma el server una vez por sesión: mensajes confiables en orden / datagramas hacia el cliente
+    CanalConfiable.Receptor receptor;
+
+    CanalConfiable.Salida salida;
+
+    // Partida terminada: hasta cuándo se espera el ack del GameOver
+    long despedidaHastaMs;
+
+    SesionCliente(int playerId, long token, SocketAddress direccion, long ahoraMs, int maxConfiable) {
+        this.playerId = playerId;
+        this.token = token;
+        this.direccion = direccion;
+        this.ultimoMensajeMs = ahoraMs;
+        this.confiable = new CanalConfiable(maxConfiable);
+    }
+}